@@ -2,16 +2,35 @@ package com.levylin.detailscrollview;
 
 import android.app.Application;
 
+import com.levylin.detailscrollview.comment.CommentStore;
+import com.levylin.detailscrollview.views.pool.ViewHolderPool;
+import com.levylin.detailscrollview.views.pool.WebViewPool;
+import com.levylin.detailscrollview.web.bundle.BundleResolver;
+import com.levylin.detailscrollview.web.cache.CachePolicy;
+import com.levylin.detailscrollview.web.cache.ResponseCache;
 import com.tencent.smtt.sdk.QbSdk;
 
+import java.io.File;
+import java.util.Collections;
+
 /**
  * Created by LinXin on 2017/3/23.
  */
 public class App extends Application {
 
+    private static final long WEB_CACHE_SIZE = 50 * 1024 * 1024;
+    private static final int WEB_CACHE_ENTRIES = 2048;
+    private static final int PREWARM_COMMENT_HOLDERS = 12;//大约一屏半的评论
+
     @Override
     public void onCreate() {
         super.onCreate();
+        //第一次请求时才在WebView的IO线程打开，这里只是创建对象
+        WebViewPool.getInstance().setResponseCache(new ResponseCache(new File(getCacheDir(), "web"),
+                WEB_CACHE_SIZE, WEB_CACHE_ENTRIES, CachePolicy.createDefault()));
+        BundleResolver bundleResolver = new BundleResolver();
+        bundleResolver.addDirectory(new File(getFilesDir(), "bundles"));//下发或者预取的文章包放在这里
+        WebViewPool.getInstance().setBundleResolver(bundleResolver);
         QbSdk.initX5Environment(getApplicationContext(), new QbSdk.PreInitCallback() {
             @Override
             public void onCoreInitFinished() {
@@ -21,7 +40,31 @@ public class App extends Application {
             @Override
             public void onViewInitFinished(boolean b) {
                 System.out.println("11111111111111111111111111111111111111111111111111111111onViewInitFinished...." + b);
+                WebViewPool.getInstance().prewarm(App.this, WebViewPool.CORE_X5, 1);//X5内核初始化完才能创建X5的WebView
             }
         });
+        WebViewPool.getInstance().prewarm(this, WebViewPool.CORE_SYSTEM, 1);
+        //评论的ViewHolder在后台线程创建，只用到onCreateViewHolder，不需要数据
+        ViewHolderPool.getInstance().prewarm(this, new RecyclerViewAdapter(Collections.<String>emptyList()),
+                RecyclerViewAdapter.VIEW_TYPE_COMMENT, PREWARM_COMMENT_HOLDERS);
+        //预排版的评论行，两种都预先创建，对比bind耗时时只差在排版上
+        CommentStoreRecyclerAdapter layoutAdapter = new CommentStoreRecyclerAdapter(new CommentStore());
+        layoutAdapter.setLayoutCache(DemoContent.getLayoutCache(this));
+        ViewHolderPool.getInstance().prewarm(this, layoutAdapter,
+                CommentStoreRecyclerAdapter.VIEW_TYPE_COMMENT_LAYOUT, PREWARM_COMMENT_HOLDERS);
+    }
+
+    @Override
+    public void onTrimMemory(int level) {
+        super.onTrimMemory(level);
+        WebViewPool.getInstance().onTrimMemory(level);
+        ViewHolderPool.getInstance().onTrimMemory(level);
+    }
+
+    @Override
+    public void onLowMemory() {
+        super.onLowMemory();
+        WebViewPool.getInstance().clear();
+        ViewHolderPool.getInstance().clear();
     }
 }
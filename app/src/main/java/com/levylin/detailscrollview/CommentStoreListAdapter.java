@@ -0,0 +1,89 @@
+package com.levylin.detailscrollview;
+
+import android.view.LayoutInflater;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.BaseAdapter;
+import android.widget.TextView;
+
+import com.levylin.detailscrollview.comment.CommentPagingSource;
+import com.levylin.detailscrollview.comment.CommentStore;
+import com.levylin.detailscrollview.views.adapter.CommentTextBinder;
+
+import java.io.IOException;
+
+/**
+ * ListView版的{@link CommentStoreRecyclerAdapter}，getView时才解码，binder放在convertView的tag里跟着item复用
+ * 设置了{@link CommentPagingSource}的话，getView到末尾附近时加载下一页
+ */
+public class CommentStoreListAdapter extends BaseAdapter {
+
+    private final CommentStore store;
+    private CommentPagingSource pagingSource;
+
+    public CommentStoreListAdapter(CommentStore store) {
+        this.store = store;
+    }
+
+    /**
+     * @param source store必须是这个adapter的store
+     */
+    public void setPagingSource(CommentPagingSource source) {
+        pagingSource = source;
+        source.setListener(new CommentPagingSource.Listener() {
+            @Override
+            public void onPageLoaded(int fromPosition, int count) {
+                notifyDataSetChanged();//ListView没有局部通知，已有的item位置不变
+            }
+
+            @Override
+            public void onPageError(IOException e) {
+                e.printStackTrace();
+            }
+        });
+    }
+
+    public CommentStore getStore() {
+        return store;
+    }
+
+    @Override
+    public int getCount() {
+        return store.size();
+    }
+
+    /**
+     * 不创建对象，要内容用{@link #getStore()}
+     */
+    @Override
+    public Object getItem(int position) {
+        return null;
+    }
+
+    @Override
+    public long getItemId(int position) {
+        return store.getId(position);
+    }
+
+    @Override
+    public boolean hasStableIds() {
+        return true;
+    }
+
+    @Override
+    public View getView(int position, View convertView, ViewGroup parent) {
+        CommentTextBinder binder;
+        if (convertView == null) {
+            convertView = LayoutInflater.from(parent.getContext()).inflate(android.R.layout.simple_expandable_list_item_1, parent, false);
+            binder = new CommentTextBinder();
+            convertView.setTag(binder);
+        } else {
+            binder = (CommentTextBinder) convertView.getTag();
+        }
+        binder.bind((TextView) convertView, store, position);
+        if (pagingSource != null) {
+            pagingSource.onItemBound(position);
+        }
+        return convertView;
+    }
+}
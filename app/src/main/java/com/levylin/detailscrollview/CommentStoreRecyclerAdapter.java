@@ -0,0 +1,114 @@
+package com.levylin.detailscrollview;
+
+import android.support.v7.widget.RecyclerView;
+import android.view.ViewGroup;
+import android.widget.TextView;
+
+import com.levylin.detailscrollview.comment.CommentPagingSource;
+import com.levylin.detailscrollview.comment.CommentStore;
+import com.levylin.detailscrollview.views.StaticLayoutView;
+import com.levylin.detailscrollview.views.adapter.TextLayoutCache;
+
+import java.io.IOException;
+
+/**
+ * 数据直接读{@link CommentStore}，bind时才把这一条解码到ViewHolder自己的buffer里
+ * ViewHolder和viewType都和{@link RecyclerViewAdapter}一样，共用ViewHolderPool里预先创建的
+ * 设置了{@link CommentPagingSource}的话，bind到末尾附近时加载下一页，加载完只通知新加的部分
+ * 设置了{@link TextLayoutCache}的话，行用{@link StaticLayoutView}显示，后面的行在后台提前排版，viewType是{@link #VIEW_TYPE_COMMENT_LAYOUT}
+ */
+public class CommentStoreRecyclerAdapter extends RecyclerView.Adapter<RecyclerViewAdapter.ViewHolder> {
+
+    public static final int VIEW_TYPE_COMMENT_LAYOUT = 1;//和RecyclerViewAdapter.VIEW_TYPE_COMMENT不能重复
+
+    private final CommentStore store;
+    private CommentPagingSource pagingSource;
+    private TextLayoutCache layoutCache;
+
+    public CommentStoreRecyclerAdapter(CommentStore store) {
+        this.store = store;
+    }
+
+    /**
+     * @param source store必须是这个adapter的store
+     */
+    public void setPagingSource(CommentPagingSource source) {
+        pagingSource = source;
+        source.setListener(new CommentPagingSource.Listener() {
+            @Override
+            public void onPageLoaded(int fromPosition, int count) {
+                notifyItemRangeInserted(fromPosition, count);
+            }
+
+            @Override
+            public void onPageError(IOException e) {
+                e.printStackTrace();
+            }
+        });
+    }
+
+    /**
+     * 要在设置给RecyclerView之前调用；共用ViewHolderPool的adapter要用同一个cache
+     */
+    public void setLayoutCache(TextLayoutCache cache) {
+        layoutCache = cache;
+    }
+
+    public TextLayoutCache getLayoutCache() {
+        return layoutCache;
+    }
+
+    public CommentStore getStore() {
+        return store;
+    }
+
+    /**
+     * 往store里追加了评论之后调用，只通知新加的部分
+     *
+     * @param fromPosition 追加之前的条数
+     */
+    public void notifyAppended(int fromPosition) {
+        int count = store.size() - fromPosition;
+        if (count > 0) {
+            notifyItemRangeInserted(fromPosition, count);
+        }
+    }
+
+    @Override
+    public RecyclerViewAdapter.ViewHolder onCreateViewHolder(ViewGroup parent, int viewType) {
+        if (viewType == VIEW_TYPE_COMMENT_LAYOUT) {
+            StaticLayoutView view = new StaticLayoutView(parent.getContext(), layoutCache);
+            view.setLayoutParams(new RecyclerView.LayoutParams(ViewGroup.LayoutParams.MATCH_PARENT, ViewGroup.LayoutParams.WRAP_CONTENT));
+            return new RecyclerViewAdapter.ViewHolder(view);
+        }
+        return RecyclerViewAdapter.newViewHolder(parent);
+    }
+
+    @Override
+    public int getItemViewType(int position) {
+        return layoutCache != null ? VIEW_TYPE_COMMENT_LAYOUT : RecyclerViewAdapter.VIEW_TYPE_COMMENT;
+    }
+
+    @Override
+    public void onBindViewHolder(RecyclerViewAdapter.ViewHolder holder, int position) {
+        if (layoutCache != null) {
+            holder.binder.bind((StaticLayoutView) holder.itemView, store, position);
+            layoutCache.onItemBound(store, position);
+        } else {
+            holder.binder.bind((TextView) holder.itemView, store, position);
+        }
+        if (pagingSource != null) {
+            pagingSource.onItemBound(position);
+        }
+    }
+
+    @Override
+    public long getItemId(int position) {
+        return store.getId(position);
+    }
+
+    @Override
+    public int getItemCount() {
+        return store.size();
+    }
+}
@@ -0,0 +1,268 @@
+package com.levylin.detailscrollview;
+
+import android.app.Activity;
+import android.content.Context;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+import android.view.LayoutInflater;
+import android.widget.TextView;
+
+import com.levylin.detailscrollview.comment.CommentFeedLoader;
+import com.levylin.detailscrollview.comment.CommentPagingSource;
+import com.levylin.detailscrollview.comment.CommentRepository;
+import com.levylin.detailscrollview.comment.CommentStore;
+import com.levylin.detailscrollview.fixture.ArticleSpec;
+import com.levylin.detailscrollview.fixture.FixtureServer;
+import com.levylin.detailscrollview.fixture.SyntheticArticle;
+import com.levylin.detailscrollview.fixture.SyntheticComment;
+import com.levylin.detailscrollview.views.DetailScrollView;
+import com.levylin.detailscrollview.views.adapter.TextLayoutCache;
+import com.levylin.detailscrollview.views.trace.ScrollFrameMonitor;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URL;
+import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * 演示页面的内容：线上的文章，或者本地{@link FixtureServer}上生成的文章和评论
+ * 本地的内容由固定的种子生成，每次都一样，不需要网络，滑动、布局、加载的性能数据可以直接对比
+ * 只在主线程调用
+ */
+public final class DemoContent {
+
+    public static final String EXTRA_USE_FIXTURE = "use_fixture";
+    public static final String EXTRA_PRECOMPUTE_TEXT = "precompute_text";//false时评论行用TextView，用来对比
+
+    private static final String TAG = "DemoContent";
+
+    private static final String LIVE_URL = "http://m.leju.com/tg/toutiao/info.html?city=xm&id=6253374704485472431&source=ttsy&source_ext=ttsy";
+    private static final int FIXTURE_COMMENT_COUNT = 2000;
+    private static final int FIXTURE_COMMENT_MAX_CHARS = 140;
+    private static final long FIXTURE_SEED = 20170325L;
+    private static final long FRAME_MILLIS = 16;
+    private static final int TEXT_LAYOUT_CACHE_ENTRIES = 256;
+
+    private static FixtureServer sServer;
+    private static String sArticleUrl;
+    private static List<SyntheticComment> sComments;
+    private static final HashMap<String, CommentRepository> sRepositories = new HashMap<>();
+    private static ExecutorService sPageExecutor;
+    private static TextLayoutCache sLayoutCache;
+    private static final Handler sMainHandler = new Handler(Looper.getMainLooper());
+    private static final Executor sMainExecutor = new Executor() {
+        @Override
+        public void execute(Runnable command) {
+            sMainHandler.post(command);
+        }
+    };
+    private static final Executor sFrameExecutor = new Executor() {//下一帧再执行，期间解析出的评论合并通知
+        @Override
+        public void execute(Runnable command) {
+            sMainHandler.postDelayed(command, FRAME_MILLIS);
+        }
+    };
+
+    private DemoContent() {
+    }
+
+    public static boolean isFixture(Activity activity) {
+        return activity.getIntent().getBooleanExtra(EXTRA_USE_FIXTURE, false);
+    }
+
+    public static boolean isPrecomputeText(Activity activity) {
+        return activity.getIntent().getBooleanExtra(EXTRA_PRECOMPUTE_TEXT, true);
+    }
+
+    /**
+     * 所有页面的评论列表共用，和ViewHolderPool里预先创建的StaticLayoutView一致
+     */
+    public static TextLayoutCache getLayoutCache(Context context) {
+        if (sLayoutCache == null) {
+            Context app = context.getApplicationContext();
+            TextView template = (TextView) LayoutInflater.from(app).inflate(android.R.layout.simple_expandable_list_item_1, null, false);
+            sLayoutCache = TextLayoutCache.fromTemplate(template, TEXT_LAYOUT_CACHE_ENTRIES);
+        }
+        return sLayoutCache;
+    }
+
+    /**
+     * 开启帧耗时统计，每次滑动结束时打印列表区域的卡顿、丢帧和评论行的bind耗时，
+     * 打开页面时带上{@link #EXTRA_PRECOMPUTE_TEXT}=false可以对比没有预排版时的数据
+     */
+    public static void logListFrameMetrics(Activity activity, DetailScrollView scrollView) {
+        scrollView.setFrameMetricsEnabled(true);
+        ScrollFrameMonitor monitor = scrollView.getFrameMonitor();
+        if (monitor == null)
+            return;
+        final boolean isPrecompute = isPrecomputeText(activity);
+        final TextLayoutCache cache = isPrecompute ? getLayoutCache(activity) : null;
+        monitor.setOnFrameMetricsListener(new ScrollFrameMonitor.OnFrameMetricsListener() {
+            @Override
+            public void onFrameMetrics(ScrollFrameMonitor.Snapshot snapshot) {
+                int list = ScrollFrameMonitor.PHASE_LIST;
+                Log.d(TAG, "precompute=" + isPrecompute
+                        + " listFrames=" + snapshot.frameCounts[list]
+                        + " jank=" + snapshot.jankCounts[list]
+                        + " dropped=" + snapshot.droppedFrames[list]
+                        + " p90Us=" + snapshot.histograms[list].getValueAtPercentile(90)
+                        + (cache != null ? " " + cache.getStats() : ""));
+            }
+        });
+    }
+
+    /**
+     * 本地服务器启动失败时退回线上的文章
+     */
+    public static String getArticleUrl(Activity activity) {
+        if (!isFixture(activity) || !ensureServer())
+            return LIVE_URL;
+        return sArticleUrl;
+    }
+
+    /**
+     * 评论按页从本地的{@link CommentRepository}加载，本地没有的再从"服务器"拉取并保存，再次打开时不用重新拉取
+     * 本地服务器模式下第一次打开时，用{@link CommentFeedLoader}流式加载整个评论接口，第一屏不用等全部解析完
+     *
+     * @param liveCount 线上模式下的假数据条数
+     */
+    public static CommentStoreRecyclerAdapter createRecyclerAdapter(Activity activity, int liveCount) {
+        CommentPagingSource source = createPagingSource(activity, liveCount);
+        CommentStoreRecyclerAdapter adapter = new CommentStoreRecyclerAdapter(source != null ? source.getStore() : getComments(activity, liveCount));
+        if (isPrecomputeText(activity)) {
+            adapter.setLayoutCache(getLayoutCache(activity));
+        }
+        if (source == null)
+            return adapter;
+        adapter.setPagingSource(source);
+        startLoading(activity, source);
+        return adapter;
+    }
+
+    /**
+     * ListView版的{@link #createRecyclerAdapter}
+     */
+    public static CommentStoreListAdapter createListAdapter(Activity activity, int liveCount) {
+        CommentPagingSource source = createPagingSource(activity, liveCount);
+        if (source == null)
+            return new CommentStoreListAdapter(getComments(activity, liveCount));
+        CommentStoreListAdapter adapter = new CommentStoreListAdapter(source.getStore());
+        adapter.setPagingSource(source);
+        startLoading(activity, source);
+        return adapter;
+    }
+
+    /**
+     * 本地已经保存过评论时按页加载，否则流式加载整个接口
+     */
+    private static void startLoading(Activity activity, CommentPagingSource source) {
+        if (isFixture(activity) && sServer != null && source.getRepository().size() == 0) {
+            try {
+                URL url = new URL(sServer.getCommentsUrl(0, FIXTURE_COMMENT_COUNT));
+                source.stream(new CommentFeedLoader(url, getPageExecutor(), sFrameExecutor));
+                return;
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        }
+        source.loadNextPage();
+    }
+
+    /**
+     * 本地存储打不开时一次性全部放进内存
+     */
+    private static CommentStore getComments(Activity activity, int liveCount) {
+        boolean isFixture = isFixture(activity) && ensureServer();
+        int count = isFixture ? sComments.size() : liveCount;
+        CommentStore store = new CommentStore(count);
+        addComments(isFixture, liveCount, 0, count, store);
+        store.trimToSize();
+        return store;
+    }
+
+    /**
+     * @return 本地存储打不开时返回null
+     */
+    private static CommentPagingSource createPagingSource(Activity activity, final int liveCount) {
+        final boolean isFixture = isFixture(activity) && ensureServer();
+        String key = isFixture ? "fixture-" + FIXTURE_SEED + "-" + FIXTURE_COMMENT_COUNT : "live-" + liveCount;
+        CommentRepository repository = sRepositories.get(key);
+        if (repository == null) {
+            try {
+                repository = CommentRepository.open(new File(activity.getFilesDir(), "comments/" + key));
+            } catch (IOException e) {
+                e.printStackTrace();
+                return null;
+            }
+            sRepositories.put(key, repository);//和服务器一样一直用到进程结束
+        }
+        CommentPagingSource.Fetcher fetcher = new CommentPagingSource.Fetcher() {
+            @Override
+            public int fetch(int offset, int limit, CommentStore into) throws IOException {
+                if (isFixture)//和线上一样请求接口并流式解析
+                    return CommentFeedLoader.fetch(new URL(sServer.getCommentsUrl(offset, limit)), into);
+                return addComments(false, liveCount, offset, limit, into);
+            }
+        };
+        return new CommentPagingSource(repository, new CommentStore(), fetcher, getPageExecutor(), sMainExecutor);
+    }
+
+    /**
+     * 模拟服务器的评论接口，可能在后台线程调用
+     *
+     * @return 追加的条数
+     */
+    private static int addComments(boolean isFixture, int liveCount, int offset, int limit, CommentStore into) {
+        int end = Math.min(isFixture ? sComments.size() : liveCount, offset + limit);
+        for (int i = offset; i < end; i++) {
+            if (isFixture) {
+                SyntheticComment comment = sComments.get(i);
+                into.add(comment.id, comment.author, comment.content, comment.time, comment.likeCount, comment.replyCount);
+            } else {
+                into.add(i, null, "测试:" + i, 0, 0, 0);
+            }
+        }
+        return Math.max(0, end - offset);
+    }
+
+    private static synchronized Executor getPageExecutor() {
+        if (sPageExecutor == null) {
+            sPageExecutor = Executors.newSingleThreadExecutor(new ThreadFactory() {
+                @Override
+                public Thread newThread(Runnable r) {
+                    Thread thread = new Thread(r, "comment-page");
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+        }
+        return sPageExecutor;
+    }
+
+    /**
+     * 第一次使用时生成内容并启动，之后一直运行到进程结束
+     */
+    private static boolean ensureServer() {
+        if (sServer != null)
+            return true;
+        FixtureServer server = new FixtureServer();
+        try {
+            server.start();
+        } catch (IOException e) {
+            e.printStackTrace();
+            return false;
+        }
+        sComments = SyntheticComment.generate(FIXTURE_COMMENT_COUNT, FIXTURE_COMMENT_MAX_CHARS, FIXTURE_SEED);
+        server.setComments(sComments);
+        sArticleUrl = server.addArticle("growing", new SyntheticArticle(ArticleSpec.growing().setSeed(FIXTURE_SEED)))
+                + SyntheticArticle.INDEX;
+        sServer = server;
+        return true;
+    }
+}
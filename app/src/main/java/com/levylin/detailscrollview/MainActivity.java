@@ -5,6 +5,7 @@ import android.os.Bundle;
 import android.support.annotation.Nullable;
 import android.support.v7.app.AppCompatActivity;
 import android.view.View;
+import android.widget.CheckBox;
 
 import com.levylin.detailscrollview.views.DetailX5WebView;
 
@@ -13,12 +14,13 @@ import com.levylin.detailscrollview.views.DetailX5WebView;
  */
 public class MainActivity extends AppCompatActivity implements View.OnClickListener {
 
-    private String longUrl = "http://m.leju.com/tg/toutiao/info.html?city=xm&id=6253374704485472431&source=ttsy&source_ext=ttsy";
+    private CheckBox mFixtureCheckBox;
 
     @Override
     protected void onCreate(@Nullable Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
         setContentView(R.layout.act_main);
+        mFixtureCheckBox = (CheckBox) findViewById(R.id.use_fixture_cb);
         findViewById(R.id.webview_listview_btn).setOnClickListener(this);
         findViewById(R.id.webview_recyclerview_btn).setOnClickListener(this);
         findViewById(R.id.x5webview_listview_btn).setOnClickListener(this);
@@ -44,6 +46,7 @@ public class MainActivity extends AppCompatActivity implements View.OnClickListe
         }
         if (intent == null)
             return;
+        intent.putExtra(DemoContent.EXTRA_USE_FIXTURE, mFixtureCheckBox.isChecked());
         startActivity(intent);
     }
 }
@@ -6,6 +6,11 @@ import android.view.View;
 import android.view.ViewGroup;
 import android.widget.TextView;
 
+import com.levylin.detailscrollview.comment.ListDiff;
+import com.levylin.detailscrollview.views.adapter.AsyncListDiffer;
+import com.levylin.detailscrollview.views.adapter.CommentTextBinder;
+
+import java.util.Collection;
 import java.util.List;
 
 /**
@@ -13,31 +18,80 @@ import java.util.List;
  */
 public class RecyclerViewAdapter extends RecyclerView.Adapter<RecyclerViewAdapter.ViewHolder> {
 
-    private List<String> list;
+    public static final int VIEW_TYPE_COMMENT = 0;//和其他共用ViewHolderPool的adapter不能重复
+
+    private static final ListDiff.Callback<String> DIFF_CALLBACK = new ListDiff.Callback<String>() {
+        @Override
+        public boolean areItemsTheSame(String oldItem, String newItem) {
+            return oldItem.equals(newItem);
+        }
+
+        @Override
+        public boolean areContentsTheSame(String oldItem, String newItem) {
+            return true;//同一条就是同样的内容
+        }
+    };
+
+    private final AsyncListDiffer<String> differ = new AsyncListDiffer<>(this, DIFF_CALLBACK);
 
     public RecyclerViewAdapter(List<String> list) {
-        this.list = list;
+        differ.setList(list);
+    }
+
+    /**
+     * 新的完整数据，后台比较之后只通知变化的部分
+     */
+    public void submitList(List<String> list) {
+        differ.submitList(list);
+    }
+
+    /**
+     * 直播时新到的评论插在最前面，一帧内到达的合并成一次通知
+     */
+    public void addLatest(Collection<String> comments) {
+        differ.prepend(comments);
+    }
+
+    /**
+     * 下一页评论接在后面
+     */
+    public void addPage(Collection<String> comments) {
+        differ.append(comments);
     }
 
     @Override
     public ViewHolder onCreateViewHolder(ViewGroup parent, int viewType) {
+        return newViewHolder(parent);
+    }
+
+    /**
+     * {@link CommentStoreRecyclerAdapter}也用它，同一个viewType在ViewHolderPool里可以混用
+     */
+    static ViewHolder newViewHolder(ViewGroup parent) {
         View view = LayoutInflater.from(parent.getContext()).inflate(android.R.layout.simple_expandable_list_item_1, parent, false);
         return new ViewHolder(view);
     }
 
+    @Override
+    public int getItemViewType(int position) {
+        return VIEW_TYPE_COMMENT;
+    }
+
     @Override
     public void onBindViewHolder(ViewHolder holder, int position) {
         TextView textView = (TextView) holder.itemView;
-        textView.setText(list.get(position));
+        textView.setText(differ.getCurrentList().get(position));
     }
 
     @Override
     public int getItemCount() {
-        return list.size();
+        return differ.getCurrentList().size();
     }
 
     static class ViewHolder extends RecyclerView.ViewHolder {
 
+        final CommentTextBinder binder = new CommentTextBinder();
+
         public ViewHolder(View itemView) {
             super(itemView);
         }
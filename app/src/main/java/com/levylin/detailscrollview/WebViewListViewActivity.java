@@ -6,16 +6,16 @@ import android.view.View;
 import android.webkit.WebSettings;
 import android.webkit.WebView;
 import android.webkit.WebViewClient;
-import android.widget.ArrayAdapter;
-import android.widget.ListView;
 
+import com.levylin.detailscrollview.views.DeferredSectionView;
+import com.levylin.detailscrollview.views.DetailListView;
 import com.levylin.detailscrollview.views.DetailScrollView;
 import com.levylin.detailscrollview.views.DetailWebView;
+import com.levylin.detailscrollview.views.pool.WebViewPool;
 
-import java.util.ArrayList;
-import java.util.List;
+public class WebViewListViewActivity extends AppCompatActivity implements View.OnClickListener, View.OnLongClickListener {
 
-public class WebViewListViewActivity extends AppCompatActivity implements View.OnClickListener {
+    private static final int JUMP_TO_COMMENT = 50;//长按按钮直接跳到这条评论
 
     private DetailScrollView mScrollView;
 
@@ -25,16 +25,20 @@ public class WebViewListViewActivity extends AppCompatActivity implements View.O
         setContentView(R.layout.act_webview_listview);
         mScrollView = (DetailScrollView) findViewById(R.id.test_sv);
         findViewById(R.id.move_to_list).setOnClickListener(this);
-        ListView listView = (ListView) findViewById(R.id.test_lv);
-        List<String> list = new ArrayList<>();
-        for (int i = 0; i < 100; i++) {
-            list.add("测试:" + i);
-        }
-        ArrayAdapter<String> adapter = new ArrayAdapter<>(this, android.R.layout.simple_expandable_list_item_1, list);
-        listView.setAdapter(adapter);
+        findViewById(R.id.move_to_list).setOnLongClickListener(this);
+        DeferredSectionView commentSection = (DeferredSectionView) findViewById(R.id.test_lv);
+        commentSection.setFactory(new DeferredSectionView.Factory() {
+            @Override
+            public View onCreateSection(DetailScrollView parent) {
+                DetailListView listView = new DetailListView(parent.getContext());
+                listView.setAdapter(DemoContent.createListAdapter(WebViewListViewActivity.this, 100));
+                return listView;
+            }
+        });
 
-        String url = "http://m.leju.com/tg/toutiao/info.html?city=xm&id=6253374704485472431&source=ttsy&source_ext=ttsy";
-        DetailWebView webView = (DetailWebView) findViewById(R.id.test_webview);
+        String url = DemoContent.getArticleUrl(this);
+        DetailWebView webView = (DetailWebView) WebViewPool.getInstance().acquire(this, WebViewPool.CORE_SYSTEM);
+        mScrollView.replaceView(findViewById(R.id.test_webview), webView);//布局里只是占位
         WebSettings webSettings = webView.getSettings();
         webSettings.setJavaScriptEnabled(true);
         webView.setWebViewClient(new WebViewClient() {
@@ -54,4 +58,9 @@ public class WebViewListViewActivity extends AppCompatActivity implements View.O
                 break;
         }
     }
+
+    @Override
+    public boolean onLongClick(View v) {
+        return mScrollView.scrollToListItem(JUMP_TO_COMMENT, 0);
+    }
 }
@@ -3,7 +3,6 @@ package com.levylin.detailscrollview;
 import android.os.Bundle;
 import android.support.v7.app.AppCompatActivity;
 import android.support.v7.widget.LinearLayoutManager;
-import android.support.v7.widget.RecyclerView;
 import android.view.View;
 import android.webkit.WebSettings;
 import android.webkit.WebView;
@@ -11,13 +10,15 @@ import android.webkit.WebViewClient;
 import android.widget.ArrayAdapter;
 import android.widget.ListView;
 
+import com.levylin.detailscrollview.views.DeferredSectionView;
+import com.levylin.detailscrollview.views.DetailRecyclerView;
 import com.levylin.detailscrollview.views.DetailScrollView;
 import com.levylin.detailscrollview.views.DetailWebView;
+import com.levylin.detailscrollview.views.pool.WebViewPool;
 
-import java.util.ArrayList;
-import java.util.List;
+public class WebViewRecyclerViewActivity extends AppCompatActivity implements View.OnClickListener, View.OnLongClickListener {
 
-public class WebViewRecyclerViewActivity extends AppCompatActivity implements View.OnClickListener {
+    private static final int JUMP_TO_COMMENT = 50;//长按按钮直接跳到这条评论
 
     private DetailScrollView mScrollView;
 
@@ -26,17 +27,23 @@ public class WebViewRecyclerViewActivity extends AppCompatActivity implements Vi
         super.onCreate(savedInstanceState);
         setContentView(R.layout.act_webview_recyclerview);
         mScrollView = (DetailScrollView) findViewById(R.id.test_sv);
+        DemoContent.logListFrameMetrics(this, mScrollView);
         findViewById(R.id.move_to_list).setOnClickListener(this);
-        RecyclerView recyclerView = (RecyclerView) findViewById(R.id.test_lv);
-        recyclerView.setLayoutManager(new LinearLayoutManager(this));
-        List<String> list = new ArrayList<>();
-        for (int i = 0; i < 100; i++) {
-            list.add("测试:" + i);
-        }
-        recyclerView.setAdapter(new RecyclerViewAdapter(list));
+        findViewById(R.id.move_to_list).setOnLongClickListener(this);
+        DeferredSectionView commentSection = (DeferredSectionView) findViewById(R.id.test_lv);
+        commentSection.setFactory(new DeferredSectionView.Factory() {
+            @Override
+            public View onCreateSection(DetailScrollView parent) {
+                DetailRecyclerView recyclerView = new DetailRecyclerView(parent.getContext());
+                recyclerView.setLayoutManager(new LinearLayoutManager(parent.getContext()));
+                recyclerView.setAdapter(DemoContent.createRecyclerAdapter(WebViewRecyclerViewActivity.this, 100));
+                return recyclerView;
+            }
+        });
 
-        String url = "http://m.leju.com/tg/toutiao/info.html?city=xm&id=6253374704485472431&source=ttsy&source_ext=ttsy";
-        DetailWebView webView = (DetailWebView) findViewById(R.id.test_webview);
+        String url = DemoContent.getArticleUrl(this);
+        DetailWebView webView = (DetailWebView) WebViewPool.getInstance().acquire(this, WebViewPool.CORE_SYSTEM);
+        mScrollView.replaceView(findViewById(R.id.test_webview), webView);//布局里只是占位
         WebSettings webSettings = webView.getSettings();
         webSettings.setJavaScriptEnabled(true);
         webView.setWebViewClient(new WebViewClient() {
@@ -56,4 +63,9 @@ public class WebViewRecyclerViewActivity extends AppCompatActivity implements Vi
                 break;
         }
     }
+
+    @Override
+    public boolean onLongClick(View v) {
+        return mScrollView.scrollToListItem(JUMP_TO_COMMENT, 0);
+    }
 }
@@ -3,20 +3,16 @@ package com.levylin.detailscrollview;
 import android.os.Bundle;
 import android.support.v7.app.AppCompatActivity;
 import android.view.View;
-import android.widget.ArrayAdapter;
-import android.widget.ListView;
 
+import com.levylin.detailscrollview.views.DeferredSectionView;
+import com.levylin.detailscrollview.views.DetailListView;
 import com.levylin.detailscrollview.views.DetailScrollView;
 import com.levylin.detailscrollview.views.DetailX5WebView;
-
-import java.util.ArrayList;
-import java.util.List;
+import com.levylin.detailscrollview.views.pool.WebViewPool;
 
 public class X5WebViewListViewActivity extends AppCompatActivity implements View.OnClickListener {
 
-    private List<String> list;
-    private ArrayAdapter<String> adapter;
-    private String longUrl = "http://m.leju.com/tg/toutiao/info.html?city=xm&id=6253374704485472431&source=ttsy&source_ext=ttsy";
+    private CommentStoreListAdapter adapter;
     private String shortUrl = "file:///android_asset/test";
     private DetailX5WebView webView;
     private DetailScrollView mScrollView;
@@ -28,17 +24,21 @@ public class X5WebViewListViewActivity extends AppCompatActivity implements View
 
         mScrollView = (DetailScrollView) findViewById(R.id.test_sv);
 
-        ListView listView = (ListView) findViewById(R.id.test_lv);
-        list = new ArrayList<>();
-        for (int i = 0; i < 20; i++) {
-            list.add("测试:" + i);
-        }
-        adapter = new ArrayAdapter<>(this, android.R.layout.simple_expandable_list_item_1, list);
-        listView.setAdapter(adapter);
-
-
-        webView = (DetailX5WebView) findViewById(R.id.test_webview);
-        webView.loadUrl(longUrl);
+        DeferredSectionView commentSection = (DeferredSectionView) findViewById(R.id.test_lv);
+        commentSection.setFactory(new DeferredSectionView.Factory() {
+            @Override
+            public View onCreateSection(DetailScrollView parent) {
+                DetailListView listView = new DetailListView(parent.getContext());
+                adapter = DemoContent.createListAdapter(X5WebViewListViewActivity.this, 20);
+                listView.setAdapter(adapter);
+                return listView;
+            }
+        });
+
+
+        webView = (DetailX5WebView) WebViewPool.getInstance().acquire(this, WebViewPool.CORE_X5);
+        mScrollView.replaceView(findViewById(R.id.test_webview), webView);//布局里只是占位
+        webView.loadUrl(DemoContent.getArticleUrl(this));
 
         findViewById(R.id.move_to_list).setOnClickListener(this);
     }
@@ -3,14 +3,13 @@ package com.levylin.detailscrollview;
 import android.os.Bundle;
 import android.support.v7.app.AppCompatActivity;
 import android.support.v7.widget.LinearLayoutManager;
-import android.support.v7.widget.RecyclerView;
 import android.view.View;
 
+import com.levylin.detailscrollview.views.DeferredSectionView;
+import com.levylin.detailscrollview.views.DetailRecyclerView;
 import com.levylin.detailscrollview.views.DetailScrollView;
 import com.levylin.detailscrollview.views.DetailX5WebView;
-
-import java.util.ArrayList;
-import java.util.List;
+import com.levylin.detailscrollview.views.pool.WebViewPool;
 
 public class X5WebViewRecyclerViewActivity extends AppCompatActivity implements View.OnClickListener {
 
@@ -21,17 +20,22 @@ public class X5WebViewRecyclerViewActivity extends AppCompatActivity implements
         super.onCreate(savedInstanceState);
         setContentView(R.layout.act_x5webview_recyclerview);
         mScrollView = (DetailScrollView) findViewById(R.id.test_sv);
+        DemoContent.logListFrameMetrics(this, mScrollView);
         findViewById(R.id.move_to_list).setOnClickListener(this);
-        RecyclerView recyclerView = (RecyclerView) findViewById(R.id.test_lv);
-        recyclerView.setLayoutManager(new LinearLayoutManager(this));
-        List<String> list = new ArrayList<>();
-        for (int i = 0; i < 100; i++) {
-            list.add("测试:" + i);
-        }
-        recyclerView.setAdapter(new RecyclerViewAdapter(list));
+        DeferredSectionView commentSection = (DeferredSectionView) findViewById(R.id.test_lv);
+        commentSection.setFactory(new DeferredSectionView.Factory() {
+            @Override
+            public View onCreateSection(DetailScrollView parent) {
+                DetailRecyclerView recyclerView = new DetailRecyclerView(parent.getContext());
+                recyclerView.setLayoutManager(new LinearLayoutManager(parent.getContext()));
+                recyclerView.setAdapter(DemoContent.createRecyclerAdapter(X5WebViewRecyclerViewActivity.this, 100));
+                return recyclerView;
+            }
+        });
 
-        String url = "http://m.leju.com/tg/toutiao/info.html?city=xm&id=6253374704485472431&source=ttsy&source_ext=ttsy";
-        DetailX5WebView webView = (DetailX5WebView) findViewById(R.id.test_webview);
+        String url = DemoContent.getArticleUrl(this);
+        DetailX5WebView webView = (DetailX5WebView) WebViewPool.getInstance().acquire(this, WebViewPool.CORE_X5);
+        mScrollView.replaceView(findViewById(R.id.test_webview), webView);//布局里只是占位
         com.tencent.smtt.sdk.WebSettings webSettings = webView.getSettings();
         webSettings.setJavaScriptEnabled(true);
         webView.setWebViewClient(new com.tencent.smtt.sdk.WebViewClient() {
@@ -0,0 +1,78 @@
+package com.levylin.detailscrollview.views;
+
+import android.content.Context;
+import android.util.AttributeSet;
+import android.view.View;
+
+/**
+ * 延迟创建的区域的占位，一般用在文章下面的评论列表
+ * 页面打开时只有这个空View，不创建列表、不绑定数据、不布局，首屏只需要处理WebView；
+ * 滑动到离它还有{@link DetailScrollView#setDeferPrefetchDistance(int)}的距离，
+ * 或者调用forceScrollToListView/toggleScrollToListView时，才调用{@link Factory}创建真正的区域替换掉自己
+ * 高度：LayoutParams是match_parent或者具体数值时和真正的区域一样，wrap_content时用{@link #setEstimatedHeight(int)}估算的高度
+ */
+public class DeferredSectionView extends View {
+
+    /**
+     * 在UI线程调用，返回的View会继承占位的id和LayoutParams
+     */
+    public interface Factory {
+        View onCreateSection(DetailScrollView parent);
+    }
+
+    private Factory mFactory;
+    private int mEstimatedHeight;
+
+    public DeferredSectionView(Context context) {
+        super(context);
+        setWillNotDraw(true);
+    }
+
+    public DeferredSectionView(Context context, AttributeSet attrs) {
+        super(context, attrs);
+        setWillNotDraw(true);
+    }
+
+    public DeferredSectionView(Context context, AttributeSet attrs, int defStyleAttr) {
+        super(context, attrs, defStyleAttr);
+        setWillNotDraw(true);
+    }
+
+    /**
+     * 没有设置Factory的占位不会被替换
+     */
+    public void setFactory(Factory factory) {
+        mFactory = factory;
+    }
+
+    public Factory getFactory() {
+        return mFactory;
+    }
+
+    /**
+     * @param estimatedHeight LayoutParams为wrap_content时的高度，尽量接近真正的区域，替换时内容不会跳
+     */
+    public void setEstimatedHeight(int estimatedHeight) {
+        if (mEstimatedHeight == estimatedHeight)
+            return;
+        mEstimatedHeight = estimatedHeight;
+        requestLayout();
+    }
+
+    public int getEstimatedHeight() {
+        return mEstimatedHeight;
+    }
+
+    @Override
+    protected void onMeasure(int widthMeasureSpec, int heightMeasureSpec) {
+        setMeasuredDimension(getDefaultSize(getSuggestedMinimumWidth(), widthMeasureSpec),
+                resolveSize(mEstimatedHeight, heightMeasureSpec));
+    }
+
+    /**
+     * @return 真正的区域，没有设置Factory时返回null
+     */
+    View createSection(DetailScrollView parent) {
+        return mFactory == null ? null : mFactory.onCreateSection(parent);
+    }
+}
@@ -1,30 +1,42 @@
 package com.levylin.detailscrollview.views;
 
 import android.content.Context;
+import android.database.DataSetObserver;
 import android.os.Build;
 import android.os.Build.VERSION;
 import android.util.AttributeSet;
 import android.view.MotionEvent;
+import android.view.View;
 import android.view.ViewConfiguration;
 import android.widget.AbsListView;
+import android.widget.ListAdapter;
 import android.widget.ListView;
 
+import com.levylin.detailscrollview.core.ItemHeightIndex;
 import com.levylin.detailscrollview.views.helper.ListViewTouchHelper;
 import com.levylin.detailscrollview.views.listener.OnScrollBarShowListener;
 
-import java.lang.reflect.Field;
-import java.lang.reflect.Method;
-
 /**
  * Created by LinXin on 2017/3/23.
  */
 public class DetailListView extends ListView implements IDetailListView, AbsListView.OnScrollListener {
 
-    private Method reportScrollStateChangeMethod;
-    private Method startMethod;
     private Object mFlingRunnable;
     private ListViewTouchHelper mHelper;
     private OnScrollBarShowListener mScrollBarShowListener;
+    private DetailScrollView mScrollView;
+    private ListAdapter mObservedAdapter;
+    private final DataSetObserver mDataSetObserver = new DataSetObserver() {
+        @Override
+        public void onChanged() {
+            notifyContentChanged();
+        }
+
+        @Override
+        public void onInvalidated() {
+            notifyContentChanged();
+        }
+    };
 
     public DetailListView(Context context) {
         super(context);
@@ -48,22 +60,20 @@ public class DetailListView extends ListView implements IDetailListView, AbsList
         if (VERSION.SDK_INT >= Build.VERSION_CODES.ICE_CREAM_SANDWICH) {
             setFriction(ViewConfiguration.getScrollFriction());
             try {
-                Field field = AbsListView.class.getDeclaredField("mFlingRunnable");
-                field.setAccessible(true);
-                mFlingRunnable = field.get(this);
-                Class clazz = Class.forName("android.widget.AbsListView.FlingRunnable");
-                startMethod = clazz.getDeclaredMethod("start", Integer.TYPE);
-                startMethod.setAccessible(true);
-                reportScrollStateChangeMethod = AbsListView.class.getDeclaredMethod("reportScrollStateChange", Integer.TYPE);
-                reportScrollStateChangeMethod.setAccessible(true);
+                mFlingRunnable = ReflectRegistry.LIST_FLING_RUNNABLE.get(AbsListView.class, this);
             } catch (Throwable v0) {
                 mFlingRunnable = null;
-                startMethod = null;
-                reportScrollStateChangeMethod = null;
             }
         }
     }
 
+    /**
+     * ListView的复用池没有公开的接口，不做预取
+     */
+    @Override
+    public void onApproach(int distance, int flingDistance) {
+    }
+
     @Override
     public boolean startFling(int vy) {
         if (getVisibility() == GONE)
@@ -71,10 +81,23 @@ public class DetailListView extends ListView implements IDetailListView, AbsList
         if (VERSION.SDK_INT >= Build.VERSION_CODES.LOLLIPOP) {
             fling(vy);
             return true;
-        } else if (reportScrollStateChangeMethod != null && startMethod != null) {
+        }
+        Class<?> flingRunnableClass = ReflectRegistry.listFlingRunnableClass();
+        if (flingRunnableClass == null
+                || !ReflectRegistry.FLING_RUNNABLE_START.isAvailable(flingRunnableClass)
+                || !ReflectRegistry.LIST_REPORT_SCROLL_STATE_CHANGE.isAvailable(AbsListView.class)) {
+            return false;
+        }
+        if (mFlingRunnable == null) {//FlingRunnable是第一次fling的时候才创建的
+            try {
+                mFlingRunnable = ReflectRegistry.LIST_FLING_RUNNABLE.get(AbsListView.class, this);
+            } catch (Throwable ignored) {
+            }
+        }
+        if (mFlingRunnable != null) {
             try {
-                reportScrollStateChangeMethod.invoke(this, OnScrollListener.SCROLL_STATE_FLING);
-                startMethod.invoke(mFlingRunnable, vy);
+                ReflectRegistry.LIST_REPORT_SCROLL_STATE_CHANGE.invoke(AbsListView.class, this, OnScrollListener.SCROLL_STATE_FLING);
+                ReflectRegistry.FLING_RUNNABLE_START.invoke(flingRunnableClass, mFlingRunnable, vy);
                 return true;
             } catch (Throwable throwable) {
                 throwable.printStackTrace();
@@ -93,11 +116,61 @@ public class DetailListView extends ListView implements IDetailListView, AbsList
         setSelectionFromTop(0, 0);
     }
 
+    /**
+     * 只知道数量变了，按追加处理；每个item的高度包括下面的分割线，最后一个除外
+     */
+    @Override
+    public boolean updateItemHeights(ItemHeightIndex index) {
+        int count = getCount();
+        index.setItemCount(count);
+        int first = getFirstVisiblePosition();
+        int dividerHeight = getDividerHeight();
+        for (int i = 0; i < getChildCount(); i++) {
+            int position = first + i;
+            if (position >= count)
+                break;
+            View child = getChildAt(i);
+            index.setHeight(position, child.getHeight() + (position < count - 1 ? dividerHeight : 0));
+        }
+        return true;
+    }
+
+    @Override
+    public int getFirstVisibleItemTop() {
+        View child = getChildAt(0);
+        return child != null ? child.getTop() : getPaddingTop();
+    }
+
+    @Override
+    public void scrollToItem(int position, int offset) {
+        setSelectionFromTop(position, offset);
+    }
+
     @Override
     public void setScrollView(DetailScrollView scrollView) {
+        mScrollView = scrollView;
         mHelper = new ListViewTouchHelper(scrollView, this);
     }
 
+    @Override
+    public void setAdapter(ListAdapter adapter) {
+        if (mObservedAdapter != null) {
+            mObservedAdapter.unregisterDataSetObserver(mDataSetObserver);
+        }
+        super.setAdapter(adapter);
+        mObservedAdapter = adapter;
+        if (adapter != null) {
+            adapter.registerDataSetObserver(mDataSetObserver);
+        }
+        notifyContentChanged();
+    }
+
+    private void notifyContentChanged() {
+        if (mScrollView != null) {
+            mScrollView.notifyListContentChanged();
+        }
+    }
+
     @Override
     public boolean onTouchEvent(MotionEvent ev) {
         if (mHelper == null)
@@ -109,7 +182,11 @@ public class DetailListView extends ListView implements IDetailListView, AbsList
 
     @Override
     public void customScrollBy(int dy) {
-        smoothScrollBy(dy, 0);
+        if (VERSION.SDK_INT >= Build.VERSION_CODES.KITKAT) {//同步滑动，fling的每一帧都要马上知道滑了多少
+            scrollListBy(dy);
+        } else {
+            smoothScrollBy(dy, 0);
+        }
     }
 
     @Override
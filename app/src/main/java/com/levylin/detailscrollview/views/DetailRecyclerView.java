@@ -8,9 +8,13 @@ import android.support.v7.widget.RecyclerView;
 import android.support.v7.widget.StaggeredGridLayoutManager;
 import android.util.AttributeSet;
 import android.view.MotionEvent;
+import android.view.View;
 
+import com.levylin.detailscrollview.core.ItemHeightIndex;
 import com.levylin.detailscrollview.views.helper.ListViewTouchHelper;
+import com.levylin.detailscrollview.views.helper.RecyclerPrefetcher;
 import com.levylin.detailscrollview.views.listener.OnScrollBarShowListener;
+import com.levylin.detailscrollview.views.pool.ViewHolderPool;
 
 /**
  * Created by LinXin on 2017/3/31.
@@ -19,9 +23,49 @@ public class DetailRecyclerView extends RecyclerView implements IDetailListView
 
     private ListViewTouchHelper mHelper;
     private OnScrollBarShowListener mScrollBarShowListener;
+    private DetailScrollView mScrollView;
+    private Adapter mObservedAdapter;
+    private final RecyclerPrefetcher mPrefetcher = new RecyclerPrefetcher(this);
+    private final AdapterDataObserver mDataObserver = new AdapterDataObserver() {
+        @Override
+        public void onChanged() {
+            notifyContentChanged();
+        }
+
+        @Override
+        public void onItemRangeChanged(int positionStart, int itemCount) {
+            notifyContentChanged();
+        }
+
+        @Override
+        public void onItemRangeInserted(int positionStart, int itemCount) {
+            if (mScrollView != null) {//已经测量的item跟着挪位置
+                mScrollView.notifyListItemRangeInserted(DetailRecyclerView.this, positionStart, itemCount);
+            }
+            notifyContentChanged();
+        }
+
+        @Override
+        public void onItemRangeRemoved(int positionStart, int itemCount) {
+            if (mScrollView != null) {
+                mScrollView.notifyListItemRangeRemoved(DetailRecyclerView.this, positionStart, itemCount);
+            }
+            notifyContentChanged();
+        }
+
+        @Override
+        public void onItemRangeMoved(int fromPosition, int toPosition, int itemCount) {
+            if (mScrollView != null) {//挪过去的item重新测量
+                mScrollView.notifyListItemRangeRemoved(DetailRecyclerView.this, fromPosition, itemCount);
+                mScrollView.notifyListItemRangeInserted(DetailRecyclerView.this, toPosition, itemCount);
+            }
+            notifyContentChanged();
+        }
+    };
 
     public DetailRecyclerView(Context context) {
         super(context);
+        init();
     }
 
     public DetailRecyclerView(Context context, @Nullable AttributeSet attrs) {
@@ -36,16 +80,47 @@ public class DetailRecyclerView extends RecyclerView implements IDetailListView
 
     private void init() {
         setOverScrollMode(OVER_SCROLL_NEVER);
+        setRecycledViewPool(ViewHolderPool.getInstance().getRecycledViewPool());//不想共享的话自己再设置一个
+    }
+
+    /**
+     * 页面关闭时调用，把还显示着的ViewHolder放回共享的缓存池，下一个页面直接复用
+     */
+    public void recycleToSharedPool() {
+        if (!ViewHolderPool.getInstance().isShared(getRecycledViewPool()) || getAdapter() == null)
+            return;
+        setAdapter(null);//会先移除并回收所有子View，共享池不会因为换adapter被清空
     }
 
     @Override
     public void setScrollView(DetailScrollView scrollView) {
+        mScrollView = scrollView;
         mHelper = new ListViewTouchHelper(scrollView, this);
     }
 
+    @Override
+    public void setAdapter(Adapter adapter) {
+        if (mObservedAdapter != null) {
+            mObservedAdapter.unregisterAdapterDataObserver(mDataObserver);
+        }
+        super.setAdapter(adapter);
+        mPrefetcher.cancel();
+        mObservedAdapter = adapter;
+        if (adapter != null) {
+            adapter.registerAdapterDataObserver(mDataObserver);
+        }
+        notifyContentChanged();
+    }
+
+    private void notifyContentChanged() {
+        if (mScrollView != null) {
+            mScrollView.notifyListContentChanged();
+        }
+    }
+
     @Override
     public boolean onTouchEvent(MotionEvent ev) {
-        if (mHelper == null)
+        if (mHelper == null || (mScrollView != null && mScrollView.isNestedScrollMode()))//嵌套滑动模式下RecyclerView自己会把滑动分发给DetailScrollView
             return super.onTouchEvent(ev);
         if (!mHelper.onTouchEvent(ev))
             return false;
@@ -79,6 +154,89 @@ public class DetailRecyclerView extends RecyclerView implements IDetailListView
         }
     }
 
+    @Override
+    public void onApproach(int distance, int flingDistance) {
+        if (getVisibility() == GONE)
+            return;
+        mPrefetcher.onApproach(distance, flingDistance);
+    }
+
+    /**
+     * 只支持竖直的LinearLayoutManager，GridLayoutManager和StaggeredGridLayoutManager一行有多个item
+     */
+    @Override
+    public boolean updateItemHeights(ItemHeightIndex index) {
+        LinearLayoutManager layoutManager = getLinearLayoutManager();
+        if (layoutManager == null)
+            return false;
+        Adapter adapter = getAdapter();
+        int count = adapter != null ? adapter.getItemCount() : 0;
+        index.setItemCount(count);
+        for (int i = 0; i < getChildCount(); i++) {
+            View child = getChildAt(i);
+            int position = getChildAdapterPosition(child);
+            if (position == NO_POSITION || position >= count)//正在删除的item
+                continue;
+            LayoutParams lp = (LayoutParams) child.getLayoutParams();
+            index.setHeight(position, layoutManager.getDecoratedMeasuredHeight(child) + lp.topMargin + lp.bottomMargin);
+        }
+        return true;
+    }
+
+    @Override
+    public int getFirstVisiblePosition() {
+        LinearLayoutManager layoutManager = getLinearLayoutManager();
+        return layoutManager != null ? layoutManager.findFirstVisibleItemPosition() : NO_POSITION;
+    }
+
+    @Override
+    public int getFirstVisibleItemTop() {
+        LinearLayoutManager layoutManager = getLinearLayoutManager();
+        int position = getFirstVisiblePosition();
+        View child = position != NO_POSITION ? layoutManager.findViewByPosition(position) : null;
+        if (child == null)
+            return getPaddingTop();
+        return layoutManager.getDecoratedTop(child) - ((LayoutParams) child.getLayoutParams()).topMargin;
+    }
+
+    @Override
+    public void scrollToItem(int position, int offset) {
+        LayoutManager layoutManager = getLayoutManager();
+        if (layoutManager instanceof LinearLayoutManager) {
+            ((LinearLayoutManager) layoutManager).scrollToPositionWithOffset(position, offset);
+        } else if (layoutManager instanceof StaggeredGridLayoutManager) {
+            ((StaggeredGridLayoutManager) layoutManager).scrollToPositionWithOffset(position, offset);
+        } else if (layoutManager != null) {
+            layoutManager.scrollToPosition(position);
+        }
+    }
+
+    /**
+     * @return 不是一行一个item的竖直LinearLayoutManager时返回null
+     */
+    private LinearLayoutManager getLinearLayoutManager() {
+        LayoutManager layoutManager = getLayoutManager();
+        if (!(layoutManager instanceof LinearLayoutManager) || layoutManager instanceof GridLayoutManager)
+            return null;
+        LinearLayoutManager linearLayoutManager = (LinearLayoutManager) layoutManager;
+        if (linearLayoutManager.getOrientation() != LinearLayoutManager.VERTICAL || linearLayoutManager.getReverseLayout())
+            return null;
+        return linearLayoutManager;
+    }
+
+    /**
+     * @return 列表还在显示区域下方时的预取，可以调整预取个数或者查看统计
+     */
+    public RecyclerPrefetcher getPrefetcher() {
+        return mPrefetcher;
+    }
+
+    @Override
+    protected void onDetachedFromWindow() {
+        super.onDetachedFromWindow();
+        mPrefetcher.cancel();
+    }
+
     @Override
     public void onScrolled(int dx, int dy) {
         if (mScrollBarShowListener != null) {
@@ -1,8 +1,14 @@
 package com.levylin.detailscrollview.views;
 
+import android.app.Activity;
 import android.content.Context;
+import android.content.ContextWrapper;
 import android.content.res.TypedArray;
 import android.graphics.Rect;
+import android.support.v4.view.NestedScrollingChild;
+import android.support.v4.view.NestedScrollingChildHelper;
+import android.support.v4.view.NestedScrollingParent;
+import android.support.v4.view.NestedScrollingParentHelper;
 import android.support.v4.view.ViewCompat;
 import android.util.AttributeSet;
 import android.util.Log;
@@ -11,22 +17,27 @@ import android.view.VelocityTracker;
 import android.view.View;
 import android.view.ViewConfiguration;
 import android.view.ViewGroup;
-import android.view.ViewTreeObserver;
 import android.view.animation.AnimationUtils;
 import android.widget.Scroller;
 
 import com.levylin.detailscrollview.R;
+import com.levylin.detailscrollview.core.ItemHeightIndex;
+import com.levylin.detailscrollview.core.ScrollCoordinator;
+import com.levylin.detailscrollview.views.listener.OnContentHeightChangedListener;
 import com.levylin.detailscrollview.views.listener.OnScrollBarShowListener;
-import com.tencent.smtt.sdk.WebView;
+import com.levylin.detailscrollview.views.pool.WebViewPool;
+import com.levylin.detailscrollview.views.trace.GestureRecorder;
+import com.levylin.detailscrollview.views.trace.LayoutStats;
+import com.levylin.detailscrollview.views.trace.ScrollFrameMonitor;
+import com.levylin.detailscrollview.views.trace.ScrollTracer;
 
-import java.lang.reflect.Field;
-import java.lang.reflect.Method;
+import java.util.ArrayList;
 
 /**
  * Created by LinXin on 2017/3/25.
  * 1.
  */
-public class DetailScrollView extends ViewGroup {
+public class DetailScrollView extends ViewGroup implements NestedScrollingParent, NestedScrollingChild {
 
     private static final String TAG = DetailScrollView.class.getSimpleName();
     private static boolean isDebug = true;
@@ -34,21 +45,52 @@ public class DetailScrollView extends ViewGroup {
     public static final int DIRECT_BOTTOM = 1;
     public static final int DIRECT_TOP = -1;
 
-    private IDetailListView mListView;
-    private IDetailWebView mWebView;
-    private Scroller mScroller;
+    private IDetailListView mListView;//第一个列表区域
+    private IDetailWebView mWebView;//第一个WebView区域
+    private int mListSectionIndex = -1;
+    private final ArrayList<DetailSection> mSections = new ArrayList<>();
+    private final ScrollCoordinator mCoordinator = new ScrollCoordinator(new CoordinatorHost());//区域布局和滑动分配的计算
+    private Scroller mScroller;//只用于跳转的startScroll动画
+    private FlingCoordinator mFlingCoordinator;//所有fling都由它处理
     private float mLastY;
     private VelocityTracker mVelocityTracker;
     private int mMinimumVelocity;
     private int maxScrollY;
     private boolean isBeingDragged;
     private boolean isTouched;
-    private MyScrollBarShowListener mScrollBarShowListener;
+    private MyScrollBarShowListener mWebScrollBarShowListener;
+    private MyScrollBarShowListener mListScrollBarShowListener;
+    private final MyContentHeightChangedListener mContentHeightChangedListener = new MyContentHeightChangedListener();
+    private long mOldAwakenTimeMills;
+    private final ScrollMetrics mScrollMetrics = new ScrollMetrics();
+    private final ItemHeightIndex mListItemIndex = new ItemHeightIndex();//第一个列表每个item的高度，算滚动条和跳转到某个item
+    private ScrollFrameMonitor mFrameMonitor;//帧耗时统计，默认不开启
+    private GestureRecorder mGestureRecorder;//手势录制，默认不开启
+    private final LayoutStats mLayoutStats = new LayoutStats();
+    private final ArrayList<DeferredSectionView> mDeferredViews = new ArrayList<>();//还没有创建的区域
+    private int mDeferPrefetchDistance = -1;//小于0表示一屏的高度
+    private boolean isInflatePosted;
+    private final Runnable mInflateRunnable = new Runnable() {
+        @Override
+        public void run() {
+            isInflatePosted = false;
+            inflateDeferredSections(false);
+        }
+    };
 
     private int oldScrollY;
     private int oldWebViewScrollY;
     private int mTouchSlop;
 
+    //嵌套滑动模式
+    private boolean isNestedScrollMode;
+    private NestedScrollingParentHelper mParentHelper;
+    private NestedScrollingChildHelper mChildHelper;
+    private View mNestedChild;
+    private final int[] mParentScrollConsumed = new int[2];
+    private final int[] mScrollConsumed = new int[2];
+    private final int[] mScrollOffset = new int[2];
+
     public DetailScrollView(Context context) {
         super(context);
         init(context);
@@ -66,33 +108,27 @@ public class DetailScrollView extends ViewGroup {
 
     private void init(Context context) {
         mScroller = new Scroller(context);
+        mFlingCoordinator = new FlingCoordinator(context, this);
         final ViewConfiguration configuration = ViewConfiguration.get(getContext());
         mMinimumVelocity = configuration.getScaledMinimumFlingVelocity();
         mTouchSlop = configuration.getScaledTouchSlop();
-        mScrollBarShowListener = new MyScrollBarShowListener();
+        mWebScrollBarShowListener = new MyScrollBarShowListener(ScrollMetrics.DIRTY_WEB_OFFSET, ScrollFrameMonitor.PHASE_WEB);
+        mListScrollBarShowListener = new MyScrollBarShowListener(ScrollMetrics.DIRTY_LIST_OFFSET, ScrollFrameMonitor.PHASE_LIST);
+        mParentHelper = new NestedScrollingParentHelper(this);
+        mChildHelper = new NestedScrollingChildHelper(this);
 
         //初始化滚动条
         boolean hasScrollBarVerticalThumb = false;//有的手机没有滚动条，开启滚动条的话会崩溃
-        try {
+        if (ReflectRegistry.VIEW_INITIALIZE_SCROLLBARS.isAvailable(View.class)) {
             TypedArray a = context.obtainStyledAttributes(R.styleable.View);
-            Method method = View.class.getDeclaredMethod("initializeScrollbars", TypedArray.class);
-            method.setAccessible(true);
-            method.invoke(this, a);
-            a.recycle();
-            Field field = View.class.getDeclaredField("mScrollCache");
-            field.setAccessible(true);
-            Object mScrollCache = field.get(this);
-            if (mScrollCache != null) {
-                Field scrollbarField = mScrollCache.getClass().getDeclaredField("scrollBar");
-                scrollbarField.setAccessible(true);
-                Object scrollBar = scrollbarField.get(mScrollCache);
-                Field verticalThumbField = scrollBar.getClass().getDeclaredField("mVerticalThumb");
-                verticalThumbField.setAccessible(true);
-                Object verticalThumb = verticalThumbField.get(scrollBar);
-                hasScrollBarVerticalThumb = verticalThumb != null;//有滚动条才显示滚动条
+            try {
+                ReflectRegistry.VIEW_INITIALIZE_SCROLLBARS.invoke(View.class, this, a);
+                hasScrollBarVerticalThumb = ReflectRegistry.hasVerticalScrollBarThumb(this);//有滚动条才显示滚动条
+            } catch (Exception e) {
+                e.printStackTrace();
+            } finally {
+                a.recycle();
             }
-        } catch (Exception e) {
-            e.printStackTrace();
         }
         if (hasScrollBarVerticalThumb) {
             setVerticalScrollBarEnabled(true);
@@ -104,115 +140,289 @@ public class DetailScrollView extends ViewGroup {
     @Override
     protected void onFinishInflate() {
         super.onFinishInflate();
-        for (int i = 0; i < getChildCount(); i++) {
-            View child = getChildAt(i);
-            if (child instanceof IDetailListView) {
-                mListView = (IDetailListView) child;
-            } else if (child instanceof IDetailWebView) {
-                mWebView = (IDetailWebView) child;
+        rebuildSections();
+    }
+
+    /**
+     * 按子View的顺序建立区域，IDetailWebView和IDetailListView可以有任意多个，其余子View当作静态区域
+     */
+    private void rebuildSections() {
+        final int count = getChildCount();
+        mSections.clear();
+        mCoordinator.reset(count);
+        IDetailListView oldListView = mListView;
+        mListView = null;
+        mWebView = null;
+        mListSectionIndex = -1;
+        mDeferredViews.clear();
+        for (int i = 0; i < count; i++) {
+            DetailSection section = new DetailSection(getChildAt(i));
+            mSections.add(section);
+            mCoordinator.setSectionNested(i, section.isNested());
+            if (isNestedScrollMode && section.isNested() && section.view instanceof NestedScrollingChild) {
+                ((NestedScrollingChild) section.view).setNestedScrollingEnabled(true);
             }
-        }
-        if (mListView != null) {
-            mListView.setScrollView(this);
-            mListView.setOnScrollBarShowListener(mScrollBarShowListener);
-        }
-        if (mWebView != null) {
-            mWebView.setScrollView(this);
-            mWebView.setOnScrollBarShowListener(mScrollBarShowListener);
-            observeWebViewContentHeightChange();
-        }
-    }
-
-    /**
-     * 监听webView内容高度发送变化
-     * 做法是如果webView的底部已经不在scrollview的底部，则把webView扩展至底部与scrollview重合
-     * 反之则不处理
-     */
-    private void observeWebViewContentHeightChange() {
-        if (mWebView instanceof DetailX5WebView) {
-            View view = ((DetailX5WebView) mWebView).getView();
-            view.getViewTreeObserver().addOnPreDrawListener(new ViewTreeObserver.OnPreDrawListener() {
-
-                private int mOldWebViewContentHeight;
-                private Rect outRect = new Rect();
-
-                @Override
-                public boolean onPreDraw() {
-                    WebView webView = (WebView) mWebView;
-                    webView.getGlobalVisibleRect(outRect);
-                    int distBottom = DetailScrollView.this.getHeight() - outRect.height();
-                    if (distBottom <= 0
-                            || DetailScrollView.this.getScrollY() == 0//没触发滑动的时候不扩展
-                            || webView.getHeight() < DetailScrollView.this.getHeight())//webView本身高度就小于scrollview，也不扩展
-                        return true;
-                    int newWebViewContentHeight = webView.getContentHeight();
-                    if (mOldWebViewContentHeight == newWebViewContentHeight)
-                        return true;
-                    mOldWebViewContentHeight = newWebViewContentHeight;
-                    ViewGroup.LayoutParams lp = webView.getLayoutParams();
-                    lp.height = webView.getMeasuredHeight() + distBottom;
-                    webView.setLayoutParams(lp);
-                    return true;
+            if (section.type == DetailSection.TYPE_LIST) {
+                IDetailListView listView = section.getListView();
+                listView.setScrollView(this);
+                listView.setOnScrollBarShowListener(mListScrollBarShowListener);
+                if (mListView == null) {
+                    mListView = listView;
+                    mListSectionIndex = i;
                 }
-            });
+            } else if (section.type == DetailSection.TYPE_WEB) {
+                IDetailWebView webView = section.getWebView();
+                webView.setScrollView(this);
+                webView.setOnScrollBarShowListener(mWebScrollBarShowListener);
+                webView.setOnContentHeightChangedListener(mContentHeightChangedListener);
+                if (mWebView == null) {
+                    mWebView = webView;
+                }
+            } else if (section.view instanceof DeferredSectionView) {
+                mDeferredViews.add((DeferredSectionView) section.view);
+            }
+        }
+        if (mListView != oldListView) {//换了列表，之前测量的高度作废
+            mListItemIndex.reset(0);
         }
+        mScrollMetrics.invalidate(ScrollMetrics.DIRTY_ALL);
     }
 
+    /**
+     * 增量布局：尺寸和位置都没变的区域不再调用layout，只是位置变了的区域直接挪过去，
+     * 区域高度的前缀和和maxScrollY由{@link ScrollCoordinator}增量更新
+     */
     @Override
     protected void onLayout(boolean changed, int l, int t, int r, int b) {
+        final long start = System.nanoTime();
         final int count = getChildCount();
+        if (mSections.size() != count) {//代码里动态添加或者移除了子View
+            rebuildSections();
+        }
         final int parentLeft = getPaddingLeft();
         int parentHeight = b - t;
         int lastBottom = getPaddingTop();
-        maxScrollY = 0;
-
-        int webHeight = 0;
-        int listHeight = 0;
-        int otherHeight = 0;
+        boolean isDirty = false;
 
         for (int i = 0; i < count; i++) {
-            final View child = getChildAt(i);
-            if (child.getVisibility() != GONE) {
-                final MarginLayoutParams lp = (MarginLayoutParams) child.getLayoutParams();
+            final DetailSection section = mSections.get(i);
+            final View child = section.view;
+            if (child.getVisibility() == GONE) {
+                isDirty |= mCoordinator.setSectionLayout(i, true, 0, 0, 0);
+                continue;
+            }
+            final MarginLayoutParams lp = (MarginLayoutParams) child.getLayoutParams();
 
-                final int width = child.getMeasuredWidth();
-                int height = child.getMeasuredHeight();
+            final int width = child.getMeasuredWidth();
+            int height = child.getMeasuredHeight();
 
-                if (height == 0) {
-                    height = parentHeight;//默认webView高度等于scrollview高度
-                }
+            if (height == 0) {
+                height = parentHeight;//默认webView高度等于scrollview高度
+            }
 
-                int childLeft = parentLeft + lp.leftMargin;
-                int childTop = lastBottom + lp.topMargin;
+            int childLeft = parentLeft + lp.leftMargin;
+            int childTop = lastBottom + lp.topMargin;
+            if (section.isMeasuredThisPass() || child.isLayoutRequested() || child.getLeft() != childLeft
+                    || child.getWidth() != width || child.getHeight() != height) {//约束变了但测量结果一样时isLayoutRequested是false
                 child.layout(childLeft, childTop, childLeft + width, childTop + height);
-                lastBottom = childTop + height + lp.bottomMargin;
-                maxScrollY += lp.topMargin;
-                maxScrollY += lp.bottomMargin;
-                if (child instanceof IDetailWebView) {
-                    webHeight = height;
-                } else if (child instanceof IDetailListView) {
-                    listHeight = height;
-                } else {
-                    otherHeight += height;
+                section.onLaidOut();
+                mLayoutStats.onSectionLaidOut();
+                isDirty = true;
+            } else if (child.getTop() != childTop) {//前面的区域高度变了，自己只是被挤下去
+                child.offsetTopAndBottom(childTop - child.getTop());
+                mLayoutStats.onSectionOffset();
+            } else {
+                mLayoutStats.onSectionLayoutSkipped();
+            }
+            lastBottom = childTop + height + lp.bottomMargin;
+            isDirty |= mCoordinator.setSectionLayout(i, false, lp.topMargin, height, lp.bottomMargin);//只有高度真的变化才会更新索引
+        }
+
+        int newMaxScrollY = mCoordinator.updateLayout(getPaddingTop(), getPaddingBottom(), parentHeight);
+        if (isDirty || changed || newMaxScrollY != maxScrollY) {
+            maxScrollY = newMaxScrollY;
+            mScrollMetrics.maxScrollY = maxScrollY;
+            mScrollMetrics.invalidate(ScrollMetrics.DIRTY_ALL);
+        }
+        mLayoutStats.onLayoutPass(System.nanoTime() - start);
+        checkDeferredSections();//文章很短的话一打开就能看到列表
+    }
+
+    @Override
+    protected void onScrollChanged(int l, int t, int oldl, int oldt) {
+        super.onScrollChanged(l, t, oldl, oldt);
+        mScrollMetrics.containerScrollY = t;
+        if (t > oldt) {
+            checkDeferredSections();
+            if (mListView != null && mFlingCoordinator.isFinished()) {//fling在开始时已经按预计的距离通知过了
+                mListView.onApproach(getListTopY() - t, 0);
+            }
+        }
+    }
+
+    /**
+     * @param distance 延迟创建的区域离显示区域底部还有多远时开始创建，单位px，小于0表示一屏的高度(默认)
+     * @see DeferredSectionView
+     */
+    public void setDeferPrefetchDistance(int distance) {
+        mDeferPrefetchDistance = distance;
+        checkDeferredSections();
+    }
+
+    /**
+     * 不管位置，立即创建所有的{@link DeferredSectionView}并完成布局
+     *
+     * @return 是否有区域被创建
+     */
+    public boolean inflateDeferredSections() {
+        return inflateDeferredSections(true);
+    }
+
+    /**
+     * 进入预取距离就在下一帧之前创建，不在布局或者滑动的回调里直接修改子View
+     */
+    private void checkDeferredSections() {
+        if (isInflatePosted || mDeferredViews.isEmpty() || getHeight() == 0)
+            return;
+        if (findDeferredInRange() != null) {
+            isInflatePosted = true;
+            ViewCompat.postOnAnimation(this, mInflateRunnable);
+        }
+    }
+
+    private DeferredSectionView findDeferredInRange() {
+        int distance = mDeferPrefetchDistance < 0 ? getHeight() : mDeferPrefetchDistance;
+        int bottom = getScrollY() + getHeight() + distance;
+        for (int i = 0; i < mDeferredViews.size(); i++) {
+            DeferredSectionView view = mDeferredViews.get(i);
+            if (view.getFactory() != null && view.getTop() <= bottom)
+                return view;
+        }
+        return null;
+    }
+
+    /**
+     * @param all false时只创建进入预取距离的区域
+     */
+    private boolean inflateDeferredSections(boolean all) {
+        if (isInflatePosted) {
+            removeCallbacks(mInflateRunnable);
+            isInflatePosted = false;
+        }
+        boolean isInflated = false;
+        while (true) {
+            DeferredSectionView placeholder = null;
+            if (all) {
+                for (int i = 0; i < mDeferredViews.size() && placeholder == null; i++) {
+                    if (mDeferredViews.get(i).getFactory() != null) {
+                        placeholder = mDeferredViews.get(i);
+                    }
                 }
+            } else {
+                placeholder = findDeferredInRange();
+            }
+            if (placeholder == null)
+                break;
+            final long start = System.nanoTime();
+            View section = placeholder.createSection(this);
+            placeholder.setFactory(null);//创建失败也不再重试
+            if (section != null) {
+                replaceView(placeholder, section);//会重建mDeferredViews
+                isInflated = true;
             }
+            mLayoutStats.onDeferredInflated(System.nanoTime() - start);
+        }
+        if (isInflated && getWidth() > 0) {//跳转需要新区域的位置，按当前尺寸马上补一次测量和布局，只有新区域会真的测量
+            measure(MeasureSpec.makeMeasureSpec(getWidth(), MeasureSpec.EXACTLY),
+                    MeasureSpec.makeMeasureSpec(getHeight(), MeasureSpec.EXACTLY));
+            layout(getLeft(), getTop(), getRight(), getBottom());
         }
+        return isInflated;
+    }
 
-        //简化最大可滑动区域的计算方式
-        maxScrollY = webHeight + listHeight + otherHeight - parentHeight;
-        if (maxScrollY < 0) {
-            maxScrollY = 0;
+    /**
+     * WebView的内容高度发生变化时调用，下次画滚动条时重新计算WebView的range
+     */
+    public void notifyWebContentChanged() {
+        mScrollMetrics.invalidate(ScrollMetrics.DIRTY_WEB_RANGE);
+    }
+
+    /**
+     * 列表的数据发生变化时调用，下次画滚动条时重新计算列表的range
+     */
+    public void notifyListContentChanged() {
+        mScrollMetrics.invalidate(ScrollMetrics.DIRTY_LIST);
+    }
+
+    /**
+     * 列表插入了item，已经测量过的item的高度跟着挪位置，新的item先用估算的高度
+     */
+    public void notifyListItemRangeInserted(IDetailListView listView, int positionStart, int itemCount) {
+        if (listView == mListView && mListItemIndex.size() > 0) {
+            mListItemIndex.insert(positionStart, itemCount);
         }
     }
 
+    public void notifyListItemRangeRemoved(IDetailListView listView, int positionStart, int itemCount) {
+        if (listView == mListView && mListItemIndex.size() > 0) {
+            mListItemIndex.remove(positionStart, itemCount);
+        }
+    }
+
+    /**
+     * @return 列表每个item的高度索引，显示过的item是实际高度，其余是估算的
+     */
+    public ItemHeightIndex getListItemIndex() {
+        return mListItemIndex;
+    }
+
+    /**
+     * 只测量约束变化了或者自己requestLayout了的区域，见{@link DetailSection#needsMeasure(int, int)}
+     * WebView内容高度变化时只有WebView会被重新测量，静态区域和列表直接用上次的结果
+     */
     @Override
     protected void onMeasure(int widthMeasureSpec, int heightMeasureSpec) {
-        int count = getChildCount();
+        final long start = System.nanoTime();
+        final int count = getChildCount();
+        if (mSections.size() != count) {
+            rebuildSections();
+        }
+        final int horizontalPadding = getPaddingLeft() + getPaddingRight();
+        final int verticalPadding = getPaddingTop() + getPaddingBottom();
         for (int i = 0; i < count; i++) {
-            final View child = getChildAt(i);
-            measureChildWithMargins(child, widthMeasureSpec, 0, heightMeasureSpec, 0);
+            final DetailSection section = mSections.get(i);
+            final View child = section.view;
+            if (child.getVisibility() == GONE)
+                continue;
+            final MarginLayoutParams lp = (MarginLayoutParams) child.getLayoutParams();
+            final int childWidthMeasureSpec = getChildMeasureSpec(widthMeasureSpec,
+                    horizontalPadding + lp.leftMargin + lp.rightMargin, lp.width);
+            final int childHeightMeasureSpec = getChildMeasureSpec(heightMeasureSpec,
+                    verticalPadding + lp.topMargin + lp.bottomMargin, lp.height);
+            boolean needsMeasure = section.needsMeasure(childWidthMeasureSpec, childHeightMeasureSpec);
+            if (needsMeasure) {
+                child.measure(childWidthMeasureSpec, childHeightMeasureSpec);
+                section.onMeasured(childWidthMeasureSpec, childHeightMeasureSpec);
+            }
+            mLayoutStats.onSectionMeasured(!needsMeasure);
         }
         super.onMeasure(widthMeasureSpec, heightMeasureSpec);
+        mLayoutStats.onMeasurePass(System.nanoTime() - start);
+    }
+
+    @Override
+    public boolean dispatchTouchEvent(MotionEvent ev) {
+        if (mGestureRecorder != null) {
+            mGestureRecorder.record(ev);
+        }
+        return super.dispatchTouchEvent(ev);
+    }
+
+    /**
+     * 设置之后到达这里的所有触摸事件都会交给recorder，用来复现滑动冲突的问题，传null取消
+     */
+    public void setGestureRecorder(GestureRecorder recorder) {
+        mGestureRecorder = recorder;
     }
 
     @Override
@@ -226,36 +436,31 @@ public class DetailScrollView extends ViewGroup {
         switch (action) {
             case MotionEvent.ACTION_DOWN:
                 mLastY = y;
-                if (!mScroller.isFinished()) {//按下去的时候就要取消动画，在move的时候取消动画就太迟了，会造成已经进入webView滑动事件，同时触发MyScrollView的滚动事件的奇葩bug
-                    mScroller.abortAnimation();
+                //按下去的时候就要取消动画，在move的时候取消动画就太迟了，会造成已经进入webView滑动事件，同时触发MyScrollView的滚动事件的奇葩bug
+                abortScrollAnimation();
+                if (isNestedScrollMode) {
+                    startNestedScroll(ViewCompat.SCROLL_AXIS_VERTICAL);
                 }
-                LogE(TAG + ".onTouchEvent.DOWN.......mLastY=" + mLastY);
+                ScrollTracer.record(ScrollTracer.POINT_TOUCH, action, 0, (int) mLastY, getScrollY(),
+                        ScrollTracer.SECTION_NONE, edgeFlags(isAtTop, isAtBottom));
                 break;
             case MotionEvent.ACTION_MOVE:
                 float delta = y - mLastY;
-                int dy = adjustScrollY((int) -delta);
-                LogE(TAG + ".onTouchEvent.Move.......dy=" + dy + "\n"
-                        + ",delta=" + delta + "\n"
-                        + ",y=" + y + "\n"
-                        + ",mLastY=" + mLastY + "\n"
-                        + ",isAtBottom=" + isAtBottom + "\n"
-                        + ",isAtTop=" + isAtTop + "\n"
-                        + ",getScrollY()=" + getScrollY());
-                if (dy != 0) {
-                    if (mListView.canScrollVertically(DIRECT_TOP) && isAtTop) {//因为ListView上滑操作导致ListView可以继续下滑，故要先ListView滑到顶部，再滑动MyScrollView
-                        mListView.customScrollBy((int) -delta);
-                    } else if (mWebView.canScrollVertically(DIRECT_BOTTOM) && isAtBottom) {//因为WebView下滑，导致WebView可以继续上滑，故要先让WebView滑到底部，再滑动MyScrollView
-                        mWebView.customScrollBy(-(int) delta);
-                    } else {//当ListView处在顶部，WebView处在底部时，滑动MyScrollView
-                        customScrollBy(dy);
-                    }
-                } else {//dy==0代表是滑动到顶部或者底部了
-                    if (delta < 0 && isAtTop) {//ListView上滑操作。。。。代表是向上滑，应该让ListView跟着向上滑
-                        mListView.customScrollBy((int) -delta);
-                    } else if (delta > 0 && isAtBottom) {//向下滑，让WebView跟着向下滑
-                        mWebView.customScrollBy(-(int) delta);
-                    }
+                int scrollDelta = (int) -delta;
+                if (isNestedScrollMode && dispatchNestedPreScroll(0, scrollDelta, mScrollConsumed, mScrollOffset)) {//外层先滑，比如AppBarLayout折叠
+                    scrollDelta -= mScrollConsumed[1];
+                    y -= mScrollOffset[1];
                 }
+                //嵌套区域正好占满显示区域，而且还能继续滑(比如WebView还没滑到底部，ListView还没滑到顶部)，先让它滑，否则滑动MyScrollView
+                int owner = mCoordinator.dispatchTouchScroll(scrollDelta);
+                int dy = mCoordinator.getLastContainerDy();
+                int section = traceSectionOf(owner);
+                if (isNestedScrollMode && section != ScrollTracer.SECTION_WEB && section != ScrollTracer.SECTION_LIST
+                        && dispatchNestedScroll(0, dy, 0, scrollDelta - dy, mScrollOffset)) {//剩下的交给外层，比如AppBarLayout展开
+                    y -= mScrollOffset[1];
+                }
+                ScrollTracer.record(ScrollTracer.POINT_TOUCH, action, dy, (int) delta, getScrollY(),
+                        section, edgeFlags(isAtTop, isAtBottom));
                 mLastY = y;
                 break;
             case MotionEvent.ACTION_UP:
@@ -263,26 +468,18 @@ public class DetailScrollView extends ViewGroup {
                 final VelocityTracker velocityTracker = mVelocityTracker;
                 velocityTracker.computeCurrentVelocity(1000);
                 int yVelocity = (int) velocityTracker.getYVelocity(0);
-                LogE(TAG + ".onTouchEvent.ACTION_UP.......action=" + action + "\n"
-                        + ",yVelocity=" + yVelocity + "\n"
-                        + ",isAtBottom=" + isAtBottom + "\n"
-                        + ",isAtTop=" + isAtTop + "\n"
-                        + ",getScrollY()=" + getScrollY());
-                if ((Math.abs(yVelocity) > mMinimumVelocity)) {
-                    if (isAtTop) {//因为ListView可以继续下滑，故先让丫的处理fling事件
-                        if (mListView.canScrollVertically(DIRECT_TOP)) {
-                            LogE(TAG + ".onTouchEvent.ACTION_UP.......action=" + action + ",listview fling:" + (-yVelocity));
-                            mListView.startFling(-yVelocity);
-                        }
-                    } else if (isAtBottom) {//因为WebView可以继续上滑，故让丫的处理fling事件
-                        if (mWebView.canScrollVertically(DIRECT_BOTTOM)) {
-                            LogE(TAG + ".onTouchEvent.ACTION_UP.......action=" + action + ",webview fling:" + (-yVelocity));
-                            mWebView.startFling(-yVelocity);
-                        }
-                    } else {//上面两个没有处理fling事件，才轮到MyScrollView去处理
-                        LogE(TAG + ".onTouchEvent.ACTION_UP.......action=" + action + ",scrollview fling:" + (-yVelocity));
-                        fling(-yVelocity);
-                    }
+                int flingSection = ScrollTracer.SECTION_NONE;
+                if ((Math.abs(yVelocity) > mMinimumVelocity)
+                        && !(isNestedScrollMode && dispatchNestedPreFling(0, -yVelocity))) {
+                    //不管当前是哪个区域，都由FlingCoordinator统一fling，滑到边界时在同一帧交给下一个区域
+                    int engagedIndex = mCoordinator.findEngagedSection(getScrollY());
+                    fling(-yVelocity);
+                    flingSection = engagedIndex >= 0 ? mSections.get(engagedIndex).traceSection() : ScrollTracer.SECTION_CONTAINER;
+                }
+                ScrollTracer.record(ScrollTracer.POINT_TOUCH, action, 0, -yVelocity, getScrollY(),
+                        flingSection, edgeFlags(isAtTop, isAtBottom));
+                if (isNestedScrollMode) {
+                    stopNestedScroll();
                 }
                 releaseVelocityTracker();
                 break;
@@ -296,63 +493,37 @@ public class DetailScrollView extends ViewGroup {
         if (childCount < 2) {
             return false;
         }
-        if (!touchInView((View) mWebView, ev) && !touchInView((View) mListView, ev)) {
+        int touchedIndex = findSectionAt(ev);
+        if (touchedIndex < 0 || !mSections.get(touchedIndex).isNested()) {
+            return false;
+        }
+        DetailSection touched = mSections.get(touchedIndex);
+        if (isNestedScrollMode && touched.view instanceof NestedScrollingChild
+                && ((NestedScrollingChild) touched.view).isNestedScrollingEnabled()) {//子View自己会通过嵌套滑动把需要MyScrollView滑动的部分分发过来
             return false;
         }
-        boolean isCanScrollBottom = getScrollY() < maxScrollY && mScroller.isFinished();//是否可以向下滑
-        boolean isCanScrollTop = getScrollY() > 0 && mScroller.isFinished();//是否可以向上滑
-        boolean isWebViewCanScrollBottom = mWebView.canScrollVertically(DIRECT_BOTTOM);//Web可否继续下滑
-        boolean isListViewCanScrollTop = mListView.canScrollVertically(DIRECT_TOP);//ListView可否继续上滑
-        LogE("onInterceptTouchEvent.getScrollY=" + getScrollY() + "\n"
-                + ",maxScrollY=" + maxScrollY + "\n"
-                + ",mScroller.isFinished()=" + mScroller.isFinished() + "\n"
-                + ",isCanScrollBottom=" + isCanScrollBottom + "\n"
-                + ",isCanScrollTop=" + isCanScrollTop);
+        final boolean isScrollIdle = isScrollIdle();
+        boolean isCanScrollBottom = getScrollY() < maxScrollY && isScrollIdle;//是否可以向下滑
+        boolean isCanScrollTop = getScrollY() > 0 && isScrollIdle;//是否可以向上滑
         final int action = ev.getAction();
+        int deltaY = 0;
         acquireVelocityTracker(ev);
         switch (action & MotionEvent.ACTION_MASK) {
             case MotionEvent.ACTION_DOWN: {
                 mLastY = (int) ev.getY();
                 // 在Fling状态下点击屏幕
-                isBeingDragged = !mScroller.isFinished();
+                isBeingDragged = !isScrollIdle;
                 break;
             }
             case MotionEvent.ACTION_MOVE: {
                 int y = (int) ev.getY();
-                int deltaY = (int) (y - mLastY);
-                LogE("onInterceptTouchEvent.Move.......deltaY=" + deltaY + ",mTouchSlop=" + mTouchSlop);
+                deltaY = (int) (y - mLastY);
                 if (Math.abs(deltaY) < mTouchSlop)
                     return false;
-                if (deltaY < 0) { // Scroll To Bottom
-                    if (touchInView((View) mWebView, ev)) {
-                        isBeingDragged = !isWebViewCanScrollBottom && isCanScrollBottom;// WebView不可以继续向下滚动，否则由这个WebView自己处理滚动
-                        LogE("onInterceptTouchEvent.Move.......触摸点在WebView...deltaY=" + deltaY + "\n"
-                                + ",isWebViewCanScrollBottom=" + isWebViewCanScrollBottom + "\n"
-                                + ",isCanScrollBottom=" + isCanScrollBottom + "\n"
-                                + ",mIsBeingDragged=" + isBeingDragged);
-                    } else if (touchInView((View) mListView, ev)) { // 触摸点在第二个View
-                        isBeingDragged = isCanScrollBottom;
-                        LogE("onInterceptTouchEvent.Move.......触摸点在ListView...deltaY=" + deltaY + "\n"
-                                + ",isCanScrollBottom=" + isCanScrollBottom + "\n"
-                                + ",mIsBeingDragged=" + isBeingDragged);
-                    } else {
-                        isBeingDragged = false;
-                    }
-                } else if (deltaY > 0) { // Scroll To Top
-                    if (touchInView((View) mWebView, ev)) {
-                        isBeingDragged = isCanScrollTop;
-                        LogE("onInterceptTouchEvent.Move.......触摸点在WebView...deltaY=" + deltaY + "\n"
-                                + ",isCanScrollTop=" + isCanScrollTop + "\n"
-                                + ",mIsBeingDragged=" + isBeingDragged);
-                    } else if (touchInView((View) mListView, ev)) {
-                        isBeingDragged = isCanScrollTop && !isListViewCanScrollTop;// ListView不可以继续向上滚动，否则由这个ListView自己处理滚动
-                        LogE("onInterceptTouchEvent.Move.......触摸点在ListView...deltaY=" + deltaY + "\n"
-                                + ",isListViewCanScrollTop=" + isListViewCanScrollTop + "\n"
-                                + ",isCanScrollTop=" + isCanScrollTop
-                                + ",mIsBeingDragged=" + isBeingDragged + "\n");
-                    } else {
-                        isBeingDragged = false;
-                    }
+                if (deltaY != 0) {
+                    int direction = deltaY < 0 ? DIRECT_BOTTOM : DIRECT_TOP;
+                    //触摸的区域正好占满显示区域并且自己还能继续滑，由它自己处理滚动，否则由MyScrollView处理
+                    isBeingDragged = mCoordinator.shouldIntercept(touchedIndex, direction, isScrollIdle);
                 }
                 mLastY = y;
                 break;
@@ -364,56 +535,107 @@ public class DetailScrollView extends ViewGroup {
                 break;
             }
         }
-        LogE("onInterceptTouchEvent........mIsBeingDragged=" + isBeingDragged + "," + ev.getAction());
+        if (ScrollTracer.isEnabled()) {
+            int flags = 0;
+            if (!isCanScrollBottom) flags |= ScrollTracer.FLAG_AT_TOP;
+            if (!isCanScrollTop) flags |= ScrollTracer.FLAG_AT_BOTTOM;
+            if (touched.type == DetailSection.TYPE_WEB && touched.canScrollVertically(DIRECT_BOTTOM))
+                flags |= ScrollTracer.FLAG_WEB_CAN_SCROLL_BOTTOM;
+            if (touched.type == DetailSection.TYPE_LIST && touched.canScrollVertically(DIRECT_TOP))
+                flags |= ScrollTracer.FLAG_LIST_CAN_SCROLL_TOP;
+            if (isScrollIdle) flags |= ScrollTracer.FLAG_SCROLLER_FINISHED;
+            if (isBeingDragged) flags |= ScrollTracer.FLAG_INTERCEPTED;
+            ScrollTracer.record(ScrollTracer.POINT_INTERCEPT, action, deltaY, mTouchSlop, getScrollY(),
+                    touched.traceSection(), flags);
+        }
         return isBeingDragged;
     }
 
     public void customScrollBy(int dy) {
         int oldY = getScrollY();
         scrollBy(0, dy);
+        if (mFrameMonitor != null) {
+            mFrameMonitor.markPhase(ScrollFrameMonitor.PHASE_CONTAINER);
+        }
 //        LogE(TAG + ".customScrollBy.......oldY=" + oldY + ",getScrollY()=" + getScrollY());
         onScrollChanged(getScrollX(), getScrollY(), getScrollX(), oldY);
     }
 
-    private boolean touchInView(View child, MotionEvent ev) {
+    /**
+     * @return 触摸点所在的区域，没有返回-1
+     */
+    private int findSectionAt(MotionEvent ev) {
+        int index = mCoordinator.findSectionAt((int) ev.getY());
+        if (index < 0 || index >= mSections.size())
+            return -1;
+        View child = mSections.get(index).view;
         int x = (int) ev.getX();
-        int y = (int) ev.getY();
-        final int scrollY = getScrollY();
-        return !(y < child.getTop() - scrollY
-                || y >= child.getBottom() - scrollY
-                || x < child.getLeft()
-                || x >= child.getRight());
+        return x >= child.getLeft() && x < child.getRight() ? index : -1;
     }
 
     public int adjustScrollY(int delta) {
-        int dy;
-        if (delta + getScrollY() >= maxScrollY) {
-            dy = maxScrollY - getScrollY();
-        } else if (delta + getScrollY() <= 0) {
-            dy = -getScrollY();
-        } else {
-            dy = delta;
-        }
-        LogE(TAG + ".adjustScrollY...finally...dy=" + dy + ",delta=" + delta);
+        int dy = mCoordinator.adjustScrollY(delta);
+        ScrollTracer.record(ScrollTracer.POINT_ADJUST, -1, dy, delta, getScrollY(), ScrollTracer.SECTION_CONTAINER, 0);
         return dy;
     }
 
+    /**
+     * 子区域的触摸帮助类用来判断本次滑动是否应该交给MyScrollView
+     *
+     * @param child 子区域
+     * @param dy    经过{@link #adjustScrollY(int)}调整后的滑动距离
+     */
+    public boolean shouldScrollContainer(View child, int dy) {
+        return mCoordinator.shouldScrollContainer(indexOfChild(child), dy);
+    }
+
     public void fling(int velocity) {
-        LogE("ScrollView fling...." + velocity + "\n"
-                + ",mScroller.isFinished()=" + mScroller.isFinished() + "\n"
-                + "isTouched=" + isTouched);
+        startFling(velocity);
+    }
+
+    /**
+     * 整个文档只有一条fling曲线，WebView、MyScrollView、列表按顺序消费，见{@link FlingCoordinator}
+     *
+     * @return 是否开始了fling
+     */
+    private boolean startFling(int velocity) {
+        ScrollTracer.record(ScrollTracer.POINT_FLING, -1, 0, velocity, getScrollY(), ScrollTracer.SECTION_NONE,
+                (isScrollIdle() ? ScrollTracer.FLAG_SCROLLER_FINISHED : 0) | (isTouched ? ScrollTracer.FLAG_TOUCHED : 0));
         if (isTouched)//当webview不能继续向下滑的时候，继续下拉会触发scrollView下滑，此时webview不能再响应dispatchTouchEvent事件，scrollView响应onTouch事件，然后由scrollView去判断是否是isTouched
-            return;
-        if (!mScroller.isFinished())
-            return;
-        int minY = -mWebView.customGetContentHeight();
-        LogE("ScrollView do fling...." + velocity);
-        mScroller.fling(getScrollX(), getScrollY(), 0, velocity, 0, 0, minY, computeVerticalScrollRange());
+            return false;
+        if (!isScrollIdle())
+            return false;
+        ScrollTracer.record(ScrollTracer.POINT_FLING, -1, 0, velocity, getScrollY(), ScrollTracer.SECTION_CONTAINER, 0);
+        mFlingCoordinator.fling(velocity);
+        if (velocity > 0 && mListView != null) {
+            mListView.onApproach(getDistanceToList(), mFlingCoordinator.getFinalDistance());
+        }
         ViewCompat.postInvalidateOnAnimation(this);
+        return true;
+    }
+
+    /**
+     * fling的每一帧由{@link FlingCoordinator}调用，见{@link ScrollCoordinator#dispatchScrollDelta(int)}
+     *
+     * @return 实际消费的距离，小于delta代表已经到了整个文档的边界
+     */
+    int dispatchScrollDelta(int delta) {
+        return mCoordinator.dispatchScrollDelta(delta);
     }
 
     @Override
     public void computeScroll() {
+        int handoffCount = mFlingCoordinator.getHandoffCount();
+        if (mFlingCoordinator.computeScrollOffset()) {
+            if (mFrameMonitor != null && mFlingCoordinator.getHandoffCount() != handoffCount) {
+                mFrameMonitor.markHandoff();
+            }
+            if (!awakenScrollBars()) {
+                ViewCompat.postInvalidateOnAnimation(this);
+            }
+            super.computeScroll();
+            return;
+        }
         if (!mScroller.computeScrollOffset()) {
             super.computeScroll();
             return;
@@ -422,24 +644,14 @@ public class DetailScrollView extends ViewGroup {
         int oldY = getScrollY();
         int currX = mScroller.getCurrX();
         int currY = mScroller.getCurrY();
-        int curVelocity = getCappedCurVelocity();
-        LogE("computeScroll...oldY=" + oldY + ",currY=" + currY + ",maxScrollY=" + maxScrollY + ",curVelocity=" + curVelocity);
-        if (currY < oldY && oldY <= 0) {
-            if (curVelocity != 0) {
-                LogE("computeScroll...webView start fling:" + (-curVelocity));
-                this.mScroller.forceFinished(true);
-                this.mWebView.startFling(-curVelocity);
-                return;
-            }
-        } else if (currY > oldY && oldY >= maxScrollY && curVelocity != 0 && mListView.startFling(curVelocity)) {
-            LogE("computeScroll...listView start fling:" + (-curVelocity));
-            mScroller.forceFinished(true);
-            return;
-        }
         int toY = Math.max(0, Math.min(currY, maxScrollY));
+        ScrollTracer.record(ScrollTracer.POINT_COMPUTE_SCROLL, -1, toY - oldY, getCappedCurVelocity(), oldY,
+                ScrollTracer.SECTION_CONTAINER, 0);
         if (oldX != currX || oldY != currY) {
-            LogE("computeScroll...scrollTo.." + toY);
             scrollTo(currX, toY);
+            if (mFrameMonitor != null) {
+                mFrameMonitor.markPhase(ScrollFrameMonitor.PHASE_CONTAINER);
+            }
         }
         if (!awakenScrollBars()) {//这句一定要执行，否则会导致mScroller永远不会finish，从而导致一些莫名其妙的bug
             ViewCompat.postInvalidateOnAnimation(this);
@@ -447,6 +659,138 @@ public class DetailScrollView extends ViewGroup {
         super.computeScroll();
     }
 
+    /**
+     * @return 没有fling也没有跳转动画
+     */
+    private boolean isScrollIdle() {
+        return mScroller.isFinished() && mFlingCoordinator.isFinished();
+    }
+
+    private void abortScrollAnimation() {
+        if (!mScroller.isFinished()) {
+            mScroller.abortAnimation();
+        }
+        if (!mFlingCoordinator.isFinished()) {
+            mFlingCoordinator.abort();
+        }
+    }
+
+    /**
+     * 监听fling在区域之间的交接，用来统计交接耗时
+     */
+    public void setOnFlingHandoffListener(FlingCoordinator.OnHandoffListener listener) {
+        mFlingCoordinator.setOnHandoffListener(listener);
+    }
+
+    public FlingCoordinator getFlingCoordinator() {
+        return mFlingCoordinator;
+    }
+
+    /**
+     * 开启后在滑动和fling过程中按区域统计帧耗时，见{@link ScrollFrameMonitor}
+     */
+    public void setFrameMetricsEnabled(boolean enabled) {
+        if (enabled) {
+            if (mFrameMonitor == null) {
+                mFrameMonitor = new ScrollFrameMonitor(getContext());
+            }
+        } else if (mFrameMonitor != null) {
+            mFrameMonitor.stop();
+            mFrameMonitor = null;
+        }
+    }
+
+    /**
+     * @return 没有开启帧耗时统计时返回null
+     */
+    public ScrollFrameMonitor getFrameMonitor() {
+        return mFrameMonitor;
+    }
+
+    /**
+     * @return 测量和布局的计数，一直在统计
+     */
+    public LayoutStats getLayoutStats() {
+        return mLayoutStats;
+    }
+
+    @Override
+    protected void onDetachedFromWindow() {
+        super.onDetachedFromWindow();
+        if (mFrameMonitor != null) {
+            mFrameMonitor.stop();
+        }
+        if (isInflatePosted) {//重新attach时onLayout会再检查一次
+            removeCallbacks(mInflateRunnable);
+            isInflatePosted = false;
+        }
+        if (isActivityFinishing()) {//只是临时detach的话WebView和列表还要继续用
+            recycleWebViews();
+            recycleListViews();
+        }
+    }
+
+    /**
+     * 用newChild替换oldChild，位置、LayoutParams和id都不变，一般用来把布局里的占位换成从{@link WebViewPool}取出的WebView
+     */
+    public void replaceView(View oldChild, View newChild) {
+        int index = indexOfChild(oldChild);
+        if (index < 0) {
+            throw new IllegalArgumentException("oldChild is not a child of DetailScrollView");
+        }
+        ViewGroup.LayoutParams lp = oldChild.getLayoutParams();
+        removeViewAt(index);
+        if (newChild.getId() == NO_ID) {
+            newChild.setId(oldChild.getId());
+        }
+        addView(newChild, index, lp);
+        rebuildSections();//子View个数没变，onLayout里检查不出来
+        if (isNestedScrollMode) {
+            setNestedScrollMode(true);
+        }
+    }
+
+    /**
+     * 把从{@link WebViewPool}取出的WebView放回池里，页面销毁时调用，Activity finish时会自动调用
+     */
+    public void recycleWebViews() {
+        abortScrollAnimation();
+        final WebViewPool pool = WebViewPool.getInstance();
+        boolean isRemoved = false;
+        for (int i = mSections.size() - 1; i >= 0; i--) {
+            DetailSection section = mSections.get(i);
+            if (section.type == DetailSection.TYPE_WEB && pool.isPooled(section.view)) {
+                isRemoved |= pool.release(section.view);
+            }
+        }
+        if (isRemoved) {
+            rebuildSections();
+        }
+    }
+
+    /**
+     * 把列表里的ViewHolder放回共享的缓存池，见{@link com.levylin.detailscrollview.views.pool.ViewHolderPool}，
+     * Activity finish时会自动调用
+     */
+    public void recycleListViews() {
+        for (int i = 0; i < mSections.size(); i++) {
+            View view = mSections.get(i).view;
+            if (view instanceof DetailRecyclerView) {
+                ((DetailRecyclerView) view).recycleToSharedPool();
+            }
+        }
+    }
+
+    private boolean isActivityFinishing() {
+        Context context = getContext();
+        while (context instanceof ContextWrapper) {
+            if (context instanceof Activity)
+                return ((Activity) context).isFinishing();
+            context = ((ContextWrapper) context).getBaseContext();
+        }
+        return false;
+    }
+
     /**
      * 显示区域的高度
      *
@@ -455,9 +799,8 @@ public class DetailScrollView extends ViewGroup {
     @Override
     protected int computeVerticalScrollExtent() {
         try {
-            int webExtent = ViewUtils.computeVerticalScrollExtent((View) mWebView);
-            int listExtent = ViewUtils.computeVerticalScrollExtent((View) mListView);
-            return webExtent + listExtent;
+            ensureScrollMetrics();
+            return mScrollMetrics.getExtent();
         } catch (Exception e) {
             e.printStackTrace();
         }
@@ -471,9 +814,8 @@ public class DetailScrollView extends ViewGroup {
      */
     protected int computeVerticalScrollOffset() {
         try {
-            int webOffset = ViewUtils.computeVerticalScrollOffset((View) mWebView);
-            int listOffset = ViewUtils.computeVerticalScrollOffset((View) mListView);
-            return webOffset + getScrollY() + listOffset;
+            ensureScrollMetrics();
+            return mScrollMetrics.getOffset();
         } catch (Exception e) {
             e.printStackTrace();
         }
@@ -488,18 +830,66 @@ public class DetailScrollView extends ViewGroup {
     @Override
     protected int computeVerticalScrollRange() {
         try {
-            int webScrollRange = mWebView.customComputeVerticalScrollRange();
-            int listScrollRange = ViewUtils.computeVerticalScrollRange((View) mListView);
-            return webScrollRange + maxScrollY + listScrollRange;
+            ensureScrollMetrics();
+            return mScrollMetrics.getRange();
         } catch (Exception e) {
             e.printStackTrace();
         }
         return super.computeVerticalScrollRange();
     }
 
+    /**
+     * 只重新计算脏掉的区域，没有变化的区域直接使用缓存
+     */
+    private void ensureScrollMetrics() throws Exception {
+        final ScrollMetrics metrics = mScrollMetrics;
+        if (!metrics.isDirty())
+            return;
+        View webView = (View) mWebView;
+        View listView = (View) mListView;
+        if (metrics.isDirty(ScrollMetrics.DIRTY_WEB_OFFSET)) {
+            metrics.webOffset = ViewUtils.computeVerticalScrollOffset(webView);
+            if (mWebView.customGetContentHeight() != metrics.webContentHeight) {//滑动过程中网页继续加载，内容高度也会变
+                metrics.invalidate(ScrollMetrics.DIRTY_WEB_RANGE);
+            }
+        }
+        if (metrics.isDirty(ScrollMetrics.DIRTY_WEB_RANGE)) {
+            metrics.webRange = mWebView.customComputeVerticalScrollRange();
+            metrics.webExtent = ViewUtils.computeVerticalScrollExtent(webView);
+            metrics.webContentHeight = mWebView.customGetContentHeight();
+        }
+        if (listView == null) {//列表还没有创建，只占位置，没有内容
+            metrics.listOffset = 0;
+            metrics.listRange = 0;
+            metrics.listExtent = 0;
+        } else if (metrics.isDirty(ScrollMetrics.DIRTY_LIST) && mListView.updateItemHeights(mListItemIndex)) {
+            //按每个item的高度算，不用列表自己按平均高度估算的range/offset，item高度不一样时滚动条也不会跳
+            int extent = listView.getHeight();
+            int range = Math.max(extent, listView.getPaddingTop() + mListItemIndex.total() + listView.getPaddingBottom());
+            int offset = 0;
+            int position = mListView.getFirstVisiblePosition();
+            if (position >= 0 && position < mListItemIndex.size()) {
+                offset = listView.getPaddingTop() + mListItemIndex.offsetOf(position) - mListView.getFirstVisibleItemTop();
+            }
+            metrics.listRange = range;
+            metrics.listExtent = extent;
+            metrics.listOffset = Math.max(0, Math.min(offset, range - extent));
+        } else {
+            if (metrics.isDirty(ScrollMetrics.DIRTY_LIST_OFFSET)) {
+                metrics.listOffset = ViewUtils.computeVerticalScrollOffset(listView);
+            }
+            if (metrics.isDirty(ScrollMetrics.DIRTY_LIST_RANGE)) {
+                metrics.listRange = ViewUtils.computeVerticalScrollRange(listView);
+                metrics.listExtent = ViewUtils.computeVerticalScrollExtent(listView);
+            }
+        }
+        metrics.containerScrollY = getScrollY();
+        metrics.clean(ScrollMetrics.DIRTY_ALL);
+    }
+
     @Override
     public boolean canScrollVertically(int direction) {
-        LogE(TAG + ".canScrollVertically.getScrollY()=" + getScrollY() + ",mWebHeight=" + maxScrollY + ",direction=" + direction);
+        ScrollTracer.record(ScrollTracer.POINT_CAN_SCROLL, -1, direction, maxScrollY, getScrollY(), ScrollTracer.SECTION_CONTAINER, 0);
         if (direction > 0) {
             return getScrollY() > 0;
         } else {
@@ -539,25 +929,30 @@ public class DetailScrollView extends ViewGroup {
      * 跳转到列表区域，如果已经在列表区域，则跳回去，如果滚动动画没有结束，则无响应
      */
     public void toggleScrollToListView() {
-        if (!mScroller.isFinished()) {
+        if (!isScrollIdle()) {
             return;
         }
+        inflateDeferredSections(true);
         View webView = (View) mWebView;
         int webHeight = webView.getHeight() - webView.getPaddingTop() - webView.getPaddingBottom();
         int dy;
         int webViewToY;
         int scrollY = getScrollY();
-        if (scrollY >= maxScrollY) {//不是toggle模式才回到原来的位置
-            dy = oldScrollY - maxScrollY;
+        int listTopY = getListTopY();
+        if (scrollY >= listTopY) {//不是toggle模式才回到原来的位置
+            dy = oldScrollY - scrollY;
             webViewToY = oldWebViewScrollY;
         } else {
-            dy = maxScrollY - scrollY;
+            dy = listTopY - scrollY;
             oldScrollY = scrollY;
             oldWebViewScrollY = mWebView.customGetWebScrollY();
             webViewToY = mWebView.customComputeVerticalScrollRange() - webHeight;
         }
-        mListView.scrollToFirst();
+        if (mListView != null) {
+            mListView.scrollToFirst();
+        }
         mWebView.customScrollTo(webViewToY);
+        abortScrollAnimation();
         mScroller.startScroll(getScrollX(), getScrollY(), 0, dy);
         ViewCompat.postInvalidateOnAnimation(this);
     }
@@ -566,26 +961,261 @@ public class DetailScrollView extends ViewGroup {
      * 强制滑动列表区域
      */
     public void forceScrollToListView() {
-        int dy = maxScrollY - getScrollY();
+        inflateDeferredSections(true);
+        int dy = getListTopY() - getScrollY();
         View webView = (View) mWebView;
         int webHeight = webView.getHeight() - webView.getPaddingTop() - webView.getPaddingBottom();
         int webViewToY = mWebView.customComputeVerticalScrollRange() - webHeight;
-        mListView.scrollToFirst();
+        if (mListView != null) {
+            mListView.scrollToFirst();
+        }
         mWebView.customScrollTo(webViewToY);
+        abortScrollAnimation();
         mScroller.startScroll(getScrollX(), getScrollY(), 0, dy);
         ViewCompat.postInvalidateOnAnimation(this);
     }
 
+    /**
+     * 滑到列表的第position个item，让它的顶部离显示区域顶部offset，从文章的任何位置都可以直接跳过去
+     * 1.列表上面的WebView直接滑到底，列表滑到这个item，DetailScrollView自己用动画滑到列表的位置
+     * 2.item离列表顶部不到offset时列表停在顶部，DetailScrollView少滑一点，让列表上面的区域露出来
+     * item的位置由{@link #getListItemIndex()}算出，没有显示过的item用估算的高度
+     *
+     * @return 没有列表或者列表是空的时候返回false
+     */
+    public boolean scrollToListItem(int position, int offset) {
+        inflateDeferredSections(true);
+        if (mListView == null)
+            return false;
+        View listView = (View) mListView;
+        int targetY = getListTopY();
+        if (mListView.updateItemHeights(mListItemIndex)) {
+            if (mListItemIndex.size() == 0)
+                return false;
+            position = Math.max(0, Math.min(position, mListItemIndex.size() - 1));
+            int itemY = listView.getPaddingTop() + mListItemIndex.offsetOf(position);
+            if (itemY < offset) {
+                mListView.scrollToFirst();
+                targetY = Math.max(0, targetY - (offset - itemY));
+            } else {//scrollToItem的offset从paddingTop开始算，itemY是从列表顶部开始算的
+                mListView.scrollToItem(position, offset - listView.getPaddingTop());
+            }
+        } else {//不能按item算位置的列表，只保证滑到这个item
+            mListView.scrollToItem(Math.max(0, position), offset);
+        }
+        if (mWebView != null && indexOfChild((View) mWebView) < mListSectionIndex) {
+            View webView = (View) mWebView;
+            int webHeight = webView.getHeight() - webView.getPaddingTop() - webView.getPaddingBottom();
+            mWebView.customScrollTo(mWebView.customComputeVerticalScrollRange() - webHeight);
+        }
+        abortScrollAnimation();
+        mScroller.startScroll(getScrollX(), getScrollY(), 0, targetY - getScrollY());
+        mScrollMetrics.invalidate(ScrollMetrics.DIRTY_ALL);
+        ViewCompat.postInvalidateOnAnimation(this);
+        return true;
+    }
+
     /**
      * 回到顶部
      */
     public void scrollToTop() {
         mWebView.customScrollTo(0);
+        abortScrollAnimation();
         mScroller.startScroll(getScrollX(), getScrollY(), 0, -getScrollY());
-        mListView.scrollToFirst();
+        if (mListView != null) {
+            mListView.scrollToFirst();
+        }
         ViewCompat.postInvalidateOnAnimation(this);
     }
 
+    /**
+     * 开启嵌套滑动模式
+     * 开启后RecyclerView和WebView不再经过触摸帮助类，而是通过嵌套滑动把需要MyScrollView滑动的部分分发过来，
+     * 每个事件只在层级中传递一次；MyScrollView自己也会作为嵌套滑动的子View，可以放在CoordinatorLayout中
+     * ListView在5.0以下不支持嵌套滑动，仍然走触摸帮助类
+     */
+    public void setNestedScrollMode(boolean nestedScrollMode) {
+        isNestedScrollMode = nestedScrollMode;
+        setNestedScrollingEnabled(nestedScrollMode);
+        for (int i = 0; i < mSections.size(); i++) {
+            View child = mSections.get(i).view;
+            if (child instanceof NestedScrollingChild && mSections.get(i).isNested()) {
+                ((NestedScrollingChild) child).setNestedScrollingEnabled(nestedScrollMode);
+            }
+        }
+    }
+
+    public boolean isNestedScrollMode() {
+        return isNestedScrollMode;
+    }
+
+    /**
+     * @return MyScrollView自己能否往direction方向滑
+     */
+    private boolean canContainerScroll(int direction) {
+        return mCoordinator.canContainerScroll(direction);
+    }
+
+    // NestedScrollingParent
+
+    @Override
+    public boolean onStartNestedScroll(View child, View target, int nestedScrollAxes) {
+        return isNestedScrollMode && (nestedScrollAxes & ViewCompat.SCROLL_AXIS_VERTICAL) != 0;
+    }
+
+    @Override
+    public void onNestedScrollAccepted(View child, View target, int axes) {
+        mParentHelper.onNestedScrollAccepted(child, target, axes);
+        mNestedChild = child;
+        isTouched = false;
+        abortScrollAnimation();
+        startNestedScroll(ViewCompat.SCROLL_AXIS_VERTICAL);
+    }
+
+    @Override
+    public void onNestedPreScroll(View target, int dx, int dy, int[] consumed) {
+        if (dispatchNestedPreScroll(dx, dy, mParentScrollConsumed, null)) {//外层先滑
+            consumed[0] += mParentScrollConsumed[0];
+            consumed[1] += mParentScrollConsumed[1];
+            dy -= mParentScrollConsumed[1];
+        }
+        int containerDy = adjustScrollY(dy);
+        if (mNestedChild != null && shouldScrollContainer(mNestedChild, containerDy)) {
+            customScrollBy(containerDy);
+            consumed[1] += containerDy;
+            ScrollTracer.record(ScrollTracer.POINT_TOUCH, MotionEvent.ACTION_MOVE, containerDy, dy, getScrollY(),
+                    ScrollTracer.SECTION_CONTAINER, ScrollTracer.FLAG_DRAGGED);
+        }
+    }
+
+    @Override
+    public void onNestedScroll(View target, int dxConsumed, int dyConsumed, int dxUnconsumed, int dyUnconsumed) {
+        int containerDy = adjustScrollY(dyUnconsumed);//子View滑不动的部分由MyScrollView滑
+        if (containerDy != 0) {
+            customScrollBy(containerDy);
+        }
+        dispatchNestedScroll(0, dyConsumed + containerDy, 0, dyUnconsumed - containerDy, null);
+    }
+
+    @Override
+    public boolean onNestedPreFling(View target, float velocityX, float velocityY) {
+        if (dispatchNestedPreFling(velocityX, velocityY))
+            return true;
+        //子View不自己fling，由FlingCoordinator带着子View和MyScrollView一起滑，保证只有一条fling曲线
+        return startFling((int) velocityY);
+    }
+
+    @Override
+    public boolean onNestedFling(View target, float velocityX, float velocityY, boolean consumed) {
+        int direction = velocityY > 0 ? DIRECT_BOTTOM : DIRECT_TOP;
+        if (!consumed && canContainerScroll(direction)) {
+            fling((int) velocityY);
+            return true;
+        }
+        return dispatchNestedFling(velocityX, velocityY, consumed);
+    }
+
+    @Override
+    public int getNestedScrollAxes() {
+        return mParentHelper.getNestedScrollAxes();
+    }
+
+    @Override
+    public void onStopNestedScroll(View target) {
+        mParentHelper.onStopNestedScroll(target);
+        mNestedChild = null;
+        stopNestedScroll();
+    }
+
+    // NestedScrollingChild
+
+    @Override
+    public void setNestedScrollingEnabled(boolean enabled) {
+        if (mChildHelper == null)//View的构造方法里就可能调用
+            return;
+        mChildHelper.setNestedScrollingEnabled(enabled);
+    }
+
+    @Override
+    public boolean isNestedScrollingEnabled() {
+        return mChildHelper != null && mChildHelper.isNestedScrollingEnabled();
+    }
+
+    @Override
+    public boolean startNestedScroll(int axes) {
+        return mChildHelper.startNestedScroll(axes);
+    }
+
+    @Override
+    public void stopNestedScroll() {
+        mChildHelper.stopNestedScroll();
+    }
+
+    @Override
+    public boolean hasNestedScrollingParent() {
+        return mChildHelper.hasNestedScrollingParent();
+    }
+
+    @Override
+    public boolean dispatchNestedScroll(int dxConsumed, int dyConsumed, int dxUnconsumed, int dyUnconsumed, int[] offsetInWindow) {
+        return mChildHelper.dispatchNestedScroll(dxConsumed, dyConsumed, dxUnconsumed, dyUnconsumed, offsetInWindow);
+    }
+
+    @Override
+    public boolean dispatchNestedPreScroll(int dx, int dy, int[] consumed, int[] offsetInWindow) {
+        return mChildHelper.dispatchNestedPreScroll(dx, dy, consumed, offsetInWindow);
+    }
+
+    @Override
+    public boolean dispatchNestedFling(float velocityX, float velocityY, boolean consumed) {
+        return mChildHelper.dispatchNestedFling(velocityX, velocityY, consumed);
+    }
+
+    @Override
+    public boolean dispatchNestedPreFling(float velocityX, float velocityY) {
+        return mChildHelper.dispatchNestedPreFling(velocityX, velocityY);
+    }
+
+    /**
+     * @return 第一个列表区域占满显示区域时MyScrollView的scrollY
+     */
+    private int getListTopY() {
+        if (mListSectionIndex < 0 || mListSectionIndex >= mSections.size())
+            return maxScrollY;
+        return Math.min(mCoordinator.getSectionTop(mListSectionIndex), maxScrollY);
+    }
+
+    /**
+     * @return 向下还要滑多远列表才开始自己滑动，包括列表上面的WebView还没滑完的部分
+     */
+    private int getDistanceToList() {
+        int distance = getListTopY() - getScrollY();
+        if (mWebView != null && indexOfChild((View) mWebView) < mListSectionIndex) {
+            View webView = (View) mWebView;
+            int webHeight = webView.getHeight() - webView.getPaddingTop() - webView.getPaddingBottom();
+            distance += Math.max(0, mWebView.customComputeVerticalScrollRange() - webHeight - mWebView.customGetWebScrollY());
+        }
+        return distance;
+    }
+
+    private int traceSectionOf(int owner) {
+        if (owner >= 0)
+            return mSections.get(owner).traceSection();
+        return owner == ScrollCoordinator.OWNER_CONTAINER ? ScrollTracer.SECTION_CONTAINER : ScrollTracer.SECTION_NONE;
+    }
+
+    private int edgeFlags(boolean isAtTop, boolean isAtBottom) {
+        int flags = 0;
+        if (isAtTop) flags |= ScrollTracer.FLAG_AT_TOP;
+        if (isAtBottom) flags |= ScrollTracer.FLAG_AT_BOTTOM;
+        if (isTouched) flags |= ScrollTracer.FLAG_TOUCHED;
+        if (isBeingDragged) flags |= ScrollTracer.FLAG_DRAGGED;
+        return flags;
+    }
+
+    /**
+     * 只用于非热路径的日志，MOVE/fling等热路径请使用{@link ScrollTracer#record}，避免拼接字符串产生的垃圾
+     */
     public static void LogE(String content) {
         if (isDebug) {
             Log.e(TAG, content);
@@ -596,15 +1226,85 @@ public class DetailScrollView extends ViewGroup {
         isDebug = debug;
     }
 
+    /**
+     * 把{@link ScrollCoordinator}的计算结果落到子View上
+     */
+    private class CoordinatorHost implements ScrollCoordinator.Host {
+
+        @Override
+        public int getContainerScrollY() {
+            return getScrollY();
+        }
+
+        @Override
+        public void scrollContainerBy(int dy) {
+            customScrollBy(dy);
+        }
+
+        @Override
+        public boolean canSectionScroll(int index, int direction) {
+            return mSections.get(index).canScrollVertically(direction);
+        }
+
+        @Override
+        public int scrollSection(int index, int dy) {
+            DetailSection section = mSections.get(index);
+            int consumed = section.scrollByConsumed(dy);
+            ScrollTracer.record(ScrollTracer.POINT_COMPUTE_SCROLL, -1, consumed, dy, getScrollY(), section.traceSection(), 0);
+            return consumed;
+        }
+
+        @Override
+        public void onScrollOwnerChanged(int owner) {
+            mFlingCoordinator.onOwnerChanged(owner);
+        }
+    }
+
+    /**
+     * WebView的内容高度变化由页面主动通知，每帧最多一次，见{@link com.levylin.detailscrollview.views.helper.WebContentHeightObserver}
+     * 如果第一个WebView的底部已经不在scrollview的底部，则把webView扩展至底部与scrollview重合，反之则不处理
+     */
+    private class MyContentHeightChangedListener implements OnContentHeightChangedListener {
+
+        private final Rect outRect = new Rect();
+
+        @Override
+        public void onContentHeightChanged(View webView, int oldHeight, int newHeight) {
+            mScrollMetrics.invalidate(ScrollMetrics.DIRTY_WEB_RANGE);
+            awakenScrollBars();
+            if (webView != mWebView)
+                return;
+            webView.getGlobalVisibleRect(outRect);
+            int distBottom = getHeight() - outRect.height();
+            if (distBottom <= 0
+                    || getScrollY() == 0//没触发滑动的时候不扩展
+                    || webView.getHeight() < getHeight())//webView本身高度就小于scrollview，也不扩展
+                return;
+            ViewGroup.LayoutParams lp = webView.getLayoutParams();
+            lp.height = webView.getMeasuredHeight() + distBottom;
+            webView.setLayoutParams(lp);
+        }
+    }
+
     private class MyScrollBarShowListener implements OnScrollBarShowListener {
 
-        private long mOldTimeMills;
+        private final int dirtyFlags;
+        private final int phase;
+
+        MyScrollBarShowListener(int dirtyFlags, int phase) {
+            this.dirtyFlags = dirtyFlags;
+            this.phase = phase;
+        }
 
         @Override
         public void onShow() {
+            mScrollMetrics.invalidate(dirtyFlags);//子View滑动了，只有它的offset需要重新计算
+            if (mFrameMonitor != null) {
+                mFrameMonitor.markPhase(phase);
+            }
             long timeMills = AnimationUtils.currentAnimationTimeMillis();
-            if (timeMills - mOldTimeMills > 16) {
-                mOldTimeMills = timeMills;
+            if (timeMills - mOldAwakenTimeMills > 16) {
+                mOldAwakenTimeMills = timeMills;
                 awakenScrollBars();
             }
         }
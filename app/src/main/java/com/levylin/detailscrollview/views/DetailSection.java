@@ -0,0 +1,141 @@
+package com.levylin.detailscrollview.views;
+
+import android.support.v7.widget.RecyclerView;
+import android.view.View;
+
+import com.levylin.detailscrollview.views.trace.ScrollTracer;
+
+/**
+ * DetailScrollView中的一个区域
+ * IDetailWebView和IDetailListView是可以自己滑动的嵌套区域，其他子View都当作静态区域
+ */
+class DetailSection {
+
+    static final int TYPE_STATIC = 0;
+    static final int TYPE_WEB = 1;
+    static final int TYPE_LIST = 2;
+
+    final View view;
+    final int type;
+    private final IDetailWebView webView;
+    private final IDetailListView listView;
+    //上一次测量时给子View的MeasureSpec
+    private boolean isMeasured;
+    private int lastWidthSpec;
+    private int lastHeightSpec;
+    //这次测量过还没有layout，测量结果和上次一样时位置尺寸都不变，也要layout一次让子View按新的约束排版
+    private boolean isMeasuredThisPass;
+
+    DetailSection(View view) {
+        this.view = view;
+        if (view instanceof IDetailWebView) {
+            type = TYPE_WEB;
+            webView = (IDetailWebView) view;
+            listView = null;
+        } else if (view instanceof IDetailListView) {
+            type = TYPE_LIST;
+            webView = null;
+            listView = (IDetailListView) view;
+        } else {
+            type = TYPE_STATIC;
+            webView = null;
+            listView = null;
+        }
+    }
+
+    /**
+     * @return 是否是可以自己滑动的区域
+     */
+    boolean isNested() {
+        return type != TYPE_STATIC;
+    }
+
+    IDetailWebView getWebView() {
+        return webView;
+    }
+
+    IDetailListView getListView() {
+        return listView;
+    }
+
+    boolean canScrollVertically(int direction) {
+        if (view.getVisibility() == View.GONE)
+            return false;
+        switch (type) {
+            case TYPE_WEB:
+                return webView.canScrollVertically(direction);
+            case TYPE_LIST:
+                return listView.canScrollVertically(direction);
+            default:
+                return false;
+        }
+    }
+
+    /**
+     * 滑动并返回实际滑动的距离，滑到边界时会小于dy
+     * ListView拿不到像素偏移，当作全部消费掉
+     */
+    int scrollByConsumed(int dy) {
+        switch (type) {
+            case TYPE_WEB: {
+                int oldY = webView.customGetWebScrollY();
+                webView.customScrollBy(dy);
+                return clampConsumed(webView.customGetWebScrollY() - oldY, dy);
+            }
+            case TYPE_LIST: {
+                if (view instanceof RecyclerView) {//RecyclerView的offset是像素，ListView的offset是按item比例换算的，不能用来算距离
+                    RecyclerView recyclerView = (RecyclerView) view;
+                    int oldOffset = recyclerView.computeVerticalScrollOffset();
+                    listView.customScrollBy(dy);
+                    return clampConsumed(recyclerView.computeVerticalScrollOffset() - oldOffset, dy);
+                }
+                listView.customScrollBy(dy);
+                return dy;
+            }
+            default:
+                return 0;
+        }
+    }
+
+    private int clampConsumed(int consumed, int dy) {
+        if (consumed == 0 && canScrollVertically(dy > 0 ? 1 : -1))//滑动是异步的，下一帧才会生效，当作全部消费掉
+            return dy;
+        return dy > 0 ? Math.max(0, Math.min(consumed, dy)) : Math.min(0, Math.max(consumed, dy));
+    }
+
+    /**
+     * 约束没有变化而且子View自己没有requestLayout(内容、LayoutParams都没变)就不用重新测量
+     */
+    boolean needsMeasure(int widthSpec, int heightSpec) {
+        return !isMeasured || widthSpec != lastWidthSpec || heightSpec != lastHeightSpec || view.isLayoutRequested();
+    }
+
+    void onMeasured(int widthSpec, int heightSpec) {
+        isMeasured = true;
+        lastWidthSpec = widthSpec;
+        lastHeightSpec = heightSpec;
+        isMeasuredThisPass = true;
+    }
+
+    boolean isMeasuredThisPass() {
+        return isMeasuredThisPass;
+    }
+
+    void onLaidOut() {
+        isMeasuredThisPass = false;
+    }
+
+    /**
+     * @return 追踪记录中使用的区域类型
+     */
+    int traceSection() {
+        switch (type) {
+            case TYPE_WEB:
+                return ScrollTracer.SECTION_WEB;
+            case TYPE_LIST:
+                return ScrollTracer.SECTION_LIST;
+            default:
+                return ScrollTracer.SECTION_CONTAINER;
+        }
+    }
+}
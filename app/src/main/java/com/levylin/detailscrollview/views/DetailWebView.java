@@ -1,17 +1,49 @@
 package com.levylin.detailscrollview.views;
 
+import android.annotation.SuppressLint;
+import android.annotation.TargetApi;
 import android.content.Context;
+import android.os.Build;
+import android.support.v4.view.NestedScrollingChild;
 import android.util.AttributeSet;
 import android.view.MotionEvent;
+import android.webkit.CookieManager;
+import android.webkit.WebResourceRequest;
+import android.webkit.WebResourceResponse;
 import android.webkit.WebView;
+import android.webkit.WebViewClient;
 
+import com.levylin.detailscrollview.views.client.ForwardingWebViewClient;
+import com.levylin.detailscrollview.views.client.WebResponses;
+import com.levylin.detailscrollview.views.helper.NestedWebViewHelper;
+import com.levylin.detailscrollview.views.helper.WebContentHeightObserver;
 import com.levylin.detailscrollview.views.helper.WebViewTouchHelper;
+import com.levylin.detailscrollview.views.listener.OnContentHeightChangedListener;
 import com.levylin.detailscrollview.views.listener.OnScrollBarShowListener;
+import com.levylin.detailscrollview.views.trace.ScrollTracer;
+import com.levylin.detailscrollview.web.bundle.BundleResolver;
+import com.levylin.detailscrollview.web.bundle.BundleResource;
+import com.levylin.detailscrollview.web.cache.ResponseCache;
 
-public class DetailWebView extends WebView implements IDetailWebView {
+import java.util.HashMap;
+import java.util.Map;
+
+public class DetailWebView extends WebView implements IDetailWebView, NestedScrollingChild {
 
     private WebViewTouchHelper mHelper;
     private OnScrollBarShowListener mScrollBarShowListener;
+    private DetailScrollView mScrollView;
+    private NestedWebViewHelper mNestedHelper;
+    private InnerWebViewClient mInnerClient;
+    private WebContentHeightObserver mContentHeightObserver;
+    private volatile ResponseCache mResponseCache;//shouldInterceptRequest在WebView的IO线程回调
+    private volatile BundleResolver mBundleResolver;
+    private final NestedWebViewHelper.SuperTouch mSuperTouch = new NestedWebViewHelper.SuperTouch() {
+        @Override
+        public boolean onSuperTouchEvent(MotionEvent ev) {
+            return DetailWebView.super.onTouchEvent(ev);
+        }
+    };
 
     public DetailWebView(Context context) {
         super(context);
@@ -28,20 +60,109 @@ public class DetailWebView extends WebView implements IDetailWebView {
         init();
     }
 
+    @SuppressLint("AddJavascriptInterface")
     protected void init() {
         setVerticalScrollBarEnabled(false);
         setOverScrollMode(OVER_SCROLL_NEVER);
+        mContentHeightObserver = new WebContentHeightObserver(this, this, new WebContentHeightObserver.ScriptHost() {
+            @Override
+            public void evaluateScript(String script) {
+                if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.KITKAT) {
+                    evaluateJavascript(script, null);
+                } else {
+                    loadUrl("javascript:" + script);
+                }
+            }
+        });
+        if (WebContentHeightObserver.isBridgeSupported()) {
+            addJavascriptInterface(mContentHeightObserver.getBridge(), WebContentHeightObserver.BRIDGE_NAME);
+        }
+        super.setWebViewClient(getInnerClient());
+    }
+
+    /**
+     * 外部设置的client会被包一层，页面加载的回调先经过这里再转发出去
+     */
+    @Override
+    public void setWebViewClient(WebViewClient client) {
+        getInnerClient().setDelegate(client);
+        super.setWebViewClient(getInnerClient());
+    }
+
+    private InnerWebViewClient getInnerClient() {
+        if (mInnerClient == null) {
+            mInnerClient = new InnerWebViewClient();
+        }
+        return mInnerClient;
     }
 
     public void setScrollView(DetailScrollView scrollView) {
-        mHelper = new WebViewTouchHelper(scrollView, this);
+        mScrollView = scrollView;
+        mHelper = scrollView != null ? new WebViewTouchHelper(scrollView, this) : null;//放回WebView池时传null
     }
 
     @Override
     public boolean onTouchEvent(MotionEvent ev) {
+        if (mScrollView != null && mScrollView.isNestedScrollMode())//嵌套滑动模式下，由DetailScrollView通过嵌套滑动回调处理
+            return getNestedHelper().onTouchEvent(ev, mSuperTouch);
         if (mHelper == null)
             return super.onTouchEvent(ev);
-        return mHelper.onTouchEvent(ev) && super.onTouchEvent(ev);
+        return mHelper.onTouchEvent(ev, mSuperTouch);//拖动之后的fling交给DetailScrollView，见WebViewTouchHelper
+    }
+
+    /**
+     * View的构造方法里就可能调用嵌套滑动的方法，所以延迟创建
+     */
+    private NestedWebViewHelper getNestedHelper() {
+        if (mNestedHelper == null) {
+            mNestedHelper = new NestedWebViewHelper(this);
+        }
+        return mNestedHelper;
+    }
+
+    @Override
+    public void setNestedScrollingEnabled(boolean enabled) {
+        getNestedHelper().getChildHelper().setNestedScrollingEnabled(enabled);
+    }
+
+    @Override
+    public boolean isNestedScrollingEnabled() {
+        return getNestedHelper().getChildHelper().isNestedScrollingEnabled();
+    }
+
+    @Override
+    public boolean startNestedScroll(int axes) {
+        return getNestedHelper().getChildHelper().startNestedScroll(axes);
+    }
+
+    @Override
+    public void stopNestedScroll() {
+        getNestedHelper().getChildHelper().stopNestedScroll();
+    }
+
+    @Override
+    public boolean hasNestedScrollingParent() {
+        return getNestedHelper().getChildHelper().hasNestedScrollingParent();
+    }
+
+    @Override
+    public boolean dispatchNestedScroll(int dxConsumed, int dyConsumed, int dxUnconsumed, int dyUnconsumed, int[] offsetInWindow) {
+        return getNestedHelper().getChildHelper().dispatchNestedScroll(dxConsumed, dyConsumed, dxUnconsumed, dyUnconsumed, offsetInWindow);
+    }
+
+    @Override
+    public boolean dispatchNestedPreScroll(int dx, int dy, int[] consumed, int[] offsetInWindow) {
+        return getNestedHelper().getChildHelper().dispatchNestedPreScroll(dx, dy, consumed, offsetInWindow);
+    }
+
+    @Override
+    public boolean dispatchNestedFling(float velocityX, float velocityY, boolean consumed) {
+        return getNestedHelper().getChildHelper().dispatchNestedFling(velocityX, velocityY, consumed);
+    }
+
+    @Override
+    public boolean dispatchNestedPreFling(float velocityX, float velocityY) {
+        return getNestedHelper().getChildHelper().dispatchNestedPreFling(velocityX, velocityY);
     }
 
     @Override
@@ -56,7 +177,7 @@ public class DetailWebView extends WebView implements IDetailWebView {
 
     @Override
     public void startFling(int vy) {
-        DetailScrollView.LogE("DetailWebView...startFling:" + (-vy));
+        ScrollTracer.record(ScrollTracer.POINT_START_FLING, -1, 0, vy, getScrollY(), ScrollTracer.SECTION_WEB, 0);
         flingScroll(0, vy);
     }
 
@@ -80,6 +201,29 @@ public class DetailWebView extends WebView implements IDetailWebView {
         mScrollBarShowListener = listener;
     }
 
+    @Override
+    public void setOnContentHeightChangedListener(OnContentHeightChangedListener listener) {
+        mContentHeightObserver.setOnContentHeightChangedListener(listener);
+    }
+
+    @Override
+    public void setResponseCache(ResponseCache cache) {
+        mResponseCache = cache;
+    }
+
+    @Override
+    public void setBundleResolver(BundleResolver resolver) {
+        mBundleResolver = resolver;
+    }
+
+    @Override
+    protected void onSizeChanged(int w, int h, int ow, int oh) {
+        super.onSizeChanged(w, h, ow, oh);
+        if (mContentHeightObserver != null && w != ow) {//宽度变了内容会重新排版
+            mContentHeightObserver.schedule();
+        }
+    }
+
     @Override
     protected boolean overScrollBy(int deltaX, int deltaY, int scrollX, int scrollY, int scrollRangeX, int scrollRangeY, int maxOverScrollX, int maxOverScrollY, boolean isTouchEvent) {
         boolean b = super.overScrollBy(deltaX, deltaY, scrollX, scrollY, scrollRangeX, scrollRangeY, maxOverScrollX, maxOverScrollY, isTouchEvent);
@@ -91,5 +235,70 @@ public class DetailWebView extends WebView implements IDetailWebView {
         }
         return b;
     }
-}
 
+    private class InnerWebViewClient extends ForwardingWebViewClient {
+
+        @TargetApi(Build.VERSION_CODES.M)
+        @Override
+        public void onPageCommitVisible(WebView view, String url) {
+            super.onPageCommitVisible(view, url);
+            mContentHeightObserver.injectScript();//尽早开始监听，加载过程中的高度变化也能收到
+        }
+
+        @Override
+        public void onPageFinished(WebView view, String url) {
+            super.onPageFinished(view, url);
+            mContentHeightObserver.injectScript();
+        }
+
+        @Override
+        public void onScaleChanged(WebView view, float oldScale, float newScale) {
+            super.onScaleChanged(view, oldScale, newScale);
+            mContentHeightObserver.schedule();
+        }
+
+        /**
+         * 5.0以下只会回调这个方法，外部的client没有处理时再查文章包和缓存
+         * 这里拿不到请求方法，只处理子资源，页面和表单交给WebView自己加载，见{@link WebResponses#isSubresource}
+         */
+        @Override
+        public WebResourceResponse shouldInterceptRequest(WebView view, String url) {
+            WebResourceResponse response = super.shouldInterceptRequest(view, url);
+            if (response != null || !WebResponses.isSubresource(url))
+                return response;
+            return intercept(url, null);
+        }
+
+        @TargetApi(Build.VERSION_CODES.LOLLIPOP)
+        @Override
+        public WebResourceResponse shouldInterceptRequest(WebView view, WebResourceRequest request) {
+            WebResourceResponse response = super.shouldInterceptRequest(view, request);
+            if (response != null || !"GET".equalsIgnoreCase(request.getMethod()))
+                return response;
+            return intercept(request.getUrl().toString(), request.getRequestHeaders());
+        }
+
+        private WebResourceResponse intercept(String url, Map<String, String> headers) {
+            BundleResolver resolver = mBundleResolver;
+            if (resolver != null) {
+                BundleResource resource = resolver.resolve(url);
+                if (resource != null)
+                    return WebResponses.toSystem(resource);
+            }
+            ResponseCache cache = mResponseCache;
+            return cache != null ? WebResponses.toSystem(cache.get(url, withCookie(url, headers))) : null;
+        }
+
+        /**
+         * WebView给的请求头里没有Cookie，是网络层才加上的；带上之后{@link ResponseCache}就不会用共用的缓存处理这个请求
+         */
+        private Map<String, String> withCookie(String url, Map<String, String> headers) {
+            String cookie = CookieManager.getInstance().getCookie(url);
+            if (cookie == null || cookie.length() == 0)
+                return headers;
+            Map<String, String> result = headers == null ? new HashMap<String, String>() : new HashMap<>(headers);
+            result.put("Cookie", cookie);
+            return result;
+        }
+    }
+}
@@ -1,23 +1,55 @@
 package com.levylin.detailscrollview.views;
 
+import android.annotation.SuppressLint;
 import android.content.Context;
+import android.os.Bundle;
+import android.support.v4.view.NestedScrollingChild;
 import android.util.AttributeSet;
 import android.view.MotionEvent;
 import android.view.View;
 
+import com.levylin.detailscrollview.views.client.ForwardingX5WebViewClient;
+import com.levylin.detailscrollview.views.client.WebResponses;
+import com.levylin.detailscrollview.views.helper.NestedWebViewHelper;
+import com.levylin.detailscrollview.views.helper.WebContentHeightObserver;
 import com.levylin.detailscrollview.views.helper.WebViewTouchHelper;
+import com.levylin.detailscrollview.views.listener.OnContentHeightChangedListener;
 import com.levylin.detailscrollview.views.listener.OnScrollBarShowListener;
+import com.levylin.detailscrollview.views.trace.ScrollTracer;
+import com.levylin.detailscrollview.web.bundle.BundleResolver;
+import com.levylin.detailscrollview.web.bundle.BundleResource;
+import com.levylin.detailscrollview.web.cache.ResponseCache;
+import com.tencent.smtt.export.external.interfaces.WebResourceRequest;
+import com.tencent.smtt.export.external.interfaces.WebResourceResponse;
+import com.tencent.smtt.sdk.CookieManager;
+import com.tencent.smtt.sdk.WebView;
 import com.tencent.smtt.sdk.WebViewCallbackClient;
+import com.tencent.smtt.sdk.WebViewClient;
+
+import java.util.HashMap;
+import java.util.Map;
 
 /**
  * 腾讯X5的WebView内核
  * Created by LinXin on 2017/3/31.
  */
-public class DetailX5WebView extends X5WebView implements IDetailWebView {
+public class DetailX5WebView extends X5WebView implements IDetailWebView, NestedScrollingChild {
 
     private WebViewTouchHelper mHelper;
     private OnScrollBarShowListener mScrollBarShowListener;
     private boolean isTouched = false;
+    private DetailScrollView mScrollView;
+    private NestedWebViewHelper mNestedHelper;
+    private InnerWebViewClient mInnerClient;//X5WebView的构造方法里就会调用setWebViewClient，不能在这里初始化
+    private WebContentHeightObserver mContentHeightObserver;
+    private volatile ResponseCache mResponseCache;//shouldInterceptRequest在内核的IO线程回调
+    private volatile BundleResolver mBundleResolver;
+    private final NestedWebViewHelper.SuperTouch mSuperDispatch = new NestedWebViewHelper.SuperTouch() {
+        @Override
+        public boolean onSuperTouchEvent(MotionEvent ev) {
+            return DetailX5WebView.super.dispatchTouchEvent(ev);
+        }
+    };
 
     public DetailX5WebView(Context context) {
         super(context);
@@ -29,12 +61,39 @@ public class DetailX5WebView extends X5WebView implements IDetailWebView {
         init();
     }
 
+    @SuppressLint("AddJavascriptInterface")
     protected void init() {
         getView().setVerticalScrollBarEnabled(false);
         getView().setOverScrollMode(OVER_SCROLL_NEVER);
         if (getX5WebViewExtension() == null) {
             initSystemCoreWebView();
         }
+        mContentHeightObserver = new WebContentHeightObserver(this, this, new WebContentHeightObserver.ScriptHost() {
+            @Override
+            public void evaluateScript(String script) {
+                evaluateJavascript(script, null);
+            }
+        });
+        if (WebContentHeightObserver.isBridgeSupported()) {
+            addJavascriptInterface(mContentHeightObserver.getBridge(), WebContentHeightObserver.BRIDGE_NAME);
+        }
+        super.setWebViewClient(getInnerClient());
+    }
+
+    /**
+     * 外部设置的client会被包一层，页面加载的回调先经过这里再转发出去
+     */
+    @Override
+    public void setWebViewClient(WebViewClient client) {
+        getInnerClient().setDelegate(client);
+        super.setWebViewClient(getInnerClient());
+    }
+
+    private InnerWebViewClient getInnerClient() {
+        if (mInnerClient == null) {
+            mInnerClient = new InnerWebViewClient();
+        }
+        return mInnerClient;
     }
 
     /**
@@ -90,9 +149,68 @@ public class DetailX5WebView extends X5WebView implements IDetailWebView {
     @Override
     public boolean dispatchTouchEvent(MotionEvent ev) {
         isTouched = ev.getAction() == MotionEvent.ACTION_DOWN || ev.getAction() == MotionEvent.ACTION_MOVE;
+        if (mScrollView != null && mScrollView.isNestedScrollMode())//嵌套滑动模式下，X5内核的事件也在这里转换成嵌套滑动
+            return getNestedHelper().onTouchEvent(ev, mSuperDispatch);
+        if (mHelper != null)//拖动之后的fling交给DetailScrollView，见WebViewTouchHelper
+            return mHelper.dispatchTouchEvent(ev, mSuperDispatch);
         return super.dispatchTouchEvent(ev);
     }
 
+    /**
+     * View的构造方法里就可能调用嵌套滑动的方法，所以延迟创建
+     */
+    private NestedWebViewHelper getNestedHelper() {
+        if (mNestedHelper == null) {
+            mNestedHelper = new NestedWebViewHelper(this);
+        }
+        return mNestedHelper;
+    }
+
+    @Override
+    public void setNestedScrollingEnabled(boolean enabled) {
+        getNestedHelper().getChildHelper().setNestedScrollingEnabled(enabled);
+    }
+
+    @Override
+    public boolean isNestedScrollingEnabled() {
+        return getNestedHelper().getChildHelper().isNestedScrollingEnabled();
+    }
+
+    @Override
+    public boolean startNestedScroll(int axes) {
+        return getNestedHelper().getChildHelper().startNestedScroll(axes);
+    }
+
+    @Override
+    public void stopNestedScroll() {
+        getNestedHelper().getChildHelper().stopNestedScroll();
+    }
+
+    @Override
+    public boolean hasNestedScrollingParent() {
+        return getNestedHelper().getChildHelper().hasNestedScrollingParent();
+    }
+
+    @Override
+    public boolean dispatchNestedScroll(int dxConsumed, int dyConsumed, int dxUnconsumed, int dyUnconsumed, int[] offsetInWindow) {
+        return getNestedHelper().getChildHelper().dispatchNestedScroll(dxConsumed, dyConsumed, dxUnconsumed, dyUnconsumed, offsetInWindow);
+    }
+
+    @Override
+    public boolean dispatchNestedPreScroll(int dx, int dy, int[] consumed, int[] offsetInWindow) {
+        return getNestedHelper().getChildHelper().dispatchNestedPreScroll(dx, dy, consumed, offsetInWindow);
+    }
+
+    @Override
+    public boolean dispatchNestedFling(float velocityX, float velocityY, boolean consumed) {
+        return getNestedHelper().getChildHelper().dispatchNestedFling(velocityX, velocityY, consumed);
+    }
+
+    @Override
+    public boolean dispatchNestedPreFling(float velocityX, float velocityY) {
+        return getNestedHelper().getChildHelper().dispatchNestedPreFling(velocityX, velocityY);
+    }
+
     @Override
     protected void onScrollChanged(int l, int t, int oldl, int oldt) {
         super.onScrollChanged(l, t, oldl, oldt);
@@ -109,7 +227,8 @@ public class DetailX5WebView extends X5WebView implements IDetailWebView {
 
     @Override
     public void setScrollView(DetailScrollView scrollView) {
-        mHelper = new WebViewTouchHelper(scrollView, this);
+        mScrollView = scrollView;
+        mHelper = scrollView != null ? new WebViewTouchHelper(scrollView, this) : null;//放回WebView池时传null
     }
 
     @Override
@@ -124,7 +243,7 @@ public class DetailX5WebView extends X5WebView implements IDetailWebView {
 
     @Override
     public void startFling(int vy) {
-        DetailScrollView.LogE("DetailX5WebView...startFling:" + (-vy));
+        ScrollTracer.record(ScrollTracer.POINT_START_FLING, -1, 0, vy, getWebScrollY(), ScrollTracer.SECTION_WEB, 0);
         flingScroll(0, vy);
     }
 
@@ -148,8 +267,100 @@ public class DetailX5WebView extends X5WebView implements IDetailWebView {
         mScrollBarShowListener = listener;
     }
 
+    @Override
+    public void setOnContentHeightChangedListener(OnContentHeightChangedListener listener) {
+        mContentHeightObserver.setOnContentHeightChangedListener(listener);
+    }
+
+    @Override
+    public void setResponseCache(ResponseCache cache) {
+        mResponseCache = cache;
+    }
+
+    @Override
+    public void setBundleResolver(BundleResolver resolver) {
+        mBundleResolver = resolver;
+    }
+
+    @Override
+    protected void onSizeChanged(int w, int h, int ow, int oh) {
+        super.onSizeChanged(w, h, ow, oh);
+        if (mContentHeightObserver != null && w != ow) {//宽度变了内容会重新排版
+            mContentHeightObserver.schedule();
+        }
+    }
+
     @Override
     public boolean canScrollVertically(int direction) {
         return getView().canScrollVertically(direction);
     }
+
+    /**
+     * X5内核的onContentSizeChanged只在内核内部的client上，sdk的WebViewClient拿不到，内容变化依赖注入的脚本
+     */
+    private class InnerWebViewClient extends ForwardingX5WebViewClient {
+
+        @Override
+        public void onPageFinished(WebView view, String url) {
+            super.onPageFinished(view, url);
+            mContentHeightObserver.injectScript();
+        }
+
+        @Override
+        public void onScaleChanged(WebView view, float oldScale, float newScale) {
+            super.onScaleChanged(view, oldScale, newScale);
+            mContentHeightObserver.schedule();
+        }
+
+        /**
+         * X5内核只会回调其中一个，都是外部的client没有处理时再查文章包和缓存
+         * 只有url的这个拿不到请求方法，只处理子资源，见{@link WebResponses#isSubresource}
+         */
+        @Override
+        public WebResourceResponse shouldInterceptRequest(WebView view, String url) {
+            WebResourceResponse response = super.shouldInterceptRequest(view, url);
+            if (response != null || !WebResponses.isSubresource(url))
+                return response;
+            return intercept(url, null);
+        }
+
+        @Override
+        public WebResourceResponse shouldInterceptRequest(WebView view, WebResourceRequest request) {
+            return intercept(request, super.shouldInterceptRequest(view, request));
+        }
+
+        @Override
+        public WebResourceResponse shouldInterceptRequest(WebView view, WebResourceRequest request, Bundle extraData) {
+            return intercept(request, super.shouldInterceptRequest(view, request, extraData));
+        }
+
+        private WebResourceResponse intercept(WebResourceRequest request, WebResourceResponse response) {
+            if (response != null || !"GET".equalsIgnoreCase(request.getMethod()))
+                return response;
+            return intercept(request.getUrl().toString(), request.getRequestHeaders());
+        }
+
+        private WebResourceResponse intercept(String url, Map<String, String> headers) {
+            BundleResolver resolver = mBundleResolver;
+            if (resolver != null) {
+                BundleResource resource = resolver.resolve(url);
+                if (resource != null)
+                    return WebResponses.toX5(resource);
+            }
+            ResponseCache cache = mResponseCache;
+            return cache != null ? WebResponses.toX5(cache.get(url, withCookie(url, headers))) : null;
+        }
+
+        /**
+         * WebView给的请求头里没有Cookie，是网络层才加上的；带上之后{@link ResponseCache}就不会用共用的缓存处理这个请求
+         */
+        private Map<String, String> withCookie(String url, Map<String, String> headers) {
+            String cookie = CookieManager.getInstance().getCookie(url);
+            if (cookie == null || cookie.length() == 0)
+                return headers;
+            Map<String, String> result = headers == null ? new HashMap<String, String>() : new HashMap<>(headers);
+            result.put("Cookie", cookie);
+            return result;
+        }
+    }
 }
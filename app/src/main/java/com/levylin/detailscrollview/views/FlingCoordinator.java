@@ -0,0 +1,127 @@
+package com.levylin.detailscrollview.views;
+
+import android.content.Context;
+import android.widget.OverScroller;
+
+import com.levylin.detailscrollview.core.ScrollCoordinator;
+
+/**
+ * 整个详情页(WebView + MyScrollView + 列表)共用的fling
+ * 把所有区域看成一个连续的虚拟文档，只用一个OverScroller计算fling曲线，每一帧把这一帧的滑动距离按区域分配下去，
+ * 某个区域滑到边界时剩余的距离在同一帧交给下一个区域，不再需要forceFinished之后重新startFling，
+ * 所以不会丢失速度，也不会丢帧
+ */
+public class FlingCoordinator {
+
+    /**
+     * fling过程中滑动从一个区域交接到另一个区域时回调，用来统计交接耗时
+     */
+    public interface OnHandoffListener {
+        /**
+         * @param fromOwner    交出滑动的区域下标，-1代表DetailScrollView自己
+         * @param toOwner      接手滑动的区域下标，-1代表DetailScrollView自己
+         * @param velocity     交接时的速度
+         * @param frameOffsetNanos 交接发生时距离这一帧开始分配滑动的纳秒数
+         */
+        void onHandoff(int fromOwner, int toOwner, float velocity, long frameOffsetNanos);
+    }
+
+    private final DetailScrollView mScrollView;
+    private final OverScroller mScroller;
+    private OnHandoffListener mHandoffListener;
+    private int mLastY;
+    private int mOwner = ScrollCoordinator.OWNER_NONE;
+    private long mFrameStartNanos;
+    private int mHandoffCount;
+    private long mLastHandoffOffsetNanos;
+
+    FlingCoordinator(Context context, DetailScrollView scrollView) {
+        mScrollView = scrollView;
+        mScroller = new OverScroller(context);
+    }
+
+    void setOnHandoffListener(OnHandoffListener listener) {
+        mHandoffListener = listener;
+    }
+
+    /**
+     * @param velocity 大于0代表内容向上滑(scrollY增加)
+     */
+    void fling(int velocity) {
+        mLastY = 0;
+        mOwner = ScrollCoordinator.OWNER_NONE;
+        //没有边界，滑到整个文档的边界时由分配的结果决定停止
+        mScroller.fling(0, 0, 0, velocity, 0, 0, Integer.MIN_VALUE / 2, Integer.MAX_VALUE / 2);
+    }
+
+    boolean isFinished() {
+        return mScroller.isFinished();
+    }
+
+    void abort() {
+        mScroller.abortAnimation();
+        mOwner = ScrollCoordinator.OWNER_NONE;
+    }
+
+    /**
+     * @return 刚开始fling时预计的总距离，按整个文档计算，不考虑边界
+     */
+    int getFinalDistance() {
+        return mScroller.getFinalY();
+    }
+
+    float getCurrVelocity() {
+        return mScroller.getCurrVelocity();
+    }
+
+    /**
+     * 每一帧调用一次
+     *
+     * @return fling是否还在进行
+     */
+    boolean computeScrollOffset() {
+        if (!mScroller.computeScrollOffset())
+            return false;
+        int delta = mScroller.getCurrY() - mLastY;
+        if (delta == 0)
+            return true;
+        mFrameStartNanos = System.nanoTime();
+        int consumed = mScrollView.dispatchScrollDelta(delta);
+        mLastY += consumed;
+        if (consumed != delta) {//所有区域都滑不动了，代表到了整个文档的边界
+            abort();
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * 分配滑动距离时，每次由一个区域消费都会调用
+     */
+    void onOwnerChanged(int owner) {
+        if (owner == mOwner)
+            return;
+        if (mOwner != ScrollCoordinator.OWNER_NONE) {
+            mHandoffCount++;
+            mLastHandoffOffsetNanos = System.nanoTime() - mFrameStartNanos;
+            if (mHandoffListener != null) {
+                mHandoffListener.onHandoff(mOwner, owner, mScroller.getCurrVelocity(), mLastHandoffOffsetNanos);
+            }
+        }
+        mOwner = owner;
+    }
+
+    /**
+     * @return 创建以来一共交接的次数
+     */
+    public int getHandoffCount() {
+        return mHandoffCount;
+    }
+
+    /**
+     * @return 最近一次交接距离那一帧开始分配的纳秒数
+     */
+    public long getLastHandoffOffsetNanos() {
+        return mLastHandoffOffsetNanos;
+    }
+}
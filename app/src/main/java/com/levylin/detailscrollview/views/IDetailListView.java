@@ -1,5 +1,6 @@
 package com.levylin.detailscrollview.views;
 
+import com.levylin.detailscrollview.core.ItemHeightIndex;
 import com.levylin.detailscrollview.views.listener.OnScrollBarShowListener;
 
 /**
@@ -21,4 +22,34 @@ public interface IDetailListView {
      * 滑到第一项
      */
     void scrollToFirst();
+
+    /**
+     * 列表还没有开始自己滑动时由DetailScrollView调用，可以在空闲时提前准备接下来要显示的item
+     *
+     * @param distance      还要滑多远列表才会开始自己滑动，已经开始时小于等于0
+     * @param flingDistance fling预计还会滑的距离，没有fling时为0
+     */
+    void onApproach(int distance, int flingDistance);
+
+    /**
+     * 同步item数量，把显示着的item的实际高度(包括分割线、装饰和margin)写进index
+     *
+     * @return 不是一行一个item的布局时返回false，DetailScrollView退回列表自己估算的滚动条
+     */
+    boolean updateItemHeights(ItemHeightIndex index);
+
+    /**
+     * @return 第一个显示的item的位置，没有item时没有意义
+     */
+    int getFirstVisiblePosition();
+
+    /**
+     * @return 第一个显示的item(包括装饰和margin)的顶部相对列表顶部的位置，一般小于等于paddingTop
+     */
+    int getFirstVisibleItemTop();
+
+    /**
+     * 把第position个item滑到离列表paddingTop下边offset的位置，和setSelectionFromTop、scrollToPositionWithOffset一样，滑不到的话停在边界
+     */
+    void scrollToItem(int position, int offset);
 }
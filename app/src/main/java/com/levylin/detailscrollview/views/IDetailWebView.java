@@ -1,6 +1,9 @@
 package com.levylin.detailscrollview.views;
 
+import com.levylin.detailscrollview.views.listener.OnContentHeightChangedListener;
 import com.levylin.detailscrollview.views.listener.OnScrollBarShowListener;
+import com.levylin.detailscrollview.web.bundle.BundleResolver;
+import com.levylin.detailscrollview.web.cache.ResponseCache;
 
 /**
  * Created by LinXin on 2017/3/31.
@@ -24,4 +27,19 @@ public interface IDetailWebView {
     void startFling(int vy);
 
     void setOnScrollBarShowListener(OnScrollBarShowListener listener);
+
+    /**
+     * 内容高度变化时回调，由页面主动通知，每帧最多一次
+     */
+    void setOnContentHeightChangedListener(OnContentHeightChangedListener listener);
+
+    /**
+     * 页面资源先从缓存里取，传null关闭
+     */
+    void setResponseCache(ResponseCache cache);
+
+    /**
+     * 文章包里有的资源不走网络，优先于{@link #setResponseCache}，传null关闭
+     */
+    void setBundleResolver(BundleResolver resolver);
 }
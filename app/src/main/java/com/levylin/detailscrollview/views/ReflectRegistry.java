@@ -0,0 +1,210 @@
+package com.levylin.detailscrollview.views;
+
+import android.content.res.TypedArray;
+import android.view.View;
+import android.widget.AbsListView;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 进程级的反射缓存
+ * 每个方法/字段按具体的类只查找一次，找不到的结果也会缓存下来，之后直接返回null，不会重复遍历类的继承链
+ * 低版本Android没有MethodHandle，所以这里缓存的是已经setAccessible的Method和Field
+ */
+public final class ReflectRegistry {
+
+    private static final Object MISSING = new Object();
+    private static final Object[] NO_ARGS = new Object[0];
+    private static final ConcurrentHashMap<String, Object> sClasses = new ConcurrentHashMap<>();
+
+    public static final MethodCache COMPUTE_VERTICAL_SCROLL_RANGE = new MethodCache("computeVerticalScrollRange");
+    public static final MethodCache COMPUTE_VERTICAL_SCROLL_EXTENT = new MethodCache("computeVerticalScrollExtent");
+    public static final MethodCache COMPUTE_VERTICAL_SCROLL_OFFSET = new MethodCache("computeVerticalScrollOffset");
+
+    /**
+     * View.initializeScrollbars(TypedArray)，用来给ViewGroup初始化滚动条
+     */
+    public static final MethodCache VIEW_INITIALIZE_SCROLLBARS = new MethodCache("initializeScrollbars", TypedArray.class);
+    /**
+     * View.mScrollCache -> ScrollabilityCache.scrollBar -> ScrollBarDrawable.mVerticalThumb
+     */
+    public static final FieldCache VIEW_SCROLL_CACHE = new FieldCache("mScrollCache");
+    public static final FieldCache SCROLL_CACHE_SCROLL_BAR = new FieldCache("scrollBar");
+    public static final FieldCache SCROLL_BAR_VERTICAL_THUMB = new FieldCache("mVerticalThumb");
+
+    /**
+     * 低版本AbsListView没有公开的fling方法，通过FlingRunnable.start(int)触发
+     */
+    public static final FieldCache LIST_FLING_RUNNABLE = new FieldCache("mFlingRunnable");
+    public static final MethodCache FLING_RUNNABLE_START = new MethodCache("start", Integer.TYPE);
+    public static final MethodCache LIST_REPORT_SCROLL_STATE_CHANGE = new MethodCache("reportScrollStateChange", Integer.TYPE);
+
+    private ReflectRegistry() {
+    }
+
+    /**
+     * @return 对应的类，找不到返回null
+     */
+    public static Class<?> findClass(String className) {
+        Object clazz = sClasses.get(className);
+        if (clazz == null) {
+            try {
+                clazz = Class.forName(className);
+            } catch (Throwable ignored) {
+                clazz = MISSING;
+            }
+            sClasses.put(className, clazz);
+        }
+        return clazz == MISSING ? null : (Class<?>) clazz;
+    }
+
+    /**
+     * 是否有滚动条的竖直滑块，有的手机没有滚动条，开启滚动条的话会崩溃
+     * 需要先调用{@link #VIEW_INITIALIZE_SCROLLBARS}初始化mScrollCache
+     */
+    public static boolean hasVerticalScrollBarThumb(View view) {
+        try {
+            Object scrollCache = VIEW_SCROLL_CACHE.get(View.class, view);
+            if (scrollCache == null)
+                return false;
+            Object scrollBar = SCROLL_CACHE_SCROLL_BAR.get(scrollCache.getClass(), scrollCache);
+            if (scrollBar == null)
+                return false;
+            return SCROLL_BAR_VERTICAL_THUMB.get(scrollBar.getClass(), scrollBar) != null;
+        } catch (Exception e) {
+            e.printStackTrace();
+        }
+        return false;
+    }
+
+    /**
+     * @return AbsListView.FlingRunnable类，找不到返回null
+     */
+    public static Class<?> listFlingRunnableClass() {
+        return findClass(AbsListView.class.getName() + "$FlingRunnable");
+    }
+
+    /**
+     * 沿着类的继承链查找方法
+     */
+    static Method lookupMethod(Class<?> clazz, String name, Class<?>... parameterTypes) {
+        for (Class<?> cur = clazz; cur != null; cur = cur.getSuperclass()) {
+            try {
+                Method method = cur.getDeclaredMethod(name, parameterTypes);
+                method.setAccessible(true);
+                return method;
+            } catch (Throwable ignored) {
+            }
+        }
+        return null;
+    }
+
+    /**
+     * 沿着类的继承链查找字段
+     */
+    static Field lookupField(Class<?> clazz, String name) {
+        for (Class<?> cur = clazz; cur != null; cur = cur.getSuperclass()) {
+            try {
+                Field field = cur.getDeclaredField(name);
+                field.setAccessible(true);
+                return field;
+            } catch (Throwable ignored) {
+            }
+        }
+        return null;
+    }
+
+    /**
+     * 同一个方法按具体类缓存的查找结果
+     */
+    public static final class MethodCache {
+
+        private final String name;
+        private final Class<?>[] parameterTypes;
+        private final ConcurrentHashMap<Class<?>, Object> cache = new ConcurrentHashMap<>();
+
+        MethodCache(String name, Class<?>... parameterTypes) {
+            this.name = name;
+            this.parameterTypes = parameterTypes;
+        }
+
+        /**
+         * @return 方法，找不到返回null
+         */
+        public Method get(Class<?> clazz) {
+            Object method = cache.get(clazz);
+            if (method == null) {
+                method = lookupMethod(clazz, name, parameterTypes);
+                if (method == null) {
+                    method = MISSING;
+                }
+                cache.put(clazz, method);
+            }
+            return method == MISSING ? null : (Method) method;
+        }
+
+        public boolean isAvailable(Class<?> clazz) {
+            return get(clazz) != null;
+        }
+
+        /**
+         * 调用无参且返回int的方法
+         */
+        public int invokeInt(Object target) throws Exception {
+            Method method = get(target.getClass());
+            if (method == null) {
+                throw new NoSuchMethodException(target.getClass().getName() + "." + name);
+            }
+            return (Integer) method.invoke(target, NO_ARGS);
+        }
+
+        /**
+         * @param clazz 在这个类上查找方法，比如子类没有覆盖的私有方法需要传声明它的父类
+         */
+        public Object invoke(Class<?> clazz, Object target, Object... args) throws Exception {
+            Method method = get(clazz);
+            if (method == null) {
+                throw new NoSuchMethodException(clazz.getName() + "." + name);
+            }
+            return method.invoke(target, args);
+        }
+    }
+
+    /**
+     * 同一个字段按具体类缓存的查找结果
+     */
+    public static final class FieldCache {
+
+        private final String name;
+        private final ConcurrentHashMap<Class<?>, Object> cache = new ConcurrentHashMap<>();
+
+        FieldCache(String name) {
+            this.name = name;
+        }
+
+        /**
+         * @return 字段，找不到返回null
+         */
+        public Field get(Class<?> clazz) {
+            Object field = cache.get(clazz);
+            if (field == null) {
+                field = lookupField(clazz, name);
+                if (field == null) {
+                    field = MISSING;
+                }
+                cache.put(clazz, field);
+            }
+            return field == MISSING ? null : (Field) field;
+        }
+
+        public Object get(Class<?> clazz, Object target) throws Exception {
+            Field field = get(clazz);
+            if (field == null) {
+                throw new NoSuchFieldException(clazz.getName() + "." + name);
+            }
+            return field.get(target);
+        }
+    }
+}
@@ -0,0 +1,66 @@
+package com.levylin.detailscrollview.views;
+
+/**
+ * DetailScrollView整体滚动条的度量缓存
+ * 各个区域的range/offset/extent只在对应的滚动回调、布局或内容变化时标记为脏，
+ * 画滚动条的时候只刷新脏掉的部分，其余直接读缓存
+ */
+class ScrollMetrics {
+
+    static final int DIRTY_WEB_OFFSET = 1;
+    static final int DIRTY_WEB_RANGE = 1 << 1;//包括内容高度和extent
+    static final int DIRTY_LIST_OFFSET = 1 << 2;
+    static final int DIRTY_LIST_RANGE = 1 << 3;//包括extent
+    static final int DIRTY_WEB = DIRTY_WEB_OFFSET | DIRTY_WEB_RANGE;
+    static final int DIRTY_LIST = DIRTY_LIST_OFFSET | DIRTY_LIST_RANGE;
+    static final int DIRTY_ALL = DIRTY_WEB | DIRTY_LIST;
+
+    private int dirtyFlags = DIRTY_ALL;
+
+    int webRange;
+    int webOffset;
+    int webExtent;
+    int webContentHeight;
+    int listRange;
+    int listOffset;
+    int listExtent;
+    int containerScrollY;
+    int maxScrollY;
+
+    void invalidate(int flags) {
+        dirtyFlags |= flags;
+    }
+
+    boolean isDirty(int flag) {
+        return (dirtyFlags & flag) != 0;
+    }
+
+    boolean isDirty() {
+        return dirtyFlags != 0;
+    }
+
+    void clean(int flags) {
+        dirtyFlags &= ~flags;
+    }
+
+    /**
+     * 整体的高度，包括在显示区域之外的
+     */
+    int getRange() {
+        return webRange + maxScrollY + listRange;
+    }
+
+    /**
+     * 已经向下滚动的距离
+     */
+    int getOffset() {
+        return webOffset + containerScrollY + listOffset;
+    }
+
+    /**
+     * 显示区域的高度
+     */
+    int getExtent() {
+        return webExtent + listExtent;
+    }
+}
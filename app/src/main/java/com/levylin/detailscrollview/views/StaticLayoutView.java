@@ -0,0 +1,82 @@
+package com.levylin.detailscrollview.views;
+
+import android.content.Context;
+import android.graphics.Canvas;
+import android.text.Layout;
+
+import com.levylin.detailscrollview.views.adapter.TextLayoutCache;
+
+/**
+ * 只显示一段已经排好版的文字，代替评论行的TextView
+ * TextView在setText之后的测量里才断行，fling时每露出一行都要在UI线程做一次；
+ * 这里setText时先从{@link TextLayoutCache}取后台排好的Layout，取到的话测量只是读高度，取不到才在onMeasure里同步排版
+ * 文字竖直居中，和android.R.layout.simple_expandable_list_item_1一样
+ */
+public class StaticLayoutView extends View {
+
+    private final TextLayoutCache mCache;
+    private char[] mText;
+    private int mLength;
+    private Layout mLayout;
+    private long mMissBindNanos = -1;//bind时没有命中，等排版完一起记录
+
+    public StaticLayoutView(Context context, TextLayoutCache cache) {
+        super(context);
+        mCache = cache;
+        cache.applyTemplate(this);
+    }
+
+    /**
+     * 和TextView.setText(char[], int, int)一样不复制数组，下次setText之前不能修改
+     */
+    public void setText(char[] text, int length) {
+        long start = System.nanoTime();
+        mText = text;
+        mLength = length;
+        int width = mCache.getTextWidth();
+        mLayout = width > 0 ? mCache.get(text, length, width) : null;
+        long nanos = System.nanoTime() - start;
+        mCache.getStats().onBind(nanos, mLayout != null);
+        mMissBindNanos = mLayout == null ? nanos : -1;
+        requestLayout();
+        invalidate();
+    }
+
+    /**
+     * @return 还没有测量过并且没有命中时返回null
+     */
+    public Layout getLayout() {
+        return mLayout;
+    }
+
+    @Override
+    protected void onMeasure(int widthMeasureSpec, int heightMeasureSpec) {
+        int width = MeasureSpec.getSize(widthMeasureSpec);
+        int textWidth = width - getPaddingLeft() - getPaddingRight();
+        if (textWidth > 0) {
+            mCache.setTextWidth(textWidth);
+            if (mText != null && (mLayout == null || mLayout.getWidth() != textWidth)) {
+                long start = System.nanoTime();
+                mLayout = mCache.obtain(mText, mLength, textWidth);
+                if (mMissBindNanos >= 0) {
+                    mCache.getStats().onMissLaidOut(mMissBindNanos, System.nanoTime() - start);
+                    mMissBindNanos = -1;
+                }
+            }
+        }
+        int height = getPaddingTop() + getPaddingBottom() + (mLayout != null ? mLayout.getHeight() : 0);
+        height = Math.max(height, getSuggestedMinimumHeight());
+        setMeasuredDimension(width, resolveSize(height, heightMeasureSpec));
+    }
+
+    @Override
+    protected void onDraw(Canvas canvas) {
+        if (mLayout == null)
+            return;
+        int space = getHeight() - getPaddingTop() - getPaddingBottom() - mLayout.getHeight();
+        canvas.save();
+        canvas.translate(getPaddingLeft(), getPaddingTop() + Math.max(0, space / 2));
+        mLayout.draw(canvas);
+        canvas.restore();
+    }
+}
@@ -89,8 +89,16 @@ public class X5WebView extends WebView {
 
 	public X5WebView(Context arg0) {
 		super(arg0);
+		this.setWebViewClient(client);
 		initWebViewSettings();
 		setBackgroundColor(85621);
 	}
 
+	/**
+	 * 恢复成默认的client，放回WebView池时调用
+	 */
+	public void resetWebViewClient() {
+		this.setWebViewClient(client);
+	}
+
 }
@@ -0,0 +1,228 @@
+package com.levylin.detailscrollview.views.adapter;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.os.Process;
+import android.support.v7.widget.RecyclerView;
+
+import com.levylin.detailscrollview.comment.ListDiff;
+import com.levylin.detailscrollview.comment.ListUpdateCallback;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * adapter的数据层：新数据在后台线程和当前数据做{@link ListDiff}，回到主线程只发出最少的notifyItemRangeXXX
+ * 1.一帧之内的多次提交(比如直播评论一条条地到)合并成一次，只和最后一次提交的数据比较
+ * 2.正在比较的时候又有新数据，等这次的结果应用之后再比较下一批
+ * 除了{@link #setList}不调用notifyDataSetChanged，RecyclerView的滑动位置保持不变，DetailScrollView只需要重新计算列表的滚动范围，
+ * 列表区域的高度不变，maxScrollY也不变
+ * 提交的列表会复制一份，之后调用方可以修改；除了后台比较，所有方法只能在主线程调用
+ */
+public class AsyncListDiffer<T> {
+
+    private static final long BATCH_DELAY_MILLIS = 16;//一帧
+
+    private static ExecutorService sDiffExecutor;
+
+    private final Handler mMainHandler = new Handler(Looper.getMainLooper());
+    private final RecyclerView.Adapter mAdapter;
+    private final ListUpdateCallback mUpdateCallback;
+    private final ListDiff.Callback<T> mDiffCallback;
+    private List<T> mList = Collections.emptyList();//adapter当前显示的数据
+    private List<T> mPending;//还没开始比较的最新数据
+    private List<T> mDiffingList;//正在后台比较、结果还没应用的数据
+    private boolean isBatchScheduled;
+    private boolean isDiffing;
+    private int mGeneration;//setList之后正在进行的比较结果作废
+    private int mSubmitCount;
+    private int mBatchCount;
+
+    private final Runnable mBatchRunnable = new Runnable() {
+        @Override
+        public void run() {
+            isBatchScheduled = false;
+            diffPending();
+        }
+    };
+
+    public AsyncListDiffer(RecyclerView.Adapter adapter, ListDiff.Callback<T> diffCallback) {
+        mAdapter = adapter;
+        mUpdateCallback = new AdapterUpdateCallback(adapter);
+        mDiffCallback = diffCallback;
+    }
+
+    /**
+     * @return adapter当前显示的数据，不能修改
+     */
+    public List<T> getCurrentList() {
+        return mList;
+    }
+
+    /**
+     * 直接替换，不比较，只在第一次设置数据或者换了一篇文章时用
+     */
+    public void setList(List<T> list) {
+        mGeneration++;
+        mPending = null;
+        mDiffingList = null;
+        mMainHandler.removeCallbacks(mBatchRunnable);
+        isBatchScheduled = false;
+        isDiffing = false;
+        mList = Collections.unmodifiableList(list);
+        mAdapter.notifyDataSetChanged();
+    }
+
+    /**
+     * 提交新的完整数据，下一帧之前和当前数据比较
+     * 后台线程会读这个列表，所以先复制一份
+     */
+    public void submitList(List<T> list) {
+        submitOwnedList(new ArrayList<>(list));
+    }
+
+    /**
+     * 在最新提交的数据后面追加，比如新加载的一页评论
+     */
+    public void append(Collection<? extends T> items) {
+        List<T> list = new ArrayList<>(getLatestList());
+        list.addAll(items);
+        submitOwnedList(list);
+    }
+
+    /**
+     * 在最新提交的数据前面插入，比如直播时新发的评论
+     */
+    public void prepend(Collection<? extends T> items) {
+        List<T> latest = getLatestList();
+        List<T> list = new ArrayList<>(latest.size() + items.size());
+        list.addAll(items);
+        list.addAll(latest);
+        submitOwnedList(list);
+    }
+
+    /**
+     * @return 提交的次数
+     */
+    public int getSubmitCount() {
+        return mSubmitCount;
+    }
+
+    /**
+     * @return 真正比较并通知adapter的次数，比{@link #getSubmitCount()}少的部分就是合并掉的
+     */
+    public int getBatchCount() {
+        return mBatchCount;
+    }
+
+    /**
+     * @return 最新提交的数据：还没开始比较的，其次是正在比较的，最后是adapter当前显示的
+     */
+    private List<T> getLatestList() {
+        if (mPending != null)
+            return mPending;
+        if (mDiffingList != null)
+            return mDiffingList;
+        return mList;
+    }
+
+    /**
+     * list是自己创建的，不会被调用方修改，不用再复制
+     */
+    private void submitOwnedList(List<T> list) {
+        mPending = list;
+        mSubmitCount++;
+        scheduleBatch();
+    }
+
+    private void scheduleBatch() {
+        if (isBatchScheduled || isDiffing)//正在比较的话，结果应用之后会接着处理
+            return;
+        isBatchScheduled = true;
+        mMainHandler.postDelayed(mBatchRunnable, BATCH_DELAY_MILLIS);
+    }
+
+    private void diffPending() {
+        final List<T> newList = mPending;
+        if (newList == null)
+            return;
+        mPending = null;
+        mDiffingList = newList;
+        final List<T> oldList = mList;
+        final int generation = mGeneration;
+        isDiffing = true;
+        getDiffExecutor().execute(new Runnable() {
+            @Override
+            public void run() {
+                final ListDiff.Result result = ListDiff.calculate(oldList, newList, mDiffCallback);
+                mMainHandler.post(new Runnable() {
+                    @Override
+                    public void run() {
+                        if (generation != mGeneration)
+                            return;
+                        isDiffing = false;
+                        mDiffingList = null;
+                        mList = Collections.unmodifiableList(newList);
+                        mBatchCount++;
+                        result.dispatchUpdatesTo(mUpdateCallback);
+                        if (mPending != null) {
+                            scheduleBatch();
+                        }
+                    }
+                });
+            }
+        });
+    }
+
+    static synchronized ExecutorService getDiffExecutor() {//测试里用来阻塞比较线程
+        if (sDiffExecutor == null) {
+            sDiffExecutor = Executors.newSingleThreadExecutor(new ThreadFactory() {
+                @Override
+                public Thread newThread(final Runnable r) {
+                    Thread thread = new Thread(new Runnable() {
+                        @Override
+                        public void run() {
+                            Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND);
+                            r.run();
+                        }
+                    }, "list-diff");
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+        }
+        return sDiffExecutor;
+    }
+
+    /**
+     * 转成adapter的通知
+     */
+    private static final class AdapterUpdateCallback implements ListUpdateCallback {
+
+        private final RecyclerView.Adapter mAdapter;
+
+        AdapterUpdateCallback(RecyclerView.Adapter adapter) {
+            mAdapter = adapter;
+        }
+
+        @Override
+        public void onInserted(int position, int count) {
+            mAdapter.notifyItemRangeInserted(position, count);
+        }
+
+        @Override
+        public void onRemoved(int position, int count) {
+            mAdapter.notifyItemRangeRemoved(position, count);
+        }
+
+        @Override
+        public void onChanged(int position, int count) {
+            mAdapter.notifyItemRangeChanged(position, count);
+        }
+    }
+}
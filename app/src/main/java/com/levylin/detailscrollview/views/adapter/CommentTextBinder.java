@@ -0,0 +1,59 @@
+package com.levylin.detailscrollview.views.adapter;
+
+import android.widget.TextView;
+
+import com.levylin.detailscrollview.comment.CommentStore;
+import com.levylin.detailscrollview.views.StaticLayoutView;
+
+/**
+ * 把{@link CommentStore}里的一条评论显示成"作者：内容"，直接解码到这一行自己的char数组里，bind时不创建String
+ * TextView.setText(char[], int, int)不复制数组，所以每个item要用自己的buffer，不能共用
+ */
+public final class CommentTextBinder {
+
+    private static final char SEPARATOR = '：';
+
+    private char[] mBuffer = new char[64];
+
+    public void bind(TextView textView, CommentStore store, int position) {
+        int length = decode(store, position);
+        textView.setText(mBuffer, 0, length);
+    }
+
+    /**
+     * 排版结果从cache里取，cache里没有的话测量时再排版
+     */
+    public void bind(StaticLayoutView view, CommentStore store, int position) {
+        int length = decode(store, position);
+        view.setText(mBuffer, length);
+    }
+
+    /**
+     * 解码到{@link #getBuffer()}
+     *
+     * @return 字符数
+     */
+    public int decode(CommentStore store, int position) {
+        String author = store.getAuthor(position);
+        int authorLength = author.length();
+        int capacity = authorLength + 1 + store.getContentLength(position);
+        if (mBuffer.length < capacity) {
+            mBuffer = new char[Math.max(capacity, mBuffer.length * 2)];
+        }
+        int length = 0;
+        if (authorLength > 0) {
+            author.getChars(0, authorLength, mBuffer, 0);
+            mBuffer[authorLength] = SEPARATOR;
+            length = authorLength + 1;
+        }
+        length += store.getContent(position, mBuffer, length);
+        return length;
+    }
+
+    /**
+     * 下一次decode可能换成新的数组
+     */
+    public char[] getBuffer() {
+        return mBuffer;
+    }
+}
@@ -0,0 +1,281 @@
+package com.levylin.detailscrollview.views.adapter;
+
+import android.os.Process;
+import android.text.Layout;
+import android.text.StaticLayout;
+import android.text.TextPaint;
+import android.view.View;
+import android.widget.TextView;
+
+import com.levylin.detailscrollview.comment.CommentStore;
+import com.levylin.detailscrollview.views.trace.TextLayoutStats;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * 评论行的排版结果(StaticLayout)缓存，按文字内容和宽度查找，超过maxEntries时淘汰最久没用的
+ * 列表bind到某一行时，把后面{@link #setPrefetchRows}行的文字复制下来，在后台线程排好版放进缓存，
+ * fling到这些行时bind只需要取出排好的Layout交给{@link com.levylin.detailscrollview.views.StaticLayoutView}，
+ * 不在UI线程做测量和断行，相当于低版本上的PrecomputedText
+ * 宽度由StaticLayoutView测量时告诉它，宽度还不知道时不预排版；除了后台排版，所有方法只能在主线程调用
+ */
+public final class TextLayoutCache {
+
+    private static final int DEFAULT_PREFETCH_ROWS = 20;//大约一屏半的评论
+
+    private static ExecutorService sLayoutExecutor;
+
+    private final TextPaint mPaint;
+    private final int[] mPadding = new int[4];//左上右下，和模板TextView一样
+    private int mMinHeight;
+    private final LinkedHashMap<TextKey, Layout> mLayouts;//用自己加锁
+    private final TextKey mProbe = new TextKey();//主线程查找用，不创建对象
+    private final TextLayoutStats mStats = new TextLayoutStats();
+    private final CommentTextBinder mPrefetchBinder = new CommentTextBinder();
+    private int mPrefetchRows = DEFAULT_PREFETCH_ROWS;
+    private int mTextWidth;
+    private CommentStore mPrefetchStore;
+    private int mPrefetchedEnd;//已经提交预排版的行，不包括
+    private volatile int mGeneration;//宽度变了或者clear之后，还没排的旧任务不再排
+
+    /**
+     * @param paint 和StaticLayoutView绘制用的一样，之后不能再修改
+     */
+    public TextLayoutCache(TextPaint paint, final int maxEntries) {
+        mPaint = paint;
+        mLayouts = new LinkedHashMap<TextKey, Layout>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<TextKey, Layout> eldest) {
+                return size() > maxEntries;
+            }
+        };
+    }
+
+    /**
+     * 文字大小、颜色、字体、padding和最小高度都和template一样
+     */
+    public static TextLayoutCache fromTemplate(TextView template, int maxEntries) {
+        template.setText("");
+        int unspecified = View.MeasureSpec.makeMeasureSpec(0, View.MeasureSpec.UNSPECIFIED);
+        template.measure(unspecified, unspecified);//空文字时的高度就是最小高度，同时解析paddingStart/End
+        TextPaint paint = new TextPaint(template.getPaint());
+        paint.setColor(template.getCurrentTextColor());//TextView绘制时才设置颜色
+        TextLayoutCache cache = new TextLayoutCache(paint, maxEntries);
+        cache.mPadding[0] = template.getPaddingLeft();
+        cache.mPadding[1] = template.getPaddingTop();
+        cache.mPadding[2] = template.getPaddingRight();
+        cache.mPadding[3] = template.getPaddingBottom();
+        cache.mMinHeight = template.getMeasuredHeight();
+        return cache;
+    }
+
+    /**
+     * 给StaticLayoutView设置和模板一样的padding和最小高度
+     */
+    public void applyTemplate(View view) {
+        view.setPadding(mPadding[0], mPadding[1], mPadding[2], mPadding[3]);
+        view.setMinimumHeight(mMinHeight);
+    }
+
+    public TextPaint getPaint() {
+        return mPaint;
+    }
+
+    /**
+     * @param rows bind到一行时预排版后面多少行，0表示不预排版
+     */
+    public void setPrefetchRows(int rows) {
+        mPrefetchRows = Math.max(0, rows);
+    }
+
+    /**
+     * StaticLayoutView测量时调用，宽度变了之前提交的预排版作废
+     */
+    public void setTextWidth(int width) {
+        if (width == mTextWidth)
+            return;
+        mTextWidth = width;
+        mGeneration++;
+        mPrefetchedEnd = 0;
+    }
+
+    public int getTextWidth() {
+        return mTextWidth;
+    }
+
+    public TextLayoutStats getStats() {
+        return mStats;
+    }
+
+    /**
+     * @return 没有排好的时返回null
+     */
+    public Layout get(char[] text, int length, int width) {
+        mProbe.set(text, length, width);
+        synchronized (mLayouts) {
+            return mLayouts.get(mProbe);
+        }
+    }
+
+    /**
+     * 没有排好的就在当前线程排版并放进缓存
+     */
+    public Layout obtain(char[] text, int length, int width) {
+        Layout layout = get(text, length, width);
+        if (layout != null)
+            return layout;
+        TextKey key = mProbe.copy();
+        layout = newLayout(key, mPaint);
+        synchronized (mLayouts) {
+            mLayouts.put(key, layout);
+        }
+        return layout;
+    }
+
+    /**
+     * adapter bind到position时调用，后面的行还没有提交过的话一起提交给后台排版
+     */
+    public void onItemBound(CommentStore store, int position) {
+        if (mTextWidth <= 0 || mPrefetchRows == 0)
+            return;
+        if (store != mPrefetchStore) {
+            mPrefetchStore = store;
+            mPrefetchedEnd = 0;
+        }
+        int end = Math.min(store.size(), position + 1 + mPrefetchRows);
+        if (end - mPrefetchedEnd < mPrefetchRows / 2 && mPrefetchedEnd > position)
+            return;//还有一半以上没滑到，下次再提交
+        int from = Math.max(position + 1, mPrefetchedEnd);
+        if (from >= end)
+            return;
+        mPrefetchedEnd = end;
+        final List<TextKey> keys = new ArrayList<>(end - from);
+        int width = mTextWidth;
+        for (int i = from; i < end; i++) {
+            int length = mPrefetchBinder.decode(store, i);
+            mProbe.set(mPrefetchBinder.getBuffer(), length, width);
+            synchronized (mLayouts) {
+                if (mLayouts.containsKey(mProbe))
+                    continue;
+            }
+            keys.add(mProbe.copy());//store只能在主线程读，文字先复制下来
+        }
+        if (keys.isEmpty())
+            return;
+        final int generation = mGeneration;
+        getLayoutExecutor().execute(new Runnable() {
+            @Override
+            public void run() {
+                for (TextKey key : keys) {
+                    if (generation != mGeneration)
+                        return;
+                    synchronized (mLayouts) {
+                        if (mLayouts.containsKey(key))
+                            continue;
+                    }
+                    long start = System.nanoTime();
+                    Layout layout = newLayout(key, new TextPaint(mPaint));//Paint不是线程安全的，绘制时也用这个，不和主线程共用
+                    mStats.onPrecomputed(System.nanoTime() - start);
+                    synchronized (mLayouts) {
+                        mLayouts.put(key, layout);
+                    }
+                }
+            }
+        });
+    }
+
+    /**
+     * 页面关闭或者内存不够时调用
+     */
+    public void clear() {
+        mGeneration++;
+        mPrefetchedEnd = 0;
+        synchronized (mLayouts) {
+            mLayouts.clear();
+        }
+    }
+
+    private static Layout newLayout(TextKey key, TextPaint paint) {
+        //和TextView默认的参数一样：行距不变，包括字体上下的留白
+        return new StaticLayout(new String(key.chars, 0, key.length), paint, key.width,
+                Layout.Alignment.ALIGN_NORMAL, 1f, 0f, true);
+    }
+
+    static synchronized ExecutorService getLayoutExecutor() {//测试里用来阻塞排版线程
+        if (sLayoutExecutor == null) {
+            sLayoutExecutor = Executors.newSingleThreadExecutor(new ThreadFactory() {
+                @Override
+                public Thread newThread(final Runnable r) {
+                    Thread thread = new Thread(new Runnable() {
+                        @Override
+                        public void run() {
+                            Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND);
+                            r.run();
+                        }
+                    }, "text-layout");
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+        }
+        return sLayoutExecutor;
+    }
+
+    /**
+     * 文字内容加宽度，查找时用的可以指向别人的数组，放进缓存的是复制出来的
+     */
+    private static final class TextKey {
+        char[] chars;
+        int length;
+        int width;
+        int hash;
+
+        void set(char[] chars, int length, int width) {
+            this.chars = chars;
+            this.length = length;
+            this.width = width;
+            int h = width;
+            for (int i = 0; i < length; i++) {
+                h = 31 * h + chars[i];
+            }
+            hash = h;
+        }
+
+        TextKey copy() {
+            TextKey key = new TextKey();
+            key.chars = Arrays.copyOf(chars, length);
+            key.length = length;
+            key.width = width;
+            key.hash = hash;
+            return key;
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o)
+                return true;
+            if (!(o instanceof TextKey))
+                return false;
+            TextKey other = (TextKey) o;
+            if (hash != other.hash || width != other.width || length != other.length)
+                return false;
+            for (int i = 0; i < length; i++) {
+                if (chars[i] != other.chars[i])
+                    return false;
+            }
+            return true;
+        }
+    }
+}
@@ -0,0 +1,141 @@
+package com.levylin.detailscrollview.views.client;
+
+import android.annotation.TargetApi;
+import android.graphics.Bitmap;
+import android.net.http.SslError;
+import android.os.Build;
+import android.os.Message;
+import android.view.KeyEvent;
+import android.webkit.ClientCertRequest;
+import android.webkit.HttpAuthHandler;
+import android.webkit.SslErrorHandler;
+import android.webkit.WebResourceError;
+import android.webkit.WebResourceRequest;
+import android.webkit.WebResourceResponse;
+import android.webkit.WebView;
+import android.webkit.WebViewClient;
+
+/**
+ * 系统内核的WebViewClient包装，所有回调原样转发给外部设置的client
+ * DetailWebView用它在不影响外部client的情况下加入自己的处理，子类重写对应方法并调用super即可
+ */
+public class ForwardingWebViewClient extends WebViewClient {
+
+    private WebViewClient mDelegate = new WebViewClient();
+
+    /**
+     * @param delegate 外部设置的client，null时使用默认的实现
+     */
+    public void setDelegate(WebViewClient delegate) {
+        mDelegate = delegate != null ? delegate : new WebViewClient();
+    }
+
+    public WebViewClient getDelegate() {
+        return mDelegate;
+    }
+
+    @Override
+    public boolean shouldOverrideUrlLoading(WebView view, String url) {
+        return mDelegate.shouldOverrideUrlLoading(view, url);
+    }
+
+    @Override
+    public void onPageStarted(WebView view, String url, Bitmap favicon) {
+        mDelegate.onPageStarted(view, url, favicon);
+    }
+
+    @Override
+    public void onPageFinished(WebView view, String url) {
+        mDelegate.onPageFinished(view, url);
+    }
+
+    @Override
+    public void onLoadResource(WebView view, String url) {
+        mDelegate.onLoadResource(view, url);
+    }
+
+    @TargetApi(Build.VERSION_CODES.M)
+    @Override
+    public void onPageCommitVisible(WebView view, String url) {
+        mDelegate.onPageCommitVisible(view, url);
+    }
+
+    @Override
+    public WebResourceResponse shouldInterceptRequest(WebView view, String url) {
+        return mDelegate.shouldInterceptRequest(view, url);
+    }
+
+    @TargetApi(Build.VERSION_CODES.LOLLIPOP)
+    @Override
+    public WebResourceResponse shouldInterceptRequest(WebView view, WebResourceRequest request) {
+        return mDelegate.shouldInterceptRequest(view, request);
+    }
+
+    @Override
+    public void onTooManyRedirects(WebView view, Message cancelMsg, Message continueMsg) {
+        mDelegate.onTooManyRedirects(view, cancelMsg, continueMsg);
+    }
+
+    @Override
+    public void onReceivedError(WebView view, int errorCode, String description, String failingUrl) {
+        mDelegate.onReceivedError(view, errorCode, description, failingUrl);
+    }
+
+    @TargetApi(Build.VERSION_CODES.M)
+    @Override
+    public void onReceivedError(WebView view, WebResourceRequest request, WebResourceError error) {
+        mDelegate.onReceivedError(view, request, error);
+    }
+
+    @TargetApi(Build.VERSION_CODES.M)
+    @Override
+    public void onReceivedHttpError(WebView view, WebResourceRequest request, WebResourceResponse errorResponse) {
+        mDelegate.onReceivedHttpError(view, request, errorResponse);
+    }
+
+    @Override
+    public void onFormResubmission(WebView view, Message dontResend, Message resend) {
+        mDelegate.onFormResubmission(view, dontResend, resend);
+    }
+
+    @Override
+    public void doUpdateVisitedHistory(WebView view, String url, boolean isReload) {
+        mDelegate.doUpdateVisitedHistory(view, url, isReload);
+    }
+
+    @Override
+    public void onReceivedSslError(WebView view, SslErrorHandler handler, SslError error) {
+        mDelegate.onReceivedSslError(view, handler, error);
+    }
+
+    @TargetApi(Build.VERSION_CODES.LOLLIPOP)
+    @Override
+    public void onReceivedClientCertRequest(WebView view, ClientCertRequest request) {
+        mDelegate.onReceivedClientCertRequest(view, request);
+    }
+
+    @Override
+    public void onReceivedHttpAuthRequest(WebView view, HttpAuthHandler handler, String host, String realm) {
+        mDelegate.onReceivedHttpAuthRequest(view, handler, host, realm);
+    }
+
+    @Override
+    public boolean shouldOverrideKeyEvent(WebView view, KeyEvent event) {
+        return mDelegate.shouldOverrideKeyEvent(view, event);
+    }
+
+    @Override
+    public void onUnhandledKeyEvent(WebView view, KeyEvent event) {
+        mDelegate.onUnhandledKeyEvent(view, event);
+    }
+
+    @Override
+    public void onScaleChanged(WebView view, float oldScale, float newScale) {
+        mDelegate.onScaleChanged(view, oldScale, newScale);
+    }
+
+    @Override
+    public void onReceivedLoginRequest(WebView view, String realm, String account, String args) {
+        mDelegate.onReceivedLoginRequest(view, realm, account, args);
+    }
+}
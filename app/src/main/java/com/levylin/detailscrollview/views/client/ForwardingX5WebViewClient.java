@@ -0,0 +1,140 @@
+package com.levylin.detailscrollview.views.client;
+
+import android.graphics.Bitmap;
+import android.os.Bundle;
+import android.os.Message;
+import android.view.KeyEvent;
+
+import com.tencent.smtt.export.external.interfaces.ClientCertRequest;
+import com.tencent.smtt.export.external.interfaces.HttpAuthHandler;
+import com.tencent.smtt.export.external.interfaces.SslError;
+import com.tencent.smtt.export.external.interfaces.SslErrorHandler;
+import com.tencent.smtt.export.external.interfaces.WebResourceError;
+import com.tencent.smtt.export.external.interfaces.WebResourceRequest;
+import com.tencent.smtt.export.external.interfaces.WebResourceResponse;
+import com.tencent.smtt.sdk.WebView;
+import com.tencent.smtt.sdk.WebViewClient;
+
+/**
+ * X5内核的WebViewClient包装，和{@link ForwardingWebViewClient}一样，所有回调原样转发给外部设置的client
+ */
+public class ForwardingX5WebViewClient extends WebViewClient {
+
+    private WebViewClient mDelegate = new WebViewClient();
+
+    /**
+     * @param delegate 外部设置的client，null时使用默认的实现
+     */
+    public void setDelegate(WebViewClient delegate) {
+        mDelegate = delegate != null ? delegate : new WebViewClient();
+    }
+
+    public WebViewClient getDelegate() {
+        return mDelegate;
+    }
+
+    @Override
+    public boolean shouldOverrideUrlLoading(WebView view, String url) {
+        return mDelegate.shouldOverrideUrlLoading(view, url);
+    }
+
+    @Override
+    public void onPageStarted(WebView view, String url, Bitmap favicon) {
+        mDelegate.onPageStarted(view, url, favicon);
+    }
+
+    @Override
+    public void onPageFinished(WebView view, String url) {
+        mDelegate.onPageFinished(view, url);
+    }
+
+    @Override
+    public void onLoadResource(WebView view, String url) {
+        mDelegate.onLoadResource(view, url);
+    }
+
+    @Override
+    public WebResourceResponse shouldInterceptRequest(WebView view, String url) {
+        return mDelegate.shouldInterceptRequest(view, url);
+    }
+
+    @Override
+    public WebResourceResponse shouldInterceptRequest(WebView view, WebResourceRequest request) {
+        return mDelegate.shouldInterceptRequest(view, request);
+    }
+
+    @Override
+    public WebResourceResponse shouldInterceptRequest(WebView view, WebResourceRequest request, Bundle extraData) {
+        return mDelegate.shouldInterceptRequest(view, request, extraData);
+    }
+
+    @Override
+    public void onReceivedError(WebView view, int errorCode, String description, String failingUrl) {
+        mDelegate.onReceivedError(view, errorCode, description, failingUrl);
+    }
+
+    @Override
+    public void onReceivedError(WebView view, WebResourceRequest request, WebResourceError error) {
+        mDelegate.onReceivedError(view, request, error);
+    }
+
+    @Override
+    public void onReceivedHttpError(WebView view, WebResourceRequest request, WebResourceResponse errorResponse) {
+        mDelegate.onReceivedHttpError(view, request, errorResponse);
+    }
+
+    @Override
+    public void doUpdateVisitedHistory(WebView view, String url, boolean isReload) {
+        mDelegate.doUpdateVisitedHistory(view, url, isReload);
+    }
+
+    @Override
+    public void onFormResubmission(WebView view, Message dontResend, Message resend) {
+        mDelegate.onFormResubmission(view, dontResend, resend);
+    }
+
+    @Override
+    public void onReceivedHttpAuthRequest(WebView view, HttpAuthHandler handler, String host, String realm) {
+        mDelegate.onReceivedHttpAuthRequest(view, handler, host, realm);
+    }
+
+    @Override
+    public void onReceivedSslError(WebView view, SslErrorHandler handler, SslError error) {
+        mDelegate.onReceivedSslError(view, handler, error);
+    }
+
+    @Override
+    public void onReceivedClientCertRequest(WebView view, ClientCertRequest request) {
+        mDelegate.onReceivedClientCertRequest(view, request);
+    }
+
+    @Override
+    public void onScaleChanged(WebView view, float oldScale, float newScale) {
+        mDelegate.onScaleChanged(view, oldScale, newScale);
+    }
+
+    @Override
+    public void onUnhandledKeyEvent(WebView view, KeyEvent event) {
+        mDelegate.onUnhandledKeyEvent(view, event);
+    }
+
+    @Override
+    public boolean shouldOverrideKeyEvent(WebView view, KeyEvent event) {
+        return mDelegate.shouldOverrideKeyEvent(view, event);
+    }
+
+    @Override
+    public void onTooManyRedirects(WebView view, Message cancelMsg, Message continueMsg) {
+        mDelegate.onTooManyRedirects(view, cancelMsg, continueMsg);
+    }
+
+    @Override
+    public void onReceivedLoginRequest(WebView view, String realm, String account, String args) {
+        mDelegate.onReceivedLoginRequest(view, realm, account, args);
+    }
+
+    @Override
+    public void onDetectedBlankScreen(String url, int status) {
+        mDelegate.onDetectedBlankScreen(url, status);
+    }
+}
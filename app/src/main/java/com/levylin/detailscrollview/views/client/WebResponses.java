@@ -0,0 +1,96 @@
+package com.levylin.detailscrollview.views.client;
+
+import android.annotation.TargetApi;
+import android.os.Build;
+import android.webkit.WebResourceResponse;
+
+import com.levylin.detailscrollview.web.bundle.BundleResource;
+import com.levylin.detailscrollview.web.cache.CachedResponse;
+
+/**
+ * 把{@link CachedResponse}和{@link BundleResource}转换成两种内核各自的WebResourceResponse
+ */
+public final class WebResponses {
+
+    /**
+     * 样式、脚本、图片和字体，这些子资源总是GET请求
+     */
+    private static final String[] SUBRESOURCE_EXTENSIONS = {"css", "js", "png", "jpg", "jpeg", "gif", "webp", "svg",
+            "ico", "woff", "woff2", "ttf", "otf", "eot"};
+
+    private WebResponses() {
+    }
+
+    /**
+     * 旧的shouldInterceptRequest(WebView, String)不知道请求方法，页面和表单可能是POST，返回缓存会变成GET，
+     * 所以这个回调里只处理按扩展名能确定是子资源的请求
+     */
+    public static boolean isSubresource(String url) {
+        if (url == null)
+            return false;
+        int end = url.length();
+        int query = url.indexOf('?');
+        if (query >= 0) {
+            end = query;
+        }
+        int fragment = url.indexOf('#');
+        if (fragment >= 0 && fragment < end) {
+            end = fragment;
+        }
+        int slash = url.lastIndexOf('/', end - 1);
+        int dot = url.lastIndexOf('.', end - 1);
+        if (dot <= slash || dot == end - 1)
+            return false;
+        String extension = url.substring(dot + 1, end);
+        for (String item : SUBRESOURCE_EXTENSIONS) {
+            if (item.equalsIgnoreCase(extension))
+                return true;
+        }
+        return false;
+    }
+
+    /**
+     * 5.0以下的WebResourceResponse只能设置mimeType、encoding和body
+     */
+    public static WebResourceResponse toSystem(CachedResponse response) {
+        if (response == null)
+            return null;
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.LOLLIPOP)
+            return toSystemWithHeaders(response);
+        return new WebResourceResponse(response.getMimeType(), response.getEncoding(), response.getBody());
+    }
+
+    @TargetApi(Build.VERSION_CODES.LOLLIPOP)
+    private static WebResourceResponse toSystemWithHeaders(CachedResponse response) {
+        return new WebResourceResponse(response.getMimeType(), response.getEncoding(), response.getStatusCode(),
+                response.getReasonPhrase(), response.getHeaders(), response.getBody());
+    }
+
+    public static com.tencent.smtt.export.external.interfaces.WebResourceResponse toX5(CachedResponse response) {
+        if (response == null)
+            return null;
+        return new com.tencent.smtt.export.external.interfaces.WebResourceResponse(response.getMimeType(), response.getEncoding(),
+                response.getStatusCode(), response.getReasonPhrase(), response.getHeaders(), response.getBody());
+    }
+
+    public static WebResourceResponse toSystem(BundleResource resource) {
+        if (resource == null)
+            return null;
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.LOLLIPOP)
+            return toSystemWithHeaders(resource);
+        return new WebResourceResponse(resource.getMimeType(), resource.getEncoding(), resource.getBody());
+    }
+
+    @TargetApi(Build.VERSION_CODES.LOLLIPOP)
+    private static WebResourceResponse toSystemWithHeaders(BundleResource resource) {
+        return new WebResourceResponse(resource.getMimeType(), resource.getEncoding(), resource.getStatusCode(),
+                resource.getReasonPhrase(), resource.getHeaders(), resource.getBody());
+    }
+
+    public static com.tencent.smtt.export.external.interfaces.WebResourceResponse toX5(BundleResource resource) {
+        if (resource == null)
+            return null;
+        return new com.tencent.smtt.export.external.interfaces.WebResourceResponse(resource.getMimeType(), resource.getEncoding(),
+                resource.getStatusCode(), resource.getReasonPhrase(), resource.getHeaders(), resource.getBody());
+    }
+}
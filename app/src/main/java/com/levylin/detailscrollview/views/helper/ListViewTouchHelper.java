@@ -3,11 +3,13 @@ package com.levylin.detailscrollview.views.helper;
 import android.content.Context;
 import android.view.MotionEvent;
 import android.view.VelocityTracker;
+import android.view.View;
 import android.view.ViewConfiguration;
 
 import com.levylin.detailscrollview.views.DetailListView;
 import com.levylin.detailscrollview.views.DetailRecyclerView;
 import com.levylin.detailscrollview.views.DetailScrollView;
+import com.levylin.detailscrollview.views.trace.ScrollTracer;
 
 /**
  * 列表点击帮助类
@@ -45,7 +47,8 @@ public class ListViewTouchHelper {
         switch (ev.getAction()) {
             case MotionEvent.ACTION_DOWN:
                 mLastY = ev.getRawY();
-                DetailScrollView.LogE("ListViewTouchHelper.onTouchEvent.ACTION_MOVE.......mLastY=" + mLastY);
+                ScrollTracer.record(ScrollTracer.POINT_LIST_HELPER, MotionEvent.ACTION_DOWN, 0, (int) mLastY,
+                        mScrollView.getScrollY(), ScrollTracer.SECTION_NONE, 0);
                 break;
             case MotionEvent.ACTION_MOVE:
                 float nowY = ev.getRawY();
@@ -55,25 +58,26 @@ public class ListViewTouchHelper {
                 float deltaY = nowY - mLastY;
                 int dy = mScrollView.adjustScrollY((int) -deltaY);
                 mLastY = nowY;
-                DetailScrollView.LogE("ListViewTouchHelper.onTouchEvent.ACTION_MOVE,.......dy=" + dy + "\n"
-                        + ",deltaY=" + deltaY + "\n"
-                        + ",nowY=" + nowY + "\n"
-                        + ",mLastY=" + mLastY + "\n"
-                        + ",ListView.canScrollVertically=" + canScrollVertically(DetailScrollView.DIRECT_TOP) + "\n"
-                        + ",mScrollView.canScrollVertically=" + mScrollView.canScrollVertically(DetailScrollView.DIRECT_TOP) + "\n"
-                        + ",mScrollView.getScrollY=" + mScrollView.getScrollY());
-                if ((!canScrollVertically(DetailScrollView.DIRECT_TOP) && dy < 0)//向下滑，当列表不能滚动时，滑动DetailScrollView
-                        || (mScrollView.canScrollVertically(DetailScrollView.DIRECT_TOP) && dy > 0)) {//向上滑，当DetailScrollView能继续上滑时，DetailScrollView上滑
+                boolean listCanScrollTop = canScrollVertically(DetailScrollView.DIRECT_TOP);
+                //向下滑，当列表不能滚动时，滑动DetailScrollView；向上滑，当列表还没有占满DetailScrollView时，DetailScrollView上滑
+                if (mScrollView.shouldScrollContainer(getView(), dy)) {
                     mScrollView.customScrollBy(dy);
                     isDragged = true;
+                    ScrollTracer.record(ScrollTracer.POINT_LIST_HELPER, MotionEvent.ACTION_MOVE, dy, (int) deltaY,
+                            mScrollView.getScrollY(), ScrollTracer.SECTION_CONTAINER,
+                            ScrollTracer.FLAG_DRAGGED | (listCanScrollTop ? ScrollTracer.FLAG_LIST_CAN_SCROLL_TOP : 0));
                     return false;
                 }
+                ScrollTracer.record(ScrollTracer.POINT_LIST_HELPER, MotionEvent.ACTION_MOVE, dy, (int) deltaY,
+                        mScrollView.getScrollY(), ScrollTracer.SECTION_LIST,
+                        listCanScrollTop ? ScrollTracer.FLAG_LIST_CAN_SCROLL_TOP : 0);
                 break;
             case MotionEvent.ACTION_UP:
                 if (!canScrollVertically(DetailScrollView.DIRECT_TOP) && isDragged) {
                     mVelocityTracker.computeCurrentVelocity(1000, maxVelocity);
                     final float curVelocity = mVelocityTracker.getYVelocity(0);
-                    DetailScrollView.LogE("ListViewTouchHelper.onTouchEvent.ACTION_UP......ScrollView.fling:" + (-curVelocity));
+                    ScrollTracer.record(ScrollTracer.POINT_LIST_HELPER, MotionEvent.ACTION_UP, 0, -(int) curVelocity,
+                            mScrollView.getScrollY(), ScrollTracer.SECTION_CONTAINER, ScrollTracer.FLAG_DRAGGED);
                     mScrollView.fling(-(int) curVelocity);
                 }
                 mLastY = 0;
@@ -84,6 +88,13 @@ public class ListViewTouchHelper {
         return true;
     }
 
+    private View getView() {
+        if (mListView != null) {
+            return mListView;
+        }
+        return mRecyclerView;
+    }
+
     private boolean canScrollVertically(int direct) {
         if (mListView != null) {
             return mListView.canScrollVertically(direct);
@@ -0,0 +1,141 @@
+package com.levylin.detailscrollview.views.helper;
+
+import android.support.v4.view.MotionEventCompat;
+import android.support.v4.view.NestedScrollingChildHelper;
+import android.support.v4.view.ViewCompat;
+import android.view.MotionEvent;
+import android.view.VelocityTracker;
+import android.view.View;
+import android.view.ViewConfiguration;
+
+/**
+ * WebView本身不支持嵌套滑动，这个类把WebView的触摸事件转换成嵌套滑动分发给DetailScrollView
+ * 父View消费掉的距离通过平移MotionEvent的坐标从WebView自己的滑动里扣除，这样每个事件只在层级中传递一次
+ * 父View滑动之后WebView在屏幕上的位置变了，下一个事件的坐标本身就包含了这段距离，所以：
+ * 1.deltaY和mLastY按事件原来的坐标算，和NestedScrollView一样
+ * 2.交给WebView的事件只扣除这一次预滑动消费的距离，再加回之前WebView滑不动、交给父View滑的距离
+ * 3.累计的偏移只用在VelocityTracker上，让速度按屏幕坐标算
+ * DetailWebView和DetailX5WebView共用
+ */
+public class NestedWebViewHelper {
+
+    /**
+     * 把转换后的事件交给WebView自己处理
+     */
+    public interface SuperTouch {
+        boolean onSuperTouchEvent(MotionEvent ev);
+    }
+
+    private final View mView;
+    private final NestedScrollingChildHelper mChildHelper;
+    private final int[] mScrollConsumed = new int[2];
+    private final int[] mScrollOffset = new int[2];
+    private final float mMaxVelocity;
+    private VelocityTracker mVelocityTracker;
+    private int mLastY;
+    private int mNestedOffsetY;//父View滑动的累计距离，只给VelocityTracker用
+    private int mUnconsumedOffsetY;//WebView滑不动交给父View滑的累计距离，WebView不应该看到
+
+    public NestedWebViewHelper(View view) {
+        this.mView = view;
+        this.mChildHelper = new NestedScrollingChildHelper(view);
+        mMaxVelocity = ViewConfiguration.get(view.getContext()).getScaledMaximumFlingVelocity();
+    }
+
+    public NestedScrollingChildHelper getChildHelper() {
+        return mChildHelper;
+    }
+
+    public boolean onTouchEvent(MotionEvent ev, SuperTouch superTouch) {
+        final int action = MotionEventCompat.getActionMasked(ev);
+        if (action == MotionEvent.ACTION_DOWN) {
+            mNestedOffsetY = 0;
+            mUnconsumedOffsetY = 0;
+        }
+        MotionEvent vtev = MotionEvent.obtain(ev);
+        vtev.offsetLocation(0, mNestedOffsetY);
+        MotionEvent event = MotionEvent.obtain(ev);
+        event.offsetLocation(0, mUnconsumedOffsetY);
+        final int eventY = (int) ev.getY();
+        boolean result;
+        switch (action) {
+            case MotionEvent.ACTION_DOWN:
+                result = superTouch.onSuperTouchEvent(event);
+                mLastY = eventY;
+                mChildHelper.startNestedScroll(ViewCompat.SCROLL_AXIS_VERTICAL);
+                break;
+            case MotionEvent.ACTION_MOVE:
+                int deltaY = mLastY - eventY;
+                if (mChildHelper.dispatchNestedPreScroll(0, deltaY, mScrollConsumed, mScrollOffset)) {
+                    deltaY -= mScrollConsumed[1];
+                    event.offsetLocation(0, -mScrollOffset[1]);
+                    vtev.offsetLocation(0, mScrollOffset[1]);
+                    mNestedOffsetY += mScrollOffset[1];
+                } else {
+                    mScrollOffset[1] = 0;
+                }
+                mLastY = eventY - mScrollOffset[1];
+                int oldScrollY = getWebScrollY();
+                result = superTouch.onSuperTouchEvent(event);
+                int scrolledDeltaY = getWebScrollY() - oldScrollY;
+                int unconsumedY = deltaY - scrolledDeltaY;
+                if (mChildHelper.dispatchNestedScroll(0, scrolledDeltaY, 0, unconsumedY, mScrollOffset)) {
+                    vtev.offsetLocation(0, mScrollOffset[1]);
+                    mNestedOffsetY += mScrollOffset[1];
+                    mUnconsumedOffsetY += mScrollOffset[1];
+                    mLastY -= mScrollOffset[1];
+                }
+                break;
+            case MotionEvent.ACTION_UP:
+                acquireVelocityTracker(vtev);
+                mVelocityTracker.computeCurrentVelocity(1000, mMaxVelocity);
+                float velocityY = -mVelocityTracker.getYVelocity();
+                if (!mChildHelper.dispatchNestedPreFling(0, velocityY)) {
+                    boolean canScroll = ViewCompat.canScrollVertically(mView, velocityY > 0 ? 1 : -1);
+                    mChildHelper.dispatchNestedFling(0, velocityY, canScroll);
+                    result = superTouch.onSuperTouchEvent(event);
+                } else {//父View处理了fling，WebView自己不要再fling了
+                    event.setAction(MotionEvent.ACTION_CANCEL);
+                    result = superTouch.onSuperTouchEvent(event);
+                }
+                mChildHelper.stopNestedScroll();
+                releaseVelocityTracker();
+                break;
+            case MotionEvent.ACTION_CANCEL:
+                result = superTouch.onSuperTouchEvent(event);
+                mChildHelper.stopNestedScroll();
+                releaseVelocityTracker();
+                break;
+            default:
+                result = superTouch.onSuperTouchEvent(event);
+                break;
+        }
+        if (action != MotionEvent.ACTION_UP && action != MotionEvent.ACTION_CANCEL) {
+            acquireVelocityTracker(vtev);
+        }
+        vtev.recycle();
+        event.recycle();
+        return result;
+    }
+
+    private int getWebScrollY() {
+        if (mView instanceof com.tencent.smtt.sdk.WebView) {
+            return ((com.tencent.smtt.sdk.WebView) mView).getWebScrollY();
+        }
+        return mView.getScrollY();
+    }
+
+    private void acquireVelocityTracker(MotionEvent ev) {
+        if (mVelocityTracker == null) {
+            mVelocityTracker = VelocityTracker.obtain();
+        }
+        mVelocityTracker.addMovement(ev);
+    }
+
+    private void releaseVelocityTracker() {
+        if (mVelocityTracker == null)
+            return;
+        mVelocityTracker.recycle();
+        mVelocityTracker = null;
+    }
+}
@@ -0,0 +1,150 @@
+package com.levylin.detailscrollview.views.helper;
+
+import android.os.Looper;
+import android.os.MessageQueue;
+import android.support.v7.widget.RecyclerView;
+import android.util.SparseIntArray;
+import android.view.View;
+
+import com.levylin.detailscrollview.views.pool.ViewHolderPool;
+
+/**
+ * 列表还在显示区域下方时，提前创建接下来要显示的item的ViewHolder，放进列表的RecycledViewPool
+ * DetailScrollView把离列表的距离和fling预计的距离告诉它({@link #onApproach(int, int)})：
+ * 1.fling预计会滑进列表：按超出的距离估算需要多少个item
+ * 2.列表马上要露出来：准备一屏的item
+ * 创建只在主线程空闲的时候做(IdleHandler)，每次最多用{@link #IDLE_BUDGET_NANOS}，至少创建一个，
+ * 这样fling进入列表的那几帧只需要bind，不需要inflate
+ * 已经布局出来的item不会重复创建，只在主线程调用
+ */
+public class RecyclerPrefetcher {
+
+    private static final long IDLE_BUDGET_NANOS = 4000000L;//每次空闲最多4ms
+    private static final int DEFAULT_MAX_PREFETCH_ITEMS = 20;
+    private static final int DEFAULT_POOL_SIZE = 5;//RecycledViewPool每种类型默认缓存的个数
+
+    private final RecyclerView mRecyclerView;
+    private RecyclerView.Adapter mAdapter;
+    private int mMaxPrefetchItems = DEFAULT_MAX_PREFETCH_ITEMS;
+    private int mNextPosition;//下一个要创建的位置
+    private int mTargetPosition;//创建到这个位置为止(不包括)
+    private boolean isScheduled;
+    private final SparseIntArray mCreatedPerType = new SparseIntArray();
+    private int mPrefetchedCount;
+    private long mPrefetchNanos;
+
+    private final MessageQueue.IdleHandler mIdleHandler = new MessageQueue.IdleHandler() {
+        @Override
+        public boolean queueIdle() {
+            isScheduled = prefetchUntil(System.nanoTime() + IDLE_BUDGET_NANOS);
+            return isScheduled;
+        }
+    };
+
+    public RecyclerPrefetcher(RecyclerView recyclerView) {
+        mRecyclerView = recyclerView;
+    }
+
+    /**
+     * @param maxPrefetchItems 一次最多提前创建多少个item，0表示不预取
+     */
+    public void setMaxPrefetchItems(int maxPrefetchItems) {
+        mMaxPrefetchItems = Math.max(0, maxPrefetchItems);
+    }
+
+    /**
+     * @param distance      还要滑多远列表自己才开始滑动(列表正好占满显示区域)，已经在滑列表时小于等于0
+     * @param flingDistance fling预计还会滑的距离，没有fling时为0
+     */
+    public void onApproach(int distance, int flingDistance) {
+        RecyclerView.Adapter adapter = mRecyclerView.getAdapter();
+        if (adapter == null || mMaxPrefetchItems == 0)
+            return;
+        if (adapter != mAdapter) {//换了adapter，之前创建的不再算数
+            mAdapter = adapter;
+            mNextPosition = 0;
+            mTargetPosition = 0;
+            mCreatedPerType.clear();
+        }
+        int height = mRecyclerView.getHeight();
+        int extra;//列表自己需要滑动的距离
+        if (flingDistance > distance) {
+            extra = flingDistance - Math.max(0, distance);
+        } else if (distance <= height) {
+            extra = height;
+        } else {
+            return;
+        }
+        int childCount = mRecyclerView.getChildCount();
+        if (childCount == 0 || height == 0)//还没有布局，第一屏由布局创建
+            return;
+        View lastChild = mRecyclerView.getChildAt(childCount - 1);
+        int lastPosition = mRecyclerView.getChildAdapterPosition(lastChild);
+        if (lastPosition == RecyclerView.NO_POSITION)
+            return;
+        int averageHeight = Math.max(1, (lastChild.getBottom() - mRecyclerView.getChildAt(0).getTop()) / childCount);
+        int count = Math.min(mMaxPrefetchItems, extra / averageHeight + 1);
+        int target = Math.min(adapter.getItemCount(), lastPosition + 1 + count);
+        mNextPosition = Math.max(mNextPosition, lastPosition + 1);
+        if (target <= mTargetPosition || mNextPosition >= target)
+            return;
+        mTargetPosition = target;
+        if (!isScheduled) {
+            isScheduled = true;
+            Looper.myQueue().addIdleHandler(mIdleHandler);
+        }
+    }
+
+    /**
+     * 列表detach或者换数据时调用，已经放进缓存池的ViewHolder保留
+     */
+    public void cancel() {
+        if (isScheduled) {
+            Looper.myQueue().removeIdleHandler(mIdleHandler);
+            isScheduled = false;
+        }
+        mTargetPosition = mNextPosition;
+    }
+
+    /**
+     * @return 是否还有没创建完的
+     */
+    private boolean prefetchUntil(long deadlineNanos) {
+        RecyclerView.Adapter adapter = mRecyclerView.getAdapter();
+        if (adapter != mAdapter || adapter == null)
+            return false;
+        RecyclerView.RecycledViewPool pool = mRecyclerView.getRecycledViewPool();
+        ViewHolderPool sharedPool = ViewHolderPool.getInstance();
+        int end = Math.min(mTargetPosition, adapter.getItemCount());
+        while (mNextPosition < end) {
+            long start = System.nanoTime();
+            int type = adapter.getItemViewType(mNextPosition);
+            int created = mCreatedPerType.get(type) + 1;
+            mCreatedPerType.put(type, created);
+            //默认只能放5个，不加大的话放进去就被丢掉了
+            sharedPool.ensureCapacity(pool, type, DEFAULT_POOL_SIZE + Math.min(created, mMaxPrefetchItems));
+            pool.putRecycledView(sharedPool.createViewHolder(mRecyclerView, adapter, type));//共享池不接收用Activity创建的
+            mNextPosition++;
+            mPrefetchedCount++;
+            long now = System.nanoTime();
+            mPrefetchNanos += now - start;
+            if (now >= deadlineNanos)
+                break;
+        }
+        return mNextPosition < end;
+    }
+
+    /**
+     * @return 一共提前创建了多少个ViewHolder
+     */
+    public int getPrefetchedCount() {
+        return mPrefetchedCount;
+    }
+
+    /**
+     * @return 提前创建ViewHolder一共花的时间，这部分原来会发生在fling进入列表的那几帧
+     */
+    public long getPrefetchNanos() {
+        return mPrefetchNanos;
+    }
+}
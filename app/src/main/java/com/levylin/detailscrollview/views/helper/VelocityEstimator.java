@@ -0,0 +1,97 @@
+package com.levylin.detailscrollview.views.helper;
+
+/**
+ * 根据WebView每一步的滑动距离估算速度
+ * 最近的N个采样存在固定大小的int[]/long[]环形数组里，加采样不会创建对象；
+ * 速度用加权最小二乘拟合位置-时间直线的斜率，越新的采样权重越大，比"总距离/总时间"更接近松手时的真实速度
+ */
+public class VelocityEstimator {
+
+    private static final int DEFAULT_CAPACITY = 10;
+    private static final long HORIZON_NANOS = 100 * 1000000L;//只用最近100ms的采样
+    private static final long STOPPED_NANOS = 40 * 1000000L;//两个采样间隔超过40ms代表中间停下来过
+
+    private final int[] positions;
+    private final long[] times;
+    private int head;//下一个要写的位置
+    private int count;
+    private int position;//累计的滑动距离
+
+    public VelocityEstimator() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    public VelocityEstimator(int capacity) {
+        positions = new int[capacity];
+        times = new long[capacity];
+    }
+
+    /**
+     * @param deltaY    这一步滑动的距离
+     * @param timeNanos {@link System#nanoTime()}
+     */
+    public void addSample(int deltaY, long timeNanos) {
+        if (count > 0 && timeNanos - times[previous(head)] > STOPPED_NANOS) {
+            count = 0;
+        }
+        position += deltaY;
+        positions[head] = position;
+        times[head] = timeNanos;
+        head = (head + 1) % positions.length;
+        if (count < positions.length) {
+            count++;
+        }
+    }
+
+    public int size() {
+        return count;
+    }
+
+    public void clear() {
+        count = 0;
+        head = 0;
+        position = 0;
+    }
+
+    /**
+     * @param nowNanos 计算时的时间，离最新的采样太久说明已经停下来了，速度为0
+     * @return 速度，单位px/s，正数代表scrollY增加的方向
+     */
+    public float computeVelocity(long nowNanos) {
+        if (count < 2)
+            return 0;
+        final int capacity = positions.length;
+        final int newest = previous(head);
+        final long newestTime = times[newest];
+        if (nowNanos - newestTime > STOPPED_NANOS)
+            return 0;
+        final int newestPosition = positions[newest];
+        double sw = 0, swt = 0, swx = 0, swtt = 0, swtx = 0;
+        int used = 0;
+        for (int i = 0; i < count; i++) {
+            int index = (newest - i + capacity) % capacity;
+            long age = newestTime - times[index];
+            if (age > HORIZON_NANOS)
+                break;
+            double t = -age / 1e9;//以最新的采样为原点，单位秒
+            double x = positions[index] - newestPosition;
+            double w = count - i;//越新权重越大
+            sw += w;
+            swt += w * t;
+            swx += w * x;
+            swtt += w * t * t;
+            swtx += w * t * x;
+            used++;
+        }
+        if (used < 2)
+            return 0;
+        double denominator = sw * swtt - swt * swt;
+        if (denominator <= 0)
+            return 0;
+        return (float) ((sw * swtx - swt * swx) / denominator);
+    }
+
+    private int previous(int index) {
+        return (index - 1 + positions.length) % positions.length;
+    }
+}
@@ -0,0 +1,169 @@
+package com.levylin.detailscrollview.views.helper;
+
+import android.os.Build;
+import android.support.v4.view.ViewCompat;
+import android.view.View;
+import android.webkit.JavascriptInterface;
+
+import com.levylin.detailscrollview.views.IDetailWebView;
+import com.levylin.detailscrollview.views.listener.OnContentHeightChangedListener;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * 由页面主动通知的内容高度监听，系统内核和X5内核共用
+ * 页面加载时注入一段脚本，用ResizeObserver(不支持时用MutationObserver+load事件)监听文档高度，变化时通过JS桥通知过来；
+ * WebView自身尺寸、缩放变化时也会触发检查。所有通知合并到下一帧只检查一次customGetContentHeight，真的变了才回调
+ */
+public class WebContentHeightObserver {
+
+    public static final String BRIDGE_NAME = "DetailContentHeight";
+
+    /**
+     * 内核的contentHeight可能比脚本晚几帧更新，脚本通知之后高度没变的话再多检查几帧
+     */
+    private static final int MAX_RETRY_FRAMES = 3;
+
+    /**
+     * 可以重复注入，同一个页面只会监听一次；脚本里也用requestAnimationFrame合并，每帧最多通知一次
+     */
+    private static final String SCRIPT = "(function(){"
+            + "if(window.__detailHeightObserved||!window." + BRIDGE_NAME + ")return;"
+            + "window.__detailHeightObserved=true;"
+            + "var last=-1,pending=false;"
+            + "var raf=window.requestAnimationFrame||function(f){return setTimeout(f,16);};"
+            + "function measure(){pending=false;"
+            + "var d=document.documentElement,b=document.body;"
+            + "var h=Math.max(d?d.scrollHeight:0,b?b.scrollHeight:0);"
+            + "if(h!==last){last=h;" + BRIDGE_NAME + ".onHeightChanged(h);}}"
+            + "function schedule(){if(pending)return;pending=true;raf(measure);}"
+            + "if(window.ResizeObserver){var ro=new ResizeObserver(schedule);"
+            + "ro.observe(document.documentElement);if(document.body)ro.observe(document.body);}"
+            + "else{if(window.MutationObserver)new MutationObserver(schedule).observe(document.documentElement,"
+            + "{childList:true,subtree:true,attributes:true,characterData:true});"
+            + "document.addEventListener('load',schedule,true);}"//图片等资源的load事件不冒泡，只能在捕获阶段拿到
+            + "window.addEventListener('load',schedule);"
+            + "window.addEventListener('resize',schedule);"
+            + "schedule();"
+            + "})();";
+
+    /**
+     * 执行注入脚本，两个内核的evaluateJavascript不是同一个方法
+     */
+    public interface ScriptHost {
+
+        void evaluateScript(String script);
+    }
+
+    private final View mView;
+    private final IDetailWebView mWebView;
+    private final ScriptHost mScriptHost;
+    private final Bridge mBridge = new Bridge(this);
+    private final AtomicBoolean mScheduled = new AtomicBoolean();//JS桥在非UI线程回调
+    private final AtomicBoolean mScriptPending = new AtomicBoolean();
+    private OnContentHeightChangedListener mListener;
+    private int mLastHeight = -1;
+    private int mRetryFrames;
+
+    private final Runnable mDispatchRunnable = new Runnable() {
+        @Override
+        public void run() {
+            mScheduled.set(false);
+            dispatch();
+        }
+    };
+
+    /**
+     * @param view    用来post到下一帧，也是回调里的webView
+     * @param webView 读取内容高度
+     */
+    public WebContentHeightObserver(View view, IDetailWebView webView, ScriptHost scriptHost) {
+        mView = view;
+        mWebView = webView;
+        mScriptHost = scriptHost;
+    }
+
+    /**
+     * 4.2以下addJavascriptInterface有反射漏洞，不注册JS桥，只依赖尺寸变化的回调
+     */
+    public static boolean isBridgeSupported() {
+        return Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN_MR1;
+    }
+
+    /**
+     * 需要通过addJavascriptInterface以{@link #BRIDGE_NAME}注册
+     */
+    public Object getBridge() {
+        return mBridge;
+    }
+
+    public void setOnContentHeightChangedListener(OnContentHeightChangedListener listener) {
+        mListener = listener;
+    }
+
+    /**
+     * 页面可见或者加载完成时调用，注入监听脚本
+     */
+    public void injectScript() {
+        if (isBridgeSupported()) {
+            try {
+                mScriptHost.evaluateScript(SCRIPT);
+            } catch (Exception e) {
+                e.printStackTrace();
+            }
+        }
+        schedule();
+    }
+
+    /**
+     * WebView尺寸、缩放或者内核回调了内容变化，下一帧检查一次
+     */
+    public void schedule() {
+        if (mScheduled.compareAndSet(false, true)) {
+            ViewCompat.postOnAnimation(mView, mDispatchRunnable);
+        }
+    }
+
+    private void onScriptHeightChanged() {
+        mScriptPending.set(true);
+        schedule();
+    }
+
+    private void dispatch() {
+        if (mScriptPending.getAndSet(false)) {
+            mRetryFrames = MAX_RETRY_FRAMES;
+        }
+        int height = mWebView.customGetContentHeight();
+        if (height != mLastHeight) {
+            int oldHeight = mLastHeight < 0 ? 0 : mLastHeight;
+            mLastHeight = height;
+            mRetryFrames = 0;
+            if (mListener != null) {
+                mListener.onContentHeightChanged(mView, oldHeight, height);
+            }
+        } else if (mRetryFrames > 0) {
+            mRetryFrames--;
+            schedule();
+        }
+    }
+
+    /**
+     * 注册给页面的对象，只暴露一个方法，必须是public的类，否则内核反射调用不到
+     */
+    public static final class Bridge {
+
+        private final WebContentHeightObserver mObserver;
+
+        Bridge(WebContentHeightObserver observer) {
+            mObserver = observer;
+        }
+
+        /**
+         * @param cssHeight 文档高度(css像素)，只用来触发检查，实际高度以内核的contentHeight为准
+         */
+        @JavascriptInterface
+        public void onHeightChanged(int cssHeight) {
+            mObserver.onScriptHeightChanged();
+        }
+    }
+}
@@ -1,16 +1,15 @@
 package com.levylin.detailscrollview.views.helper;
 
 import android.content.Context;
-import android.os.SystemClock;
 import android.view.MotionEvent;
 import android.view.VelocityTracker;
+import android.view.View;
 import android.view.ViewConfiguration;
 
 import com.levylin.detailscrollview.views.DetailScrollView;
 import com.levylin.detailscrollview.views.DetailWebView;
 import com.levylin.detailscrollview.views.DetailX5WebView;
-
-import java.util.LinkedList;
+import com.levylin.detailscrollview.views.trace.ScrollTracer;
 
 /**
  * WebView点击帮助类
@@ -21,11 +20,15 @@ public class WebViewTouchHelper {
     private DetailScrollView mScrollView;
     private DetailWebView mWebView;
     private DetailX5WebView mX5WebView;
-    private LinkedList<SpeedItem> speedItems;
+    private final VelocityEstimator mVelocityEstimator = new VelocityEstimator();
     private float mLastY;
+    private float mDownY;
     private VelocityTracker mVelocityTracker;
     private float mMaxVelocity;
-    private boolean isDragged = false;
+    private float mMinVelocity;
+    private int mTouchSlop;
+    private boolean isDragged = false;//MyScrollView跟着手指滑过
+    private boolean isBeingDragged = false;//手指移动超过了touchSlop，不是点击
 
     public WebViewTouchHelper(DetailScrollView scrollView, DetailWebView webView) {
         this.mScrollView = scrollView;
@@ -40,37 +43,33 @@ public class WebViewTouchHelper {
     }
 
     private void init(Context context) {
-        speedItems = new LinkedList<>();
         final ViewConfiguration configuration = ViewConfiguration.get(context);
         mMaxVelocity = configuration.getScaledMaximumFlingVelocity();
+        mMinVelocity = configuration.getScaledMinimumFlingVelocity();
+        mTouchSlop = configuration.getScaledTouchSlop();
     }
 
     /**
      * 计算webView的滑动速度
+     * 拖动之后的fling在抬起手指时已经交给了DetailScrollView，WebView自己不会再fling，
+     * 这里只处理没有经过触摸的滚动(比如页面脚本)滑到底之后的衔接
      *
      * @param deltaY
      * @param scrollY
      * @param scrollRangeY
      */
     public void overScrollBy(int deltaY, int scrollY, int scrollRangeY, boolean isTouched) {
-        if (speedItems.size() >= 10) {
-            speedItems.removeFirst();
-        }
+        long now = System.nanoTime();
         if (deltaY + scrollY < scrollRangeY) {
-            speedItems.add(new SpeedItem(deltaY, SystemClock.uptimeMillis()));
-        } else if (!speedItems.isEmpty()) {
-            int totalDeltaY = 0;
-            for (SpeedItem speedItem : speedItems) {
-                totalDeltaY += speedItem.deltaY;
-            }
-            int totalTime = ((int) (speedItems.getLast().time - speedItems.getFirst().time));
-            speedItems.clear();
-            if (totalTime > 0 && totalDeltaY != 0) {
-                int speed = totalDeltaY / totalTime * 1000;
+            mVelocityEstimator.addSample(deltaY, now);
+        } else if (mVelocityEstimator.size() > 0) {
+            int speed = (int) mVelocityEstimator.computeVelocity(now);
+            mVelocityEstimator.clear();
+            if (speed != 0) {
                 boolean webViewCanScrollBottom = canScrollVertically(DetailScrollView.DIRECT_BOTTOM);
-                DetailScrollView.LogE("WebViewTouchHelper.overScrollBy......ScrollView.fling:" + (-speed) + "\n"
-                        + ",webViewCanScrollBottom=" + webViewCanScrollBottom + "\n"
-                        + ",isTouched=" + isTouched);
+                ScrollTracer.record(ScrollTracer.POINT_WEB_OVER_SCROLL, -1, deltaY, speed, mScrollView.getScrollY(),
+                        ScrollTracer.SECTION_WEB,
+                        (webViewCanScrollBottom ? ScrollTracer.FLAG_WEB_CAN_SCROLL_BOTTOM : 0) | (isTouched ? ScrollTracer.FLAG_TOUCHED : 0));
                 if (!webViewCanScrollBottom && !isTouched) {//必须是在非点击状态下才触发scrollview的fling事件，否则会造成scrollview和webview同时滑动的问题
                     mScrollView.fling(speed);
                 }
@@ -79,14 +78,14 @@ public class WebViewTouchHelper {
     }
 
     /**
-     * 处理点击事件
+     * 处理点击事件，系统内核的onTouchEvent调用
      *
      * @param ev
+     * @param superTouch WebView自己处理事件
      * @return
      */
-    public boolean onTouchEvent(MotionEvent ev) {
-        acquireVelocityTracker(ev);
-        DetailScrollView.LogE("WebViewTouchHelper...onTouchEvent.ev=" + ev.getAction());
+    public boolean onTouchEvent(MotionEvent ev, NestedWebViewHelper.SuperTouch superTouch) {
+        trackVelocity(ev);
         switch (ev.getAction()) {
             case MotionEvent.ACTION_DOWN:
                 mLastY = ev.getRawY();
@@ -96,36 +95,75 @@ public class WebViewTouchHelper {
                 float deltaY = nowY - mLastY;
                 int dy = mScrollView.adjustScrollY((int) -deltaY);
                 mLastY = nowY;
-                DetailScrollView.LogE("WebViewTouchHelper.onTouchEvent.ACTION_MOVE,.......dy=" + dy + "\n"
-                        + ",deltaY=" + deltaY + "\n"
-                        + ",WebView.canScrollVertically=" + canScrollVertically(DetailScrollView.DIRECT_BOTTOM) + "\n"
-                        + ",mScrollView.canScrollVertically=" + mScrollView.canScrollVertically(DetailScrollView.DIRECT_BOTTOM) + "\n"
-                        + ",mScrollView.getScrollY=" + mScrollView.getScrollY());
-                if ((!canScrollVertically(DetailScrollView.DIRECT_BOTTOM) && dy > 0)
-                        || (mScrollView.canScrollVertically(DetailScrollView.DIRECT_BOTTOM) && dy < 0)) {
+                boolean webCanScrollBottom = canScrollVertically(DetailScrollView.DIRECT_BOTTOM);
+                //WebView滑到底部之后继续上滑，或者WebView还没有占满DetailScrollView时下滑，都由DetailScrollView滑动
+                if (mScrollView.shouldScrollContainer(getView(), dy)) {
                     mScrollView.customScrollBy(dy);
                     isDragged = true;
+                    ScrollTracer.record(ScrollTracer.POINT_WEB_HELPER, MotionEvent.ACTION_MOVE, dy, (int) deltaY,
+                            mScrollView.getScrollY(), ScrollTracer.SECTION_CONTAINER,
+                            ScrollTracer.FLAG_DRAGGED | (webCanScrollBottom ? ScrollTracer.FLAG_WEB_CAN_SCROLL_BOTTOM : 0));
                     return false;
                 }
+                ScrollTracer.record(ScrollTracer.POINT_WEB_HELPER, MotionEvent.ACTION_MOVE, dy, (int) deltaY,
+                        mScrollView.getScrollY(), ScrollTracer.SECTION_WEB,
+                        webCanScrollBottom ? ScrollTracer.FLAG_WEB_CAN_SCROLL_BOTTOM : 0);
                 break;
             case MotionEvent.ACTION_UP:
-                if (!canScrollVertically(DetailScrollView.DIRECT_BOTTOM) && isDragged) {
-                    mVelocityTracker.computeCurrentVelocity(1000, mMaxVelocity);
-                    final float curVelocity = mVelocityTracker.getYVelocity(0);
-                    DetailScrollView.LogE("WebViewTouchHelper.onTouchEvent.ACTION_UP......ScrollView.fling:" + (-curVelocity));
-                    mScrollView.fling(-(int) curVelocity);
-                }
-                mLastY = 0;
-                isDragged = false;
-                releaseVelocityTracker();
-                break;
             case MotionEvent.ACTION_CANCEL:
-                releaseVelocityTracker();
+                mLastY = 0;
                 break;
         }
+        return dispatchToWebView(ev, superTouch);
+    }
+
+    /**
+     * X5内核的事件不经过{@link #onTouchEvent}，在dispatchTouchEvent里调用，只接管fling
+     *
+     * @param superTouch WebView自己分发事件
+     */
+    public boolean dispatchTouchEvent(MotionEvent ev, NestedWebViewHelper.SuperTouch superTouch) {
+        trackVelocity(ev);
+        return dispatchToWebView(ev, superTouch);
+    }
+
+    /**
+     * 拖动之后抬起手指时，fling由DetailScrollView的FlingCoordinator接管：从当前位置开始WebView、MyScrollView、列表共用一条fling曲线，
+     * WebView收到的是ACTION_CANCEL，自己不会再fling，否则两边的fling会同时滑
+     */
+    private boolean dispatchToWebView(MotionEvent ev, NestedWebViewHelper.SuperTouch superTouch) {
+        int action = ev.getAction();
+        if (action != MotionEvent.ACTION_UP && action != MotionEvent.ACTION_CANCEL)
+            return superTouch.onSuperTouchEvent(ev);
+        int velocity = 0;
+        if (action == MotionEvent.ACTION_UP && isBeingDragged) {
+            mVelocityTracker.computeCurrentVelocity(1000, mMaxVelocity);
+            velocity = -(int) mVelocityTracker.getYVelocity(ev.getPointerId(0));
+        }
+        int flags = (isDragged ? ScrollTracer.FLAG_DRAGGED : 0)
+                | (canScrollVertically(DetailScrollView.DIRECT_BOTTOM) ? ScrollTracer.FLAG_WEB_CAN_SCROLL_BOTTOM : 0);
+        isDragged = false;
+        isBeingDragged = false;
+        releaseVelocityTracker();
+        if (Math.abs(velocity) <= mMinVelocity)
+            return superTouch.onSuperTouchEvent(ev);
+        ScrollTracer.record(ScrollTracer.POINT_WEB_HELPER, MotionEvent.ACTION_UP, 0, velocity, mScrollView.getScrollY(),
+                ScrollTracer.SECTION_WEB, flags);
+        MotionEvent cancel = MotionEvent.obtain(ev);
+        cancel.setAction(MotionEvent.ACTION_CANCEL);
+        superTouch.onSuperTouchEvent(cancel);
+        cancel.recycle();
+        mScrollView.fling(velocity);
         return true;
     }
 
+    private View getView() {
+        if (mWebView != null) {
+            return mWebView;
+        }
+        return mX5WebView;
+    }
+
     private boolean canScrollVertically(int direct) {
         if (mWebView != null) {
             return mWebView.canScrollVertically(direct);
@@ -134,7 +172,14 @@ public class WebViewTouchHelper {
     }
 
 
-    private void acquireVelocityTracker(MotionEvent ev) {
+    private void trackVelocity(MotionEvent ev) {
+        if (ev.getAction() == MotionEvent.ACTION_DOWN) {
+            releaseVelocityTracker();
+            mDownY = ev.getRawY();
+            isBeingDragged = false;
+        } else if (!isBeingDragged && Math.abs(ev.getRawY() - mDownY) > mTouchSlop) {
+            isBeingDragged = true;
+        }
         if (mVelocityTracker == null) {
             mVelocityTracker = VelocityTracker.obtain();
         }
@@ -147,22 +192,4 @@ public class WebViewTouchHelper {
         mVelocityTracker.recycle();
         mVelocityTracker = null;
     }
-
-    private class SpeedItem {
-        int deltaY;
-        long time;
-
-        public SpeedItem(int arg1, long arg2) {
-            this.deltaY = arg1;
-            this.time = arg2;
-        }
-
-        @Override
-        public String toString() {
-            return "SpeedItem{" +
-                    "deltaY=" + deltaY +
-                    ", time=" + time +
-                    '}';
-        }
-    }
 }
@@ -0,0 +1,16 @@
+package com.levylin.detailscrollview.views.listener;
+
+import android.view.View;
+
+/**
+ * WebView的内容高度发生变化，每帧最多回调一次，在UI线程回调
+ */
+public interface OnContentHeightChangedListener {
+
+    /**
+     * @param webView   内容高度变化的WebView
+     * @param oldHeight 之前的内容高度(px)，第一次回调为0
+     * @param newHeight 新的内容高度(px)
+     */
+    void onContentHeightChanged(View webView, int oldHeight, int newHeight);
+}
@@ -0,0 +1,325 @@
+package com.levylin.detailscrollview.views.pool;
+
+import android.app.Activity;
+import android.content.ComponentCallbacks2;
+import android.content.Context;
+import android.content.ContextWrapper;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.MessageQueue;
+import android.os.Process;
+import android.support.v7.widget.RecyclerView;
+import android.util.SparseIntArray;
+import android.view.ContextThemeWrapper;
+import android.view.ViewGroup;
+import android.widget.FrameLayout;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * 进程内所有DetailRecyclerView共用的ViewHolder缓存池，打开第N篇文章的评论时直接复用前面页面的ViewHolder
+ * 1.{@link #prewarm}在后台线程创建ViewHolder，回到主线程放进池里；后台创建失败的类型改为主线程空闲时创建，每次一个
+ * 2.只接收用Application的Context创建的ViewHolder，页面自己用Activity创建的在回收时丢掉，池不会持有Activity
+ * 3.每种类型最多保留{@link #setMaxIdle}个，内存紧张时由onTrimMemory缩减
+ * 共用一个池的adapter必须保证相同的viewType对应相同的ViewHolder
+ * 除了后台创建，所有方法只能在主线程调用
+ */
+public final class ViewHolderPool {
+
+    private static final int DEFAULT_MAX_IDLE = 20;
+
+    private static ViewHolderPool sInstance;
+
+    private final Handler mMainHandler = new Handler(Looper.getMainLooper());
+    private final SharedPool mPool = new SharedPool();
+    private final SparseIntArray mPending = new SparseIntArray();//已经开始创建、还没放进池里的个数
+    private ExecutorService mExecutor;
+    private ViewGroup mParent;//创建ViewHolder时的parent，只用来生成LayoutParams
+    private int mHitCount;
+    private int mMissCount;
+    private int mRecycleCount;
+    private int mDropCount;
+    private int mPrewarmCount;
+
+    public static synchronized ViewHolderPool getInstance() {
+        if (sInstance == null) {
+            sInstance = new ViewHolderPool();
+        }
+        return sInstance;
+    }
+
+    private ViewHolderPool() {
+    }
+
+    /**
+     * @return 给DetailRecyclerView用的RecycledViewPool，RecyclerView换adapter时不会清空
+     */
+    public RecyclerView.RecycledViewPool getRecycledViewPool() {
+        return mPool;
+    }
+
+    public boolean isShared(RecyclerView.RecycledViewPool pool) {
+        return pool == mPool;
+    }
+
+    /**
+     * @param maxIdle 这种类型最多保留几个空闲的ViewHolder
+     */
+    public void setMaxIdle(int viewType, int maxIdle) {
+        mPool.setMaxRecycledViews(viewType, Math.max(0, maxIdle));
+    }
+
+    /**
+     * 保证pool里这种类型至少能放capacity个，共享池只会调大，不会把别的页面设置的调小
+     */
+    public void ensureCapacity(RecyclerView.RecycledViewPool pool, int viewType, int capacity) {
+        if (pool != mPool) {
+            pool.setMaxRecycledViews(viewType, capacity);
+        } else if (mPool.getMaxIdle(viewType) < capacity) {
+            mPool.setMaxRecycledViews(viewType, capacity);
+        }
+    }
+
+    /**
+     * 在主线程创建一个可以放进recyclerView的缓存池的ViewHolder，共享池用Application的Context创建
+     */
+    public RecyclerView.ViewHolder createViewHolder(RecyclerView recyclerView, RecyclerView.Adapter adapter, int viewType) {
+        if (recyclerView.getRecycledViewPool() != mPool)
+            return adapter.createViewHolder(recyclerView, viewType);
+        return adapter.createViewHolder(getParent(recyclerView.getContext()), viewType);
+    }
+
+    /**
+     * 在后台线程预先创建ViewHolder，直到池里有count个这种类型的
+     * adapter的onCreateViewHolder只能inflate，不能访问别的状态；后台创建失败时改到主线程空闲时创建
+     */
+    public void prewarm(Context context, final RecyclerView.Adapter adapter, final int viewType, int count) {
+        final ViewGroup parent = getParent(context);
+        final int need = Math.min(count, mPool.getMaxIdle(viewType)) - mPool.getIdleCount(viewType) - mPending.get(viewType);
+        if (need <= 0)
+            return;
+        mPending.put(viewType, mPending.get(viewType) + need);
+        getExecutor().execute(new Runnable() {
+            @Override
+            public void run() {
+                for (int i = 0; i < need; i++) {
+                    final RecyclerView.ViewHolder holder;
+                    try {
+                        holder = adapter.createViewHolder(parent, viewType);
+                    } catch (RuntimeException e) {//比如item里的View需要Looper
+                        e.printStackTrace();
+                        prewarmOnMainThread(adapter, viewType, need - i);
+                        return;
+                    }
+                    mMainHandler.post(new Runnable() {
+                        @Override
+                        public void run() {
+                            onPrewarmed(holder);
+                        }
+                    });
+                }
+            }
+        });
+    }
+
+    private void prewarmOnMainThread(final RecyclerView.Adapter adapter, final int viewType, final int remaining) {
+        mMainHandler.post(new Runnable() {
+            @Override
+            public void run() {
+                Looper.myQueue().addIdleHandler(new MessageQueue.IdleHandler() {
+                    private int mRemaining = remaining;
+
+                    @Override
+                    public boolean queueIdle() {
+                        try {
+                            onPrewarmed(adapter.createViewHolder(mParent, viewType));
+                        } catch (Exception e) {
+                            e.printStackTrace();
+                            mPending.put(viewType, Math.max(0, mPending.get(viewType) - mRemaining));
+                            return false;
+                        }
+                        return --mRemaining > 0;//每次空闲只创建一个，剩下的等下次空闲
+                    }
+                });
+            }
+        });
+    }
+
+    private void onPrewarmed(RecyclerView.ViewHolder holder) {
+        int viewType = holder.getItemViewType();
+        mPending.put(viewType, Math.max(0, mPending.get(viewType) - 1));
+        mPrewarmCount++;
+        mPool.putRecycledView(holder);
+    }
+
+    /**
+     * 在Application.onTrimMemory中调用
+     */
+    public void onTrimMemory(int level) {
+        if (level >= ComponentCallbacks2.TRIM_MEMORY_BACKGROUND
+                || level == ComponentCallbacks2.TRIM_MEMORY_RUNNING_CRITICAL) {
+            clear();
+        } else if (level == ComponentCallbacks2.TRIM_MEMORY_RUNNING_LOW) {
+            mPool.trimTo(DEFAULT_MAX_IDLE / 4);
+        }
+    }
+
+    public void clear() {
+        mPool.evictAll();
+    }
+
+    public int getIdleCount(int viewType) {
+        return mPool.getIdleCount(viewType);
+    }
+
+    /**
+     * @return RecyclerView从池里直接拿到ViewHolder的次数
+     */
+    public int getHitCount() {
+        return mHitCount;
+    }
+
+    /**
+     * @return 池里没有、RecyclerView只能现场创建的次数
+     */
+    public int getMissCount() {
+        return mMissCount;
+    }
+
+    /**
+     * @return 放回池里的次数，包括预创建的
+     */
+    public int getRecycleCount() {
+        return mRecycleCount;
+    }
+
+    /**
+     * @return 池满了或者持有Activity而没有放进池里的次数
+     */
+    public int getDropCount() {
+        return mDropCount;
+    }
+
+    public int getPrewarmCount() {
+        return mPrewarmCount;
+    }
+
+    private ViewGroup getParent(Context context) {
+        if (mParent == null) {
+            Context app = context.getApplicationContext();
+            //Application + 应用的主题，item的样式需要主题
+            mParent = new FrameLayout(new ContextThemeWrapper(app, app.getApplicationInfo().theme));
+        }
+        return mParent;
+    }
+
+    private ExecutorService getExecutor() {
+        if (mExecutor == null) {
+            mExecutor = Executors.newSingleThreadExecutor(new ThreadFactory() {
+                @Override
+                public Thread newThread(final Runnable r) {
+                    Thread thread = new Thread(new Runnable() {
+                        @Override
+                        public void run() {
+                            Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND);
+                            r.run();
+                        }
+                    }, "viewholder-prewarm");
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+        }
+        return mExecutor;
+    }
+
+    private static boolean holdsActivity(Context context) {
+        while (context instanceof ContextWrapper) {
+            if (context instanceof Activity)
+                return true;
+            context = ((ContextWrapper) context).getBaseContext();
+        }
+        return false;
+    }
+
+    /**
+     * 自己记录每种类型的个数和上限，RecycledViewPool没有公开这些
+     */
+    private final class SharedPool extends RecyclerView.RecycledViewPool {
+
+        private final SparseIntArray mMaxIdle = new SparseIntArray();
+        private final SparseIntArray mIdle = new SparseIntArray();
+
+        @Override
+        public RecyclerView.ViewHolder getRecycledView(int viewType) {
+            RecyclerView.ViewHolder holder = super.getRecycledView(viewType);
+            if (holder == null) {
+                mMissCount++;
+            } else {
+                mHitCount++;
+                mIdle.put(viewType, mIdle.get(viewType) - 1);
+            }
+            return holder;
+        }
+
+        @Override
+        public void putRecycledView(RecyclerView.ViewHolder scrap) {
+            int viewType = scrap.getItemViewType();
+            int max = getMaxIdle(viewType);
+            if (mIdle.get(viewType) >= max || holdsActivity(scrap.itemView.getContext())) {
+                mDropCount++;
+                return;
+            }
+            super.putRecycledView(scrap);
+            mIdle.put(viewType, mIdle.get(viewType) + 1);
+            mRecycleCount++;
+        }
+
+        @Override
+        public void setMaxRecycledViews(int viewType, int max) {
+            mMaxIdle.put(viewType, max);
+            super.setMaxRecycledViews(viewType, max);
+            mIdle.put(viewType, Math.min(mIdle.get(viewType), max));
+        }
+
+        /**
+         * RecyclerView在换adapter、而且没有别的列表在用这个池时会调用，共享的池不能因为一个页面关闭就清空，
+         * 真正的清空用{@link #evictAll()}
+         */
+        @Override
+        public void clear() {
+        }
+
+        void evictAll() {
+            super.clear();
+            mIdle.clear();
+        }
+
+        void trimTo(int keep) {
+            for (int i = 0; i < mMaxIdle.size(); i++) {
+                int viewType = mMaxIdle.keyAt(i);
+                int max = mMaxIdle.valueAt(i);
+                if (mIdle.get(viewType) > keep) {
+                    super.setMaxRecycledViews(viewType, keep);//多出来的会被丢掉
+                    super.setMaxRecycledViews(viewType, max);
+                    mIdle.put(viewType, keep);
+                }
+            }
+        }
+
+        int getMaxIdle(int viewType) {
+            int index = mMaxIdle.indexOfKey(viewType);
+            if (index < 0) {//第一次遇到这种类型，RecycledViewPool默认只能放5个
+                setMaxRecycledViews(viewType, DEFAULT_MAX_IDLE);
+                return DEFAULT_MAX_IDLE;
+            }
+            return mMaxIdle.valueAt(index);
+        }
+
+        int getIdleCount(int viewType) {
+            return mIdle.get(viewType);
+        }
+    }
+}
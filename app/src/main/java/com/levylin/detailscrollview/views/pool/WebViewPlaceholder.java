@@ -0,0 +1,27 @@
+package com.levylin.detailscrollview.views.pool;
+
+import android.content.Context;
+import android.util.AttributeSet;
+import android.view.View;
+
+/**
+ * 布局里WebView的占位，只负责带上id和LayoutParams，创建时没有任何开销
+ * 页面创建时用{@link com.levylin.detailscrollview.views.DetailScrollView#replaceView(View, View)}换成从{@link WebViewPool}取出的WebView
+ */
+public class WebViewPlaceholder extends View {
+
+    public WebViewPlaceholder(Context context) {
+        super(context);
+        setWillNotDraw(true);
+    }
+
+    public WebViewPlaceholder(Context context, AttributeSet attrs) {
+        super(context, attrs);
+        setWillNotDraw(true);
+    }
+
+    public WebViewPlaceholder(Context context, AttributeSet attrs, int defStyleAttr) {
+        super(context, attrs, defStyleAttr);
+        setWillNotDraw(true);
+    }
+}
@@ -0,0 +1,329 @@
+package com.levylin.detailscrollview.views.pool;
+
+import android.content.ComponentCallbacks2;
+import android.content.Context;
+import android.content.MutableContextWrapper;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.MessageQueue;
+import android.support.v4.view.NestedScrollingChild;
+import android.view.View;
+import android.view.ViewGroup;
+import android.view.ViewParent;
+import android.webkit.WebSettings;
+
+import com.levylin.detailscrollview.views.DetailWebView;
+import com.levylin.detailscrollview.views.DetailX5WebView;
+import com.levylin.detailscrollview.views.IDetailWebView;
+import com.levylin.detailscrollview.web.bundle.BundleResolver;
+import com.levylin.detailscrollview.web.cache.ResponseCache;
+
+import java.util.ArrayList;
+import java.util.WeakHashMap;
+
+/**
+ * 进程内的WebView池，按内核类型分开
+ * 1.应用启动后在主线程空闲的时候预先创建，每次空闲只创建一个，不和首帧抢时间
+ * 2.取出时把Context换成Activity，放回时清空历史、加载空白页、断开所有监听，再换回Application的Context
+ * 3.内存紧张时由onTrimMemory缩减
+ * 所有方法只能在主线程调用
+ */
+public final class WebViewPool {
+
+    public static final int CORE_SYSTEM = 0;
+    public static final int CORE_X5 = 1;
+    private static final int CORE_COUNT = 2;
+
+    private static final int DEFAULT_MAX_IDLE = 1;
+    private static final String BLANK_URL = "about:blank";
+
+    private static WebViewPool sInstance;
+
+    private final Handler mMainHandler = new Handler(Looper.getMainLooper());
+    private final ArrayList<ArrayList<View>> mIdleViews = new ArrayList<>(CORE_COUNT);
+    private final int[] mMaxIdle = new int[CORE_COUNT];
+    private final int[] mPrewarmTargets = new int[CORE_COUNT];
+    private final WeakHashMap<View, Integer> mCoreOfView = new WeakHashMap<>();//从池里取出去的WebView
+    private Context mAppContext;
+    private ResponseCache mResponseCache;
+    private BundleResolver mBundleResolver;
+    private boolean isPrewarmScheduled;
+    private int mHitCount;
+    private int mMissCount;
+    private int mRecycleCount;
+    private int mDestroyCount;
+
+    public static synchronized WebViewPool getInstance() {
+        if (sInstance == null) {
+            sInstance = new WebViewPool();
+        }
+        return sInstance;
+    }
+
+    private WebViewPool() {
+        for (int i = 0; i < CORE_COUNT; i++) {
+            mIdleViews.add(new ArrayList<View>());
+            mMaxIdle[i] = DEFAULT_MAX_IDLE;
+        }
+    }
+
+    /**
+     * @param maxIdle 池里最多保留几个空闲的WebView
+     */
+    public void setMaxIdle(int core, int maxIdle) {
+        mMaxIdle[core] = Math.max(0, maxIdle);
+        trimTo(core, mMaxIdle[core]);
+    }
+
+    /**
+     * 之后创建的WebView都使用这个缓存，需要在{@link #prewarm}之前设置
+     */
+    public void setResponseCache(ResponseCache cache) {
+        mResponseCache = cache;
+    }
+
+    /**
+     * 之后创建的WebView都使用这个文章包，需要在{@link #prewarm}之前设置
+     */
+    public void setBundleResolver(BundleResolver resolver) {
+        mBundleResolver = resolver;
+    }
+
+    /**
+     * 在主线程空闲时预创建WebView，直到池里有count个空闲的
+     * X5内核需要在QbSdk.initX5Environment回调之后再调用，否则创建出来的还是系统内核
+     */
+    public void prewarm(Context context, final int core, final int count) {
+        mAppContext = context.getApplicationContext();
+        if (Looper.myLooper() != Looper.getMainLooper()) {//QbSdk的回调不一定在主线程
+            mMainHandler.post(new Runnable() {
+                @Override
+                public void run() {
+                    prewarm(mAppContext, core, count);
+                }
+            });
+            return;
+        }
+        mPrewarmTargets[core] = Math.min(count, mMaxIdle[core]);
+        if (isPrewarmScheduled)
+            return;
+        isPrewarmScheduled = true;
+        Looper.myQueue().addIdleHandler(new MessageQueue.IdleHandler() {
+            @Override
+            public boolean queueIdle() {
+                for (int i = 0; i < CORE_COUNT; i++) {
+                    if (mIdleViews.get(i).size() < mPrewarmTargets[i]) {
+                        try {
+                            mIdleViews.get(i).add(create(mAppContext, i));
+                        } catch (Exception e) {
+                            e.printStackTrace();
+                            mPrewarmTargets[i] = 0;
+                        }
+                        return true;//每次空闲只创建一个，剩下的等下次空闲
+                    }
+                }
+                isPrewarmScheduled = false;
+                return false;
+            }
+        });
+    }
+
+    /**
+     * 取出一个已经配置好的WebView，池里没有的话直接创建
+     *
+     * @param context 使用WebView的Activity
+     * @return core为{@link #CORE_SYSTEM}时是DetailWebView，{@link #CORE_X5}时是DetailX5WebView
+     */
+    public View acquire(Context context, int core) {
+        if (mAppContext == null) {
+            mAppContext = context.getApplicationContext();
+        }
+        ArrayList<View> idleViews = mIdleViews.get(core);
+        View view;
+        if (!idleViews.isEmpty()) {
+            view = idleViews.remove(idleViews.size() - 1);
+            setBaseContext(view, context);
+            if (view instanceof DetailWebView) {
+                ((DetailWebView) view).onResume();
+                ((DetailWebView) view).clearHistory();//放回时加载的空白页到这里已经提交了，再清一次
+            } else if (view instanceof DetailX5WebView) {
+                ((DetailX5WebView) view).onResume();
+                ((DetailX5WebView) view).clearHistory();
+            }
+            mHitCount++;
+        } else {
+            view = create(context, core);
+            mMissCount++;
+        }
+        mCoreOfView.put(view, core);
+        return view;
+    }
+
+    /**
+     * @return 是否是从池里取出来的
+     */
+    public boolean isPooled(View view) {
+        return mCoreOfView.containsKey(view);
+    }
+
+    /**
+     * 放回池里，池满了就销毁，会先从父View中移除
+     *
+     * @return 不是从池里取出的WebView返回false，不做任何处理
+     */
+    public boolean release(View view) {
+        Integer core = mCoreOfView.remove(view);
+        if (core == null)
+            return false;
+        ViewParent parent = view.getParent();
+        if (parent instanceof ViewGroup) {
+            ((ViewGroup) parent).removeView(view);
+        }
+        try {
+            reset(view);
+        } catch (Exception e) {
+            e.printStackTrace();
+            destroy(view);
+            return true;
+        }
+        ArrayList<View> idleViews = mIdleViews.get(core);
+        if (idleViews.size() < mMaxIdle[core] && mAppContext != null) {
+            setBaseContext(view, mAppContext);//不持有Activity
+            idleViews.add(view);
+            mRecycleCount++;
+        } else {
+            destroy(view);
+        }
+        return true;
+    }
+
+    /**
+     * 在Application.onTrimMemory中调用
+     */
+    public void onTrimMemory(int level) {
+        int keep;
+        if (level >= ComponentCallbacks2.TRIM_MEMORY_BACKGROUND
+                || level == ComponentCallbacks2.TRIM_MEMORY_RUNNING_CRITICAL) {
+            keep = 0;
+        } else if (level == ComponentCallbacks2.TRIM_MEMORY_RUNNING_LOW) {
+            keep = 1;
+        } else {
+            return;
+        }
+        for (int core = 0; core < CORE_COUNT; core++) {
+            trimTo(core, keep);
+        }
+    }
+
+    public void clear() {
+        for (int core = 0; core < CORE_COUNT; core++) {
+            trimTo(core, 0);
+        }
+    }
+
+    private void trimTo(int core, int keep) {
+        ArrayList<View> idleViews = mIdleViews.get(core);
+        while (idleViews.size() > keep) {
+            destroy(idleViews.remove(idleViews.size() - 1));
+        }
+        mPrewarmTargets[core] = Math.min(mPrewarmTargets[core], keep);
+    }
+
+    public int getIdleCount(int core) {
+        return mIdleViews.get(core).size();
+    }
+
+    /**
+     * @return 从池里直接拿到空闲WebView的次数
+     */
+    public int getHitCount() {
+        return mHitCount;
+    }
+
+    /**
+     * @return 池里没有、现场创建的次数
+     */
+    public int getMissCount() {
+        return mMissCount;
+    }
+
+    public int getRecycleCount() {
+        return mRecycleCount;
+    }
+
+    public int getDestroyCount() {
+        return mDestroyCount;
+    }
+
+    /**
+     * 用MutableContextWrapper创建，之后可以在Application和Activity之间切换
+     */
+    private View create(Context context, int core) {
+        MutableContextWrapper wrapper = new MutableContextWrapper(context);
+        if (core == CORE_X5) {
+            DetailX5WebView webView = new DetailX5WebView(wrapper);//X5WebView的构造方法里已经初始化了设置
+            webView.setResponseCache(mResponseCache);
+            webView.setBundleResolver(mBundleResolver);
+            return webView;
+        }
+        DetailWebView webView = new DetailWebView(wrapper);
+        WebSettings settings = webView.getSettings();
+        settings.setJavaScriptEnabled(true);
+        settings.setDomStorageEnabled(true);
+        webView.setResponseCache(mResponseCache);
+        webView.setBundleResolver(mBundleResolver);
+        return webView;
+    }
+
+    private static void setBaseContext(View view, Context context) {
+        if (view.getContext() instanceof MutableContextWrapper) {
+            ((MutableContextWrapper) view.getContext()).setBaseContext(context);
+        }
+    }
+
+    /**
+     * 断开所有监听，清空页面，停止JS定时器
+     */
+    private static void reset(View view) {
+        IDetailWebView detailWebView = (IDetailWebView) view;
+        detailWebView.setScrollView(null);
+        detailWebView.setOnScrollBarShowListener(null);
+        detailWebView.setOnContentHeightChangedListener(null);
+        detailWebView.customScrollTo(0);
+        if (view instanceof NestedScrollingChild) {
+            ((NestedScrollingChild) view).setNestedScrollingEnabled(false);
+        }
+        if (view instanceof DetailWebView) {
+            DetailWebView webView = (DetailWebView) view;
+            webView.stopLoading();
+            webView.setWebViewClient(null);
+            webView.setWebChromeClient(null);
+            webView.setDownloadListener(null);
+            webView.loadUrl(BLANK_URL);
+            webView.clearHistory();
+            webView.onPause();
+        } else if (view instanceof DetailX5WebView) {
+            DetailX5WebView webView = (DetailX5WebView) view;
+            webView.stopLoading();
+            webView.resetWebViewClient();
+            webView.setWebChromeClient(null);
+            webView.setDownloadListener(null);
+            webView.loadUrl(BLANK_URL);
+            webView.clearHistory();
+            webView.onPause();
+        }
+    }
+
+    private void destroy(View view) {
+        try {
+            if (view instanceof DetailWebView) {
+                ((DetailWebView) view).destroy();
+            } else if (view instanceof DetailX5WebView) {
+                ((DetailX5WebView) view).destroy();
+            }
+        } catch (Exception e) {
+            e.printStackTrace();
+        }
+        mDestroyCount++;
+    }
+}
@@ -0,0 +1,118 @@
+package com.levylin.detailscrollview.views.trace;
+
+/**
+ * 帧耗时直方图，按HdrHistogram的方式分桶：每个2的幂区间再平均分成16个子桶，
+ * 所以任意数值的相对误差都不超过1/16，但只需要一个固定的long[]，记录时不产生任何对象
+ * 数值单位由使用者决定，{@link ScrollFrameMonitor}使用微秒
+ */
+public final class FrameHistogram {
+
+    private static final int SUB_BUCKET_BITS = 5;
+    private static final int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS;//32
+    private static final int SUB_BUCKET_HALF = SUB_BUCKET_COUNT >> 1;//16
+    private static final int MAX_BUCKET = 31 - SUB_BUCKET_BITS;//int最大值所在的桶
+    private static final int LENGTH = MAX_BUCKET * SUB_BUCKET_HALF + SUB_BUCKET_COUNT;
+
+    private final long[] counts = new long[LENGTH];
+    private long totalCount;
+    private long totalValue;
+    private long maxValue;
+
+    public void record(long value) {
+        if (value < 0) {
+            value = 0;
+        } else if (value > Integer.MAX_VALUE) {
+            value = Integer.MAX_VALUE;
+        }
+        counts[indexOf((int) value)]++;
+        totalCount++;
+        totalValue += value;
+        if (value > maxValue) {
+            maxValue = value;
+        }
+    }
+
+    public long getTotalCount() {
+        return totalCount;
+    }
+
+    public long getMaxValue() {
+        return maxValue;
+    }
+
+    public double getMean() {
+        return totalCount == 0 ? 0 : (double) totalValue / totalCount;
+    }
+
+    /**
+     * @param percentile 0~100
+     * @return 不小于percentile%记录的值，误差不超过1/16
+     */
+    public long getValueAtPercentile(double percentile) {
+        if (totalCount == 0)
+            return 0;
+        long target = (long) Math.ceil(Math.min(Math.max(percentile, 0), 100) / 100 * totalCount);
+        if (target < 1) {
+            target = 1;
+        }
+        long cumulative = 0;
+        for (int i = 0; i < LENGTH; i++) {
+            cumulative += counts[i];
+            if (cumulative >= target) {
+                return Math.min(highestValueOf(i), maxValue);
+            }
+        }
+        return maxValue;
+    }
+
+    /**
+     * 第index个桶里的记录数，桶的范围见{@link #lowestValueOf(int)}和{@link #highestValueOf(int)}
+     */
+    public long getCountAt(int index) {
+        return counts[index];
+    }
+
+    public static int bucketCount() {
+        return LENGTH;
+    }
+
+    public static long lowestValueOf(int index) {
+        int bucket = bucketOf(index);
+        return (long) (index - bucket * SUB_BUCKET_HALF) << bucket;
+    }
+
+    public static long highestValueOf(int index) {
+        int bucket = bucketOf(index);
+        return ((long) (index - bucket * SUB_BUCKET_HALF + 1) << bucket) - 1;
+    }
+
+    public void reset() {
+        for (int i = 0; i < LENGTH; i++) {
+            counts[i] = 0;
+        }
+        totalCount = 0;
+        totalValue = 0;
+        maxValue = 0;
+    }
+
+    /**
+     * 把数据复制到target，target可以复用，避免每次取快照都创建对象
+     */
+    public void copyInto(FrameHistogram target) {
+        System.arraycopy(counts, 0, target.counts, 0, LENGTH);
+        target.totalCount = totalCount;
+        target.totalValue = totalValue;
+        target.maxValue = maxValue;
+    }
+
+    private static int indexOf(int value) {
+        if (value < SUB_BUCKET_COUNT)
+            return value;
+        int bucket = 31 - Integer.numberOfLeadingZeros(value) - (SUB_BUCKET_BITS - 1);
+        return bucket * SUB_BUCKET_HALF + (value >> bucket);
+    }
+
+    private static int bucketOf(int index) {
+        return index < SUB_BUCKET_COUNT ? 0 : (index >> (SUB_BUCKET_BITS - 1)) - 1;
+    }
+}
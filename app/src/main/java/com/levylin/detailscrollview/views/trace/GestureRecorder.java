@@ -0,0 +1,127 @@
+package com.levylin.detailscrollview.views.trace;
+
+import android.view.MotionEvent;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+
+/**
+ * 录制到达DetailScrollView.dispatchTouchEvent的MotionEvent序列，包括历史采样点，用{@link GestureRecording}回放
+ * 缓冲区在start时一次性分配，录制过程中不产生任何对象，写满之后丢弃后面的事件并计数
+ * 格式(大端)：magic(int) version(int)，之后每个事件为
+ * eventTime(long) downTime(long) action(int) pointerCount(int) historySize(int) pointerId(int)*pointerCount
+ * [historicalTime(long) (x(float) y(float))*pointerCount]*historySize (x(float) y(float))*pointerCount
+ * 时间都是SystemClock.uptimeMillis，只能在UI线程调用
+ */
+public final class GestureRecorder {
+
+    /**
+     * 文件头：'D' 'S' 'V' 'G'
+     */
+    public static final int MAGIC = 0x44535647;
+    public static final int VERSION = 1;
+    public static final int DEFAULT_CAPACITY_BYTES = 1024 * 1024;
+
+    private static final int HEADER_BYTES = 8;
+
+    private ByteBuffer mBuffer;
+    private boolean isRecording;
+    private int mEventCount;
+    private int mDroppedCount;
+
+    public void start() {
+        start(DEFAULT_CAPACITY_BYTES);
+    }
+
+    /**
+     * 开始录制，之前录制的内容会被清空
+     */
+    public void start(int capacityBytes) {
+        if (capacityBytes <= HEADER_BYTES) {
+            throw new IllegalArgumentException("capacityBytes too small: " + capacityBytes);
+        }
+        if (mBuffer == null || mBuffer.capacity() != capacityBytes) {
+            mBuffer = ByteBuffer.allocate(capacityBytes);
+        }
+        mBuffer.clear();
+        mBuffer.putInt(MAGIC);
+        mBuffer.putInt(VERSION);
+        mEventCount = 0;
+        mDroppedCount = 0;
+        isRecording = true;
+    }
+
+    public void stop() {
+        isRecording = false;
+    }
+
+    public boolean isRecording() {
+        return isRecording;
+    }
+
+    public int getEventCount() {
+        return mEventCount;
+    }
+
+    /**
+     * @return 缓冲区满了之后丢弃的事件个数
+     */
+    public int getDroppedCount() {
+        return mDroppedCount;
+    }
+
+    public void record(MotionEvent ev) {
+        if (!isRecording)
+            return;
+        final int pointerCount = ev.getPointerCount();
+        final int historySize = ev.getHistorySize();
+        int bytes = 28 + pointerCount * 4 + historySize * (8 + pointerCount * 8) + pointerCount * 8;
+        final ByteBuffer buffer = mBuffer;
+        if (buffer.remaining() < bytes) {
+            mDroppedCount++;
+            return;
+        }
+        buffer.putLong(ev.getEventTime());
+        buffer.putLong(ev.getDownTime());
+        buffer.putInt(ev.getAction());
+        buffer.putInt(pointerCount);
+        buffer.putInt(historySize);
+        for (int p = 0; p < pointerCount; p++) {
+            buffer.putInt(ev.getPointerId(p));
+        }
+        for (int h = 0; h < historySize; h++) {
+            buffer.putLong(ev.getHistoricalEventTime(h));
+            for (int p = 0; p < pointerCount; p++) {
+                buffer.putFloat(ev.getHistoricalX(p, h));
+                buffer.putFloat(ev.getHistoricalY(p, h));
+            }
+        }
+        for (int p = 0; p < pointerCount; p++) {
+            buffer.putFloat(ev.getX(p));
+            buffer.putFloat(ev.getY(p));
+        }
+        mEventCount++;
+    }
+
+    /**
+     * 写出已录制的内容，不影响继续录制
+     */
+    public void writeTo(OutputStream out) throws IOException {
+        if (mBuffer == null)
+            return;
+        out.write(mBuffer.array(), 0, mBuffer.position());
+        out.flush();
+    }
+
+    /**
+     * @return 已录制内容的副本
+     */
+    public byte[] toByteArray() {
+        if (mBuffer == null)
+            return new byte[0];
+        byte[] bytes = new byte[mBuffer.position()];
+        System.arraycopy(mBuffer.array(), 0, bytes, 0, bytes.length);
+        return bytes;
+    }
+}
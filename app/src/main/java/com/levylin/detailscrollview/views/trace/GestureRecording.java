@@ -0,0 +1,111 @@
+package com.levylin.detailscrollview.views.trace;
+
+import android.view.MotionEvent;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * {@link GestureRecorder}录制的手势，可以按顺序还原成MotionEvent用来回放
+ * 只在调试和测试的时候使用，不在热路径上
+ */
+public final class GestureRecording {
+
+    private final ByteBuffer mBuffer;
+    private int[] mOffsets = new int[64];//每个事件在缓冲区中的位置
+    private int mCount;
+
+    public GestureRecording(byte[] data) {
+        mBuffer = ByteBuffer.wrap(data);
+        if (data.length < 8 || mBuffer.getInt() != GestureRecorder.MAGIC) {
+            throw new IllegalArgumentException("not a gesture recording");
+        }
+        int version = mBuffer.getInt();
+        if (version != GestureRecorder.VERSION) {
+            throw new IllegalArgumentException("unsupported gesture recording version: " + version);
+        }
+        while (mBuffer.remaining() >= 28) {
+            int offset = mBuffer.position();
+            mBuffer.position(offset + 16 + 4);
+            int pointerCount = mBuffer.getInt();
+            int historySize = mBuffer.getInt();
+            int end = mBuffer.position() + pointerCount * 4 + historySize * (8 + pointerCount * 8) + pointerCount * 8;
+            if (end > mBuffer.limit())
+                break;//最后一个事件不完整
+            if (mCount == mOffsets.length) {
+                mOffsets = Arrays.copyOf(mOffsets, mCount * 2);
+            }
+            mOffsets[mCount++] = offset;
+            mBuffer.position(end);
+        }
+    }
+
+    public static GestureRecording read(InputStream in) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buffer = new byte[8192];
+        int read;
+        while ((read = in.read(buffer)) != -1) {
+            out.write(buffer, 0, read);
+        }
+        return new GestureRecording(out.toByteArray());
+    }
+
+    public int size() {
+        return mCount;
+    }
+
+    public long getEventTime(int index) {
+        return mBuffer.getLong(mOffsets[index]);
+    }
+
+    public long getDownTime(int index) {
+        return mBuffer.getLong(mOffsets[index] + 8);
+    }
+
+    public int getAction(int index) {
+        return mBuffer.getInt(mOffsets[index] + 16);
+    }
+
+    /**
+     * 还原第index个事件，历史采样点通过addBatch加回去，用完需要调用recycle
+     *
+     * @param timeOffset 加到所有时间上的偏移，用来对齐回放时的时钟
+     */
+    public MotionEvent obtainEvent(int index, long timeOffset) {
+        final ByteBuffer buffer = mBuffer.duplicate();
+        buffer.position(mOffsets[index]);
+        long eventTime = buffer.getLong() + timeOffset;
+        long downTime = buffer.getLong() + timeOffset;
+        int action = buffer.getInt();
+        int pointerCount = buffer.getInt();
+        int historySize = buffer.getInt();
+        MotionEvent.PointerProperties[] properties = new MotionEvent.PointerProperties[pointerCount];
+        MotionEvent.PointerCoords[] coords = new MotionEvent.PointerCoords[pointerCount];
+        for (int p = 0; p < pointerCount; p++) {
+            properties[p] = new MotionEvent.PointerProperties();
+            properties[p].id = buffer.getInt();
+            properties[p].toolType = MotionEvent.TOOL_TYPE_FINGER;
+            coords[p] = new MotionEvent.PointerCoords();
+            coords[p].pressure = 1;
+            coords[p].size = 1;
+        }
+        MotionEvent event = null;
+        for (int h = 0; h <= historySize; h++) {
+            long time = h < historySize ? buffer.getLong() + timeOffset : eventTime;
+            for (int p = 0; p < pointerCount; p++) {
+                coords[p].x = buffer.getFloat();
+                coords[p].y = buffer.getFloat();
+            }
+            if (event == null) {
+                event = MotionEvent.obtain(downTime, time, action, pointerCount, properties, coords,
+                        0, 0, 1, 1, 0, 0, 0, 0);
+            } else {
+                event.addBatch(time, coords, 0);
+            }
+        }
+        return event;
+    }
+}
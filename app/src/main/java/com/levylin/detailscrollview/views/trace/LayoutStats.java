@@ -0,0 +1,168 @@
+package com.levylin.detailscrollview.views.trace;
+
+/**
+ * DetailScrollView测量和布局的计数，用来对比增量布局跳过了多少区域
+ * 只是几个long的累加，一直开着，只能在UI线程访问
+ */
+public final class LayoutStats {
+
+    private long measurePasses;
+    private long measuredSections;
+    private long skippedMeasures;
+    private long measureNanos;
+    private long layoutPasses;
+    private long laidOutSections;
+    private long offsetSections;
+    private long skippedLayouts;
+    private long layoutNanos;
+    private long deferredInflates;
+    private long deferredInflateNanos;
+
+    public void onMeasurePass(long nanos) {
+        measurePasses++;
+        measureNanos += nanos;
+    }
+
+    public void onSectionMeasured(boolean skipped) {
+        if (skipped) {
+            skippedMeasures++;
+        } else {
+            measuredSections++;
+        }
+    }
+
+    public void onLayoutPass(long nanos) {
+        layoutPasses++;
+        layoutNanos += nanos;
+    }
+
+    /**
+     * 调用了子View的layout
+     */
+    public void onSectionLaidOut() {
+        laidOutSections++;
+    }
+
+    /**
+     * 尺寸没变只是位置变了，用offsetTopAndBottom挪过去
+     */
+    public void onSectionOffset() {
+        offsetSections++;
+    }
+
+    public void onSectionLayoutSkipped() {
+        skippedLayouts++;
+    }
+
+    /**
+     * 创建了一个延迟的区域，nanos只包括创建和绑定，不包括之后的测量和布局
+     */
+    public void onDeferredInflated(long nanos) {
+        deferredInflates++;
+        deferredInflateNanos += nanos;
+    }
+
+    public long getMeasurePasses() {
+        return measurePasses;
+    }
+
+    public long getMeasuredSections() {
+        return measuredSections;
+    }
+
+    public long getSkippedMeasures() {
+        return skippedMeasures;
+    }
+
+    public long getMeasureNanos() {
+        return measureNanos;
+    }
+
+    public long getLayoutPasses() {
+        return layoutPasses;
+    }
+
+    public long getLaidOutSections() {
+        return laidOutSections;
+    }
+
+    public long getOffsetSections() {
+        return offsetSections;
+    }
+
+    public long getSkippedLayouts() {
+        return skippedLayouts;
+    }
+
+    public long getLayoutNanos() {
+        return layoutNanos;
+    }
+
+    public long getDeferredInflates() {
+        return deferredInflates;
+    }
+
+    public long getDeferredInflateNanos() {
+        return deferredInflateNanos;
+    }
+
+    public void copyFrom(LayoutStats other) {
+        measurePasses = other.measurePasses;
+        measuredSections = other.measuredSections;
+        skippedMeasures = other.skippedMeasures;
+        measureNanos = other.measureNanos;
+        layoutPasses = other.layoutPasses;
+        laidOutSections = other.laidOutSections;
+        offsetSections = other.offsetSections;
+        skippedLayouts = other.skippedLayouts;
+        layoutNanos = other.layoutNanos;
+        deferredInflates = other.deferredInflates;
+        deferredInflateNanos = other.deferredInflateNanos;
+    }
+
+    /**
+     * 减去之前的快照，得到这段时间内的计数
+     */
+    public void subtract(LayoutStats before) {
+        measurePasses -= before.measurePasses;
+        measuredSections -= before.measuredSections;
+        skippedMeasures -= before.skippedMeasures;
+        measureNanos -= before.measureNanos;
+        layoutPasses -= before.layoutPasses;
+        laidOutSections -= before.laidOutSections;
+        offsetSections -= before.offsetSections;
+        skippedLayouts -= before.skippedLayouts;
+        layoutNanos -= before.layoutNanos;
+        deferredInflates -= before.deferredInflates;
+        deferredInflateNanos -= before.deferredInflateNanos;
+    }
+
+    public void reset() {
+        measurePasses = 0;
+        measuredSections = 0;
+        skippedMeasures = 0;
+        measureNanos = 0;
+        layoutPasses = 0;
+        laidOutSections = 0;
+        offsetSections = 0;
+        skippedLayouts = 0;
+        layoutNanos = 0;
+        deferredInflates = 0;
+        deferredInflateNanos = 0;
+    }
+
+    @Override
+    public String toString() {
+        return "measurePasses=" + measurePasses
+                + ",measured=" + measuredSections
+                + ",skippedMeasures=" + skippedMeasures
+                + ",measureNanos=" + measureNanos
+                + ",layoutPasses=" + layoutPasses
+                + ",laidOut=" + laidOutSections
+                + ",offset=" + offsetSections
+                + ",skippedLayouts=" + skippedLayouts
+                + ",layoutNanos=" + layoutNanos
+                + ",deferredInflates=" + deferredInflates
+                + ",deferredInflateNanos=" + deferredInflateNanos;
+    }
+}
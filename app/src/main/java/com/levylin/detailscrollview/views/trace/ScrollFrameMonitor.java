@@ -0,0 +1,203 @@
+package com.levylin.detailscrollview.views.trace;
+
+import android.annotation.TargetApi;
+import android.content.Context;
+import android.os.Build;
+import android.view.Choreographer;
+import android.view.WindowManager;
+
+/**
+ * 滑动过程中的帧耗时统计
+ * 1.只有在有区域滑动(手指拖动或者fling)的时候才注册Choreographer.FrameCallback，停下来两帧之后自动注销
+ * 2.两次doFrame之间的耗时算到这段时间里滑动的区域上；同一帧里有多个区域滑动，说明发生了交接，算到PHASE_HANDOFF上
+ * 3.每个阶段一个{@link FrameHistogram}，另外统计总帧数、卡顿帧数、丢帧数，记录过程中不产生任何对象
+ * 4.可以随时通过{@link #getSnapshot(Snapshot)}拉取，也可以通过{@link OnFrameMetricsListener}在每次滑动结束后收到推送
+ * Choreographer需要4.1以上，4.1以下不统计
+ */
+public final class ScrollFrameMonitor {
+
+    public static final int PHASE_WEB = 0;
+    public static final int PHASE_CONTAINER = 1;
+    public static final int PHASE_LIST = 2;
+    public static final int PHASE_HANDOFF = 3;
+    public static final int PHASE_COUNT = 4;
+
+    private static final int IDLE_FRAMES_TO_STOP = 2;
+    private static final float JANK_FACTOR = 1.5f;//超过1.5倍帧间隔算卡顿
+
+    /**
+     * 一次滑动结束时回调，snapshot会被复用，需要保存的话请复制里面的数据
+     */
+    public interface OnFrameMetricsListener {
+        void onFrameMetrics(Snapshot snapshot);
+    }
+
+    /**
+     * 各阶段数据的快照，可以复用
+     */
+    public static final class Snapshot {
+        public final FrameHistogram[] histograms = new FrameHistogram[PHASE_COUNT];//单位微秒
+        public final long[] frameCounts = new long[PHASE_COUNT];
+        public final long[] jankCounts = new long[PHASE_COUNT];
+        public final long[] droppedFrames = new long[PHASE_COUNT];
+        public long frameIntervalNanos;
+
+        public Snapshot() {
+            for (int i = 0; i < PHASE_COUNT; i++) {
+                histograms[i] = new FrameHistogram();
+            }
+        }
+    }
+
+    private final FrameHistogram[] mHistograms = new FrameHistogram[PHASE_COUNT];
+    private final long[] mFrameCounts = new long[PHASE_COUNT];
+    private final long[] mJankCounts = new long[PHASE_COUNT];
+    private final long[] mDroppedFrames = new long[PHASE_COUNT];
+    private final long mFrameIntervalNanos;
+    private final Object mFrameCallback;//Choreographer.FrameCallback，4.1以下不能直接声明这个类型
+    private OnFrameMetricsListener mListener;
+    private Snapshot mListenerSnapshot;
+    private int mPhaseMask;//上一帧之后有哪些区域滑动过
+    private long mLastFrameTimeNanos;
+    private int mIdleFrames;
+    private boolean isRunning;
+
+    public ScrollFrameMonitor(Context context) {
+        for (int i = 0; i < PHASE_COUNT; i++) {
+            mHistograms[i] = new FrameHistogram();
+        }
+        float refreshRate = 60;
+        WindowManager wm = (WindowManager) context.getSystemService(Context.WINDOW_SERVICE);
+        if (wm != null && wm.getDefaultDisplay() != null && wm.getDefaultDisplay().getRefreshRate() > 0) {
+            refreshRate = wm.getDefaultDisplay().getRefreshRate();
+        }
+        mFrameIntervalNanos = (long) (1000000000L / refreshRate);
+        mFrameCallback = isSupported() ? createFrameCallback() : null;
+    }
+
+    public static boolean isSupported() {
+        return Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN;
+    }
+
+    public void setOnFrameMetricsListener(OnFrameMetricsListener listener) {
+        mListener = listener;
+        if (listener != null && mListenerSnapshot == null) {
+            mListenerSnapshot = new Snapshot();
+        }
+    }
+
+    /**
+     * 标记某个区域在这一帧里滑动了，没有在统计的话开始统计，只能在UI线程调用
+     *
+     * @param phase PHASE_WEB/PHASE_CONTAINER/PHASE_LIST
+     */
+    public void markPhase(int phase) {
+        mPhaseMask |= 1 << phase;
+        if (!isRunning && mFrameCallback != null) {
+            isRunning = true;
+            mIdleFrames = 0;
+            mLastFrameTimeNanos = 0;
+            postFrameCallback();
+        }
+    }
+
+    /**
+     * 标记这一帧发生了交接
+     */
+    public void markHandoff() {
+        markPhase(PHASE_HANDOFF);
+    }
+
+    public Snapshot getSnapshot(Snapshot reuse) {
+        Snapshot snapshot = reuse != null ? reuse : new Snapshot();
+        for (int i = 0; i < PHASE_COUNT; i++) {
+            mHistograms[i].copyInto(snapshot.histograms[i]);
+            snapshot.frameCounts[i] = mFrameCounts[i];
+            snapshot.jankCounts[i] = mJankCounts[i];
+            snapshot.droppedFrames[i] = mDroppedFrames[i];
+        }
+        snapshot.frameIntervalNanos = mFrameIntervalNanos;
+        return snapshot;
+    }
+
+    public void reset() {
+        for (int i = 0; i < PHASE_COUNT; i++) {
+            mHistograms[i].reset();
+            mFrameCounts[i] = 0;
+            mJankCounts[i] = 0;
+            mDroppedFrames[i] = 0;
+        }
+    }
+
+    /**
+     * 停止统计，已经统计的数据保留
+     */
+    public void stop() {
+        if (!isRunning)
+            return;
+        isRunning = false;
+        mPhaseMask = 0;
+        removeFrameCallback();
+    }
+
+    private void doFrame(long frameTimeNanos) {
+        if (!isRunning)
+            return;
+        final int mask = mPhaseMask;
+        mPhaseMask = 0;
+        if (mask == 0) {
+            mIdleFrames++;
+        } else {
+            mIdleFrames = 0;
+        }
+        if (mLastFrameTimeNanos != 0 && mask != 0) {
+            long duration = frameTimeNanos - mLastFrameTimeNanos;
+            int phase;
+            if ((mask & (1 << PHASE_HANDOFF)) != 0 || Integer.bitCount(mask) > 1) {
+                phase = PHASE_HANDOFF;
+            } else {
+                phase = Integer.numberOfTrailingZeros(mask);
+            }
+            mHistograms[phase].record(duration / 1000);
+            mFrameCounts[phase]++;
+            if (duration > mFrameIntervalNanos * JANK_FACTOR) {
+                mJankCounts[phase]++;
+            }
+            long skipped = (duration + mFrameIntervalNanos / 2) / mFrameIntervalNanos - 1;
+            if (skipped > 0) {
+                mDroppedFrames[phase] += skipped;
+            }
+        }
+        mLastFrameTimeNanos = frameTimeNanos;
+        if (mIdleFrames >= IDLE_FRAMES_TO_STOP) {//滑动结束
+            isRunning = false;
+            if (mListener != null) {
+                mListener.onFrameMetrics(getSnapshot(mListenerSnapshot));
+            }
+            return;
+        }
+        postFrameCallback();
+    }
+
+    @TargetApi(Build.VERSION_CODES.JELLY_BEAN)
+    private Object createFrameCallback() {
+        return new Choreographer.FrameCallback() {
+            @Override
+            public void doFrame(long frameTimeNanos) {
+                ScrollFrameMonitor.this.doFrame(frameTimeNanos);
+            }
+        };
+    }
+
+    @TargetApi(Build.VERSION_CODES.JELLY_BEAN)
+    private void postFrameCallback() {
+        Choreographer.getInstance().postFrameCallback((Choreographer.FrameCallback) mFrameCallback);
+    }
+
+    @TargetApi(Build.VERSION_CODES.JELLY_BEAN)
+    private void removeFrameCallback() {
+        if (mFrameCallback != null) {
+            Choreographer.getInstance().removeFrameCallback((Choreographer.FrameCallback) mFrameCallback);
+        }
+    }
+}
@@ -0,0 +1,297 @@
+package com.levylin.detailscrollview.views.trace;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.Writer;
+
+/**
+ * 滑动事件追踪器，用来替代在每个MOVE事件里拼接字符串的LogE
+ * 1.每条记录都是定长的基本类型数据，写入预先分配好的环形缓冲区，记录过程中不产生任何对象
+ * 2.未开启时record方法只做一次静态字段判断，没有任何开销
+ * 3.需要的时候可以导出为二进制文件或者可读的文本
+ * 注意：record只能在UI线程调用，dump也应该在UI线程调用，避免读到写了一半的记录；enable可以在其他线程调用，record不会越界
+ */
+public final class ScrollTracer {
+
+    /**
+     * 二进制文件头：'D' 'S' 'V' 'T'
+     */
+    public static final int MAGIC = 0x44535654;
+    public static final int VERSION = 1;
+
+    //记录点
+    public static final int POINT_TOUCH = 1;//DetailScrollView.onTouchEvent
+    public static final int POINT_INTERCEPT = 2;//DetailScrollView.onInterceptTouchEvent
+    public static final int POINT_ADJUST = 3;//DetailScrollView.adjustScrollY
+    public static final int POINT_FLING = 4;//DetailScrollView.fling
+    public static final int POINT_COMPUTE_SCROLL = 5;//DetailScrollView.computeScroll
+    public static final int POINT_CAN_SCROLL = 6;//DetailScrollView.canScrollVertically
+    public static final int POINT_LIST_HELPER = 7;//ListViewTouchHelper.onTouchEvent
+    public static final int POINT_WEB_HELPER = 8;//WebViewTouchHelper.onTouchEvent
+    public static final int POINT_WEB_OVER_SCROLL = 9;//WebViewTouchHelper.overScrollBy
+    public static final int POINT_START_FLING = 10;//IDetailWebView/IDetailListView.startFling
+
+    //消费事件的区域
+    public static final int SECTION_NONE = 0;
+    public static final int SECTION_WEB = 1;
+    public static final int SECTION_CONTAINER = 2;
+    public static final int SECTION_LIST = 3;
+
+    //边界标志位
+    public static final int FLAG_AT_TOP = 1;//DetailScrollView滑到了maxScrollY
+    public static final int FLAG_AT_BOTTOM = 1 << 1;//DetailScrollView的scrollY为0
+    public static final int FLAG_WEB_CAN_SCROLL_BOTTOM = 1 << 2;
+    public static final int FLAG_LIST_CAN_SCROLL_TOP = 1 << 3;
+    public static final int FLAG_SCROLLER_FINISHED = 1 << 4;
+    public static final int FLAG_DRAGGED = 1 << 5;
+    public static final int FLAG_TOUCHED = 1 << 6;
+    public static final int FLAG_INTERCEPTED = 1 << 7;
+
+    public static final int DEFAULT_CAPACITY = 4096;
+
+    //每条记录的int字段：point, action, dy, value, scrollY, section, flags
+    private static final int FIELD_COUNT = 7;
+    private static final int FIELD_POINT = 0;
+    private static final int FIELD_ACTION = 1;
+    private static final int FIELD_DY = 2;
+    private static final int FIELD_VALUE = 3;
+    private static final int FIELD_SCROLL_Y = 4;
+    private static final int FIELD_SECTION = 5;
+    private static final int FIELD_FLAGS = 6;
+
+    private static volatile boolean isEnabled = false;
+    private static long[] sTimes;
+    private static int[] sFields;
+    private static int sCapacity;
+    private static int sNext;//下一条记录写入的位置
+    private static long sTotal;//开启以来一共记录的条数，大于容量时代表旧记录已被覆盖
+
+    private ScrollTracer() {
+    }
+
+    /**
+     * 开启追踪，缓冲区在这里一次性分配
+     *
+     * @param capacity 最多保留的记录条数，超过之后覆盖最旧的记录
+     */
+    public static synchronized void enable(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("capacity must be positive: " + capacity);
+        }
+        if (sTimes == null || sCapacity != capacity) {
+            sTimes = new long[capacity];
+            sFields = new int[capacity * FIELD_COUNT];
+            sCapacity = capacity;
+        }
+        sNext = 0;
+        sTotal = 0;
+        isEnabled = true;
+    }
+
+    public static void enable() {
+        enable(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * 关闭追踪，已记录的数据仍然可以dump
+     */
+    public static void disable() {
+        isEnabled = false;
+    }
+
+    /**
+     * 关闭追踪并释放缓冲区
+     */
+    public static synchronized void release() {
+        isEnabled = false;
+        sTimes = null;
+        sFields = null;
+        sCapacity = 0;
+        sNext = 0;
+        sTotal = 0;
+    }
+
+    public static boolean isEnabled() {
+        return isEnabled;
+    }
+
+    /**
+     * 记录一次滑动决策，热路径上调用，不产生任何对象
+     *
+     * @param point   记录点，见POINT_*
+     * @param action  MotionEvent的action，非触摸事件传-1
+     * @param dy      本次的滑动距离
+     * @param value   附加值，如速度、原始delta等
+     * @param scrollY DetailScrollView当前的scrollY
+     * @param section 消费该事件的区域，见SECTION_*
+     * @param flags   边界标志位，见FLAG_*
+     */
+    public static void record(int point, int action, int dy, int value, int scrollY, int section, int flags) {
+        if (!isEnabled) {
+            return;
+        }
+        final long[] times = sTimes;
+        final int[] fields = sFields;
+        if (times == null) {
+            return;
+        }
+        //enable可能在别的线程换了缓冲区，下标按这里读到的数组算，越界就从头写
+        int index = sNext;
+        if (index >= times.length || (index + 1) * FIELD_COUNT > fields.length) {
+            index = 0;
+        }
+        times[index] = System.nanoTime();
+        int base = index * FIELD_COUNT;
+        fields[base + FIELD_POINT] = point;
+        fields[base + FIELD_ACTION] = action;
+        fields[base + FIELD_DY] = dy;
+        fields[base + FIELD_VALUE] = value;
+        fields[base + FIELD_SCROLL_Y] = scrollY;
+        fields[base + FIELD_SECTION] = section;
+        fields[base + FIELD_FLAGS] = flags;
+        sNext = index + 1 >= times.length ? 0 : index + 1;
+        sTotal++;
+    }
+
+    /**
+     * @return 缓冲区中有效的记录条数
+     */
+    public static synchronized int size() {
+        return (int) Math.min(sTotal, sCapacity);
+    }
+
+    /**
+     * 导出为二进制文件
+     * 格式：magic(int) version(int) fieldCount(int) count(int) dropped(long)，
+     * 之后是按时间先后排列的count条记录，每条为time(long)加fieldCount个int
+     */
+    public static synchronized void dumpBinary(File file) throws IOException {
+        DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file)));
+        try {
+            int count = size();
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(FIELD_COUNT);
+            out.writeInt(count);
+            out.writeLong(sTotal - count);
+            int start = firstIndex();
+            for (int i = 0; i < count; i++) {
+                int index = (start + i) % sCapacity;
+                out.writeLong(sTimes[index]);
+                int base = index * FIELD_COUNT;
+                for (int j = 0; j < FIELD_COUNT; j++) {
+                    out.writeInt(sFields[base + j]);
+                }
+            }
+        } finally {
+            out.close();
+        }
+    }
+
+    /**
+     * 导出为可读的文本，每行一条记录，时间为相对第一条记录的微秒数
+     */
+    public static synchronized void dumpText(Writer writer) throws IOException {
+        int count = size();
+        long dropped = sTotal - count;
+        writer.write("# records=" + count + ",dropped=" + dropped + "\n");
+        if (count == 0) {
+            writer.flush();
+            return;
+        }
+        int start = firstIndex();
+        long firstTime = sTimes[start];
+        StringBuilder sb = new StringBuilder(128);
+        for (int i = 0; i < count; i++) {
+            int index = (start + i) % sCapacity;
+            int base = index * FIELD_COUNT;
+            sb.setLength(0);
+            sb.append((sTimes[index] - firstTime) / 1000).append("us ")
+                    .append(pointName(sFields[base + FIELD_POINT]))
+                    .append(" action=").append(sFields[base + FIELD_ACTION])
+                    .append(",dy=").append(sFields[base + FIELD_DY])
+                    .append(",value=").append(sFields[base + FIELD_VALUE])
+                    .append(",scrollY=").append(sFields[base + FIELD_SCROLL_Y])
+                    .append(",section=").append(sectionName(sFields[base + FIELD_SECTION]))
+                    .append(",flags=");
+            appendFlags(sb, sFields[base + FIELD_FLAGS]);
+            sb.append('\n');
+            writer.write(sb.toString());
+        }
+        writer.flush();
+    }
+
+    private static int firstIndex() {
+        return sTotal > sCapacity ? sNext : 0;
+    }
+
+    public static String pointName(int point) {
+        switch (point) {
+            case POINT_TOUCH:
+                return "touch";
+            case POINT_INTERCEPT:
+                return "intercept";
+            case POINT_ADJUST:
+                return "adjustScrollY";
+            case POINT_FLING:
+                return "fling";
+            case POINT_COMPUTE_SCROLL:
+                return "computeScroll";
+            case POINT_CAN_SCROLL:
+                return "canScrollVertically";
+            case POINT_LIST_HELPER:
+                return "listHelper";
+            case POINT_WEB_HELPER:
+                return "webHelper";
+            case POINT_WEB_OVER_SCROLL:
+                return "webOverScroll";
+            case POINT_START_FLING:
+                return "startFling";
+            default:
+                return "unknown(" + point + ")";
+        }
+    }
+
+    public static String sectionName(int section) {
+        switch (section) {
+            case SECTION_NONE:
+                return "none";
+            case SECTION_WEB:
+                return "web";
+            case SECTION_CONTAINER:
+                return "container";
+            case SECTION_LIST:
+                return "list";
+            default:
+                return String.valueOf(section);
+        }
+    }
+
+    private static void appendFlags(StringBuilder sb, int flags) {
+        if (flags == 0) {
+            sb.append('0');
+            return;
+        }
+        int length = sb.length();
+        appendFlag(sb, flags, FLAG_AT_TOP, "atTop");
+        appendFlag(sb, flags, FLAG_AT_BOTTOM, "atBottom");
+        appendFlag(sb, flags, FLAG_WEB_CAN_SCROLL_BOTTOM, "webCanScrollBottom");
+        appendFlag(sb, flags, FLAG_LIST_CAN_SCROLL_TOP, "listCanScrollTop");
+        appendFlag(sb, flags, FLAG_SCROLLER_FINISHED, "scrollerFinished");
+        appendFlag(sb, flags, FLAG_DRAGGED, "dragged");
+        appendFlag(sb, flags, FLAG_TOUCHED, "touched");
+        appendFlag(sb, flags, FLAG_INTERCEPTED, "intercepted");
+        if (sb.length() > length) {
+            sb.setLength(sb.length() - 1);
+        }
+    }
+
+    private static void appendFlag(StringBuilder sb, int flags, int flag, String name) {
+        if ((flags & flag) != 0) {
+            sb.append(name).append('|');
+        }
+    }
+}
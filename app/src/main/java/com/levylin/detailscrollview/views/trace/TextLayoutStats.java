@@ -0,0 +1,109 @@
+package com.levylin.detailscrollview.views.trace;
+
+/**
+ * 评论行文字排版的计数，用来对比后台预排版前后bind的耗时
+ * 1.bind：解码文字、从缓存取排版结果的耗时，命中的话bind之后不需要再排版
+ * 2.未命中：在onMeasure里同步排版的耗时，这部分原来都在fling的那一帧里
+ * 3.预排版：后台线程排好的条数和耗时，不占UI线程
+ * 卡顿帧和丢帧见{@link ScrollFrameMonitor#PHASE_LIST}；除了预排版的两个计数，只能在UI线程访问
+ */
+public final class TextLayoutStats {
+
+    private final FrameHistogram bindHistogram = new FrameHistogram();//单位微秒，包括未命中时的同步排版
+    private long binds;
+    private long bindNanos;
+    private long hits;
+    private long misses;
+    private long missLayoutNanos;
+    private volatile long precomputed;
+    private volatile long precomputeNanos;
+
+    /**
+     * @param hit 缓存里已经有排好的
+     */
+    public void onBind(long nanos, boolean hit) {
+        binds++;
+        bindNanos += nanos;
+        if (hit) {
+            hits++;
+            bindHistogram.record(nanos / 1000);
+        } else {
+            misses++;
+        }
+    }
+
+    /**
+     * 未命中的行在onMeasure里同步排版，bindNanos是这一行bind时的耗时
+     */
+    public void onMissLaidOut(long bindNanos, long layoutNanos) {
+        missLayoutNanos += layoutNanos;
+        bindHistogram.record((bindNanos + layoutNanos) / 1000);
+    }
+
+    /**
+     * 在预排版的线程调用
+     */
+    public void onPrecomputed(long nanos) {
+        precomputed++;
+        precomputeNanos += nanos;
+    }
+
+    public long getBinds() {
+        return binds;
+    }
+
+    public long getBindNanos() {
+        return bindNanos;
+    }
+
+    public long getHits() {
+        return hits;
+    }
+
+    public long getMisses() {
+        return misses;
+    }
+
+    public long getMissLayoutNanos() {
+        return missLayoutNanos;
+    }
+
+    public long getPrecomputed() {
+        return precomputed;
+    }
+
+    public long getPrecomputeNanos() {
+        return precomputeNanos;
+    }
+
+    /**
+     * @return 每行在UI线程上的耗时(bind加上未命中时的排版)，单位微秒
+     */
+    public FrameHistogram getBindHistogram() {
+        return bindHistogram;
+    }
+
+    public void reset() {
+        bindHistogram.reset();
+        binds = 0;
+        bindNanos = 0;
+        hits = 0;
+        misses = 0;
+        missLayoutNanos = 0;
+        precomputed = 0;
+        precomputeNanos = 0;
+    }
+
+    @Override
+    public String toString() {
+        return "binds=" + binds
+                + " hits=" + hits
+                + " misses=" + misses
+                + " bindUs=" + bindNanos / 1000
+                + " missLayoutUs=" + missLayoutNanos / 1000
+                + " p90Us=" + bindHistogram.getValueAtPercentile(90)
+                + " maxUs=" + bindHistogram.getMaxValue()
+                + " precomputed=" + precomputed
+                + " precomputeUs=" + precomputeNanos / 1000;
+    }
+}
@@ -0,0 +1,288 @@
+package com.levylin.detailscrollview.replay;
+
+import android.app.Activity;
+import android.content.Context;
+import android.view.MotionEvent;
+import android.view.View;
+import android.view.ViewGroup;
+
+import com.levylin.detailscrollview.BuildConfig;
+import com.levylin.detailscrollview.views.DeferredSectionView;
+import com.levylin.detailscrollview.views.DetailScrollView;
+import com.levylin.detailscrollview.views.trace.GestureRecorder;
+import com.levylin.detailscrollview.views.trace.GestureRecording;
+import com.levylin.detailscrollview.views.trace.LayoutStats;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.Robolectric;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+import org.robolectric.shadows.ShadowLooper;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * 用录制的手势回放DetailScrollView，检查最终位置和测量布局次数
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(constants = BuildConfig.class, sdk = 23)
+public class GestureReplayTest {
+
+    private static final int WIDTH = 1080;
+    private static final int HEIGHT = 1920;
+    private static final int STATIC_HEIGHT = 300;
+    private static final int WEB_CONTENT_RANGE = 6000;
+    private static final int LIST_CONTENT_RANGE = 20000;
+
+    @Test
+    public void replay_swipeUpFromWebView_isDeterministic() throws Exception {
+        byte[] data = recordSwipe(1600, -60, 20);
+        GestureReplayer.Result first = new GestureReplayer(createScrollView()).replay(new GestureRecording(data));
+        GestureReplayer.Result second = new GestureReplayer(createScrollView()).replay(new GestureRecording(data));
+        assertTrue("WebView should scroll first: " + first, first.sectionScrollY[0] > 0);
+        assertEquals(first + " / " + second, first.containerScrollY, second.containerScrollY);
+        assertArrayEquals(first.sectionScrollY, second.sectionScrollY);
+    }
+
+    @Test
+    public void replay_fling_continuesAfterUp() throws Exception {
+        byte[] data = recordSwipe(1800, -150, 10);
+        GestureReplayer.Result result = new GestureReplayer(createScrollView()).replay(new GestureRecording(data));
+        int total = result.sectionScrollY[0] + result.containerScrollY + result.sectionScrollY[2];
+        assertTrue("fling should keep scrolling after the finger is lifted: " + result, total > 150 * 10);
+    }
+
+    @Test
+    public void relayout_webViewHeightChanged_onlyRemeasuresWebView() {
+        DetailScrollView scrollView = createScrollView();
+        View webView = scrollView.getChildAt(0);
+        LayoutStats before = new LayoutStats();
+        before.copyFrom(scrollView.getLayoutStats());
+
+        ViewGroup.LayoutParams lp = webView.getLayoutParams();
+        lp.height = HEIGHT + 200;
+        webView.setLayoutParams(lp);
+        GestureReplayer.relayoutIfRequested(scrollView);
+
+        LayoutStats stats = new LayoutStats();
+        stats.copyFrom(scrollView.getLayoutStats());
+        stats.subtract(before);
+        assertEquals(stats.toString(), 1, stats.getMeasuredSections());
+        assertEquals(stats.toString(), 2, stats.getSkippedMeasures());
+        assertEquals(stats.toString(), 1, stats.getLaidOutSections());
+        assertEquals(stats.toString(), 2, stats.getOffsetSections());
+        assertEquals(HEIGHT + 200, scrollView.getChildAt(1).getTop());
+        assertEquals(HEIGHT + 200 + STATIC_HEIGHT, scrollView.getChildAt(2).getTop());
+    }
+
+    @Test
+    public void relayout_widthSpecChangedButSizeSame_stillLaysOutSection() {
+        Context context = RuntimeEnvironment.application;
+        final int[] layouts = new int[1];
+        View fixedView = new View(context) {//不管约束怎么变都是同样的尺寸
+            @Override
+            protected void onMeasure(int widthMeasureSpec, int heightMeasureSpec) {
+                setMeasuredDimension(WIDTH / 2, STATIC_HEIGHT);
+            }
+
+            @Override
+            protected void onLayout(boolean changed, int left, int top, int right, int bottom) {
+                layouts[0]++;
+            }
+        };
+        DetailScrollView scrollView = new DetailScrollView(context);
+        scrollView.addView(new StubDetailWebView(context, WEB_CONTENT_RANGE), layoutParams(HEIGHT));
+        scrollView.addView(fixedView, new ViewGroup.MarginLayoutParams(ViewGroup.LayoutParams.WRAP_CONTENT, STATIC_HEIGHT));
+        scrollView.addView(new StubDetailListView(context, LIST_CONTENT_RANGE), layoutParams(HEIGHT));
+        scrollView.measure(View.MeasureSpec.makeMeasureSpec(WIDTH, View.MeasureSpec.EXACTLY),
+                View.MeasureSpec.makeMeasureSpec(HEIGHT, View.MeasureSpec.EXACTLY));
+        scrollView.layout(0, 0, WIDTH, HEIGHT);
+        assertEquals(1, layouts[0]);
+        LayoutStats before = new LayoutStats();
+        before.copyFrom(scrollView.getLayoutStats());
+
+        scrollView.measure(View.MeasureSpec.makeMeasureSpec(WIDTH - 100, View.MeasureSpec.EXACTLY),
+                View.MeasureSpec.makeMeasureSpec(HEIGHT, View.MeasureSpec.EXACTLY));
+        scrollView.layout(0, 0, WIDTH - 100, HEIGHT);
+
+        LayoutStats stats = new LayoutStats();
+        stats.copyFrom(scrollView.getLayoutStats());
+        stats.subtract(before);
+        assertEquals(stats.toString(), 3, stats.getMeasuredSections());
+        assertEquals(stats.toString(), 3, stats.getLaidOutSections());
+        assertEquals("re-measured section must be laid out even if its bounds did not change", 2, layouts[0]);
+        assertEquals(WIDTH / 2, fixedView.getWidth());
+    }
+
+    @Test
+    public void nestedScroll_stationaryMoveAfterParentConsumed_scrollsNothing() {
+        DetailScrollView scrollView = createNestedScrollView();
+        StubNestedWebView webView = (StubNestedWebView) scrollView.getChildAt(0);
+        webView.customScrollTo(WEB_CONTENT_RANGE);//WebView已经滑到底，继续上滑由DetailScrollView消费
+
+        GestureRecorder recorder = new GestureRecorder();
+        recorder.start();
+        long downTime = 1000;
+        record(recorder, downTime, downTime, MotionEvent.ACTION_DOWN, 1500);
+        record(recorder, downTime, downTime + GestureReplayer.FRAME_MILLIS, MotionEvent.ACTION_MOVE, 1400);
+        for (int i = 2; i <= 4; i++) {//手指不动，不能再滑
+            record(recorder, downTime, downTime + GestureReplayer.FRAME_MILLIS * i, MotionEvent.ACTION_MOVE, 1400);
+        }
+        recorder.stop();
+        GestureReplayer.Result result = new GestureReplayer(scrollView).replay(new GestureRecording(recorder.toByteArray()));
+
+        assertEquals(result.toString(), 100, result.containerScrollY);
+        assertEquals(result.toString(), WEB_CONTENT_RANGE, result.sectionScrollY[0]);
+    }
+
+    @Test
+    public void scrollToListItem_paddedList_bothBranchesPlaceItemAtOffset() {
+        final int itemHeight = 100;
+        final int paddingTop = 40;
+        final int offset = 300;
+        DetailScrollView scrollView = createScrollView();
+        StubDetailListView listView = (StubDetailListView) scrollView.getChildAt(2);
+        listView.setItemHeight(itemHeight);
+        listView.setPadding(0, paddingTop, 0, 0);
+
+        assertTrue(scrollView.scrollToListItem(50, offset));//列表自己滑到这个item
+        settle(scrollView);
+        assertEquals(offset, listView.getTop() - scrollView.getScrollY() + listView.getItemTop(50));
+
+        assertTrue(scrollView.scrollToListItem(1, offset));//item离列表顶部不到offset，列表停在顶部
+        settle(scrollView);
+        assertEquals(0, listView.getInnerScrollY());
+        assertEquals(offset, listView.getTop() - scrollView.getScrollY() + listView.getItemTop(1));
+    }
+
+    /**
+     * 走帧直到DetailScrollView的滑动动画结束
+     */
+    private static void settle(DetailScrollView scrollView) {
+        for (int i = 0; i < 200; i++) {
+            ShadowLooper.idleMainLooper(GestureReplayer.FRAME_MILLIS, TimeUnit.MILLISECONDS);
+            scrollView.computeScroll();
+        }
+    }
+
+    @Test
+    public void deferredList_inflatedWhenScrolledNear() {
+        final int[] created = new int[1];
+        DetailScrollView scrollView = createDeferredScrollView(created, 0);
+        ShadowLooper.runUiThreadTasksIncludingDelayedTasks();
+        assertEquals("list should not be created before it is near the viewport", 0, created[0]);
+
+        scrollView.scrollTo(0, STATIC_HEIGHT + 100);
+        ShadowLooper.runUiThreadTasksIncludingDelayedTasks();
+        GestureReplayer.relayoutIfRequested(scrollView);
+        assertEquals(1, created[0]);
+        assertTrue(scrollView.getChildAt(2) instanceof StubDetailListView);
+        assertEquals(HEIGHT + STATIC_HEIGHT, scrollView.getChildAt(2).getTop());
+        assertEquals(HEIGHT, scrollView.getChildAt(2).getHeight());
+    }
+
+    @Test
+    public void deferredList_forceScrollInflatesFirst() {
+        final int[] created = new int[1];
+        DetailScrollView scrollView = createDeferredScrollView(created, 0);
+        scrollView.forceScrollToListView();
+        assertEquals(1, created[0]);
+        assertEquals(1, scrollView.getLayoutStats().getDeferredInflates());
+        assertEquals(HEIGHT + STATIC_HEIGHT, scrollView.getChildAt(2).getTop());
+        assertEquals(HEIGHT, scrollView.getChildAt(2).getHeight());
+        assertTrue(!scrollView.inflateDeferredSections());
+    }
+
+    /**
+     * 和{@link #createScrollView()}一样，只是列表换成了延迟创建的占位
+     */
+    private DetailScrollView createDeferredScrollView(final int[] created, int prefetchDistance) {
+        Context context = RuntimeEnvironment.application;
+        DetailScrollView scrollView = new DetailScrollView(context);
+        scrollView.addView(new StubDetailWebView(context, WEB_CONTENT_RANGE), layoutParams(HEIGHT));
+        scrollView.addView(new View(context), layoutParams(STATIC_HEIGHT));
+        DeferredSectionView placeholder = new DeferredSectionView(context);
+        placeholder.setFactory(new DeferredSectionView.Factory() {
+            @Override
+            public View onCreateSection(DetailScrollView parent) {
+                created[0]++;
+                return new StubDetailListView(parent.getContext(), LIST_CONTENT_RANGE);
+            }
+        });
+        scrollView.addView(placeholder, layoutParams(HEIGHT));
+        scrollView.setDeferPrefetchDistance(prefetchDistance);
+        scrollView.measure(View.MeasureSpec.makeMeasureSpec(WIDTH, View.MeasureSpec.EXACTLY),
+                View.MeasureSpec.makeMeasureSpec(HEIGHT, View.MeasureSpec.EXACTLY));
+        scrollView.layout(0, 0, WIDTH, HEIGHT);
+        return scrollView;
+    }
+
+    /**
+     * WebView(占满一屏) + 静态区域 + 列表(占满一屏)
+     */
+    private DetailScrollView createScrollView() {
+        Context context = RuntimeEnvironment.application;
+        DetailScrollView scrollView = new DetailScrollView(context);
+        scrollView.addView(new StubDetailWebView(context, WEB_CONTENT_RANGE), layoutParams(HEIGHT));
+        scrollView.addView(new View(context), layoutParams(STATIC_HEIGHT));
+        scrollView.addView(new StubDetailListView(context, LIST_CONTENT_RANGE), layoutParams(HEIGHT));
+        scrollView.measure(View.MeasureSpec.makeMeasureSpec(WIDTH, View.MeasureSpec.EXACTLY),
+                View.MeasureSpec.makeMeasureSpec(HEIGHT, View.MeasureSpec.EXACTLY));
+        scrollView.layout(0, 0, WIDTH, HEIGHT);
+        return scrollView;
+    }
+
+    /**
+     * 和{@link #createScrollView()}一样，只是WebView走嵌套滑动
+     * NestedScrollingChildHelper通过getLocationInWindow算偏移，要attach到窗口上
+     */
+    private DetailScrollView createNestedScrollView() {
+        Activity activity = Robolectric.setupActivity(Activity.class);
+        DetailScrollView scrollView = new DetailScrollView(activity);
+        scrollView.setNestedScrollMode(true);
+        scrollView.addView(new StubNestedWebView(activity, WEB_CONTENT_RANGE), layoutParams(HEIGHT));
+        scrollView.addView(new View(activity), layoutParams(STATIC_HEIGHT));
+        scrollView.addView(new StubDetailListView(activity, LIST_CONTENT_RANGE), layoutParams(HEIGHT));
+        activity.setContentView(scrollView, new ViewGroup.LayoutParams(WIDTH, HEIGHT));
+        scrollView.measure(View.MeasureSpec.makeMeasureSpec(WIDTH, View.MeasureSpec.EXACTLY),
+                View.MeasureSpec.makeMeasureSpec(HEIGHT, View.MeasureSpec.EXACTLY));
+        scrollView.layout(0, 0, WIDTH, HEIGHT);
+        return scrollView;
+    }
+
+    private static ViewGroup.MarginLayoutParams layoutParams(int height) {
+        return new ViewGroup.MarginLayoutParams(ViewGroup.LayoutParams.MATCH_PARENT, height);
+    }
+
+    /**
+     * 录制一次单指滑动：DOWN、moves个MOVE(每个间隔16ms，移动step)、UP
+     */
+    private static byte[] recordSwipe(float startY, float step, int moves) {
+        GestureRecorder recorder = new GestureRecorder();
+        recorder.start();
+        long downTime = 1000;
+        float y = startY;
+        record(recorder, downTime, downTime, MotionEvent.ACTION_DOWN, y);
+        long time = downTime;
+        for (int i = 0; i < moves; i++) {
+            time += GestureReplayer.FRAME_MILLIS;
+            y += step;
+            record(recorder, downTime, time, MotionEvent.ACTION_MOVE, y);
+        }
+        record(recorder, downTime, time + 8, MotionEvent.ACTION_UP, y);
+        recorder.stop();
+        return recorder.toByteArray();
+    }
+
+    private static void record(GestureRecorder recorder, long downTime, long eventTime, int action, float y) {
+        MotionEvent event = MotionEvent.obtain(downTime, eventTime, action, WIDTH / 2, y, 0);
+        recorder.record(event);
+        event.recycle();
+    }
+}
@@ -0,0 +1,192 @@
+package com.levylin.detailscrollview.replay;
+
+import android.os.SystemClock;
+import android.view.MotionEvent;
+import android.view.View;
+import android.view.ViewGroup;
+
+import com.levylin.detailscrollview.views.DetailScrollView;
+import com.levylin.detailscrollview.views.trace.GestureRecording;
+import com.levylin.detailscrollview.views.trace.LayoutStats;
+
+import org.robolectric.shadows.ShadowLooper;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 在Robolectric里回放{@link GestureRecording}
+ * 时钟由回放控制：每个事件之前把时钟推进到录制时的时间，中间每16ms调用一次computeScroll模拟vsync，
+ * 有requestLayout的话同一帧里再走一次measure/layout，最后一个事件之后继续走帧直到所有区域都停下来
+ * 记录每个事件dispatchTouchEvent的耗时和分配的字节数，注意Robolectric的shadow本身也会分配对象，只适合前后对比
+ */
+class GestureReplayer {
+
+    static final long FRAME_MILLIS = 16;
+    private static final int MAX_SETTLE_FRAMES = 600;
+    private static final int SETTLED_FRAMES = 3;
+
+    static class Result {
+        int containerScrollY;
+        int[] sectionScrollY;
+        long[] eventNanos;
+        long[] eventAllocatedBytes;//不支持统计分配时为-1
+        int frames;
+        final LayoutStats layoutStats = new LayoutStats();//回放过程中的测量和布局
+
+        long totalNanos() {
+            long total = 0;
+            for (long nanos : eventNanos) {
+                total += nanos;
+            }
+            return total;
+        }
+
+        long maxNanos() {
+            long max = 0;
+            for (long nanos : eventNanos) {
+                max = Math.max(max, nanos);
+            }
+            return max;
+        }
+
+        long totalAllocatedBytes() {
+            long total = 0;
+            for (long bytes : eventAllocatedBytes) {
+                if (bytes < 0)
+                    return -1;
+                total += bytes;
+            }
+            return total;
+        }
+
+        @Override
+        public String toString() {
+            StringBuilder sb = new StringBuilder();
+            sb.append("events=").append(eventNanos.length)
+                    .append(",frames=").append(frames)
+                    .append(",containerScrollY=").append(containerScrollY)
+                    .append(",sectionScrollY=[");
+            for (int i = 0; i < sectionScrollY.length; i++) {
+                if (i > 0) sb.append(',');
+                sb.append(sectionScrollY[i]);
+            }
+            sb.append("],meanNanos=").append(eventNanos.length == 0 ? 0 : totalNanos() / eventNanos.length)
+                    .append(",maxNanos=").append(maxNanos())
+                    .append(",allocatedBytes=").append(totalAllocatedBytes())
+                    .append(",").append(layoutStats);
+            return sb.toString();
+        }
+    }
+
+    private final DetailScrollView mScrollView;
+
+    GestureReplayer(DetailScrollView scrollView) {
+        mScrollView = scrollView;
+    }
+
+    Result replay(GestureRecording recording) {
+        final int count = recording.size();
+        Result result = new Result();
+        result.eventNanos = new long[count];
+        result.eventAllocatedBytes = new long[count];
+        if (count == 0) {
+            result.sectionScrollY = snapshotSections();
+            return result;
+        }
+        final LayoutStats before = new LayoutStats();
+        before.copyFrom(mScrollView.getLayoutStats());
+        final ThreadMXBean threadBean = ManagementFactory.getThreadMXBean();
+        final long threadId = Thread.currentThread().getId();
+        final long timeOffset = SystemClock.uptimeMillis() - recording.getEventTime(0);
+        long lastFrameTime = SystemClock.uptimeMillis();
+        for (int i = 0; i < count; i++) {
+            long eventTime = recording.getEventTime(i) + timeOffset;
+            while (lastFrameTime + FRAME_MILLIS <= eventTime) {//事件之间正常走帧
+                lastFrameTime += FRAME_MILLIS;
+                advanceTo(lastFrameTime);
+                doFrame();
+                result.frames++;
+            }
+            advanceTo(eventTime);
+            MotionEvent event = recording.obtainEvent(i, timeOffset);
+            long allocatedBefore = allocatedBytes(threadBean, threadId);
+            long start = System.nanoTime();
+            mScrollView.dispatchTouchEvent(event);
+            result.eventNanos[i] = System.nanoTime() - start;
+            long allocatedAfter = allocatedBytes(threadBean, threadId);
+            result.eventAllocatedBytes[i] = allocatedBefore < 0 ? -1 : allocatedAfter - allocatedBefore;
+            event.recycle();
+        }
+        int[] last = snapshotSections();
+        int lastScrollY = mScrollView.getScrollY();
+        int stable = 0;
+        for (int frame = 0; frame < MAX_SETTLE_FRAMES && stable < SETTLED_FRAMES; frame++) {
+            lastFrameTime += FRAME_MILLIS;
+            advanceTo(lastFrameTime);
+            doFrame();
+            result.frames++;
+            int[] now = snapshotSections();
+            if (mScrollView.getScrollY() == lastScrollY && Arrays.equals(now, last)) {
+                stable++;
+            } else {
+                stable = 0;
+            }
+            last = now;
+            lastScrollY = mScrollView.getScrollY();
+        }
+        result.containerScrollY = mScrollView.getScrollY();
+        result.sectionScrollY = last;
+        result.layoutStats.copyFrom(mScrollView.getLayoutStats());
+        result.layoutStats.subtract(before);
+        return result;
+    }
+
+    /**
+     * 一帧：先动画再布局，和Choreographer的顺序一致
+     */
+    private void doFrame() {
+        mScrollView.computeScroll();
+        relayoutIfRequested(mScrollView);
+    }
+
+    /**
+     * 没有attach到窗口，没有人走traversal，这里按原来的尺寸补一次
+     */
+    static void relayoutIfRequested(DetailScrollView scrollView) {
+        if (!scrollView.isLayoutRequested())
+            return;
+        scrollView.measure(View.MeasureSpec.makeMeasureSpec(scrollView.getWidth(), View.MeasureSpec.EXACTLY),
+                View.MeasureSpec.makeMeasureSpec(scrollView.getHeight(), View.MeasureSpec.EXACTLY));
+        scrollView.layout(scrollView.getLeft(), scrollView.getTop(), scrollView.getRight(), scrollView.getBottom());
+    }
+
+    /**
+     * @return 每个子View的内部scrollY，静态区域为0
+     */
+    private int[] snapshotSections() {
+        ViewGroup group = mScrollView;
+        int[] positions = new int[group.getChildCount()];
+        for (int i = 0; i < positions.length; i++) {
+            View child = group.getChildAt(i);
+            positions[i] = child instanceof StubSectionView ? ((StubSectionView) child).getInnerScrollY() : 0;
+        }
+        return positions;
+    }
+
+    private static void advanceTo(long uptimeMillis) {
+        long delta = uptimeMillis - SystemClock.uptimeMillis();
+        if (delta > 0) {
+            ShadowLooper.idleMainLooper(delta, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private static long allocatedBytes(ThreadMXBean threadBean, long threadId) {
+        if (threadBean instanceof com.sun.management.ThreadMXBean) {
+            return ((com.sun.management.ThreadMXBean) threadBean).getThreadAllocatedBytes(threadId);
+        }
+        return -1;
+    }
+}
@@ -0,0 +1,78 @@
+package com.levylin.detailscrollview.replay;
+
+import android.content.Context;
+
+import com.levylin.detailscrollview.core.ItemHeightIndex;
+import com.levylin.detailscrollview.views.IDetailListView;
+
+/**
+ * 回放用的列表
+ */
+class StubDetailListView extends StubSectionView implements IDetailListView {
+
+    private int mItemHeight;//大于0时是一行一个固定高度item的列表
+
+    StubDetailListView(Context context, int contentRange) {
+        super(context, contentRange);
+    }
+
+    @Override
+    public boolean startFling(int vy) {
+        return false;
+    }
+
+    @Override
+    public void scrollToFirst() {
+        customScrollTo(0);
+    }
+
+    @Override
+    public void onApproach(int distance, int flingDistance) {
+    }
+
+    /**
+     * 设置之后列表按itemHeight一个一个排下去，可以按item滑动
+     */
+    void setItemHeight(int itemHeight) {
+        mItemHeight = itemHeight;
+    }
+
+    /**
+     * @return 第position个item的顶部相对列表顶部的位置
+     */
+    int getItemTop(int position) {
+        return getPaddingTop() + position * mItemHeight - getInnerScrollY();
+    }
+
+    /**
+     * 没有设置item高度时没有item，滚动条用contentRange
+     */
+    @Override
+    public boolean updateItemHeights(ItemHeightIndex index) {
+        if (mItemHeight <= 0)
+            return false;
+        int count = (computeVerticalScrollRange() - getPaddingTop()) / mItemHeight;
+        index.setItemCount(count);
+        for (int i = 0; i < count; i++) {
+            index.setHeight(i, mItemHeight);
+        }
+        return true;
+    }
+
+    @Override
+    public int getFirstVisiblePosition() {
+        return -1;
+    }
+
+    @Override
+    public int getFirstVisibleItemTop() {
+        return 0;
+    }
+
+    @Override
+    public void scrollToItem(int position, int offset) {
+        if (mItemHeight > 0) {
+            customScrollTo(position * mItemHeight - offset);
+        }
+    }
+}
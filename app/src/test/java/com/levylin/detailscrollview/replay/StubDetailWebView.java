@@ -0,0 +1,49 @@
+package com.levylin.detailscrollview.replay;
+
+import android.content.Context;
+
+import com.levylin.detailscrollview.views.IDetailWebView;
+import com.levylin.detailscrollview.views.listener.OnContentHeightChangedListener;
+import com.levylin.detailscrollview.web.bundle.BundleResolver;
+import com.levylin.detailscrollview.web.cache.ResponseCache;
+
+/**
+ * 回放用的WebView
+ */
+class StubDetailWebView extends StubSectionView implements IDetailWebView {
+
+    StubDetailWebView(Context context, int contentRange) {
+        super(context, contentRange);
+    }
+
+    @Override
+    public int customGetContentHeight() {
+        return computeVerticalScrollRange();
+    }
+
+    @Override
+    public int customGetWebScrollY() {
+        return getInnerScrollY();
+    }
+
+    @Override
+    public int customComputeVerticalScrollRange() {
+        return computeVerticalScrollRange();
+    }
+
+    @Override
+    public void startFling(int vy) {
+    }
+
+    @Override
+    public void setOnContentHeightChangedListener(OnContentHeightChangedListener listener) {
+    }
+
+    @Override
+    public void setResponseCache(ResponseCache cache) {
+    }
+
+    @Override
+    public void setBundleResolver(BundleResolver resolver) {
+    }
+}
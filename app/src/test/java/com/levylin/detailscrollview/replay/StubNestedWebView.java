@@ -0,0 +1,91 @@
+package com.levylin.detailscrollview.replay;
+
+import android.content.Context;
+import android.support.v4.view.NestedScrollingChild;
+import android.view.MotionEvent;
+
+import com.levylin.detailscrollview.views.helper.NestedWebViewHelper;
+
+/**
+ * 嵌套滑动模式下回放用的WebView，事件经过{@link NestedWebViewHelper}，
+ * 自己处理事件时和WebView一样按和上一个事件的坐标差滑动
+ */
+class StubNestedWebView extends StubDetailWebView implements NestedScrollingChild {
+
+    private final NestedWebViewHelper mNestedHelper;
+    private float mLastY;
+    private final NestedWebViewHelper.SuperTouch mSuperTouch = new NestedWebViewHelper.SuperTouch() {
+        @Override
+        public boolean onSuperTouchEvent(MotionEvent ev) {
+            if (ev.getAction() == MotionEvent.ACTION_MOVE) {
+                customScrollBy((int) (mLastY - ev.getY()));
+            }
+            mLastY = ev.getY();
+            return true;
+        }
+    };
+
+    StubNestedWebView(Context context, int contentRange) {
+        super(context, contentRange);
+        mNestedHelper = new NestedWebViewHelper(this);
+    }
+
+    @Override
+    public boolean onTouchEvent(MotionEvent ev) {
+        return mNestedHelper.onTouchEvent(ev, mSuperTouch);
+    }
+
+    /**
+     * NestedWebViewHelper按View的scrollY计算WebView自己滑了多少
+     */
+    @Override
+    public void customScrollTo(int toY) {
+        super.customScrollTo(toY);
+        scrollTo(0, getInnerScrollY());
+    }
+
+    @Override
+    public void setNestedScrollingEnabled(boolean enabled) {
+        mNestedHelper.getChildHelper().setNestedScrollingEnabled(enabled);
+    }
+
+    @Override
+    public boolean isNestedScrollingEnabled() {
+        return mNestedHelper.getChildHelper().isNestedScrollingEnabled();
+    }
+
+    @Override
+    public boolean startNestedScroll(int axes) {
+        return mNestedHelper.getChildHelper().startNestedScroll(axes);
+    }
+
+    @Override
+    public void stopNestedScroll() {
+        mNestedHelper.getChildHelper().stopNestedScroll();
+    }
+
+    @Override
+    public boolean hasNestedScrollingParent() {
+        return mNestedHelper.getChildHelper().hasNestedScrollingParent();
+    }
+
+    @Override
+    public boolean dispatchNestedScroll(int dxConsumed, int dyConsumed, int dxUnconsumed, int dyUnconsumed, int[] offsetInWindow) {
+        return mNestedHelper.getChildHelper().dispatchNestedScroll(dxConsumed, dyConsumed, dxUnconsumed, dyUnconsumed, offsetInWindow);
+    }
+
+    @Override
+    public boolean dispatchNestedPreScroll(int dx, int dy, int[] consumed, int[] offsetInWindow) {
+        return mNestedHelper.getChildHelper().dispatchNestedPreScroll(dx, dy, consumed, offsetInWindow);
+    }
+
+    @Override
+    public boolean dispatchNestedFling(float velocityX, float velocityY, boolean consumed) {
+        return mNestedHelper.getChildHelper().dispatchNestedFling(velocityX, velocityY, consumed);
+    }
+
+    @Override
+    public boolean dispatchNestedPreFling(float velocityX, float velocityY) {
+        return mNestedHelper.getChildHelper().dispatchNestedPreFling(velocityX, velocityY);
+    }
+}
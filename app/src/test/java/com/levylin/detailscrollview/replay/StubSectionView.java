@@ -0,0 +1,67 @@
+package com.levylin.detailscrollview.replay;
+
+import android.content.Context;
+import android.view.View;
+
+import com.levylin.detailscrollview.views.DetailScrollView;
+import com.levylin.detailscrollview.views.listener.OnScrollBarShowListener;
+
+/**
+ * 回放用的嵌套区域，只有一个内部scrollY和可以滑动的范围，滑动是同步的
+ */
+abstract class StubSectionView extends View {
+
+    private final int mContentRange;
+    private int mInnerScrollY;
+    private OnScrollBarShowListener mScrollBarShowListener;
+
+    StubSectionView(Context context, int contentRange) {
+        super(context);
+        mContentRange = contentRange;
+    }
+
+    public void setScrollView(DetailScrollView scrollView) {
+    }
+
+    @Override
+    public boolean canScrollVertically(int direction) {
+        return direction > 0 ? mInnerScrollY < mContentRange : mInnerScrollY > 0;
+    }
+
+    public void customScrollBy(int dy) {
+        customScrollTo(mInnerScrollY + dy);
+    }
+
+    public void customScrollTo(int toY) {
+        int newY = Math.max(0, Math.min(mContentRange, toY));
+        if (newY == mInnerScrollY)
+            return;
+        mInnerScrollY = newY;
+        if (mScrollBarShowListener != null) {
+            mScrollBarShowListener.onShow();
+        }
+    }
+
+    public void setOnScrollBarShowListener(OnScrollBarShowListener listener) {
+        mScrollBarShowListener = listener;
+    }
+
+    int getInnerScrollY() {
+        return mInnerScrollY;
+    }
+
+    @Override
+    protected int computeVerticalScrollRange() {
+        return mContentRange + getHeight();
+    }
+
+    @Override
+    protected int computeVerticalScrollOffset() {
+        return mInnerScrollY;
+    }
+
+    @Override
+    protected int computeVerticalScrollExtent() {
+        return getHeight();
+    }
+}
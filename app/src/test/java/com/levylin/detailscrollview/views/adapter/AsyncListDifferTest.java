@@ -0,0 +1,113 @@
+package com.levylin.detailscrollview.views.adapter;
+
+import android.support.v7.widget.RecyclerView;
+import android.view.ViewGroup;
+
+import com.levylin.detailscrollview.BuildConfig;
+import com.levylin.detailscrollview.comment.ListDiff;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+import org.robolectric.shadows.ShadowLooper;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * 后台比较还没结束时继续追加，之前提交的数据不能丢
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(constants = BuildConfig.class, sdk = 23)
+public class AsyncListDifferTest {
+
+    private static final ListDiff.Callback<String> CALLBACK = new ListDiff.Callback<String>() {
+        @Override
+        public boolean areItemsTheSame(String oldItem, String newItem) {
+            return oldItem.equals(newItem);
+        }
+
+        @Override
+        public boolean areContentsTheSame(String oldItem, String newItem) {
+            return true;
+        }
+    };
+
+    @Test
+    public void append_whileDiffing_keepsInFlightItems() throws Exception {
+        AsyncListDiffer<String> differ = new AsyncListDiffer<>(new EmptyAdapter(), CALLBACK);
+        differ.setList(Arrays.asList("a", "b"));
+
+        final CountDownLatch blocked = new CountDownLatch(1);
+        AsyncListDiffer.getDiffExecutor().execute(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    blocked.await();
+                } catch (InterruptedException e) {
+                    e.printStackTrace();
+                }
+            }
+        });
+
+        differ.append(Arrays.asList("c"));
+        ShadowLooper.runUiThreadTasksIncludingDelayedTasks();//开始比较，被阻塞在后台
+        differ.append(Arrays.asList("d"));
+        assertEquals(Arrays.asList("a", "b"), differ.getCurrentList());
+
+        blocked.countDown();
+        for (int i = 0; i < 3; i++) {
+            drainDiffExecutor();
+        }
+        assertEquals(Arrays.asList("a", "b", "c", "d"), differ.getCurrentList());
+        assertEquals(2, differ.getBatchCount());
+    }
+
+    @Test
+    public void submitList_copiesCallerList() throws Exception {
+        AsyncListDiffer<String> differ = new AsyncListDiffer<>(new EmptyAdapter(), CALLBACK);
+        differ.setList(Arrays.asList("a"));
+        List<String> list = new ArrayList<>(Arrays.asList("a", "b"));
+        differ.submitList(list);
+        list.add("c");
+        drainDiffExecutor();
+        drainDiffExecutor();
+        assertEquals(Arrays.asList("a", "b"), differ.getCurrentList());
+    }
+
+    /**
+     * 等后台线程把之前的比较做完，再执行主线程上的结果和下一批
+     */
+    private static void drainDiffExecutor() throws Exception {
+        ShadowLooper.runUiThreadTasksIncludingDelayedTasks();
+        AsyncListDiffer.getDiffExecutor().submit(new Runnable() {
+            @Override
+            public void run() {
+            }
+        }).get(5, TimeUnit.SECONDS);
+        ShadowLooper.runUiThreadTasksIncludingDelayedTasks();
+    }
+
+    private static final class EmptyAdapter extends RecyclerView.Adapter<RecyclerView.ViewHolder> {
+
+        @Override
+        public RecyclerView.ViewHolder onCreateViewHolder(ViewGroup parent, int viewType) {
+            return null;
+        }
+
+        @Override
+        public void onBindViewHolder(RecyclerView.ViewHolder holder, int position) {
+        }
+
+        @Override
+        public int getItemCount() {
+            return 0;
+        }
+    }
+}
@@ -0,0 +1,115 @@
+package com.levylin.detailscrollview.views.adapter;
+
+import android.text.Layout;
+import android.text.TextPaint;
+
+import com.levylin.detailscrollview.BuildConfig;
+import com.levylin.detailscrollview.comment.CommentStore;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.util.Arrays;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+/**
+ * 按内容查找、淘汰顺序、宽度变化后旧的预排版作废
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(constants = BuildConfig.class, sdk = 23)
+public class TextLayoutCacheTest {
+
+    private static final int WIDTH = 300;
+
+    @Test
+    public void get_sameTextInDifferentArray_hits() {
+        TextLayoutCache cache = new TextLayoutCache(new TextPaint(), 10);
+        char[] first = "hello-world".toCharArray();
+        Layout layout = cache.obtain(first, 5, WIDTH);
+        first[0] = 'j';//缓存里的key是复制出来的，调用方的数组改了不影响
+
+        char[] second = Arrays.copyOf("hello".toCharArray(), 32);
+        second[5] = 'x';//length之后的内容不参与比较
+        assertSame(layout, cache.get(second, 5, WIDTH));
+        assertNull(cache.get(second, 5, WIDTH + 1));
+        assertNull(cache.get(second, 4, WIDTH));
+        assertNull(cache.get(first, 5, WIDTH));
+    }
+
+    @Test
+    public void obtain_overMaxEntries_evictsLeastRecentlyUsed() {
+        TextLayoutCache cache = new TextLayoutCache(new TextPaint(), 2);
+        char[] a = "a".toCharArray();
+        char[] b = "b".toCharArray();
+        char[] c = "c".toCharArray();
+        cache.obtain(a, 1, WIDTH);
+        cache.obtain(b, 1, WIDTH);
+        assertNotNull(cache.get(a, 1, WIDTH));//a变成最近用过的
+
+        cache.obtain(c, 1, WIDTH);
+        assertNull(cache.get(b, 1, WIDTH));
+        assertNotNull(cache.get(a, 1, WIDTH));
+        assertNotNull(cache.get(c, 1, WIDTH));
+    }
+
+    @Test
+    public void setTextWidth_dropsQueuedPrefetch() throws Exception {
+        CommentStore store = new CommentStore();
+        for (int i = 0; i < 10; i++) {
+            store.add(i, "user" + i, "comment " + i, 0, 0, 0);
+        }
+        TextLayoutCache cache = new TextLayoutCache(new TextPaint(), 100);
+        cache.setPrefetchRows(5);
+        cache.setTextWidth(WIDTH);
+
+        final CountDownLatch blocked = new CountDownLatch(1);
+        TextLayoutCache.getLayoutExecutor().execute(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    blocked.await();
+                } catch (InterruptedException e) {
+                    e.printStackTrace();
+                }
+            }
+        });
+        cache.onItemBound(store, 0);//第1到5行排在阻塞的任务后面
+        cache.setTextWidth(WIDTH * 2);
+        blocked.countDown();
+        drainLayoutExecutor();
+
+        assertEquals(0, cache.getStats().getPrecomputed());
+        CommentTextBinder binder = new CommentTextBinder();
+        for (int i = 1; i <= 5; i++) {
+            int length = binder.decode(store, i);
+            assertNull(cache.get(binder.getBuffer(), length, WIDTH));
+        }
+
+        cache.onItemBound(store, 0);//新宽度下重新提交
+        drainLayoutExecutor();
+        assertEquals(5, cache.getStats().getPrecomputed());
+        for (int i = 1; i <= 5; i++) {
+            int length = binder.decode(store, i);
+            assertNotNull(cache.get(binder.getBuffer(), length, WIDTH * 2));
+        }
+    }
+
+    /**
+     * 等排版线程把已经提交的任务做完
+     */
+    private static void drainLayoutExecutor() throws Exception {
+        TextLayoutCache.getLayoutExecutor().submit(new Runnable() {
+            @Override
+            public void run() {
+            }
+        }).get(5, TimeUnit.SECONDS);
+    }
+}
@@ -0,0 +1,86 @@
+package com.levylin.detailscrollview.views.helper;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * 用合成的采样检查速度估算，时间单位纳秒
+ */
+public class VelocityEstimatorTest {
+
+    private static final long MS = 1000000L;
+
+    @Test
+    public void constantVelocity_matchesSlope() {
+        VelocityEstimator estimator = new VelocityEstimator();
+        long time = 0;
+        for (int i = 0; i < 10; i++) {
+            time += 8 * MS;
+            estimator.addSample(16, time);//16px/8ms
+        }
+        assertEquals(2000, estimator.computeVelocity(time), 0.5);
+        assertEquals(2000, estimator.computeVelocity(time + 10 * MS), 0.5);//还没到停下来的时间，速度不变
+    }
+
+    @Test
+    public void constantVelocity_negativeDirection() {
+        VelocityEstimator estimator = new VelocityEstimator();
+        long time = 0;
+        for (int i = 0; i < 6; i++) {
+            time += 16 * MS;
+            estimator.addSample(-24, time);
+        }
+        assertEquals(-1500, estimator.computeVelocity(time), 0.5);
+    }
+
+    @Test
+    public void decelerating_weightsNewerSamples() {
+        VelocityEstimator estimator = new VelocityEstimator();
+        long time = 0;
+        for (int delta = 40; delta > 0; delta -= 5) {//每10ms少滑5px
+            estimator.addSample(delta, time);
+            time += 10 * MS;
+        }
+        time -= 10 * MS;
+        float velocity = estimator.computeVelocity(time);
+        //8个采样从40滑到180用了70ms，平均2000px/s；按1..8加权拟合出来的斜率是1700px/s
+        assertEquals(1700, velocity, 0.5);
+        assertTrue(velocity < 2000);
+    }
+
+    @Test
+    public void oldSamples_outsideHorizonIgnored() {
+        VelocityEstimator estimator = new VelocityEstimator(30);
+        for (int i = 0; i <= 20; i++) {
+            estimator.addSample(i <= 10 ? 50 : 10, i * 10 * MS);//前100ms 5000px/s，后100ms 1000px/s
+        }
+        assertEquals(1000, estimator.computeVelocity(200 * MS), 0.5);
+    }
+
+    @Test
+    public void pauseOrStop_returnsZero() {
+        VelocityEstimator estimator = new VelocityEstimator();
+        estimator.addSample(20, 0);
+        estimator.addSample(20, 10 * MS);
+        assertEquals(0, estimator.computeVelocity(60 * MS), 0);//松手前停了50ms
+
+        estimator.addSample(20, 100 * MS);//中间停过，之前的采样不要了
+        assertEquals(1, estimator.size());
+        assertEquals(0, estimator.computeVelocity(100 * MS), 0);
+
+        estimator.addSample(20, 110 * MS);
+        assertEquals(2000, estimator.computeVelocity(110 * MS), 0.5);
+    }
+
+    @Test
+    public void clear_dropsSamples() {
+        VelocityEstimator estimator = new VelocityEstimator();
+        estimator.addSample(20, 0);
+        estimator.addSample(20, 10 * MS);
+        estimator.clear();
+        assertEquals(0, estimator.size());
+        assertEquals(0, estimator.computeVelocity(10 * MS), 0);
+    }
+}
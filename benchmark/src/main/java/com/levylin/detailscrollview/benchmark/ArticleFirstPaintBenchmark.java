@@ -0,0 +1,199 @@
+package com.levylin.detailscrollview.benchmark;
+
+import com.levylin.detailscrollview.fixture.ArticleSpec;
+import com.levylin.detailscrollview.fixture.FixtureServer;
+import com.levylin.detailscrollview.fixture.SyntheticArticle;
+import com.levylin.detailscrollview.web.bundle.ArticleBundle;
+import com.levylin.detailscrollview.web.bundle.ArticleBundleWriter;
+import com.levylin.detailscrollview.web.bundle.BundleResource;
+import com.levylin.detailscrollview.web.cache.CachePolicy;
+import com.levylin.detailscrollview.web.cache.CachedResponse;
+import com.levylin.detailscrollview.web.cache.ResponseCache;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 首屏资源全部到达WebView需要的时间，对比文章包、本地缓存和网络三种来源
+ * 网络用本地的{@link FixtureServer}代替，rttMillis模拟每个请求的往返延迟；和WebView一样先下载html，再用{@link #CONNECTIONS}个连接并行下载其他资源
+ * 这里不包括WebView自己的解析和绘制，这部分三种来源是一样的
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ArticleFirstPaintBenchmark {
+
+    private static final int CONNECTIONS = 6;//Chromium每个域名的最大连接数
+    private static final long SEED = 20170325L;
+
+    @Param({"0", "30"})
+    public int rttMillis;
+
+    @Param({"40"})
+    public int paragraphs;
+
+    private SyntheticArticle article;
+    private FixtureServer server;
+    private String baseUrl;
+    private File dir;
+    private File bundleFile;
+    private ResponseCache cache;
+    private ExecutorService executor;
+    private final byte[] buffer = new byte[8192];
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        article = new SyntheticArticle(ArticleSpec.longArticle().setParagraphs(paragraphs).setSeed(SEED));
+        server = new FixtureServer();
+        server.setLatencyMillis(rttMillis);
+        server.setMaxAgeSeconds(3600);
+        server.start();
+        baseUrl = server.addArticle("first-paint", article);
+
+        dir = new File(System.getProperty("java.io.tmpdir"), "first-paint-" + System.nanoTime());
+        dir.mkdirs();
+        bundleFile = new File(dir, "article.bundle");
+        writeBundle(bundleFile);
+        cache = new ResponseCache(new File(dir, "cache"), 16 * 1024 * 1024, 256, CachePolicy.createDefault());
+        executor = Executors.newFixedThreadPool(CONNECTIONS);
+        fromCache();//预热缓存
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        executor.shutdownNow();
+        server.stop();
+        cache.close();
+        delete(dir);
+    }
+
+    /**
+     * 每次都走网络
+     */
+    @Benchmark
+    public long fromNetwork() throws Exception {
+        return load(new Loader() {
+            @Override
+            public long load(String path) throws IOException {
+                HttpURLConnection connection = (HttpURLConnection) new URL(baseUrl + path).openConnection();
+                connection.setUseCaches(false);
+                return drain(connection.getInputStream(), new byte[8192]);
+            }
+        });
+    }
+
+    /**
+     * 缓存都还新鲜，和之前打开过的文章一样
+     */
+    @Benchmark
+    public long fromCache() throws Exception {
+        return load(new Loader() {
+            @Override
+            public long load(String path) throws IOException {
+                CachedResponse response = cache.get(baseUrl + path, null);
+                if (response == null)
+                    throw new IOException("cache miss " + path);
+                return drain(response.getBody(), new byte[8192]);
+            }
+        });
+    }
+
+    /**
+     * 包括打开文章包，都在同一个线程里读，不需要并行
+     */
+    @Benchmark
+    public long fromBundle() throws IOException {
+        ArticleBundle bundle = ArticleBundle.open(bundleFile);
+        long bytes = 0;
+        for (String path : article.firstPaintPaths()) {
+            BundleResource resource = bundle.get(path);
+            bytes += drain(resource.getBody(), buffer);
+        }
+        return bytes;
+    }
+
+    private void writeBundle(File file) throws IOException {
+        ArticleBundleWriter writer = new ArticleBundleWriter(baseUrl);
+        for (Map.Entry<String, byte[]> entry : article.files().entrySet()) {
+            String mimeType = ArticleBundleWriter.guessMimeType(entry.getKey());
+            writer.add(entry.getKey(), mimeType, mimeType.startsWith("image/") ? null : "utf-8", entry.getValue());
+        }
+        writer.write(file);
+    }
+
+    private interface Loader {
+        long load(String path) throws IOException;
+    }
+
+    private long load(final Loader loader) throws Exception {
+        List<String> paths = article.firstPaintPaths();
+        long bytes = loader.load(paths.get(0));
+        List<Future<Long>> futures = new ArrayList<>();
+        for (int i = 1; i < paths.size(); i++) {
+            final String path = paths.get(i);
+            futures.add(executor.submit(new Callable<Long>() {
+                @Override
+                public Long call() throws IOException {
+                    return loader.load(path);
+                }
+            }));
+        }
+        try {
+            for (Future<Long> future : futures) {
+                bytes += future.get();
+            }
+        } catch (ExecutionException e) {
+            throw (Exception) e.getCause();
+        }
+        return bytes;
+    }
+
+    private static long drain(InputStream in, byte[] buffer) throws IOException {
+        long total = 0;
+        int read;
+        while ((read = in.read(buffer)) != -1) {
+            total += read;
+        }
+        in.close();
+        return total;
+    }
+
+    private static void delete(File file) {
+        File[] children = file.listFiles();
+        if (children != null) {
+            for (File child : children) {
+                delete(child);
+            }
+        }
+        file.delete();
+    }
+}
@@ -0,0 +1,112 @@
+package com.levylin.detailscrollview.benchmark;
+
+import com.levylin.detailscrollview.comment.CommentStore;
+import com.levylin.detailscrollview.fixture.SyntheticComment;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 评论列表bind一行要准备的文字：每条评论一个对象、拼成String，对比{@link CommentStore}解码到复用的char数组
+ * 每个方法bind {@link #BINDS}个随机位置，结果是每次bind的纳秒数，配合-prof gc看每次bind分配的字节数
+ * 不包括TextView自己的测量，两种方式是一样的；每条评论占多少堆内存见{@link CommentHeapFootprint}
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CommentBindBenchmark {
+
+    private static final int BINDS = 1024;
+    private static final int MAX_CHARS = 140;
+    private static final long SEED = 20170325L;
+
+    @Param({"10000", "100000"})
+    public int commentCount;
+
+    private List<SyntheticComment> objects;
+    private CommentStore store;
+    private int[] positions;
+    private char[] buffer = new char[64];
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        objects = new ArrayList<>(SyntheticComment.generate(commentCount, MAX_CHARS, SEED));
+        store = new CommentStore(commentCount);
+        for (SyntheticComment comment : objects) {
+            store.add(comment.id, comment.author, comment.content, comment.time, comment.likeCount, comment.replyCount);
+        }
+        store.trimToSize();
+        Random random = new Random(SEED);
+        positions = new int[BINDS];
+        for (int i = 0; i < BINDS; i++) {
+            positions[i] = random.nextInt(commentCount);
+        }
+    }
+
+    /**
+     * 原来的做法：adapter里是对象，bind时拼出要显示的String
+     */
+    @Benchmark
+    @OperationsPerInvocation(BINDS)
+    public int bindObjects() {
+        int chars = 0;
+        for (int i = 0; i < BINDS; i++) {
+            chars += objects.get(positions[i]).toString().length();
+        }
+        return chars;
+    }
+
+    /**
+     * CommentTextBinder的做法：作者直接复制，内容从arena解码，都写进复用的buffer
+     */
+    @Benchmark
+    @OperationsPerInvocation(BINDS)
+    public int bindStore() {
+        int chars = 0;
+        for (int i = 0; i < BINDS; i++) {
+            int position = positions[i];
+            String author = store.getAuthor(position);
+            int authorLength = author.length();
+            int capacity = authorLength + 1 + store.getContentLength(position);
+            if (buffer.length < capacity) {
+                buffer = new char[Math.max(capacity, buffer.length * 2)];
+            }
+            author.getChars(0, authorLength, buffer, 0);
+            buffer[authorLength] = '：';
+            chars += authorLength + 1 + store.getContent(position, buffer, authorLength + 1);
+        }
+        return chars;
+    }
+
+    /**
+     * 只要内容的String，比如复制、分享的时候
+     */
+    @Benchmark
+    @OperationsPerInvocation(BINDS)
+    public int decodeString() {
+        int chars = 0;
+        for (int i = 0; i < BINDS; i++) {
+            chars += store.getContent(positions[i]).length();
+        }
+        return chars;
+    }
+}
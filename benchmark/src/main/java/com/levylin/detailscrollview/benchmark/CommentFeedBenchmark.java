@@ -0,0 +1,71 @@
+package com.levylin.detailscrollview.benchmark;
+
+import com.levylin.detailscrollview.comment.CommentFeedReader;
+import com.levylin.detailscrollview.comment.CommentStore;
+import com.levylin.detailscrollview.fixture.SyntheticComment;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 解析评论接口的速度，响应已经在内存里，不包括网络
+ * parseAll是解析整个响应的微秒数，除以响应大小就是吞吐量；firstBatch是解析出第一批(一屏)评论的微秒数，
+ * 流式解析时第一屏只要等这么久，和评论总数无关
+ * 限速下载时第一条评论的时间见CommentFeedLoaderTest
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CommentFeedBenchmark {
+
+    private static final int MAX_CHARS = 140;
+    private static final long SEED = 20170325L;
+    private static final int BATCH_SIZE = 20;
+
+    @Param({"1000", "10000"})
+    public int commentCount;
+
+    private byte[] json;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        List<SyntheticComment> comments = SyntheticComment.generate(commentCount, MAX_CHARS, SEED);
+        json = SyntheticComment.toJson(comments, 0, commentCount).getBytes(Charset.forName("UTF-8"));
+    }
+
+    @Benchmark
+    public CommentStore parseAll() throws IOException {
+        CommentFeedReader reader = new CommentFeedReader(new ByteArrayInputStream(json));
+        CommentStore store = new CommentStore(commentCount);
+        while (reader.read(store, BATCH_SIZE) > 0) {
+        }
+        return store;
+    }
+
+    @Benchmark
+    public CommentStore firstBatch() throws IOException {
+        CommentFeedReader reader = new CommentFeedReader(new ByteArrayInputStream(json));
+        CommentStore store = new CommentStore(BATCH_SIZE);
+        reader.read(store, BATCH_SIZE);
+        return store;
+    }
+}
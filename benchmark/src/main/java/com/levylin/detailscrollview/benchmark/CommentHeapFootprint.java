@@ -0,0 +1,64 @@
+package com.levylin.detailscrollview.benchmark;
+
+import com.levylin.detailscrollview.comment.CommentStore;
+import com.levylin.detailscrollview.fixture.SyntheticComment;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 每条评论常驻堆内存的字节数：每条一个对象 vs {@link CommentStore}
+ * 对象的作者和内容都是新的String，和解析json得到的一样(new String(String)会共用数组，所以从char[]创建)
+ * JMH只能看分配，看不到常驻，这里用多次GC之后的已用内存相减，数量越大越准
+ * ./gradlew :benchmark:heapFootprint [-Pcount=100000]
+ */
+public final class CommentHeapFootprint {
+
+    private static final int MAX_CHARS = 140;
+    private static final long SEED = 20170325L;
+
+    private CommentHeapFootprint() {
+    }
+
+    public static void main(String[] args) {
+        int count = args.length > 0 ? Integer.parseInt(args[0]) : 100000;
+        List<SyntheticComment> source = SyntheticComment.generate(count, MAX_CHARS, SEED);
+
+        long base = usedMemory();
+        List<SyntheticComment> objects = new ArrayList<>(count);
+        for (SyntheticComment comment : source) {
+            objects.add(new SyntheticComment(comment.id, new String(comment.author.toCharArray()),
+                    new String(comment.content.toCharArray()), comment.time, comment.likeCount, comment.replyCount));
+        }
+        long objectBytes = usedMemory() - base;
+        int objectCount = objects.size();
+        objects = null;
+
+        base = usedMemory();
+        CommentStore store = new CommentStore(count);
+        for (SyntheticComment comment : source) {
+            store.add(comment.id, comment.author, comment.content, comment.time, comment.likeCount, comment.replyCount);
+        }
+        store.trimToSize();
+        long storeBytes = usedMemory() - base;
+
+        System.out.println("comments: " + objectCount + ", store: " + store.size());
+        System.out.println("objects: " + objectBytes / count + " bytes/comment");
+        System.out.println("store:   " + storeBytes / count + " bytes/comment (arrays " + store.getArrayBytes() / count + ")");
+    }
+
+    private static long usedMemory() {
+        Runtime runtime = Runtime.getRuntime();
+        long used = Long.MAX_VALUE;
+        for (int i = 0; i < 5; i++) {//GC之后还在变就多做几次，取最小值
+            System.gc();
+            try {
+                Thread.sleep(50);
+            } catch (InterruptedException e) {
+                e.printStackTrace();
+            }
+            used = Math.min(used, runtime.totalMemory() - runtime.freeMemory());
+        }
+        return used;
+    }
+}
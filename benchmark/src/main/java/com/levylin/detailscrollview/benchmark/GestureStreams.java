@@ -0,0 +1,62 @@
+package com.levylin.detailscrollview.benchmark;
+
+import java.util.Random;
+
+/**
+ * 合成的手势序列，固定随机种子，每次运行都一样
+ */
+public final class GestureStreams {
+
+    private GestureStreams() {
+    }
+
+    /**
+     * 手指拖动：每次拖动20~60个MOVE事件，每个事件5~80px，方向交替
+     */
+    public static int[] drags(int events, long seed) {
+        Random random = new Random(seed);
+        int[] deltas = new int[events];
+        int direction = 1;
+        int left = 0;
+        for (int i = 0; i < events; i++) {
+            if (left == 0) {
+                left = 20 + random.nextInt(41);
+                direction = -direction;
+            }
+            deltas[i] = direction * (5 + random.nextInt(76));
+            left--;
+        }
+        return deltas;
+    }
+
+    /**
+     * fling：每一帧的滑动距离，按指数衰减模拟减速，方向交替
+     */
+    public static int[] flingFrames(int frames, long seed) {
+        Random random = new Random(seed);
+        int[] deltas = new int[frames];
+        int direction = 1;
+        double velocity = 0;//px/帧
+        for (int i = 0; i < frames; i++) {
+            if (velocity < 1) {
+                velocity = 40 + random.nextInt(260);
+                direction = -direction;
+            }
+            deltas[i] = direction * (int) velocity;
+            velocity *= 0.95;
+        }
+        return deltas;
+    }
+
+    /**
+     * 触摸点在显示区域内的纵坐标
+     */
+    public static int[] touchYs(int events, long seed) {
+        Random random = new Random(seed);
+        int[] ys = new int[events];
+        for (int i = 0; i < events; i++) {
+            ys[i] = random.nextInt(SyntheticDocument.VIEWPORT_HEIGHT);
+        }
+        return ys;
+    }
+}
@@ -0,0 +1,135 @@
+package com.levylin.detailscrollview.benchmark;
+
+import com.levylin.detailscrollview.core.ScrollCoordinator;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * ScrollCoordinator热路径的基准测试，每个方法处理EVENTS个事件，结果是每个事件的纳秒数
+ * 配合-prof gc可以看到每个事件分配的字节数(gc.alloc.rate.norm)，正常应该是0
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ScrollCoordinatorBenchmark {
+
+    private static final int EVENTS = 1024;
+    private static final long SEED = 20170325L;
+
+    @Param({"3", "12", "48"})
+    public int sectionCount;
+
+    private SyntheticDocument document;
+    private ScrollCoordinator coordinator;
+    private int[] drags;
+    private int[] flingFrames;
+    private int[] touchYs;
+
+    @Setup(Level.Trial)
+    public void setUpTrial() {
+        drags = GestureStreams.drags(EVENTS, SEED);
+        flingFrames = GestureStreams.flingFrames(EVENTS, SEED);
+        touchYs = GestureStreams.touchYs(EVENTS, SEED);
+        document = new SyntheticDocument(sectionCount);
+        coordinator = document.coordinator;
+    }
+
+    @Setup(Level.Iteration)
+    public void setUpIteration() {
+        document.recenter();
+    }
+
+    /**
+     * 手指拖动的MOVE事件：DetailScrollView.onTouchEvent
+     */
+    @Benchmark
+    @OperationsPerInvocation(EVENTS)
+    public int touchMove() {
+        int owners = 0;
+        for (int i = 0; i < EVENTS; i++) {
+            owners += coordinator.dispatchTouchScroll(drags[i]);
+        }
+        return owners;
+    }
+
+    /**
+     * 子区域触摸帮助类的判断：adjustScrollY + shouldScrollContainer
+     */
+    @Benchmark
+    @OperationsPerInvocation(EVENTS)
+    public int helperMove() {
+        int scrolled = 0;
+        for (int i = 0; i < EVENTS; i++) {
+            int dy = coordinator.adjustScrollY(drags[i]);
+            if (coordinator.shouldScrollContainer(1, dy)) {
+                document.scrollContainerBy(dy);
+                scrolled += dy;
+            }
+        }
+        return scrolled;
+    }
+
+    /**
+     * 拦截判断：DetailScrollView.onInterceptTouchEvent
+     */
+    @Benchmark
+    @OperationsPerInvocation(EVENTS)
+    public int intercept() {
+        int intercepted = 0;
+        for (int i = 0; i < EVENTS; i++) {
+            int touched = coordinator.findSectionAt(touchYs[i]);
+            int direction = drags[i] > 0 ? ScrollCoordinator.DIRECT_BOTTOM : ScrollCoordinator.DIRECT_TOP;
+            if (touched >= 0 && coordinator.shouldIntercept(touched, direction, true)) {
+                intercepted++;
+            }
+        }
+        return intercepted;
+    }
+
+    /**
+     * fling的每一帧：FlingCoordinator.computeScrollOffset
+     */
+    @Benchmark
+    @OperationsPerInvocation(EVENTS)
+    public int flingFrame() {
+        int consumed = 0;
+        for (int i = 0; i < EVENTS; i++) {
+            consumed += coordinator.dispatchScrollDelta(flingFrames[i]);
+        }
+        return consumed;
+    }
+
+    /**
+     * 某个区域高度变化后重新计算布局：DetailScrollView.onLayout
+     */
+    @Benchmark
+    @OperationsPerInvocation(EVENTS)
+    public int relayout() {
+        int maxScrollY = 0;
+        for (int i = 0; i < EVENTS; i++) {
+            int index = i % sectionCount;
+            boolean nested = index % 3 != 0;
+            int height = (nested ? SyntheticDocument.VIEWPORT_HEIGHT : SyntheticDocument.STATIC_HEIGHT) + (i & 7);
+            coordinator.setSectionLayout(index, false, 0, height, 0);
+            maxScrollY += coordinator.updateLayout(0, 0, SyntheticDocument.VIEWPORT_HEIGHT);
+        }
+        return maxScrollY;
+    }
+}
@@ -0,0 +1,82 @@
+package com.levylin.detailscrollview.benchmark;
+
+import com.levylin.detailscrollview.core.ScrollCoordinator;
+
+/**
+ * 模拟的详情页：静态区域、WebView、列表按顺序循环排列，嵌套区域用一个int记录自己的scrollY
+ * 实现{@link ScrollCoordinator.Host}，不产生任何对象，测出来的分配都来自ScrollCoordinator本身
+ */
+public class SyntheticDocument implements ScrollCoordinator.Host {
+
+    public static final int VIEWPORT_HEIGHT = 1920;
+    public static final int STATIC_HEIGHT = 360;
+    public static final int WEB_CONTENT_RANGE = 30000;//WebView内部可以滑动的距离
+    public static final int LIST_CONTENT_RANGE = 80000;//列表内部可以滑动的距离
+
+    public final ScrollCoordinator coordinator;
+    private final int[] innerScrollY;
+    private final int[] innerRange;
+    private int scrollY;
+    private int ownerChanges;
+
+    /**
+     * @param sectionCount 区域个数，第0、3、6...个是静态区域，第1、4、7...个是WebView，其余是列表
+     */
+    public SyntheticDocument(int sectionCount) {
+        coordinator = new ScrollCoordinator(this);
+        innerScrollY = new int[sectionCount];
+        innerRange = new int[sectionCount];
+        coordinator.reset(sectionCount);
+        for (int i = 0; i < sectionCount; i++) {
+            int kind = i % 3;
+            boolean nested = kind != 0;
+            coordinator.setSectionNested(i, nested);
+            coordinator.setSectionLayout(i, false, 0, nested ? VIEWPORT_HEIGHT : STATIC_HEIGHT, 0);
+            innerRange[i] = kind == 1 ? WEB_CONTENT_RANGE : kind == 2 ? LIST_CONTENT_RANGE : 0;
+        }
+        coordinator.updateLayout(0, 0, VIEWPORT_HEIGHT);
+    }
+
+    /**
+     * 回到文档中间，避免长时间的同向手势把文档滑到头之后只测到边界情况
+     */
+    public void recenter() {
+        for (int i = 0; i < innerScrollY.length; i++) {
+            innerScrollY[i] = innerRange[i] / 2;
+        }
+        scrollY = coordinator.getMaxScrollY() / 2;
+    }
+
+    public int getOwnerChanges() {
+        return ownerChanges;
+    }
+
+    @Override
+    public int getContainerScrollY() {
+        return scrollY;
+    }
+
+    @Override
+    public void scrollContainerBy(int dy) {
+        scrollY += dy;
+    }
+
+    @Override
+    public boolean canSectionScroll(int index, int direction) {
+        if (innerRange[index] == 0)
+            return false;
+        return direction > 0 ? innerScrollY[index] < innerRange[index] : innerScrollY[index] > 0;
+    }
+
+    @Override
+    public int scrollSection(int index, int dy) {
+        int old = innerScrollY[index];
+        innerScrollY[index] = Math.max(0, Math.min(innerRange[index], old + dy));
+        return innerScrollY[index] - old;
+    }
+
+    @Override
+    public void onScrollOwnerChanged(int owner) {
+        ownerChanges++;
+    }
+}
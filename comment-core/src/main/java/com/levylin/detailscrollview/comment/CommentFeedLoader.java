@@ -0,0 +1,324 @@
+package com.levylin.detailscrollview.comment;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.util.concurrent.Executor;
+
+/**
+ * 在后台线程边下载边解析评论接口，每解析{@link #setBatchSize}条交给主线程，第一屏评论不用等整个响应解析完
+ * 1.主线程每帧最多收到一次{@link Listener#onRows}，包括上一帧之后解析出的所有评论，adapter每帧只通知一次
+ * 2.设置了{@link CommentRepository}的话，每批评论在后台线程同时保存到本地
+ * 3.结束时{@link Listener#onComplete}带上解析速度和第一条评论的耗时
+ * frameExecutor负责在主线程的下一帧执行，由调用方根据平台提供
+ */
+public final class CommentFeedLoader {
+
+    private static final int DEFAULT_BATCH_SIZE = 20;
+    private static final int CONNECT_TIMEOUT_MILLIS = 15000;
+    private static final int READ_TIMEOUT_MILLIS = 15000;
+
+    /**
+     * 都在主线程回调，{@link #cancel()}之后不再回调
+     */
+    public interface Listener {
+        /**
+         * @param rows 上一帧之后解析出的评论，回调之后不再使用，可以直接追加到adapter的store
+         */
+        void onRows(CommentStore rows);
+
+        void onComplete(Stats stats);
+
+        void onError(IOException e, Stats stats);
+    }
+
+    /**
+     * 一次加载的统计，时间都从{@link #start}开始算
+     */
+    public static final class Stats {
+        volatile int rows;
+        volatile long bytes;
+        volatile long firstRowNanos = -1;//解析出第一条
+        volatile long firstFrameNanos = -1;//第一条交给主线程
+        volatile long totalNanos;
+
+        public int getRows() {
+            return rows;
+        }
+
+        /**
+         * @return 下载的字节数
+         */
+        public long getBytes() {
+            return bytes;
+        }
+
+        /**
+         * @return 后台线程解析出第一条评论的时间，-1表示没有评论
+         */
+        public long getFirstRowNanos() {
+            return firstRowNanos;
+        }
+
+        /**
+         * @return 第一条评论交给主线程的时间，这时第一屏评论可以显示了
+         */
+        public long getFirstFrameNanos() {
+            return firstFrameNanos;
+        }
+
+        /**
+         * @return 下载和解析全部完成的时间
+         */
+        public long getTotalNanos() {
+            return totalNanos;
+        }
+
+        public double getRowsPerSecond() {
+            return totalNanos > 0 ? rows * 1e9 / totalNanos : 0;
+        }
+
+        public double getBytesPerSecond() {
+            return totalNanos > 0 ? bytes * 1e9 / totalNanos : 0;
+        }
+
+        @Override
+        public String toString() {
+            return "rows=" + rows
+                    + " bytes=" + bytes
+                    + " firstRowMs=" + firstRowNanos / 1000000.0
+                    + " firstFrameMs=" + firstFrameNanos / 1000000.0
+                    + " totalMs=" + totalNanos / 1000000.0
+                    + " rowsPerSecond=" + (long) getRowsPerSecond()
+                    + " kbPerSecond=" + (long) (getBytesPerSecond() / 1024);
+        }
+    }
+
+    private final URL mUrl;
+    private final Executor mBackgroundExecutor;
+    private final Executor mFrameExecutor;
+    private final Stats mStats = new Stats();
+    private int mBatchSize = DEFAULT_BATCH_SIZE;
+    private CommentRepository mRepository;
+    private Listener mListener;
+    private long mStartNanos;
+    private volatile boolean isCanceled;
+
+    //后台线程和主线程之间交接，用this加锁
+    private CommentStore mPending;
+    private boolean isFrameScheduled;
+    private boolean isDone;
+    private IOException mError;
+
+    private final Runnable mFrameRunnable = new Runnable() {
+        @Override
+        public void run() {
+            dispatchFrame();
+        }
+    };
+
+    public CommentFeedLoader(URL url, Executor backgroundExecutor, Executor frameExecutor) {
+        mUrl = url;
+        mBackgroundExecutor = backgroundExecutor;
+        mFrameExecutor = frameExecutor;
+    }
+
+    /**
+     * @param batchSize 后台每解析多少条交给主线程一次，太小会多一些加锁，太大第一屏要等更久
+     */
+    public void setBatchSize(int batchSize) {
+        mBatchSize = Math.max(1, batchSize);
+    }
+
+    /**
+     * @param repository 解析出的评论同时追加到这里，它应该是空的或者和offset对应
+     */
+    public void setRepository(CommentRepository repository) {
+        mRepository = repository;
+    }
+
+    public Stats getStats() {
+        return mStats;
+    }
+
+    /**
+     * 只能调用一次
+     */
+    public void start(Listener listener) {
+        mListener = listener;
+        mStartNanos = System.nanoTime();
+        mBackgroundExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                load();
+            }
+        });
+    }
+
+    /**
+     * 停止下载，已经交给主线程的不会撤回，之后不再回调
+     */
+    public void cancel() {
+        isCanceled = true;
+    }
+
+    /**
+     * 同步地下载并解析一页，给{@link CommentPagingSource.Fetcher}用，要在后台线程调用
+     *
+     * @return 解析到的条数
+     */
+    public static int fetch(URL url, CommentStore into) throws IOException {
+        HttpURLConnection connection = open(url);
+        CommentFeedReader reader = new CommentFeedReader(connection.getInputStream());
+        try {
+            int total = 0;
+            int count;
+            while ((count = reader.read(into, Integer.MAX_VALUE)) > 0) {
+                total += count;
+            }
+            return total;
+        } finally {
+            reader.close();
+            connection.disconnect();
+        }
+    }
+
+    private void load() {
+        HttpURLConnection connection = null;
+        CommentFeedReader reader = null;
+        IOException error = null;
+        try {
+            connection = open(mUrl);
+            CountingInputStream in = new CountingInputStream(connection.getInputStream());
+            reader = new CommentFeedReader(in);
+            while (!isCanceled) {
+                CommentStore batch = new CommentStore(mBatchSize);
+                int count = reader.read(batch, mBatchSize);
+                mStats.bytes = in.mCount;
+                if (count == 0)
+                    break;
+                if (mStats.firstRowNanos < 0) {
+                    mStats.firstRowNanos = System.nanoTime() - mStartNanos;
+                }
+                mStats.rows += count;
+                if (mRepository != null) {
+                    mRepository.append(batch, 0, count);
+                }
+                post(batch);
+            }
+        } catch (IOException e) {
+            e.printStackTrace();
+            error = e;
+        } finally {
+            if (reader != null) {
+                try {
+                    reader.close();
+                } catch (IOException e) {
+                    e.printStackTrace();
+                }
+            }
+            if (connection != null) {
+                connection.disconnect();
+            }
+        }
+        mStats.totalNanos = System.nanoTime() - mStartNanos;
+        synchronized (this) {
+            isDone = true;
+            mError = error;
+        }
+        scheduleFrame();
+    }
+
+    private void post(CommentStore batch) {
+        synchronized (this) {
+            if (mPending == null) {
+                mPending = batch;
+            } else {//主线程还没取走上一批，合并到下一帧一起通知
+                mPending.addAll(batch, 0, batch.size());
+            }
+        }
+        scheduleFrame();
+    }
+
+    private void scheduleFrame() {
+        synchronized (this) {
+            if (isFrameScheduled)
+                return;
+            isFrameScheduled = true;
+        }
+        mFrameExecutor.execute(mFrameRunnable);
+    }
+
+    private void dispatchFrame() {
+        CommentStore rows;
+        boolean done;
+        IOException error;
+        synchronized (this) {
+            isFrameScheduled = false;
+            rows = mPending;
+            mPending = null;
+            done = isDone;
+            error = mError;
+        }
+        if (isCanceled)
+            return;
+        if (rows != null) {
+            if (mStats.firstFrameNanos < 0) {
+                mStats.firstFrameNanos = System.nanoTime() - mStartNanos;
+            }
+            mListener.onRows(rows);
+        }
+        if (!done)
+            return;
+        isCanceled = true;//只回调一次结束
+        if (error != null) {
+            mListener.onError(error, mStats);
+        } else {
+            mListener.onComplete(mStats);
+        }
+    }
+
+    private static HttpURLConnection open(URL url) throws IOException {
+        HttpURLConnection connection = (HttpURLConnection) url.openConnection();
+        connection.setConnectTimeout(CONNECT_TIMEOUT_MILLIS);
+        connection.setReadTimeout(READ_TIMEOUT_MILLIS);
+        int code = connection.getResponseCode();
+        if (code != HttpURLConnection.HTTP_OK) {
+            connection.disconnect();
+            throw new IOException("HTTP " + code + " " + url);
+        }
+        return connection;
+    }
+
+    /**
+     * 统计实际下载的字节数
+     */
+    private static final class CountingInputStream extends FilterInputStream {
+
+        volatile long mCount;
+
+        CountingInputStream(InputStream in) {
+            super(in);
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b >= 0) {
+                mCount++;
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) throws IOException {
+            int count = super.read(buffer, offset, length);
+            if (count > 0) {
+                mCount += count;
+            }
+            return count;
+        }
+    }
+}
@@ -0,0 +1,346 @@
+package com.levylin.detailscrollview.comment;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.Charset;
+
+/**
+ * 流式解析评论接口返回的JSON数组，边下载边解析，不需要先把整个响应读成String
+ * [{"id":1,"author":"...","content":"...","time":...,"likeCount":..,"replyCount":..},...]
+ * 不认识的字段(包括嵌套的对象和数组)直接跳过；内容解析到复用的StringBuilder里，直接编码进{@link CommentStore}
+ * 不是线程安全的，一般在后台线程使用
+ */
+public final class CommentFeedReader implements Closeable {
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+    private static final int BUFFER_SIZE = 8192;
+
+    private final Reader mIn;
+    private final char[] mBuffer = new char[BUFFER_SIZE];
+    private int mPos;
+    private int mLimit;
+    private long mCharCount;//已经从mIn读出的字符数
+    private boolean isStarted;
+    private boolean isFinished;
+    private final StringBuilder mKey = new StringBuilder();
+    private final StringBuilder mAuthor = new StringBuilder();
+    private final StringBuilder mContent = new StringBuilder();
+    private String mLastAuthor = "";//作者重复很多，和上一条一样时不创建新的String
+
+    public CommentFeedReader(InputStream in) {
+        this(new InputStreamReader(in, UTF_8));
+    }
+
+    public CommentFeedReader(Reader in) {
+        mIn = in;
+    }
+
+    /**
+     * 最多解析maxRows条追加到into
+     *
+     * @return 解析到的条数，0表示数组已经结束
+     * @throws IOException 读取失败或者JSON格式不对
+     */
+    public int read(CommentStore into, int maxRows) throws IOException {
+        if (isFinished)
+            return 0;
+        if (!isStarted) {
+            if (peekNonWhitespace() == 'n') {//null当作空数组
+                expectLiteral("null");
+                isFinished = true;
+                return 0;
+            }
+            expect('[');
+            isStarted = true;
+            if (peekNonWhitespace() == ']') {
+                mPos++;
+                isFinished = true;
+                return 0;
+            }
+        }
+        int rows = 0;
+        while (rows < maxRows) {
+            readComment(into);
+            rows++;
+            int c = nextNonWhitespace();
+            if (c == ']') {
+                isFinished = true;
+                break;
+            }
+            if (c != ',')
+                throw syntaxError("expected ',' or ']'");
+        }
+        return rows;
+    }
+
+    public boolean isFinished() {
+        return isFinished;
+    }
+
+    /**
+     * @return 已经读取的字符数
+     */
+    public long getCharCount() {
+        return mCharCount;
+    }
+
+    @Override
+    public void close() throws IOException {
+        mIn.close();
+    }
+
+    private void readComment(CommentStore into) throws IOException {
+        expect('{');
+        long id = 0;
+        long time = 0;
+        int likeCount = 0;
+        int replyCount = 0;
+        mAuthor.setLength(0);
+        mContent.setLength(0);
+        if (peekNonWhitespace() == '}') {
+            mPos++;
+        } else {
+            while (true) {
+                expect('"');
+                readString(mKey);
+                expect(':');
+                if (equals(mKey, "id")) {
+                    id = readLong();
+                } else if (equals(mKey, "author")) {
+                    readNullableString(mAuthor);
+                } else if (equals(mKey, "content")) {
+                    readNullableString(mContent);
+                } else if (equals(mKey, "time")) {
+                    time = readLong();
+                } else if (equals(mKey, "likeCount")) {
+                    likeCount = (int) readLong();
+                } else if (equals(mKey, "replyCount")) {
+                    replyCount = (int) readLong();
+                } else {
+                    skipValue();
+                }
+                int c = nextNonWhitespace();
+                if (c == '}')
+                    break;
+                if (c != ',')
+                    throw syntaxError("expected ',' or '}'");
+            }
+        }
+        if (!equals(mAuthor, mLastAuthor)) {
+            mLastAuthor = mAuthor.toString();
+        }
+        into.add(id, mLastAuthor, mContent, time, likeCount, replyCount);
+    }
+
+    private void readNullableString(StringBuilder out) throws IOException {
+        if (peekNonWhitespace() == 'n') {
+            expectLiteral("null");
+            out.setLength(0);
+            return;
+        }
+        expect('"');
+        readString(out);
+    }
+
+    /**
+     * 开头的引号已经读过了
+     */
+    private void readString(StringBuilder out) throws IOException {
+        out.setLength(0);
+        while (true) {
+            int start = mPos;
+            while (mPos < mLimit) {
+                char c = mBuffer[mPos];
+                if (c == '"' || c == '\\')
+                    break;
+                mPos++;
+            }
+            out.append(mBuffer, start, mPos - start);
+            if (mPos == mLimit) {
+                if (!fill())
+                    throw syntaxError("unterminated string");
+                continue;
+            }
+            char c = mBuffer[mPos++];
+            if (c == '"')
+                return;
+            out.append(readEscape());
+        }
+    }
+
+    private char readEscape() throws IOException {
+        int c = read();
+        switch (c) {
+            case 'n':
+                return '\n';
+            case 't':
+                return '\t';
+            case 'r':
+                return '\r';
+            case 'b':
+                return '\b';
+            case 'f':
+                return '\f';
+            case 'u':
+                int value = 0;
+                for (int i = 0; i < 4; i++) {
+                    int digit = Character.digit(read(), 16);
+                    if (digit < 0)
+                        throw syntaxError("bad \\u escape");
+                    value = (value << 4) | digit;
+                }
+                return (char) value;
+            case '"':
+            case '\\':
+            case '/':
+                return (char) c;
+            default:
+                throw syntaxError("bad escape");
+        }
+    }
+
+    /**
+     * 评论里的数字都是整数，有小数或者指数时截断；null当作0
+     */
+    private long readLong() throws IOException {
+        int c = peekNonWhitespace();
+        if (c == 'n') {
+            expectLiteral("null");
+            return 0;
+        }
+        if (c == '"') {//有的接口把id写成字符串
+            mPos++;
+            readString(mKey);
+            try {
+                return Long.parseLong(mKey.toString());
+            } catch (NumberFormatException e) {
+                throw syntaxError("bad number " + mKey);
+            }
+        }
+        boolean negative = false;
+        if (c == '-') {
+            negative = true;
+            mPos++;
+        }
+        long value = 0;
+        int digits = 0;
+        while ((c = peek()) >= '0' && c <= '9') {
+            value = value * 10 + (c - '0');
+            digits++;
+            mPos++;
+        }
+        if (digits == 0)
+            throw syntaxError("expected a number");
+        while ((c = peek()) == '.' || c == 'e' || c == 'E' || c == '+' || c == '-' || (c >= '0' && c <= '9')) {
+            mPos++;
+        }
+        return negative ? -value : value;
+    }
+
+    private void skipValue() throws IOException {
+        int c = peekNonWhitespace();
+        switch (c) {
+            case '"':
+                mPos++;
+                readString(mKey);
+                break;
+            case '{':
+            case '[':
+                mPos++;
+                int depth = 1;
+                while (depth > 0) {
+                    int next = read();
+                    if (next == '"') {
+                        readString(mKey);
+                    } else if (next == '{' || next == '[') {
+                        depth++;
+                    } else if (next == '}' || next == ']') {
+                        depth--;
+                    }
+                }
+                break;
+            case 't':
+                expectLiteral("true");
+                break;
+            case 'f':
+                expectLiteral("false");
+                break;
+            case 'n':
+                expectLiteral("null");
+                break;
+            default:
+                readLong();
+                break;
+        }
+    }
+
+    private void expectLiteral(String literal) throws IOException {
+        nextNonWhitespace();//第一个字符已经peek过
+        for (int i = 1; i < literal.length(); i++) {
+            if (read() != literal.charAt(i))
+                throw syntaxError("expected " + literal);
+        }
+    }
+
+    private void expect(char expected) throws IOException {
+        if (nextNonWhitespace() != expected)
+            throw syntaxError("expected '" + expected + "'");
+    }
+
+    private int peekNonWhitespace() throws IOException {
+        int c = nextNonWhitespace();
+        mPos--;
+        return c;
+    }
+
+    private int nextNonWhitespace() throws IOException {
+        while (true) {
+            int c = read();
+            if (c != ' ' && c != '\n' && c != '\r' && c != '\t')
+                return c;
+        }
+    }
+
+    /**
+     * @return 结束时返回-1，不消耗字符
+     */
+    private int peek() throws IOException {
+        if (mPos == mLimit && !fill())
+            return -1;
+        return mBuffer[mPos];
+    }
+
+    private int read() throws IOException {
+        if (mPos == mLimit && !fill())
+            throw syntaxError("unexpected end of input");
+        return mBuffer[mPos++];
+    }
+
+    private boolean fill() throws IOException {
+        int count = mIn.read(mBuffer, 0, mBuffer.length);
+        if (count <= 0)
+            return false;
+        mPos = 0;
+        mLimit = count;
+        mCharCount += count;
+        return true;
+    }
+
+    private IOException syntaxError(String message) {
+        return new IOException(message + " at char " + (mCharCount - mLimit + mPos));
+    }
+
+    private static boolean equals(StringBuilder builder, String value) {
+        int length = value.length();
+        if (builder.length() != length)
+            return false;
+        for (int i = 0; i < length; i++) {
+            if (builder.charAt(i) != value.charAt(i))
+                return false;
+        }
+        return true;
+    }
+}
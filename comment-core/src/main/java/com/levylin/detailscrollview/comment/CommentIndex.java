@@ -0,0 +1,113 @@
+package com.levylin.detailscrollview.comment;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * 评论数据文件的偏移索引，映射到内存，按位置取偏移是O(1)
+ * 文件头：magic(int) version(int) count(int) 保留(int)，之后是count + 1个offset(long)，
+ * 第i条评论是数据文件的[offset[i], offset[i + 1])
+ * 先写offset再写count，count没更新之前的新记录都不算数，所以写了一半的追加在打开时会被丢掉
+ * 不是线程安全的，由{@link CommentRepository}加锁
+ */
+final class CommentIndex {
+
+    static final int MAGIC = 0x44534349;//'D' 'S' 'C' 'I'
+    static final int VERSION = 1;
+    static final int HEADER_BYTES = 16;
+
+    private static final int INITIAL_CAPACITY = 1024;
+    private static final int MAX_CAPACITY = (Integer.MAX_VALUE - HEADER_BYTES) / 8 - 1;//映射最多2G
+
+    private final RandomAccessFile mFile;
+    private MappedByteBuffer mBuffer;
+    private int mCapacity;//不扩容能放下的评论条数
+    private int mCount;
+
+    CommentIndex(File file) throws IOException {
+        mFile = new RandomAccessFile(file, "rw");
+        long length = mFile.length();
+        if (length < HEADER_BYTES + 8) {
+            map(INITIAL_CAPACITY);
+            reset();
+            return;
+        }
+        map((int) Math.min(MAX_CAPACITY, (length - HEADER_BYTES) / 8 - 1));
+        int count = mBuffer.getInt(8);
+        if (mBuffer.getInt(0) != MAGIC || mBuffer.getInt(4) != VERSION || count < 0 || count > mCapacity) {
+            reset();
+        } else {
+            mCount = count;
+        }
+    }
+
+    int getCount() {
+        return mCount;
+    }
+
+    /**
+     * @param position 0到count，count表示数据的结束位置
+     */
+    long getOffset(int position) {
+        return mBuffer.getLong(HEADER_BYTES + position * 8);
+    }
+
+    /**
+     * 只写offset，{@link #commit(int)}之后才算数
+     *
+     * @param position 从count + 1开始
+     */
+    void putOffset(int position, long offset) throws IOException {
+        if (position > mCapacity) {
+            if (position > MAX_CAPACITY)
+                throw new IOException("comment index is full");
+            map((int) Math.min(MAX_CAPACITY, Math.max(position, mCapacity * 2L)));
+        }
+        mBuffer.putLong(HEADER_BYTES + position * 8, offset);
+    }
+
+    void commit(int count) {
+        mCount = count;
+        mBuffer.putInt(8, count);
+    }
+
+    /**
+     * 打开时发现数据文件比索引记录的短，说明索引比数据先落盘，退回到数据还完整的位置
+     */
+    void truncate(long dataLength) {
+        int count = mCount;
+        while (count > 0 && getOffset(count) > dataLength) {
+            count--;
+        }
+        if (count != mCount) {
+            commit(count);
+        }
+    }
+
+    void reset() {
+        mBuffer.putInt(0, MAGIC);
+        mBuffer.putInt(4, VERSION);
+        mBuffer.putLong(HEADER_BYTES, 0);
+        commit(0);
+    }
+
+    void close() throws IOException {
+        mBuffer.force();
+        mFile.close();
+    }
+
+    /**
+     * 扩容时重新映射一块更大的，旧的映射等GC回收
+     */
+    private void map(int capacity) throws IOException {
+        long length = HEADER_BYTES + (capacity + 1L) * 8;
+        if (mFile.length() < length) {
+            mFile.setLength(length);
+        }
+        mBuffer = mFile.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, length);
+        mCapacity = capacity;
+    }
+}
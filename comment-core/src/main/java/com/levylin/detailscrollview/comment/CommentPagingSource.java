@@ -0,0 +1,233 @@
+package com.levylin.detailscrollview.comment;
+
+import java.io.IOException;
+import java.util.concurrent.Executor;
+
+/**
+ * 按页把评论加载进列表用的{@link CommentStore}：列表bind到离末尾{@link #setPrefetchDistance}条以内时，在后台加载下一页
+ * 1.先从{@link CommentRepository}读，本地已经有的评论不再请求
+ * 2.本地不够一页时用{@link Fetcher}从服务器拉取，offset就是本地已经保存的条数，拉到的先追加到本地再读出来
+ * 读完一页回到主线程追加到store，再通知{@link Listener}，adapter只需要notifyItemRangeInserted
+ * 第一页由调用方{@link #loadNextPage()}开始；同一时间只有一页在加载；除了Fetcher，所有方法和回调都在主线程
+ * 本地还没有评论时也可以用{@link #stream}边下载边显示整个评论接口，每帧追加一次
+ */
+public final class CommentPagingSource {
+
+    private static final int DEFAULT_PAGE_SIZE = 20;
+
+    /**
+     * 从服务器拉取评论，在后台线程调用
+     */
+    public interface Fetcher {
+        /**
+         * @param offset 服务器上从第几条开始，和本地保存的条数相同
+         * @param into   拉到的评论追加到这里
+         * @return 拉到的条数，0表示服务器上没有更多了
+         */
+        int fetch(int offset, int limit, CommentStore into) throws IOException;
+    }
+
+    public interface Listener {
+        /**
+         * 新的一页已经追加到store
+         *
+         * @param fromPosition 追加之前的条数
+         */
+        void onPageLoaded(int fromPosition, int count);
+
+        /**
+         * 读取或者拉取失败，之后bind到末尾时会重试
+         */
+        void onPageError(IOException e);
+    }
+
+    private final CommentRepository mRepository;
+    private final CommentStore mStore;
+    private final Fetcher mFetcher;
+    private final Executor mBackgroundExecutor;
+    private final Executor mMainExecutor;
+    private Listener mListener;
+    private int mPageSize = DEFAULT_PAGE_SIZE;
+    private int mPrefetchDistance = DEFAULT_PAGE_SIZE / 2;
+    private boolean isLoading;
+    private boolean isEnd;
+    private boolean isReleased;
+    private int mFetchedCount;
+    private CommentFeedLoader mStreamLoader;
+
+    /**
+     * @param fetcher 为null时只显示本地保存的评论
+     */
+    public CommentPagingSource(CommentRepository repository, CommentStore store, Fetcher fetcher,
+                               Executor backgroundExecutor, Executor mainExecutor) {
+        mRepository = repository;
+        mStore = store;
+        mFetcher = fetcher;
+        mBackgroundExecutor = backgroundExecutor;
+        mMainExecutor = mainExecutor;
+    }
+
+    public void setListener(Listener listener) {
+        mListener = listener;
+    }
+
+    public void setPageSize(int pageSize) {
+        mPageSize = Math.max(1, pageSize);
+    }
+
+    /**
+     * @param prefetchDistance bind到离末尾多少条以内时加载下一页
+     */
+    public void setPrefetchDistance(int prefetchDistance) {
+        mPrefetchDistance = Math.max(0, prefetchDistance);
+    }
+
+    public CommentStore getStore() {
+        return mStore;
+    }
+
+    public CommentRepository getRepository() {
+        return mRepository;
+    }
+
+    /**
+     * adapter每次bind时调用
+     */
+    public void onItemBound(int position) {
+        if (position >= mStore.size() - 1 - mPrefetchDistance) {
+            loadNextPage();
+        }
+    }
+
+    public void loadNextPage() {
+        if (isLoading || isEnd || isReleased || mStreamLoader != null)
+            return;
+        isLoading = true;
+        final int from = mStore.size();
+        final int pageSize = mPageSize;
+        mBackgroundExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                final CommentStore page = new CommentStore(pageSize);
+                IOException error = null;
+                int fetched = 0;
+                boolean isRemoteEnd = false;
+                int stored = mRepository.size();
+                if (stored < from + pageSize && mFetcher != null) {
+                    try {
+                        CommentStore batch = new CommentStore(pageSize);
+                        fetched = mFetcher.fetch(stored, from + pageSize - stored, batch);
+                        mRepository.append(batch, 0, batch.size());
+                        isRemoteEnd = fetched == 0;
+                    } catch (IOException e) {//拉取失败也先显示本地有的
+                        e.printStackTrace();
+                        error = e;
+                    }
+                }
+                try {
+                    mRepository.read(from, pageSize, page);
+                } catch (IOException e) {
+                    e.printStackTrace();
+                    error = e;
+                }
+                final IOException finalError = error;
+                final int finalFetched = fetched;
+                final boolean noMore = error == null && page.size() < pageSize && (mFetcher == null || isRemoteEnd);
+                mMainExecutor.execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        onPageRead(from, page, finalFetched, noMore, finalError);
+                    }
+                });
+            }
+        });
+    }
+
+    /**
+     * 用loader代替{@link #loadNextPage()}，解析出的评论每帧追加到store并通知{@link Listener#onPageLoaded}
+     * loader请求的offset必须等于本地已经保存的条数(一般是本地还没有评论时从0开始)，评论同时追加到本地；
+     * 结束之后回到分页加载，失败的话从本地已经保存的位置接着按页拉取
+     */
+    public void stream(final CommentFeedLoader loader) {
+        if (isLoading || isReleased || mStreamLoader != null)
+            return;
+        mStreamLoader = loader;
+        loader.setRepository(mRepository);
+        loader.start(new CommentFeedLoader.Listener() {
+            @Override
+            public void onRows(CommentStore rows) {
+                int from = mStore.size();
+                mStore.addAll(rows, 0, rows.size());
+                mFetchedCount += rows.size();
+                if (mListener != null) {
+                    mListener.onPageLoaded(from, rows.size());
+                }
+            }
+
+            @Override
+            public void onComplete(CommentFeedLoader.Stats stats) {
+                mStreamLoader = null;
+            }
+
+            @Override
+            public void onError(IOException e, CommentFeedLoader.Stats stats) {
+                mStreamLoader = null;
+                if (mListener != null) {
+                    mListener.onPageError(e);
+                }
+            }
+        });
+    }
+
+    /**
+     * @return 正在用{@link #stream}加载
+     */
+    public boolean isStreaming() {
+        return mStreamLoader != null;
+    }
+
+    private void onPageRead(int from, CommentStore page, int fetched, boolean noMore, IOException error) {
+        isLoading = false;
+        if (isReleased || from != mStore.size())
+            return;
+        mFetchedCount += fetched;
+        isEnd = noMore;
+        if (page.size() > 0) {
+            mStore.addAll(page, 0, page.size());
+            if (mListener != null) {
+                mListener.onPageLoaded(from, page.size());
+            }
+        } else if (error != null && mListener != null) {
+            mListener.onPageError(error);
+        }
+    }
+
+    public boolean isLoading() {
+        return isLoading;
+    }
+
+    /**
+     * @return 本地和服务器上都没有更多评论了
+     */
+    public boolean isEnd() {
+        return isEnd;
+    }
+
+    /**
+     * @return 一共从服务器拉取的条数，再次打开同一篇文章时应该是0
+     */
+    public int getFetchedCount() {
+        return mFetchedCount;
+    }
+
+    /**
+     * 页面关闭时调用，正在加载的结果会被丢掉；repository由调用方关闭
+     */
+    public void release() {
+        isReleased = true;
+        if (mStreamLoader != null) {
+            mStreamLoader.cancel();
+            mStreamLoader = null;
+        }
+    }
+}
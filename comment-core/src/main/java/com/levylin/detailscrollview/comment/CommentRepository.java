@@ -0,0 +1,217 @@
+package com.levylin.detailscrollview.comment;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.util.HashMap;
+
+/**
+ * 一篇文章的评论在本地的存储，再次打开文章时不用重新请求和解析已经拿到的评论
+ * 目录里两个文件：
+ * 1.comments.dat：只追加的数据文件，每条评论 id(long) time(long) likeCount(int) replyCount(int) coder(byte)
+ * authorLength(short) contentLength(int) author(UTF-8) content(和{@link CommentStore}里一样的编码)
+ * 2.comments.idx：{@link CommentIndex}，按位置找到数据文件里的偏移
+ * 追加新评论只在两个文件末尾写，不会重写已有的数据；按位置读一页只需要一次连续读
+ * 所有方法都加了锁，可以在后台线程调用
+ */
+public final class CommentRepository {
+
+    static final String DATA_FILE = "comments.dat";
+    static final String INDEX_FILE = "comments.idx";
+    static final int RECORD_HEADER_BYTES = 8 + 8 + 4 + 4 + 1 + 2 + 4;
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    private final File mDir;
+    private final RandomAccessFile mData;
+    private final FileChannel mDataChannel;
+    private final CommentIndex mIndex;
+    private final HashMap<String, byte[]> mAuthorBytes = new HashMap<>();//写的时候用，作者重复很多
+    private ByteBuffer mBuffer = ByteBuffer.allocate(16 * 1024);
+    private boolean isClosed;
+
+    private CommentRepository(File dir, RandomAccessFile data, CommentIndex index) {
+        mDir = dir;
+        mData = data;
+        mDataChannel = data.getChannel();
+        mIndex = index;
+    }
+
+    /**
+     * 目录不存在会创建；上次追加到一半就退出的话，没写完的部分会被丢掉
+     */
+    public static CommentRepository open(File dir) throws IOException {
+        if (!dir.isDirectory() && !dir.mkdirs())
+            throw new IOException("can't create " + dir);
+        RandomAccessFile data = new RandomAccessFile(new File(dir, DATA_FILE), "rw");
+        CommentIndex index;
+        try {
+            index = new CommentIndex(new File(dir, INDEX_FILE));
+        } catch (IOException e) {
+            data.close();
+            throw e;
+        }
+        index.truncate(data.length());
+        long end = index.getOffset(index.getCount());
+        if (data.length() > end) {
+            data.setLength(end);//没有提交的追加
+        }
+        return new CommentRepository(dir, data, index);
+    }
+
+    public File getDirectory() {
+        return mDir;
+    }
+
+    /**
+     * @return 已经保存的评论条数，下一次从服务器拉取的offset
+     */
+    public synchronized int size() {
+        return mIndex.getCount();
+    }
+
+    /**
+     * @return 数据文件的字节数
+     */
+    public synchronized long getDataLength() {
+        return mIndex.getOffset(mIndex.getCount());
+    }
+
+    /**
+     * 把src的[from, from + count)追加到末尾，先写数据并落盘，再提交索引
+     */
+    public synchronized void append(CommentStore src, int from, int count) throws IOException {
+        checkOpen();
+        if (count <= 0)
+            return;
+        int base = mIndex.getCount();
+        long offset = mIndex.getOffset(base);
+        ByteBuffer buffer = mBuffer;
+        buffer.clear();
+        for (int i = 0; i < count; i++) {
+            int position = from + i;
+            byte[] author = getAuthorBytes(src.getAuthor(position));
+            int contentLength = src.getEncodedLength(position);
+            int recordLength = RECORD_HEADER_BYTES + author.length + contentLength;
+            if (buffer.remaining() < recordLength) {
+                flush(buffer, offset - buffer.position());
+                if (buffer.capacity() < recordLength) {
+                    buffer = mBuffer = ByteBuffer.allocate(Math.max(recordLength, buffer.capacity() * 2));
+                }
+            }
+            buffer.putLong(src.getId(position))
+                    .putLong(src.getTime(position))
+                    .putInt(src.getLikeCount(position))
+                    .putInt(src.getReplyCount(position))
+                    .put(src.getCoder(position))
+                    .putShort((short) author.length)
+                    .putInt(contentLength)
+                    .put(author);
+            src.getEncoded(position, buffer.array(), buffer.arrayOffset() + buffer.position());
+            buffer.position(buffer.position() + contentLength);
+            offset += recordLength;
+            mIndex.putOffset(base + i + 1, offset);
+        }
+        flush(buffer, offset - buffer.position());
+        mDataChannel.force(false);
+        mIndex.commit(base + count);
+    }
+
+    /**
+     * 从position开始最多读count条追加到dst
+     *
+     * @return 实际读到的条数，到末尾时比count少
+     */
+    public synchronized int read(int position, int count, CommentStore dst) throws IOException {
+        checkOpen();
+        int end = Math.min(mIndex.getCount(), position + count);
+        if (position < 0 || position >= end)
+            return 0;
+        long start = mIndex.getOffset(position);
+        long length = mIndex.getOffset(end) - start;
+        if (length > Integer.MAX_VALUE)
+            throw new IOException("page too large: " + length);
+        ByteBuffer buffer = mBuffer;
+        if (buffer.capacity() < length) {
+            buffer = mBuffer = ByteBuffer.allocate((int) length);
+        }
+        buffer.clear();
+        buffer.limit((int) length);
+        while (buffer.hasRemaining()) {
+            if (mDataChannel.read(buffer, start + buffer.position()) < 0)
+                throw new IOException("unexpected end of " + DATA_FILE);
+        }
+        buffer.flip();
+        byte[] array = buffer.array();
+        for (int i = position; i < end; i++) {
+            long id = buffer.getLong();
+            long time = buffer.getLong();
+            int likeCount = buffer.getInt();
+            int replyCount = buffer.getInt();
+            byte coder = buffer.get();
+            int authorLength = buffer.getShort() & 0xFFFF;
+            int contentLength = buffer.getInt();
+            if ((coder != CommentStore.CODER_LATIN1 && coder != CommentStore.CODER_UTF16)
+                    || contentLength < 0 || authorLength + contentLength > buffer.remaining())
+                throw new IOException("corrupted comment " + i + " in " + mDir);
+            String author = new String(array, buffer.arrayOffset() + buffer.position(), authorLength, UTF_8);
+            buffer.position(buffer.position() + authorLength);
+            dst.addEncoded(id, author, time, likeCount, replyCount, coder, array, buffer.arrayOffset() + buffer.position(), contentLength);
+            buffer.position(buffer.position() + contentLength);
+        }
+        return end - position;
+    }
+
+    /**
+     * 删掉所有评论，比如服务器上的评论被整体刷新了
+     */
+    public synchronized void clear() throws IOException {
+        checkOpen();
+        mIndex.reset();
+        mData.setLength(0);
+    }
+
+    public synchronized void close() {
+        if (isClosed)
+            return;
+        isClosed = true;
+        try {
+            mIndex.close();
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+        try {
+            mData.close();
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    private void flush(ByteBuffer buffer, long position) throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            mDataChannel.write(buffer, position + buffer.position());
+        }
+        buffer.clear();
+    }
+
+    private byte[] getAuthorBytes(String author) {
+        byte[] bytes = mAuthorBytes.get(author);
+        if (bytes == null) {
+            bytes = author.getBytes(UTF_8);
+            if (bytes.length > 0xFFFF) {
+                bytes = new byte[0];//不会有这么长的昵称
+            }
+            mAuthorBytes.put(author, bytes);
+        }
+        return bytes;
+    }
+
+    private void checkOpen() throws IOException {
+        if (isClosed)
+            throw new IOException("repository is closed: " + mDir);
+    }
+}
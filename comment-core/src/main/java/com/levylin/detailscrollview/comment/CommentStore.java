@@ -0,0 +1,304 @@
+package com.levylin.detailscrollview.comment;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+
+/**
+ * 按列存储的评论数据，几万条评论也只有十来个数组，GC几乎不用扫描
+ * 1.id、时间、点赞数、回复数这些定长字段放在基本类型数组里
+ * 2.评论内容连续地放在一个byte数组里，记录每一条的起始位置，bind的时候才解码({@link #getContent(int, char[], int)})
+ * 3.作者重复很多，只保存一次，每条评论只记下标
+ * 内容每条单独选编码：全是Latin-1的字符每个占1个字节，否则按UTF-16每个占2个字节，
+ * 评论大部分是中文，用UTF-8每个字要3个字节，反而比String还大
+ * 只能在后面追加，不能删除和修改；不是线程安全的，追加和读取要在同一个线程
+ */
+public final class CommentStore {
+
+    static final byte CODER_LATIN1 = 0;
+    static final byte CODER_UTF16 = 1;
+
+    private static final int INITIAL_CAPACITY = 64;
+    private static final int INITIAL_ARENA_SIZE = 4096;
+
+    private int mSize;
+    private long[] mIds;
+    private long[] mTimes;
+    private int[] mLikeCounts;
+    private int[] mReplyCounts;
+    private int[] mAuthors;//作者在mAuthorNames里的下标
+    private int[] mContentStarts;//第i条的内容是mArena[mContentStarts[i], mContentStarts[i + 1])
+    private byte[] mCoders;
+    private byte[] mArena;
+    private final List<String> mAuthorNames = new ArrayList<>();
+    private final HashMap<String, Integer> mAuthorIndexes = new HashMap<>();
+
+    public CommentStore() {
+        this(INITIAL_CAPACITY);
+    }
+
+    /**
+     * @param capacity 预计的评论条数，超过了会自动扩容
+     */
+    public CommentStore(int capacity) {
+        capacity = Math.max(1, capacity);
+        mIds = new long[capacity];
+        mTimes = new long[capacity];
+        mLikeCounts = new int[capacity];
+        mReplyCounts = new int[capacity];
+        mAuthors = new int[capacity];
+        mContentStarts = new int[capacity + 1];
+        mCoders = new byte[capacity];
+        mArena = new byte[INITIAL_ARENA_SIZE];
+    }
+
+    /**
+     * @param content 只在调用期间读取，可以传复用的StringBuilder
+     * @return 新评论的位置
+     */
+    public int add(long id, String author, CharSequence content, long time, int likeCount, int replyCount) {
+        ensureCapacity(mSize + 1);
+        int position = mSize;
+        mIds[position] = id;
+        mTimes[position] = time;
+        mLikeCounts[position] = likeCount;
+        mReplyCounts[position] = replyCount;
+        mAuthors[position] = indexOfAuthor(author == null ? "" : author);
+        mContentStarts[position + 1] = encode(content == null ? "" : content, position);
+        mSize++;
+        return position;
+    }
+
+    /**
+     * 把另一个store里的[from, from + count)原样追加进来，内容直接复制，不解码
+     */
+    public void addAll(CommentStore src, int from, int count) {
+        if (count <= 0)
+            return;
+        src.checkPosition(from);
+        src.checkPosition(from + count - 1);
+        ensureCapacity(mSize + count);
+        System.arraycopy(src.mIds, from, mIds, mSize, count);
+        System.arraycopy(src.mTimes, from, mTimes, mSize, count);
+        System.arraycopy(src.mLikeCounts, from, mLikeCounts, mSize, count);
+        System.arraycopy(src.mReplyCounts, from, mReplyCounts, mSize, count);
+        System.arraycopy(src.mCoders, from, mCoders, mSize, count);
+        int srcStart = src.mContentStarts[from];
+        int bytes = src.mContentStarts[from + count] - srcStart;
+        int start = mContentStarts[mSize];
+        ensureArena((long) start + bytes);
+        System.arraycopy(src.mArena, srcStart, mArena, start, bytes);
+        for (int i = 0; i < count; i++) {
+            mAuthors[mSize + i] = indexOfAuthor(src.mAuthorNames.get(src.mAuthors[from + i]));
+            mContentStarts[mSize + i + 1] = start + src.mContentStarts[from + i + 1] - srcStart;
+        }
+        mSize += count;
+    }
+
+    /**
+     * 追加一条已经编码好的评论，{@link CommentRepository}从文件读出来时用
+     */
+    void addEncoded(long id, String author, long time, int likeCount, int replyCount,
+                    byte coder, byte[] content, int offset, int length) {
+        ensureCapacity(mSize + 1);
+        int position = mSize;
+        mIds[position] = id;
+        mTimes[position] = time;
+        mLikeCounts[position] = likeCount;
+        mReplyCounts[position] = replyCount;
+        mAuthors[position] = indexOfAuthor(author);
+        mCoders[position] = coder;
+        int start = mContentStarts[position];
+        ensureArena((long) start + length);
+        System.arraycopy(content, offset, mArena, start, length);
+        mContentStarts[position + 1] = start + length;
+        mSize++;
+    }
+
+    byte getCoder(int position) {
+        return mCoders[position];
+    }
+
+    /**
+     * @return 内容编码之后的字节数
+     */
+    int getEncodedLength(int position) {
+        return mContentStarts[position + 1] - mContentStarts[position];
+    }
+
+    /**
+     * 把编码好的内容复制到dst
+     */
+    void getEncoded(int position, byte[] dst, int offset) {
+        int start = mContentStarts[position];
+        System.arraycopy(mArena, start, dst, offset, mContentStarts[position + 1] - start);
+    }
+
+    public int size() {
+        return mSize;
+    }
+
+    public long getId(int position) {
+        checkPosition(position);
+        return mIds[position];
+    }
+
+    public long getTime(int position) {
+        checkPosition(position);
+        return mTimes[position];
+    }
+
+    public int getLikeCount(int position) {
+        checkPosition(position);
+        return mLikeCounts[position];
+    }
+
+    public int getReplyCount(int position) {
+        checkPosition(position);
+        return mReplyCounts[position];
+    }
+
+    /**
+     * @return 同一个作者总是返回同一个String，不会分配
+     */
+    public String getAuthor(int position) {
+        checkPosition(position);
+        return mAuthorNames.get(mAuthors[position]);
+    }
+
+    /**
+     * @return 内容的char个数
+     */
+    public int getContentLength(int position) {
+        checkPosition(position);
+        int bytes = mContentStarts[position + 1] - mContentStarts[position];
+        return mCoders[position] == CODER_LATIN1 ? bytes : bytes >> 1;
+    }
+
+    /**
+     * 每次调用都会解码并创建新的String，列表bind时用{@link #getContent(int, char[], int)}
+     */
+    public String getContent(int position) {
+        char[] chars = new char[getContentLength(position)];
+        getContent(position, chars, 0);
+        return new String(chars);
+    }
+
+    /**
+     * 把内容解码到dst里，不分配内存
+     *
+     * @param dst 从offset开始至少要有{@link #getContentLength(int)}个位置
+     * @return 写入的char个数
+     */
+    public int getContent(int position, char[] dst, int offset) {
+        checkPosition(position);
+        byte[] arena = mArena;
+        int start = mContentStarts[position];
+        int end = mContentStarts[position + 1];
+        int out = offset;
+        if (mCoders[position] == CODER_LATIN1) {
+            for (int i = start; i < end; i++) {
+                dst[out++] = (char) (arena[i] & 0xFF);
+            }
+        } else {
+            for (int i = start; i < end; i += 2) {
+                dst[out++] = (char) (((arena[i] & 0xFF) << 8) | (arena[i + 1] & 0xFF));
+            }
+        }
+        return out - offset;
+    }
+
+    /**
+     * @return 所有数组实际占用的字节数(不包括数组头和作者字符串)，用来估算内存
+     */
+    public long getArrayBytes() {
+        return (long) mIds.length * 8 + (long) mTimes.length * 8 + (long) mLikeCounts.length * 4
+                + (long) mReplyCounts.length * 4 + (long) mAuthors.length * 4 + (long) mContentStarts.length * 4
+                + mCoders.length + mArena.length;
+    }
+
+    /**
+     * 数据全部加载完之后调用，去掉扩容时多留的空间
+     */
+    public void trimToSize() {
+        resize(mSize);
+        if (mArena.length > mContentStarts[mSize]) {
+            mArena = Arrays.copyOf(mArena, mContentStarts[mSize]);
+        }
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (capacity > mIds.length) {
+            resize(Math.max(capacity, mIds.length + (mIds.length >> 1) + 1));
+        }
+    }
+
+    private void resize(int capacity) {
+        if (capacity == mIds.length)
+            return;
+        mIds = Arrays.copyOf(mIds, capacity);
+        mTimes = Arrays.copyOf(mTimes, capacity);
+        mLikeCounts = Arrays.copyOf(mLikeCounts, capacity);
+        mReplyCounts = Arrays.copyOf(mReplyCounts, capacity);
+        mAuthors = Arrays.copyOf(mAuthors, capacity);
+        mContentStarts = Arrays.copyOf(mContentStarts, capacity + 1);
+        mCoders = Arrays.copyOf(mCoders, capacity);
+    }
+
+    private void ensureArena(long end) {
+        if (end > Integer.MAX_VALUE)
+            throw new IllegalStateException("comment arena is full");
+        if (end > mArena.length) {
+            mArena = Arrays.copyOf(mArena, (int) Math.min(Integer.MAX_VALUE, Math.max(end, mArena.length * 2L)));
+        }
+    }
+
+    private int indexOfAuthor(String author) {
+        Integer index = mAuthorIndexes.get(author);
+        if (index == null) {
+            index = mAuthorNames.size();
+            mAuthorNames.add(author);
+            mAuthorIndexes.put(author, index);
+        }
+        return index;
+    }
+
+    /**
+     * 直接写进arena，不经过String.getBytes的临时数组
+     *
+     * @return 内容的结束位置
+     */
+    private int encode(CharSequence text, int position) {
+        int length = text.length();
+        byte coder = CODER_LATIN1;
+        for (int i = 0; i < length; i++) {
+            if (text.charAt(i) > 0xFF) {
+                coder = CODER_UTF16;
+                break;
+            }
+        }
+        int start = mContentStarts[position];
+        ensureArena((long) start + (coder == CODER_LATIN1 ? length : length * 2L));
+        byte[] arena = mArena;
+        int out = start;
+        if (coder == CODER_LATIN1) {
+            for (int i = 0; i < length; i++) {
+                arena[out++] = (byte) text.charAt(i);
+            }
+        } else {
+            for (int i = 0; i < length; i++) {
+                char c = text.charAt(i);
+                arena[out++] = (byte) (c >> 8);
+                arena[out++] = (byte) c;
+            }
+        }
+        mCoders[position] = coder;
+        return out;
+    }
+
+    private void checkPosition(int position) {
+        if (position < 0 || position >= mSize)
+            throw new IndexOutOfBoundsException("position " + position + ", size " + mSize);
+    }
+}
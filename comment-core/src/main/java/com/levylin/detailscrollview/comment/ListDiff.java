@@ -0,0 +1,256 @@
+package com.levylin.detailscrollview.comment;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * 计算两个列表之间最少的插入/删除，再把内容变了的同一项标记为change，用Myers差分算法
+ * 1.先去掉相同的头部和尾部，新评论追加在头或尾时几乎不用计算
+ * 2.中间部分的编辑次数超过{@link #MAX_EDITS}时不再找最优解，直接当作整段删除再整段插入，结果仍然正确
+ * 不依赖Android，可以在任何线程调用，算完之后在主线程{@link Result#dispatchUpdatesTo}
+ */
+public final class ListDiff {
+
+    /**
+     * 中间部分最多计算的编辑次数，回溯需要保存的数据和它的平方成正比
+     */
+    static final int MAX_EDITS = 1000;
+
+    public interface Callback<T> {
+        /**
+         * @return 是否是同一项，比如评论id相同
+         */
+        boolean areItemsTheSame(T oldItem, T newItem);
+
+        /**
+         * 只在{@link #areItemsTheSame}返回true时调用
+         *
+         * @return 显示的内容是否一样，不一样的会通知change
+         */
+        boolean areContentsTheSame(T oldItem, T newItem);
+    }
+
+    private ListDiff() {
+    }
+
+    public static <T> Result calculate(List<T> oldList, List<T> newList, Callback<T> callback) {
+        Builder builder = new Builder();
+        int oldSize = oldList.size();
+        int newSize = newList.size();
+        int prefix = 0;
+        while (prefix < oldSize && prefix < newSize && callback.areItemsTheSame(oldList.get(prefix), newList.get(prefix))) {
+            prefix++;
+        }
+        int suffix = 0;
+        while (suffix < oldSize - prefix && suffix < newSize - prefix
+                && callback.areItemsTheSame(oldList.get(oldSize - 1 - suffix), newList.get(newSize - 1 - suffix))) {
+            suffix++;
+        }
+        //从后往前产生变化，前面的位置不受后面变化的影响
+        for (int i = 0; i < suffix; i++) {
+            int oldPos = oldSize - 1 - i;
+            if (!callback.areContentsTheSame(oldList.get(oldPos), newList.get(newSize - 1 - i))) {
+                builder.changed(oldPos);
+            }
+        }
+        diffMiddle(oldList, newList, callback, prefix, oldSize - suffix, prefix, newSize - suffix, builder);
+        for (int i = prefix - 1; i >= 0; i--) {
+            if (!callback.areContentsTheSame(oldList.get(i), newList.get(i))) {
+                builder.changed(i);
+            }
+        }
+        return builder.build();
+    }
+
+    /**
+     * 对[oldStart, oldEnd)和[newStart, newEnd)做Myers差分，保存每一步的V数组用来回溯
+     */
+    private static <T> void diffMiddle(List<T> oldList, List<T> newList, Callback<T> callback,
+                                       int oldStart, int oldEnd, int newStart, int newEnd, Builder builder) {
+        final int n = oldEnd - oldStart;
+        final int m = newEnd - newStart;
+        if (n == 0 && m == 0)
+            return;
+        final int maxD = Math.min(n + m, MAX_EDITS);
+        final int offset = maxD + 1;
+        final int[] v = new int[2 * maxD + 3];
+        final int[][] trace = new int[maxD + 1][];
+        int found = -1;
+        for (int d = 0; d <= maxD && found < 0; d++) {
+            //保存上一步的结果，回溯时只会用到[-(d-1), d-1]
+            trace[d] = d == 0 ? null : Arrays.copyOfRange(v, offset - d + 1, offset + d);
+            for (int k = -d; k <= d; k += 2) {
+                int x;
+                if (k == -d || (k != d && v[offset + k - 1] < v[offset + k + 1])) {
+                    x = v[offset + k + 1];//插入，向下走
+                } else {
+                    x = v[offset + k - 1] + 1;//删除，向右走
+                }
+                int y = x - k;
+                while (x < n && y < m && callback.areItemsTheSame(oldList.get(oldStart + x), newList.get(newStart + y))) {
+                    x++;
+                    y++;
+                }
+                v[offset + k] = x;
+                if (x >= n && y >= m) {
+                    found = d;
+                    break;
+                }
+            }
+        }
+        if (found < 0) {//改动太多，整段替换
+            builder.removed(oldStart, n);
+            builder.inserted(oldStart, m);
+            return;
+        }
+        int x = n;
+        int y = m;
+        for (int d = found; d > 0; d--) {
+            int[] prev = trace[d];//下标是k + d - 1
+            int k = x - y;
+            int prevK;
+            if (k == -d || (k != d && prev[k - 1 + d - 1] < prev[k + 1 + d - 1])) {
+                prevK = k + 1;
+            } else {
+                prevK = k - 1;
+            }
+            int prevX = prev[prevK + d - 1];
+            int prevY = prevX - prevK;
+            while (x > prevX && y > prevY) {
+                x--;
+                y--;
+                changedIfNeeded(oldList, newList, callback, oldStart + x, newStart + y, builder);
+            }
+            if (x == prevX) {
+                builder.inserted(oldStart + x, 1);
+            } else {
+                builder.removed(oldStart + prevX, 1);
+            }
+            x = prevX;
+            y = prevY;
+        }
+        while (x > 0 && y > 0) {
+            x--;
+            y--;
+            changedIfNeeded(oldList, newList, callback, oldStart + x, newStart + y, builder);
+        }
+    }
+
+    private static <T> void changedIfNeeded(List<T> oldList, List<T> newList, Callback<T> callback,
+                                            int oldPos, int newPos, Builder builder) {
+        if (!callback.areContentsTheSame(oldList.get(oldPos), newList.get(newPos))) {
+            builder.changed(oldPos);
+        }
+    }
+
+    /**
+     * 计算结果，只是一串(类型, 位置, 个数)，从列表尾部往头部排列
+     */
+    public static final class Result {
+
+        private static final int TYPE_INSERT = 0;
+        private static final int TYPE_REMOVE = 1;
+        private static final int TYPE_CHANGE = 2;
+
+        private final int[] mOps;
+        private final int mOpCount;
+
+        private Result(int[] ops, int opCount) {
+            mOps = ops;
+            mOpCount = opCount;
+        }
+
+        public void dispatchUpdatesTo(ListUpdateCallback callback) {
+            for (int i = 0; i < mOpCount; i++) {
+                int type = mOps[i * 3];
+                int position = mOps[i * 3 + 1];
+                int count = mOps[i * 3 + 2];
+                switch (type) {
+                    case TYPE_INSERT:
+                        callback.onInserted(position, count);
+                        break;
+                    case TYPE_REMOVE:
+                        callback.onRemoved(position, count);
+                        break;
+                    default:
+                        callback.onChanged(position, count);
+                        break;
+                }
+            }
+        }
+
+        /**
+         * @return 合并之后的变化个数，0表示两个列表显示上完全一样
+         */
+        public int getUpdateCount() {
+            return mOpCount;
+        }
+    }
+
+    /**
+     * 收集从后往前产生的变化，位置连续的同类变化合并成一个
+     */
+    private static final class Builder {
+
+        private int[] mOps = new int[3 * 16];
+        private int mOpCount;
+        private int mType = -1;
+        private int mPosition;
+        private int mCount;
+
+        void inserted(int position, int count) {
+            if (count == 0)
+                return;
+            if (mType == Result.TYPE_INSERT && mPosition == position) {
+                mCount += count;
+                return;
+            }
+            push(Result.TYPE_INSERT, position, count);
+        }
+
+        void removed(int position, int count) {
+            if (count == 0)
+                return;
+            if (mType == Result.TYPE_REMOVE && mPosition == position + count) {
+                mPosition = position;
+                mCount += count;
+                return;
+            }
+            push(Result.TYPE_REMOVE, position, count);
+        }
+
+        void changed(int position) {
+            if (mType == Result.TYPE_CHANGE && mPosition == position + 1) {
+                mPosition = position;
+                mCount++;
+                return;
+            }
+            push(Result.TYPE_CHANGE, position, 1);
+        }
+
+        private void push(int type, int position, int count) {
+            flush();
+            mType = type;
+            mPosition = position;
+            mCount = count;
+        }
+
+        private void flush() {
+            if (mType < 0)
+                return;
+            if (mOps.length < (mOpCount + 1) * 3) {
+                mOps = Arrays.copyOf(mOps, mOps.length * 2);
+            }
+            mOps[mOpCount * 3] = mType;
+            mOps[mOpCount * 3 + 1] = mPosition;
+            mOps[mOpCount * 3 + 2] = mCount;
+            mOpCount++;
+            mType = -1;
+        }
+
+        Result build() {
+            flush();
+            return new Result(mOps, mOpCount);
+        }
+    }
+}
@@ -0,0 +1,13 @@
+package com.levylin.detailscrollview.comment;
+
+/**
+ * 接收{@link ListDiff.Result}的变化，位置都是按回调时列表的当前状态算的，可以直接转给adapter的notifyItemRangeXXX
+ */
+public interface ListUpdateCallback {
+
+    void onInserted(int position, int count);
+
+    void onRemoved(int position, int count);
+
+    void onChanged(int position, int count);
+}
@@ -0,0 +1,181 @@
+package com.levylin.detailscrollview.comment;
+
+import com.levylin.detailscrollview.fixture.FixtureServer;
+import com.levylin.detailscrollview.fixture.SyntheticComment;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.StringReader;
+import java.net.URL;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * 用本地的{@link FixtureServer}代替评论接口，单线程的ScheduledExecutorService代替主线程，每16ms一帧
+ */
+public class CommentFeedLoaderTest {
+
+    private FixtureServer mServer;
+    private ExecutorService mBackground;
+    private ScheduledExecutorService mMain;
+
+    @Before
+    public void setUp() throws IOException {
+        mServer = new FixtureServer();
+        mServer.start();
+        mBackground = Executors.newSingleThreadExecutor();
+        mMain = Executors.newSingleThreadScheduledExecutor();
+    }
+
+    @After
+    public void tearDown() {
+        mServer.stop();
+        mBackground.shutdownNow();
+        mMain.shutdownNow();
+    }
+
+    @Test
+    public void reader_parsesFeedWithEscapesAndUnknownFields() throws IOException {
+        String json = " [ {\"id\":\"7\",\"extra\":{\"a\":[1,{\"b\":\"}]\"}],\"c\":null},\"author\":\"小\\\"林\","
+                + "\"content\":\"第一行\\n\\u7b2c二行 \\/ 😀\",\"time\":-3,\"likeCount\":1.5e1,\"replyCount\":null,\"ok\":true},"
+                + "{},{\"author\":null,\"content\":\"\"} ]";
+        CommentFeedReader reader = new CommentFeedReader(new StringReader(json));
+        CommentStore store = new CommentStore();
+        assertEquals(2, reader.read(store, 2));
+        assertEquals(1, reader.read(store, 2));
+        assertEquals(0, reader.read(store, 2));
+        assertTrue(reader.isFinished());
+        assertEquals(7, store.getId(0));
+        assertEquals("小\"林", store.getAuthor(0));
+        assertEquals("第一行\n第二行 / 😀", store.getContent(0));
+        assertEquals(-3, store.getTime(0));
+        assertEquals(1, store.getLikeCount(0));
+        assertEquals(0, store.getReplyCount(0));
+        assertEquals("", store.getAuthor(1));
+        assertEquals("", store.getContent(2));
+    }
+
+    @Test
+    public void loader_firstRowsArriveBeforeWholeFeed() throws Exception {
+        List<SyntheticComment> comments = SyntheticComment.generate(5000, 140, 20170325L);
+        mServer.setComments(comments);
+        mServer.setBytesPerSecond(2 * 1024 * 1024);
+        final CommentStore shown = new CommentStore();
+        final int[] frames = new int[1];
+        final CountDownLatch done = new CountDownLatch(1);
+        final AtomicReference<Object> result = new AtomicReference<>();
+        CommentFeedLoader loader = new CommentFeedLoader(new URL(mServer.getCommentsUrl(0, comments.size())), mBackground,
+                new Executor() {
+                    @Override
+                    public void execute(Runnable command) {
+                        mMain.schedule(command, 16, TimeUnit.MILLISECONDS);
+                    }
+                });
+        loader.start(new CommentFeedLoader.Listener() {
+            @Override
+            public void onRows(CommentStore rows) {
+                shown.addAll(rows, 0, rows.size());
+                frames[0]++;
+            }
+
+            @Override
+            public void onComplete(CommentFeedLoader.Stats stats) {
+                result.set(stats);
+                done.countDown();
+            }
+
+            @Override
+            public void onError(IOException e, CommentFeedLoader.Stats stats) {
+                result.set(e);
+                done.countDown();
+            }
+        });
+        assertTrue(done.await(30, TimeUnit.SECONDS));
+        assertTrue(String.valueOf(result.get()), result.get() instanceof CommentFeedLoader.Stats);
+        CommentFeedLoader.Stats stats = (CommentFeedLoader.Stats) result.get();
+
+        assertEquals(comments.size(), stats.getRows());
+        assertEquals(comments.size(), shown.size());
+        for (int i = 0; i < comments.size(); i += 97) {
+            assertEquals(comments.get(i).id, shown.getId(i));
+            assertEquals(comments.get(i).content, shown.getContent(i));
+        }
+        assertTrue(stats.toString(), stats.getFirstFrameNanos() < stats.getTotalNanos() / 2);
+        assertTrue("frames " + frames[0], frames[0] < comments.size() / 20);//每帧合并了多批
+    }
+
+    @Test
+    public void pagingSource_streamSavesToRepository() throws Exception {
+        List<SyntheticComment> comments = SyntheticComment.generate(300, 140, 3);
+        mServer.setComments(comments);
+        File dir = new File(System.getProperty("java.io.tmpdir"), "feed-" + System.nanoTime());
+        final CommentRepository repository = CommentRepository.open(dir);
+        final CountDownLatch done = new CountDownLatch(1);
+        final Executor main = new Executor() {
+            @Override
+            public void execute(Runnable command) {
+                mMain.execute(command);
+            }
+        };
+        final CommentPagingSource source = new CommentPagingSource(repository, new CommentStore(), null, mBackground, main);
+        source.setListener(new CommentPagingSource.Listener() {
+            @Override
+            public void onPageLoaded(int fromPosition, int count) {
+                if (!source.isStreaming() || source.getStore().size() == 300) {
+                    done.countDown();
+                }
+            }
+
+            @Override
+            public void onPageError(IOException e) {
+                done.countDown();
+            }
+        });
+        final URL url = new URL(mServer.getCommentsUrl(0, 300));
+        mMain.execute(new Runnable() {
+            @Override
+            public void run() {
+                source.stream(new CommentFeedLoader(url, mBackground, main));
+                source.loadNextPage();//流式加载期间不分页
+            }
+        });
+        try {
+            assertTrue(done.await(30, TimeUnit.SECONDS));
+            assertEquals(300, source.getStore().size());
+            assertEquals(300, source.getFetchedCount());
+            assertEquals(300, repository.size());
+            CommentStore saved = new CommentStore();
+            repository.read(299, 1, saved);
+            assertEquals(comments.get(299).content, saved.getContent(0));
+        } finally {
+            repository.clear();
+            repository.close();
+            new File(dir, CommentRepository.DATA_FILE).delete();
+            new File(dir, CommentRepository.INDEX_FILE).delete();
+            dir.delete();
+        }
+    }
+
+    @Test
+    public void fetch_page() throws IOException {
+        List<SyntheticComment> comments = SyntheticComment.generate(50, 140, 1);
+        mServer.setComments(comments);
+        CommentStore page = new CommentStore();
+        assertEquals(5, CommentFeedLoader.fetch(new URL(mServer.getCommentsUrl(45, 20)), page));
+        assertEquals(46, page.getId(0));
+        assertEquals(comments.get(49).author, page.getAuthor(4));
+    }
+}
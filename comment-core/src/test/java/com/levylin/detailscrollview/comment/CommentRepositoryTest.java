@@ -0,0 +1,146 @@
+package com.levylin.detailscrollview.comment;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.concurrent.Executor;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class CommentRepositoryTest {
+
+    private static final Executor DIRECT = new Executor() {
+        @Override
+        public void execute(Runnable command) {
+            command.run();
+        }
+    };
+
+    private File mDir;
+
+    @Before
+    public void setUp() {
+        mDir = new File(System.getProperty("java.io.tmpdir"), "comment-repo-" + System.nanoTime());
+    }
+
+    @After
+    public void tearDown() {
+        File[] files = mDir.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                file.delete();
+            }
+        }
+        mDir.delete();
+    }
+
+    @Test
+    public void append_reopen_readsSameComments() throws IOException {
+        CommentStore source = comments(0, 3000);
+        CommentRepository repository = CommentRepository.open(mDir);
+        repository.append(source, 0, 1000);
+        repository.append(source, 1000, 2000);//索引需要扩容
+        repository.close();
+
+        repository = CommentRepository.open(mDir);
+        assertEquals(3000, repository.size());
+        CommentStore page = new CommentStore();
+        assertEquals(20, repository.read(1990, 20, page));
+        assertEquals(10, repository.read(2990, 20, page));
+        assertEquals(0, repository.read(3000, 20, page));
+        for (int i = 0; i < 30; i++) {
+            int position = i < 20 ? 1990 + i : 2990 + i - 20;
+            assertEquals(source.getId(position), page.getId(i));
+            assertEquals(source.getAuthor(position), page.getAuthor(i));
+            assertEquals(source.getContent(position), page.getContent(i));
+            assertEquals(source.getTime(position), page.getTime(i));
+            assertEquals(source.getLikeCount(position), page.getLikeCount(i));
+            assertEquals(source.getReplyCount(position), page.getReplyCount(i));
+        }
+        repository.close();
+    }
+
+    @Test
+    public void unfinishedAppend_droppedOnOpen() throws IOException {
+        CommentRepository repository = CommentRepository.open(mDir);
+        repository.append(comments(0, 10), 0, 10);
+        long length = repository.getDataLength();
+        repository.close();
+        RandomAccessFile data = new RandomAccessFile(new File(mDir, CommentRepository.DATA_FILE), "rw");
+        data.setLength(length + 100);//数据写了，索引还没提交
+        data.close();
+
+        repository = CommentRepository.open(mDir);
+        assertEquals(10, repository.size());
+        assertEquals(length, new File(mDir, CommentRepository.DATA_FILE).length());
+        repository.append(comments(10, 1), 0, 1);
+        CommentStore page = new CommentStore();
+        repository.read(10, 1, page);
+        assertEquals(11, page.getId(0));
+        repository.close();
+    }
+
+    @Test
+    public void pagingSource_fetchesOnlyWhatIsNotStored() throws IOException {
+        final CommentStore server = comments(0, 45);
+        CommentPagingSource.Fetcher fetcher = new CommentPagingSource.Fetcher() {
+            @Override
+            public int fetch(int offset, int limit, CommentStore into) {
+                int count = Math.max(0, Math.min(limit, server.size() - offset));
+                if (count > 0) {
+                    into.addAll(server, offset, count);
+                }
+                return count;
+            }
+        };
+        CommentRepository repository = CommentRepository.open(mDir);
+        CommentPagingSource source = new CommentPagingSource(repository, new CommentStore(), fetcher, DIRECT, DIRECT);
+        source.loadNextPage();
+        source.loadNextPage();
+        assertEquals(40, source.getStore().size());
+        assertEquals(40, source.getFetchedCount());
+        assertFalse(source.isEnd());
+        repository.close();
+
+        //再次打开：本地的40条不再拉取
+        repository = CommentRepository.open(mDir);
+        source = new CommentPagingSource(repository, new CommentStore(), fetcher, DIRECT, DIRECT);
+        final int[] loaded = new int[1];
+        source.setListener(new CommentPagingSource.Listener() {
+            @Override
+            public void onPageLoaded(int fromPosition, int count) {
+                loaded[0] += count;
+            }
+
+            @Override
+            public void onPageError(IOException e) {
+                throw new AssertionError(e);
+            }
+        });
+        source.loadNextPage();
+        source.loadNextPage();
+        assertEquals(0, source.getFetchedCount());
+        source.onItemBound(39);
+        assertEquals(45, source.getStore().size());
+        assertEquals(5, source.getFetchedCount());
+        source.onItemBound(44);
+        assertTrue(source.isEnd());
+        assertEquals(45, loaded[0]);
+        assertEquals(server.getContent(44), source.getStore().getContent(44));
+        repository.close();
+    }
+
+    private static CommentStore comments(int from, int count) {
+        CommentStore store = new CommentStore(count);
+        for (int i = from; i < from + count; i++) {
+            store.add(i + 1, "作者" + (i % 5), i % 3 == 0 ? "comment " + i : "第" + i + "条评论，", 1490400000000L - i, i, i % 7);
+        }
+        return store;
+    }
+}
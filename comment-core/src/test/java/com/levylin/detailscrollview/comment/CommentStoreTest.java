@@ -0,0 +1,67 @@
+package com.levylin.detailscrollview.comment;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class CommentStoreTest {
+
+    private static final String[] CONTENTS = {
+            "",
+            "hello",
+            "的一是在不了，有和人。",
+            "café ñ ü",
+            "表情😀结尾👍",
+            "落单\uD800的代理",
+    };
+
+    @Test
+    public void add_fieldsAndContentRoundTrip() {
+        CommentStore store = new CommentStore(2);//故意小一点，触发扩容
+        for (int i = 0; i < 1000; i++) {
+            store.add(i + 1, "作者" + (i % 7), CONTENTS[i % CONTENTS.length] + i, 1490400000000L - i, i * 3, i % 50);
+        }
+        assertEquals(1000, store.size());
+        char[] buffer = new char[16];
+        for (int i = 0; i < 1000; i++) {
+            String expected = CONTENTS[i % CONTENTS.length] + i;
+            assertEquals(i + 1, store.getId(i));
+            assertEquals(1490400000000L - i, store.getTime(i));
+            assertEquals(i * 3, store.getLikeCount(i));
+            assertEquals(i % 50, store.getReplyCount(i));
+            assertEquals("作者" + (i % 7), store.getAuthor(i));
+            assertEquals(expected.length(), store.getContentLength(i));
+            if (buffer.length < expected.length() + 1) {
+                buffer = new char[expected.length() + 1];
+            }
+            int length = store.getContent(i, buffer, 1);
+            assertEquals(expected, new String(buffer, 1, length));
+            assertEquals(expected, store.getContent(i));
+        }
+    }
+
+    @Test
+    public void sameAuthor_sharedString() {
+        CommentStore store = new CommentStore();
+        store.add(1, new String("小林"), "a", 0, 0, 0);
+        store.add(2, new String("小林"), "b", 0, 0, 0);
+        assertSame(store.getAuthor(0), store.getAuthor(1));
+    }
+
+    @Test
+    public void trimToSize_keepsContent() {
+        CommentStore store = new CommentStore(100);
+        store.add(1, "a", "的一是", 0, 0, 0);
+        store.add(2, "b", "abc", 0, 0, 0);
+        long before = store.getArrayBytes();
+        store.trimToSize();
+        assertTrue(store.getArrayBytes() < before);
+        assertEquals(2 * 8 * 2 + 2 * 4 * 3 + 3 * 4 + 2 + 6 + 3, store.getArrayBytes());//中文2个字节，英文1个字节
+        assertEquals("的一是", store.getContent(0));
+        assertEquals("abc", store.getContent(1));
+        store.add(3, "a", "的", 0, 0, 0);//trim之后还能追加
+        assertEquals("的", store.getContent(2));
+    }
+}
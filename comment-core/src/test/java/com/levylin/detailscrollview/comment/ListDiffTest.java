@@ -0,0 +1,159 @@
+package com.levylin.detailscrollview.comment;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class ListDiffTest {
+
+    /**
+     * id相同是同一项，text不同表示内容变了
+     */
+    private static final class Item {
+        final int id;
+        final String text;
+
+        Item(int id, String text) {
+            this.id = id;
+            this.text = text;
+        }
+    }
+
+    private static final ListDiff.Callback<Item> CALLBACK = new ListDiff.Callback<Item>() {
+        @Override
+        public boolean areItemsTheSame(Item oldItem, Item newItem) {
+            return oldItem.id == newItem.id;
+        }
+
+        @Override
+        public boolean areContentsTheSame(Item oldItem, Item newItem) {
+            return oldItem.text.equals(newItem.text);
+        }
+    };
+
+    /**
+     * 把变化应用到旧列表的副本上，插入的位置放null，变了的做标记，最后和新列表逐项对比
+     */
+    private static final class Applier implements ListUpdateCallback {
+        final List<Item> items;
+        final List<Boolean> changed = new ArrayList<>();
+        int insertedCount;
+        int removedCount;
+
+        Applier(List<Item> oldList) {
+            items = new ArrayList<>(oldList);
+            for (int i = 0; i < oldList.size(); i++) {
+                changed.add(false);
+            }
+        }
+
+        @Override
+        public void onInserted(int position, int count) {
+            for (int i = 0; i < count; i++) {
+                items.add(position, null);
+                changed.add(position, false);
+            }
+            insertedCount += count;
+        }
+
+        @Override
+        public void onRemoved(int position, int count) {
+            for (int i = 0; i < count; i++) {
+                items.remove(position);
+                changed.remove(position);
+            }
+            removedCount += count;
+        }
+
+        @Override
+        public void onChanged(int position, int count) {
+            for (int i = 0; i < count; i++) {
+                assertTrue("changed an inserted slot", items.get(position + i) != null);
+                changed.set(position + i, true);
+            }
+        }
+
+        void verify(List<Item> newList) {
+            assertEquals(newList.size(), items.size());
+            for (int i = 0; i < newList.size(); i++) {
+                Item item = items.get(i);
+                if (item == null)
+                    continue;
+                assertEquals("position " + i, newList.get(i).id, item.id);
+                assertEquals("position " + i, !item.text.equals(newList.get(i).text), changed.get(i));
+            }
+        }
+    }
+
+    @Test
+    public void liveComments_prependedAndAppended_onlyInserts() {
+        List<Item> oldList = items(0, 1000);
+        List<Item> newList = new ArrayList<>(items(5000, 3));
+        newList.addAll(oldList);
+        newList.addAll(items(6000, 2));
+
+        ListDiff.Result result = ListDiff.calculate(oldList, newList, CALLBACK);
+        Applier applier = new Applier(oldList);
+        result.dispatchUpdatesTo(applier);
+        applier.verify(newList);
+        assertEquals(2, result.getUpdateCount());
+        assertEquals(5, applier.insertedCount);
+        assertEquals(0, applier.removedCount);
+    }
+
+    @Test
+    public void sameList_noUpdates() {
+        List<Item> list = items(0, 100);
+        assertEquals(0, ListDiff.calculate(list, new ArrayList<>(list), CALLBACK).getUpdateCount());
+    }
+
+    @Test
+    public void randomEdits_applyToNewList() {
+        Random random = new Random(20170325);
+        for (int round = 0; round < 300; round++) {
+            List<Item> oldList = items(0, random.nextInt(60));
+            List<Item> newList = new ArrayList<>(oldList);
+            int nextId = 1000;
+            int edits = random.nextInt(20);
+            for (int e = 0; e < edits; e++) {
+                int op = random.nextInt(3);
+                if (op == 0 || newList.isEmpty()) {
+                    newList.add(random.nextInt(newList.size() + 1), new Item(nextId++, "new"));
+                } else if (op == 1) {
+                    newList.remove(random.nextInt(newList.size()));
+                } else {
+                    int index = random.nextInt(newList.size());
+                    newList.set(index, new Item(newList.get(index).id, "edited" + e));
+                }
+            }
+            Applier applier = new Applier(oldList);
+            ListDiff.calculate(oldList, newList, CALLBACK).dispatchUpdatesTo(applier);
+            applier.verify(newList);
+        }
+    }
+
+    @Test
+    public void tooManyEdits_replacesMiddle() {
+        List<Item> oldList = items(0, 3000);
+        List<Item> newList = items(10000, 3000);
+        newList.set(0, oldList.get(0));
+
+        Applier applier = new Applier(oldList);
+        ListDiff.calculate(oldList, newList, CALLBACK).dispatchUpdatesTo(applier);
+        applier.verify(newList);
+        assertEquals(2999, applier.removedCount);
+    }
+
+    private static List<Item> items(int firstId, int count) {
+        List<Item> list = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            list.add(new Item(firstId + i, "comment " + (firstId + i)));
+        }
+        return list;
+    }
+}
@@ -0,0 +1,88 @@
+package com.levylin.detailscrollview.fixture;
+
+/**
+ * 模拟文章的参数，相同的参数总是生成相同的内容
+ */
+public final class ArticleSpec {
+
+    int paragraphs = 40;
+    int charsPerParagraph = 80;
+    int images = 10;
+    int imageWidth = 320;
+    int imageHeight = 180;
+    int domDepth = 1;
+    int lateParagraphs = 0;
+    int lateDelayMillis = 0;
+    long seed = 20170325L;
+
+    /**
+     * 短文章，一屏多一点
+     */
+    public static ArticleSpec small() {
+        return new ArticleSpec().setParagraphs(6).setImages(1);
+    }
+
+    /**
+     * 长文章，默认的参数
+     */
+    public static ArticleSpec longArticle() {
+        return new ArticleSpec();
+    }
+
+    /**
+     * 加载完成后还会变高的长文章，用来测内容高度变化
+     */
+    public static ArticleSpec growing() {
+        return new ArticleSpec().setLateParagraphs(20).setLateDelayMillis(1500);
+    }
+
+    public ArticleSpec setParagraphs(int paragraphs) {
+        this.paragraphs = Math.max(0, paragraphs);
+        return this;
+    }
+
+    public ArticleSpec setCharsPerParagraph(int chars) {
+        this.charsPerParagraph = Math.max(1, chars);
+        return this;
+    }
+
+    /**
+     * @param images 图片数，均匀地插在段落之间
+     */
+    public ArticleSpec setImages(int images) {
+        this.images = Math.max(0, images);
+        return this;
+    }
+
+    public ArticleSpec setImageSize(int width, int height) {
+        this.imageWidth = Math.max(1, width);
+        this.imageHeight = Math.max(1, height);
+        return this;
+    }
+
+    /**
+     * @param depth 每个段落外面套几层div
+     */
+    public ArticleSpec setDomDepth(int depth) {
+        this.domDepth = Math.max(0, depth);
+        return this;
+    }
+
+    /**
+     * @param paragraphs 页面加载完之后由js追加的段落数，会让内容高度变化
+     */
+    public ArticleSpec setLateParagraphs(int paragraphs) {
+        this.lateParagraphs = Math.max(0, paragraphs);
+        return this;
+    }
+
+    public ArticleSpec setLateDelayMillis(int delayMillis) {
+        this.lateDelayMillis = Math.max(0, delayMillis);
+        return this;
+    }
+
+    public ArticleSpec setSeed(long seed) {
+        this.seed = seed;
+        return this;
+    }
+}
@@ -0,0 +1,368 @@
+package com.levylin.detailscrollview.fixture;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.net.URLDecoder;
+import java.nio.charset.Charset;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.CRC32;
+
+/**
+ * 只监听127.0.0.1的HTTP/1.1服务器，只用ServerSocket实现，Android和普通JVM上都能跑
+ * 1.文章：/article/{name}/{path}，由{@link #addArticle}注册
+ * 2.评论：/comments?offset=0&limit=20，返回JSON数组，由{@link #setComments}设置
+ * 支持keep-alive、HEAD和If-None-Match，响应前可以加固定延迟模拟网络往返，响应体可以限速模拟慢速网络
+ */
+public class FixtureServer {
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+    private static final Charset ASCII = Charset.forName("US-ASCII");
+    private static final int MAX_LINE = 8192;
+    private static final int DEFAULT_LIMIT = 20;
+    private static final int THROTTLE_CHUNK = 4096;
+
+    private final Map<String, Resource> mResources = new ConcurrentHashMap<>();
+    private volatile List<SyntheticComment> mComments = Collections.emptyList();
+    private volatile int mLatencyMillis;
+    private volatile int mBytesPerSecond;
+    private volatile int mMaxAgeSeconds;
+    private final AtomicInteger mRequestCount = new AtomicInteger();
+
+    private ServerSocket mServerSocket;
+    private ExecutorService mExecutor;
+
+    private static final class Resource {
+        final String contentType;
+        final byte[] body;
+        final String etag;
+
+        Resource(String contentType, byte[] body) {
+            this.contentType = contentType;
+            this.body = body;
+            CRC32 crc = new CRC32();
+            crc.update(body);
+            this.etag = "\"" + Long.toHexString(crc.getValue()) + "\"";
+        }
+    }
+
+    /**
+     * 绑定一个空闲端口，可以重复调用
+     */
+    public synchronized void start() throws IOException {
+        if (mServerSocket != null)
+            return;
+        mServerSocket = new ServerSocket(0, 50, InetAddress.getByName("127.0.0.1"));
+        mExecutor = Executors.newCachedThreadPool(new ThreadFactory() {
+            private final AtomicInteger mCount = new AtomicInteger();
+
+            @Override
+            public Thread newThread(Runnable r) {
+                Thread thread = new Thread(r, "fixture-server-" + mCount.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+        final ServerSocket serverSocket = mServerSocket;
+        final ExecutorService executor = mExecutor;
+        executor.execute(new Runnable() {
+            @Override
+            public void run() {
+                while (!serverSocket.isClosed()) {
+                    try {
+                        final Socket socket = serverSocket.accept();
+                        executor.execute(new Runnable() {
+                            @Override
+                            public void run() {
+                                serve(socket);
+                            }
+                        });
+                    } catch (IOException e) {
+                        if (!serverSocket.isClosed()) {
+                            e.printStackTrace();
+                        }
+                    }
+                }
+            }
+        });
+    }
+
+    public synchronized void stop() {
+        if (mServerSocket == null)
+            return;
+        try {
+            mServerSocket.close();
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+        mExecutor.shutdownNow();
+        mServerSocket = null;
+        mExecutor = null;
+    }
+
+    public synchronized boolean isRunning() {
+        return mServerSocket != null;
+    }
+
+    /**
+     * @return 比如http://127.0.0.1:43210/，需要先{@link #start()}
+     */
+    public synchronized String getBaseUrl() {
+        if (mServerSocket == null)
+            throw new IllegalStateException("server not started");
+        return "http://127.0.0.1:" + mServerSocket.getLocalPort() + "/";
+    }
+
+    /**
+     * @return 文章的地址前缀，以/结尾，加上{@link SyntheticArticle#INDEX}就是文章页
+     */
+    public String addArticle(String name, SyntheticArticle article) {
+        String prefix = "article/" + name + "/";
+        for (Map.Entry<String, byte[]> file : article.files().entrySet()) {
+            mResources.put(prefix + file.getKey(), new Resource(SyntheticArticle.mimeType(file.getKey()), file.getValue()));
+        }
+        return getBaseUrl() + prefix;
+    }
+
+    public void setComments(List<SyntheticComment> comments) {
+        mComments = comments;
+    }
+
+    /**
+     * @return 第一页评论的地址，offset和limit可以替换
+     */
+    public String getCommentsUrl(int offset, int limit) {
+        return getBaseUrl() + "comments?offset=" + offset + "&limit=" + limit;
+    }
+
+    /**
+     * @param latencyMillis 每个请求响应前等待的时间，模拟网络往返
+     */
+    public void setLatencyMillis(int latencyMillis) {
+        mLatencyMillis = Math.max(0, latencyMillis);
+    }
+
+    /**
+     * @param bytesPerSecond 响应体的下载速度，0表示不限速
+     */
+    public void setBytesPerSecond(int bytesPerSecond) {
+        mBytesPerSecond = Math.max(0, bytesPerSecond);
+    }
+
+    /**
+     * @param maxAgeSeconds 响应的Cache-Control: max-age，0表示no-cache
+     */
+    public void setMaxAgeSeconds(int maxAgeSeconds) {
+        mMaxAgeSeconds = Math.max(0, maxAgeSeconds);
+    }
+
+    public int getRequestCount() {
+        return mRequestCount.get();
+    }
+
+    public void resetRequestCount() {
+        mRequestCount.set(0);
+    }
+
+    private void serve(Socket socket) {
+        try {
+            socket.setTcpNoDelay(true);
+            InputStream in = new BufferedInputStream(socket.getInputStream());
+            OutputStream out = new BufferedOutputStream(socket.getOutputStream());
+            boolean keepAlive = true;
+            while (keepAlive) {
+                String requestLine = readLine(in);
+                if (requestLine == null)
+                    break;
+                if (requestLine.length() == 0)
+                    continue;
+                String ifNoneMatch = null;
+                keepAlive = !requestLine.endsWith("HTTP/1.0");
+                String header;
+                while ((header = readLine(in)) != null && header.length() > 0) {
+                    int colon = header.indexOf(':');
+                    if (colon < 0)
+                        continue;
+                    String name = header.substring(0, colon).trim();
+                    String value = header.substring(colon + 1).trim();
+                    if (name.equalsIgnoreCase("If-None-Match")) {
+                        ifNoneMatch = value;
+                    } else if (name.equalsIgnoreCase("Connection")) {
+                        keepAlive = value.equalsIgnoreCase("keep-alive") || (keepAlive && !value.equalsIgnoreCase("close"));
+                    }
+                }
+                mRequestCount.incrementAndGet();
+                sleepLatency();
+                respond(out, requestLine, ifNoneMatch, keepAlive);
+                out.flush();
+            }
+        } catch (SocketException ignored) {
+            //客户端断开
+        } catch (IOException e) {
+            e.printStackTrace();
+        } finally {
+            try {
+                socket.close();
+            } catch (IOException ignored) {
+            }
+        }
+    }
+
+    private void respond(OutputStream out, String requestLine, String ifNoneMatch, boolean keepAlive) throws IOException {
+        String[] parts = requestLine.split(" ");
+        if (parts.length < 2) {
+            write(out, 400, "Bad Request", null, null, new byte[0], true, keepAlive);
+            return;
+        }
+        String method = parts[0].toUpperCase(Locale.US);
+        boolean isHead = method.equals("HEAD");
+        if (!isHead && !method.equals("GET")) {
+            write(out, 405, "Method Not Allowed", null, null, new byte[0], true, keepAlive);
+            return;
+        }
+        String target = parts[1];
+        int query = target.indexOf('?');
+        String path = URLDecoder.decode(query < 0 ? target : target.substring(0, query), "UTF-8");
+        if (path.startsWith("/")) {
+            path = path.substring(1);
+        }
+        if (path.endsWith("/") || path.length() == 0) {
+            path += SyntheticArticle.INDEX;
+        }
+        if (path.equals("comments")) {
+            Map<String, String> params = parseQuery(query < 0 ? "" : target.substring(query + 1));
+            int offset = parseInt(params.get("offset"), 0);
+            int limit = parseInt(params.get("limit"), DEFAULT_LIMIT);
+            byte[] body = SyntheticComment.toJson(mComments, offset, limit).getBytes(UTF_8);
+            write(out, 200, "OK", SyntheticArticle.mimeType(".json"), null, body, isHead, keepAlive);
+            return;
+        }
+        Resource resource = mResources.get(path);
+        if (resource == null) {
+            write(out, 404, "Not Found", "text/plain; charset=utf-8", null, "not found".getBytes(UTF_8), isHead, keepAlive);
+            return;
+        }
+        if (resource.etag.equals(ifNoneMatch)) {
+            write(out, 304, "Not Modified", null, resource.etag, new byte[0], true, keepAlive);
+            return;
+        }
+        write(out, 200, "OK", resource.contentType, resource.etag, resource.body, isHead, keepAlive);
+    }
+
+    private void write(OutputStream out, int code, String reason, String contentType, String etag, byte[] body,
+                       boolean omitBody, boolean keepAlive) throws IOException {
+        StringBuilder head = new StringBuilder();
+        head.append("HTTP/1.1 ").append(code).append(' ').append(reason).append("\r\n");
+        if (contentType != null) {
+            head.append("Content-Type: ").append(contentType).append("\r\n");
+        }
+        if (etag != null) {
+            head.append("ETag: ").append(etag).append("\r\n");
+        }
+        int maxAge = mMaxAgeSeconds;
+        head.append("Cache-Control: ").append(maxAge > 0 ? "max-age=" + maxAge : "no-cache").append("\r\n");
+        if (code != 304) {
+            head.append("Content-Length: ").append(body.length).append("\r\n");
+        }
+        head.append("Connection: ").append(keepAlive ? "keep-alive" : "close").append("\r\n\r\n");
+        out.write(head.toString().getBytes(ASCII));
+        if (!omitBody) {
+            writeBody(out, body);
+        }
+    }
+
+    /**
+     * 限速时分块发送，每块之后等到这块按速度应该传完的时间
+     */
+    private void writeBody(OutputStream out, byte[] body) throws IOException {
+        int bytesPerSecond = mBytesPerSecond;
+        if (bytesPerSecond <= 0) {
+            out.write(body);
+            return;
+        }
+        long start = System.nanoTime();
+        for (int offset = 0; offset < body.length; offset += THROTTLE_CHUNK) {
+            int length = Math.min(THROTTLE_CHUNK, body.length - offset);
+            out.write(body, offset, length);
+            out.flush();
+            long due = start + (offset + length) * 1000000000L / bytesPerSecond;
+            long waitMillis = (due - System.nanoTime()) / 1000000L;
+            if (waitMillis > 0) {
+                try {
+                    Thread.sleep(waitMillis);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        }
+    }
+
+    private void sleepLatency() {
+        int latency = mLatencyMillis;
+        if (latency <= 0)
+            return;
+        try {
+            Thread.sleep(latency);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * @return 连接关闭返回null，不包括\r\n
+     */
+    private static String readLine(InputStream in) throws IOException {
+        StringBuilder line = new StringBuilder();
+        int c;
+        while ((c = in.read()) != -1) {
+            if (c == '\n') {
+                int length = line.length();
+                if (length > 0 && line.charAt(length - 1) == '\r') {
+                    line.setLength(length - 1);
+                }
+                return line.toString();
+            }
+            if (line.length() >= MAX_LINE)
+                throw new IOException("line too long");
+            line.append((char) c);
+        }
+        return line.length() == 0 ? null : line.toString();
+    }
+
+    private static Map<String, String> parseQuery(String query) throws IOException {
+        Map<String, String> params = new HashMap<>();
+        for (String pair : query.split("&")) {
+            int equals = pair.indexOf('=');
+            if (equals > 0) {
+                params.put(URLDecoder.decode(pair.substring(0, equals), "UTF-8"), URLDecoder.decode(pair.substring(equals + 1), "UTF-8"));
+            }
+        }
+        return params;
+    }
+
+    private static int parseInt(String value, int defaultValue) {
+        if (value == null)
+            return defaultValue;
+        try {
+            return Integer.parseInt(value);
+        } catch (NumberFormatException e) {
+            return defaultValue;
+        }
+    }
+}
@@ -0,0 +1,195 @@
+package com.levylin.detailscrollview.fixture;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+/**
+ * 按{@link ArticleSpec}生成的文章：index.html + css + js + png图片，内容只由参数决定
+ * 图片不写高度，下载完成后才撑开，和真实的文章一样会在加载过程中改变内容高度
+ */
+public final class SyntheticArticle {
+
+    public static final String INDEX = "index.html";
+    public static final String CSS = "css/article.css";
+    public static final String JS = "js/article.js";
+    public static final int ABOVE_FOLD_IMAGES = 2;
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+    private static final String COMMON_CHARS = "的一是在不了有和人这中大为上个国我以要他时来用们生到作地于出就分对成会可主发年动同工也能下过子说产种面而方后多定行学法所民得经";
+
+    private final LinkedHashMap<String, byte[]> mFiles = new LinkedHashMap<>();
+    private final List<String> mFirstPaintPaths = new ArrayList<>();
+
+    public SyntheticArticle(ArticleSpec spec) {
+        Random random = new Random(spec.seed);
+        StringBuilder html = new StringBuilder();
+        html.append("<!DOCTYPE html><html><head><meta charset=\"utf-8\">")
+                .append("<meta name=\"viewport\" content=\"width=device-width,initial-scale=1\">")
+                .append("<link rel=\"stylesheet\" href=\"").append(CSS).append("\">")
+                .append("<script src=\"").append(JS).append("\"></script></head><body>")
+                .append("<h1>").append(text(random, 16)).append("</h1>");
+        int imageEvery = spec.images == 0 ? Integer.MAX_VALUE : Math.max(1, spec.paragraphs / spec.images);
+        int image = 0;
+        for (int i = 0; i < spec.paragraphs; i++) {
+            for (int d = 0; d < spec.domDepth; d++) {
+                html.append("<div class=\"d").append(d % 4).append("\">");
+            }
+            html.append("<p>").append(text(random, spec.charsPerParagraph)).append("</p>");
+            for (int d = 0; d < spec.domDepth; d++) {
+                html.append("</div>");
+            }
+            if (i % imageEvery == imageEvery - 1 && image < spec.images) {
+                html.append("<img src=\"").append(imagePath(image)).append("\">");
+                image++;
+            }
+        }
+        for (; image < spec.images; image++) {
+            html.append("<img src=\"").append(imagePath(image)).append("\">");
+        }
+        html.append("<div id=\"late\"></div>");
+        if (spec.lateParagraphs > 0) {
+            html.append("<script>setTimeout(function(){var c=document.getElementById('late');var t=[");
+            for (int i = 0; i < spec.lateParagraphs; i++) {
+                html.append(i == 0 ? "" : ",").append('"').append(text(random, spec.charsPerParagraph)).append('"');
+            }
+            html.append("];for(var i=0;i<t.length;i++){var p=document.createElement('p');p.textContent=t[i];c.appendChild(p);}},")
+                    .append(spec.lateDelayMillis).append(");</script>");
+        }
+        html.append("</body></html>");
+
+        mFiles.put(INDEX, html.toString().getBytes(UTF_8));
+        mFiles.put(CSS, ("body{margin:0;padding:12px;font-size:17px;line-height:1.6;color:#222}"
+                + "h1{font-size:22px}img{display:block;width:100%;margin:8px 0}"
+                + ".d0{padding-left:0}.d1{padding-left:1px}.d2{padding-left:0}.d3{padding-left:1px}").getBytes(UTF_8));
+        mFiles.put(JS, "window.__article_loaded=Date.now();".getBytes(UTF_8));
+        for (int i = 0; i < spec.images; i++) {
+            mFiles.put(imagePath(i), png(spec.imageWidth, spec.imageHeight, random));
+        }
+        mFirstPaintPaths.add(INDEX);
+        mFirstPaintPaths.add(CSS);
+        mFirstPaintPaths.add(JS);
+        for (int i = 0; i < Math.min(ABOVE_FOLD_IMAGES, spec.images); i++) {
+            mFirstPaintPaths.add(imagePath(i));
+        }
+    }
+
+    public static String imagePath(int index) {
+        return "img/" + index + ".png";
+    }
+
+    /**
+     * @return 路径->内容，第一个是{@link #INDEX}
+     */
+    public Map<String, byte[]> files() {
+        return Collections.unmodifiableMap(mFiles);
+    }
+
+    /**
+     * @return 首屏需要的资源，第一个是html，html下载完才能开始其他的
+     */
+    public List<String> firstPaintPaths() {
+        return Collections.unmodifiableList(mFirstPaintPaths);
+    }
+
+    public static String mimeType(String path) {
+        if (path.endsWith(".html"))
+            return "text/html; charset=utf-8";
+        if (path.endsWith(".css"))
+            return "text/css; charset=utf-8";
+        if (path.endsWith(".js"))
+            return "application/javascript; charset=utf-8";
+        if (path.endsWith(".png"))
+            return "image/png";
+        if (path.endsWith(".json"))
+            return "application/json; charset=utf-8";
+        return "application/octet-stream";
+    }
+
+    static String text(Random random, int length) {
+        StringBuilder builder = new StringBuilder(length);
+        for (int i = 0; i < length; i++) {
+            if (i > 0 && i % 24 == 23) {
+                builder.append('，');
+            } else {
+                builder.append(COMMON_CHARS.charAt(random.nextInt(COMMON_CHARS.length())));
+            }
+        }
+        return builder.append('。').toString();
+    }
+
+    /**
+     * 渐变加少量噪点，压缩后的大小和普通配图差不多
+     */
+    private static byte[] png(int width, int height, Random random) {
+        int baseR = random.nextInt(256);
+        int baseG = random.nextInt(256);
+        int baseB = random.nextInt(256);
+        byte[] raw = new byte[height * (1 + width * 3)];
+        int pos = 0;
+        for (int y = 0; y < height; y++) {
+            raw[pos++] = 1;//Sub过滤，渐变每行几乎是常数，压缩率接近真实的图片
+            int lastR = 0;
+            int lastG = 0;
+            int lastB = 0;
+            for (int x = 0; x < width; x++) {
+                int noise = random.nextInt(4);
+                int r = baseR + x * 255 / width + noise;
+                int g = baseG + y * 255 / height + noise;
+                int b = baseB + noise;
+                raw[pos++] = (byte) (r - lastR);
+                raw[pos++] = (byte) (g - lastG);
+                raw[pos++] = (byte) (b - lastB);
+                lastR = r;
+                lastG = g;
+                lastB = b;
+            }
+        }
+        Deflater deflater = new Deflater();
+        deflater.setInput(raw);
+        deflater.finish();
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+        byte[] buffer = new byte[8192];
+        while (!deflater.finished()) {
+            compressed.write(buffer, 0, deflater.deflate(buffer));
+        }
+        deflater.end();
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        try {
+            out.write(new byte[]{(byte) 0x89, 'P', 'N', 'G', '\r', '\n', 0x1a, '\n'});
+            ByteArrayOutputStream header = new ByteArrayOutputStream();
+            DataOutputStream headerOut = new DataOutputStream(header);
+            headerOut.writeInt(width);
+            headerOut.writeInt(height);
+            headerOut.write(new byte[]{8, 2, 0, 0, 0});//8位RGB
+            chunk(out, "IHDR", header.toByteArray());
+            chunk(out, "IDAT", compressed.toByteArray());
+            chunk(out, "IEND", new byte[0]);
+        } catch (IOException e) {
+            throw new IllegalStateException(e);//写内存不会失败
+        }
+        return bytes.toByteArray();
+    }
+
+    private static void chunk(DataOutputStream out, String type, byte[] data) throws IOException {
+        byte[] typeBytes = type.getBytes(Charset.forName("US-ASCII"));
+        out.writeInt(data.length);
+        out.write(typeBytes);
+        out.write(data);
+        CRC32 crc = new CRC32();
+        crc.update(typeBytes);
+        crc.update(data);
+        out.writeInt((int) crc.getValue());
+    }
+}
@@ -0,0 +1,103 @@
+package com.levylin.detailscrollview.fixture;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * 模拟的评论，内容长度不一，列表里每一项的高度也不一样
+ */
+public final class SyntheticComment {
+
+    private static final String[] AUTHORS = {"小林", "阿杰", "Levy", "老王", "momo", "路人甲", "七月", "Sunny"};
+    private static final long START_TIME = 1490400000000L;//2017-03-25
+
+    public final long id;
+    public final String author;
+    public final String content;
+    public final long time;
+    public final int likeCount;
+    public final int replyCount;
+
+    public SyntheticComment(long id, String author, String content, long time, int likeCount, int replyCount) {
+        this.id = id;
+        this.author = author;
+        this.content = content;
+        this.time = time;
+        this.likeCount = likeCount;
+        this.replyCount = replyCount;
+    }
+
+    /**
+     * 相同的参数总是生成相同的评论，id从1开始，时间从新到旧
+     *
+     * @param maxChars 评论内容的最大字数，大部分评论都比较短
+     */
+    public static List<SyntheticComment> generate(int count, int maxChars, long seed) {
+        Random random = new Random(seed);
+        List<SyntheticComment> comments = new ArrayList<>(count);
+        long time = START_TIME + count * 60000L;
+        for (int i = 0; i < count; i++) {
+            double r = random.nextDouble();
+            int chars = 1 + (int) (r * r * r * Math.max(1, maxChars - 1));
+            time -= 1000 + random.nextInt(120000);
+            comments.add(new SyntheticComment(i + 1, AUTHORS[random.nextInt(AUTHORS.length)],
+                    SyntheticArticle.text(random, chars), time, random.nextInt(1000), random.nextInt(50)));
+        }
+        return comments;
+    }
+
+    /**
+     * @return [{"id":1,"author":"...","content":"...","time":...,"likeCount":..,"replyCount":..},...]
+     */
+    public static String toJson(List<SyntheticComment> comments, int offset, int limit) {
+        StringBuilder json = new StringBuilder("[");
+        int end = Math.min(comments.size(), offset + limit);
+        for (int i = Math.max(0, offset); i < end; i++) {
+            SyntheticComment comment = comments.get(i);
+            if (json.length() > 1) {
+                json.append(',');
+            }
+            json.append("{\"id\":").append(comment.id)
+                    .append(",\"author\":");
+            quote(json, comment.author);
+            json.append(",\"content\":");
+            quote(json, comment.content);
+            json.append(",\"time\":").append(comment.time)
+                    .append(",\"likeCount\":").append(comment.likeCount)
+                    .append(",\"replyCount\":").append(comment.replyCount)
+                    .append('}');
+        }
+        return json.append(']').toString();
+    }
+
+    @Override
+    public String toString() {
+        return author + "：" + content;
+    }
+
+    private static void quote(StringBuilder json, String value) {
+        json.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"':
+                    json.append("\\\"");
+                    break;
+                case '\\':
+                    json.append("\\\\");
+                    break;
+                case '\n':
+                    json.append("\\n");
+                    break;
+                default:
+                    if (c < 0x20) {
+                        json.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        json.append(c);
+                    }
+            }
+        }
+        json.append('"');
+    }
+}
@@ -0,0 +1,97 @@
+package com.levylin.detailscrollview.fixture;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class FixtureServerTest {
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    private FixtureServer mServer;
+
+    @Before
+    public void setUp() throws IOException {
+        mServer = new FixtureServer();
+        mServer.start();
+    }
+
+    @After
+    public void tearDown() {
+        mServer.stop();
+    }
+
+    @Test
+    public void article_sameSpecSameContent() {
+        SyntheticArticle first = new SyntheticArticle(ArticleSpec.longArticle());
+        SyntheticArticle second = new SyntheticArticle(ArticleSpec.longArticle());
+        assertEquals(first.files().keySet(), second.files().keySet());
+        for (String path : first.files().keySet()) {
+            assertTrue(path, Arrays.equals(first.files().get(path), second.files().get(path)));
+        }
+        assertEquals(10, first.files().size() - 3);
+    }
+
+    @Test
+    public void article_servedWithEtag() throws IOException {
+        SyntheticArticle article = new SyntheticArticle(ArticleSpec.growing().setDomDepth(3));
+        String baseUrl = mServer.addArticle("growing", article);
+
+        HttpURLConnection connection = (HttpURLConnection) new URL(baseUrl).openConnection();
+        assertEquals(200, connection.getResponseCode());
+        assertEquals("text/html; charset=utf-8", connection.getContentType());
+        String html = new String(read(connection.getInputStream()), UTF_8);
+        assertTrue(html.contains("<div class=\"d2\">"));
+        assertTrue(html.contains("setTimeout"));
+        String etag = connection.getHeaderField("ETag");
+
+        connection = (HttpURLConnection) new URL(baseUrl + SyntheticArticle.imagePath(0)).openConnection();
+        byte[] png = read(connection.getInputStream());
+        assertEquals(article.files().get(SyntheticArticle.imagePath(0)).length, png.length);
+        assertEquals((byte) 0x89, png[0]);
+
+        connection = (HttpURLConnection) new URL(baseUrl + SyntheticArticle.INDEX).openConnection();
+        connection.setRequestProperty("If-None-Match", etag);
+        assertEquals(304, connection.getResponseCode());
+        assertEquals(3, mServer.getRequestCount());
+    }
+
+    @Test
+    public void comments_paged() throws IOException {
+        List<SyntheticComment> comments = SyntheticComment.generate(50, 140, 1);
+        mServer.setComments(comments);
+        String json = new String(read(new URL(mServer.getCommentsUrl(45, 20)).openStream()), UTF_8);
+        assertTrue(json.startsWith("[{\"id\":46,"));
+        assertTrue(json.contains("\"id\":50,"));
+        assertTrue(!json.contains("\"id\":45,"));
+    }
+
+    @Test
+    public void missing_notFound() throws IOException {
+        HttpURLConnection connection = (HttpURLConnection) new URL(mServer.getBaseUrl() + "article/none/").openConnection();
+        assertEquals(404, connection.getResponseCode());
+    }
+
+    private static byte[] read(InputStream in) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buffer = new byte[4096];
+        int read;
+        while ((read = in.read(buffer)) != -1) {
+            out.write(buffer, 0, read);
+        }
+        in.close();
+        return out.toByteArray();
+    }
+}
@@ -0,0 +1,218 @@
+package com.levylin.detailscrollview.core;
+
+/**
+ * 列表每个item高度的前缀和索引，和{@link SectionIndex}一样是Fenwick树
+ * 显示过的item用测量到的高度，没显示过的用估算的高度(默认是已测量item的平均高度)，
+ * 用两棵树分别记录已测量的高度之和和未测量的个数，估算高度变了不需要重建
+ * 修改某个item的高度、求某个item的起始偏移、求某个偏移落在哪个item都是O(log n)；
+ * 插入和删除item要重建，是O(n)，只在数据变化时发生
+ */
+public final class ItemHeightIndex {
+
+    private static final int UNMEASURED = -1;
+
+    private int[] heights = new int[0];//UNMEASURED表示没有测量过
+    private int[] heightTree = new int[1];//已测量的高度，下标从1开始
+    private int[] countTree = new int[1];//未测量的个数，下标从1开始
+    private int size;
+    private int measuredCount;
+    private long measuredTotal;
+    private int defaultEstimate;
+    private int fixedEstimate = -1;
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * 所有item都变成未测量
+     */
+    public void reset(int count) {
+        ensureCapacity(count);
+        size = count;
+        for (int i = 0; i < count; i++) {
+            heights[i] = UNMEASURED;
+        }
+        rebuild();
+    }
+
+    /**
+     * 只知道数量变了(比如ListView的notifyDataSetChanged)时调用，保留前面已经测量的，多出来的是未测量
+     */
+    public void setItemCount(int count) {
+        if (count == size)
+            return;
+        ensureCapacity(count);
+        for (int i = size; i < count; i++) {
+            heights[i] = UNMEASURED;
+        }
+        size = count;
+        rebuild();
+    }
+
+    public void insert(int position, int count) {
+        if (count <= 0)
+            return;
+        position = Math.max(0, Math.min(position, size));
+        ensureCapacity(size + count);
+        System.arraycopy(heights, position, heights, position + count, size - position);
+        for (int i = position; i < position + count; i++) {
+            heights[i] = UNMEASURED;
+        }
+        size += count;
+        rebuild();
+    }
+
+    public void remove(int position, int count) {
+        position = Math.max(0, position);
+        count = Math.min(count, size - position);
+        if (count <= 0)
+            return;
+        System.arraycopy(heights, position + count, heights, position, size - position - count);
+        size -= count;
+        rebuild();
+    }
+
+    /**
+     * @return 是否真的发生了变化
+     */
+    public boolean setHeight(int position, int height) {
+        height = Math.max(0, height);
+        int old = heights[position];
+        if (old == height)
+            return false;
+        heights[position] = height;
+        if (old == UNMEASURED) {
+            measuredCount++;
+            measuredTotal += height;
+            update(countTree, position, -1);
+            update(heightTree, position, height);
+        } else {
+            measuredTotal += height - old;
+            update(heightTree, position, height - old);
+        }
+        return true;
+    }
+
+    public boolean isMeasured(int position) {
+        return heights[position] != UNMEASURED;
+    }
+
+    /**
+     * @return 测量过的高度，没有测量过时是估算的高度
+     */
+    public int getHeight(int position) {
+        int height = heights[position];
+        return height == UNMEASURED ? getEstimatedHeight() : height;
+    }
+
+    /**
+     * @param estimate 还没有item测量过时使用的估算高度
+     */
+    public void setDefaultEstimate(int estimate) {
+        defaultEstimate = Math.max(0, estimate);
+    }
+
+    /**
+     * @param estimate 固定的估算高度，小于0表示使用已测量item的平均高度(默认)
+     */
+    public void setFixedEstimate(int estimate) {
+        fixedEstimate = estimate;
+    }
+
+    public int getEstimatedHeight() {
+        if (fixedEstimate >= 0)
+            return fixedEstimate;
+        if (measuredCount == 0)
+            return defaultEstimate;
+        return (int) (measuredTotal / measuredCount);
+    }
+
+    public int getMeasuredCount() {
+        return measuredCount;
+    }
+
+    /**
+     * @return [0, position)的item的高度之和，即第position个item的起始偏移
+     */
+    public int offsetOf(int position) {
+        position = Math.max(0, Math.min(position, size));
+        int heightSum = 0;
+        int countSum = 0;
+        for (int i = position; i > 0; i -= i & -i) {
+            heightSum += heightTree[i];
+            countSum += countTree[i];
+        }
+        return heightSum + countSum * getEstimatedHeight();
+    }
+
+    public int total() {
+        return offsetOf(size);
+    }
+
+    /**
+     * @return 偏移offset所在的item，offset小于0返回-1，超过总高度返回size
+     */
+    public int indexAt(int offset) {
+        if (offset < 0)
+            return -1;
+        int estimate = getEstimatedHeight();
+        int pos = 0;
+        int remaining = offset;
+        for (int step = Integer.highestOneBit(Math.max(size, 1)); step > 0; step >>= 1) {
+            int next = pos + step;
+            if (next <= size) {
+                int sum = heightTree[next] + countTree[next] * estimate;
+                if (sum <= remaining) {
+                    pos = next;
+                    remaining -= sum;
+                }
+            }
+        }
+        return pos;//pos个item的高度之和<=offset，所以offset落在第pos个item
+    }
+
+    private void update(int[] tree, int position, int delta) {
+        for (int i = position + 1; i <= size; i += i & -i) {
+            tree[i] += delta;
+        }
+    }
+
+    private void ensureCapacity(int count) {
+        if (heights.length >= count)
+            return;
+        int capacity = Math.max(count, heights.length + (heights.length >> 1));
+        int[] newHeights = new int[capacity];
+        System.arraycopy(heights, 0, newHeights, 0, size);
+        heights = newHeights;
+        heightTree = new int[capacity + 1];
+        countTree = new int[capacity + 1];
+    }
+
+    /**
+     * O(n)建树：每个节点把自己加到父节点上
+     */
+    private void rebuild() {
+        measuredCount = 0;
+        measuredTotal = 0;
+        for (int i = 1; i <= size; i++) {
+            int height = heights[i - 1];
+            if (height == UNMEASURED) {
+                heightTree[i] = 0;
+                countTree[i] = 1;
+            } else {
+                heightTree[i] = height;
+                countTree[i] = 0;
+                measuredCount++;
+                measuredTotal += height;
+            }
+        }
+        for (int i = 1; i <= size; i++) {
+            int parent = i + (i & -i);
+            if (parent <= size) {
+                heightTree[parent] += heightTree[i];
+                countTree[parent] += countTree[i];
+            }
+        }
+    }
+}
@@ -0,0 +1,310 @@
+package com.levylin.detailscrollview.core;
+
+/**
+ * DetailScrollView的滑动仲裁逻辑，不依赖Android，可以在普通JVM上做单元测试和基准测试
+ * 1.区域的布局：每个区域的高度、边距、是否可以自己滑动，MyScrollView的最大scrollY
+ * 2.滑动的分配：某个距离该由哪个嵌套区域滑、MyScrollView最多能滑到哪里、是否要拦截触摸事件
+ * 真正的滑动通过{@link Host}交给View去做
+ */
+public final class ScrollCoordinator {
+
+    public static final int DIRECT_BOTTOM = 1;
+    public static final int DIRECT_TOP = -1;
+
+    public static final int OWNER_NONE = -2;
+    public static final int OWNER_CONTAINER = -1;
+
+    private static final int FLAG_NESTED = 1;
+    private static final int FLAG_GONE = 1 << 1;
+
+    /**
+     * 真正执行滑动的一方，即DetailScrollView
+     */
+    public interface Host {
+        int getContainerScrollY();
+
+        void scrollContainerBy(int dy);
+
+        /**
+         * 隐藏的区域返回false
+         */
+        boolean canSectionScroll(int index, int direction);
+
+        /**
+         * @return 实际滑动的距离
+         */
+        int scrollSection(int index, int dy);
+
+        /**
+         * fling过程中，每次由一个区域消费滑动距离都会调用，见{@link #dispatchScrollDelta(int)}
+         */
+        void onScrollOwnerChanged(int owner);
+    }
+
+    private final SectionIndex mSectionIndex = new SectionIndex();
+    private Host mHost;
+    private int[] mFlags = new int[0];
+    private int[] mTopMargins = new int[0];
+    private int[] mHeights = new int[0];
+    private int mPaddingTop;
+    private int mPaddingBottom;
+    private int mViewportHeight;
+    private int mMaxScrollY;
+    private int mLastContainerDy;
+
+    public ScrollCoordinator(Host host) {
+        mHost = host;
+    }
+
+    public void setHost(Host host) {
+        mHost = host;
+    }
+
+    // 布局
+
+    /**
+     * 重新设置区域个数，所有区域的高度清零
+     */
+    public void reset(int count) {
+        mSectionIndex.reset(count);
+        if (mFlags.length < count) {
+            mFlags = new int[count];
+            mTopMargins = new int[count];
+            mHeights = new int[count];
+        } else {
+            for (int i = 0; i < count; i++) {
+                mFlags[i] = 0;
+                mTopMargins[i] = 0;
+                mHeights[i] = 0;
+            }
+        }
+    }
+
+    public int getSectionCount() {
+        return mSectionIndex.size();
+    }
+
+    /**
+     * @param nested 是否是可以自己滑动的区域
+     */
+    public void setSectionNested(int index, boolean nested) {
+        mFlags[index] = nested ? mFlags[index] | FLAG_NESTED : mFlags[index] & ~FLAG_NESTED;
+    }
+
+    public boolean isSectionNested(int index) {
+        return (mFlags[index] & FLAG_NESTED) != 0;
+    }
+
+    /**
+     * 布局时调用，隐藏的区域不占高度
+     *
+     * @return 区域占用的总高度是否发生变化
+     */
+    public boolean setSectionLayout(int index, boolean gone, int topMargin, int height, int bottomMargin) {
+        if (gone) {
+            mFlags[index] |= FLAG_GONE;
+            mTopMargins[index] = 0;
+            mHeights[index] = 0;
+            return mSectionIndex.set(index, 0);
+        }
+        mFlags[index] &= ~FLAG_GONE;
+        mTopMargins[index] = topMargin;
+        mHeights[index] = height;
+        return mSectionIndex.set(index, topMargin + height + bottomMargin);
+    }
+
+    /**
+     * 所有区域布局完之后调用，计算最大scrollY
+     */
+    public int updateLayout(int paddingTop, int paddingBottom, int viewportHeight) {
+        mPaddingTop = paddingTop;
+        mPaddingBottom = paddingBottom;
+        mViewportHeight = viewportHeight;
+        mMaxScrollY = Math.max(0, paddingTop + mSectionIndex.total() + paddingBottom - viewportHeight);
+        return mMaxScrollY;
+    }
+
+    public int getMaxScrollY() {
+        return mMaxScrollY;
+    }
+
+    /**
+     * @return 第index个区域在MyScrollView中的顶部
+     */
+    public int getSectionTop(int index) {
+        return mPaddingTop + mSectionIndex.offsetOf(index) + mTopMargins[index];
+    }
+
+    public int getSectionHeight(int index) {
+        return mHeights[index];
+    }
+
+    private boolean isNestedVisible(int index) {
+        return (mFlags[index] & (FLAG_NESTED | FLAG_GONE)) == FLAG_NESTED;
+    }
+
+    // 滑动的分配
+
+    /**
+     * 只按纵向判断，横向由View自己判断
+     *
+     * @param y 相对MyScrollView顶部的触摸位置
+     * @return 触摸点所在的区域，没有返回-1
+     */
+    public int findSectionAt(int y) {
+        final int scrollY = mHost.getContainerScrollY();
+        int index = mSectionIndex.indexAt(y + scrollY - mPaddingTop);
+        if (index < 0 || index >= mSectionIndex.size() || (mFlags[index] & FLAG_GONE) != 0)
+            return -1;
+        int top = getSectionTop(index) - scrollY;
+        return y >= top && y < top + mHeights[index] ? index : -1;
+    }
+
+    /**
+     * 嵌套区域占满显示区域时，MyScrollView的scrollY范围是[top, top + height - 显示高度]，
+     * 在这个范围内滑动应该先交给这个区域
+     *
+     * @return scrollY处占满显示区域的嵌套区域，没有返回-1
+     */
+    public int findEngagedSection(int scrollY) {
+        int index = mSectionIndex.indexAt(scrollY - mPaddingTop);
+        if (index < 0 || index >= mSectionIndex.size() || !isNestedVisible(index))
+            return -1;
+        int top = getSectionTop(index);
+        int end = Math.max(top, top + mHeights[index] - mViewportHeight);
+        return scrollY >= top && scrollY <= end ? index : -1;
+    }
+
+    /**
+     * 从scrollY往direction方向滑动时MyScrollView最多能滑到的位置：
+     * 前方第一个还能继续滑动的嵌套区域占满显示区域的位置，没有的话就是MyScrollView的边界
+     */
+    public int findStopY(int scrollY, int direction) {
+        final int size = mSectionIndex.size();
+        int index = mSectionIndex.indexAt(scrollY - mPaddingTop);
+        if (direction == DIRECT_BOTTOM) {
+            for (int i = Math.max(0, index); i < size; i++) {
+                if (!isNestedVisible(i))
+                    continue;
+                int top = getSectionTop(i);
+                if (top > scrollY && mHost.canSectionScroll(i, DIRECT_BOTTOM)) {
+                    return Math.min(top, mMaxScrollY);
+                }
+            }
+            return mMaxScrollY;
+        } else {
+            for (int i = Math.min(size - 1, index); i >= 0; i--) {
+                if (!isNestedVisible(i))
+                    continue;
+                int top = getSectionTop(i);
+                int end = Math.max(top, top + mHeights[i] - mViewportHeight);
+                if (end < scrollY && mHost.canSectionScroll(i, DIRECT_TOP)) {
+                    return Math.max(end, 0);
+                }
+            }
+            return 0;
+        }
+    }
+
+    /**
+     * @return MyScrollView这次最多能滑的距离，不会越过下一个还能滑的嵌套区域
+     */
+    public int adjustScrollY(int delta) {
+        int scrollY = mHost.getContainerScrollY();
+        if (delta > 0) {
+            return Math.min(delta, findStopY(scrollY, DIRECT_BOTTOM) - scrollY);
+        } else if (delta < 0) {
+            return Math.max(delta, findStopY(scrollY, DIRECT_TOP) - scrollY);
+        }
+        return 0;
+    }
+
+    /**
+     * @param childIndex 子区域
+     * @param dy         经过{@link #adjustScrollY(int)}调整后的滑动距离
+     * @return 这次滑动是否应该交给MyScrollView
+     */
+    public boolean shouldScrollContainer(int childIndex, int dy) {
+        if (dy == 0)
+            return false;
+        int engaged = findEngagedSection(mHost.getContainerScrollY());
+        if (engaged < 0 || engaged != childIndex)
+            return true;
+        return !mHost.canSectionScroll(engaged, dy > 0 ? DIRECT_BOTTOM : DIRECT_TOP);
+    }
+
+    public boolean canContainerScroll(int direction) {
+        int scrollY = mHost.getContainerScrollY();
+        return direction == DIRECT_BOTTOM ? scrollY < mMaxScrollY : scrollY > 0;
+    }
+
+    /**
+     * 拦截触摸事件的判断：MyScrollView能往这个方向滑，并且触摸的区域没有正好占满显示区域或者自己滑不动了
+     *
+     * @param touchedIndex 触摸的区域
+     * @param direction    滑动方向
+     * @param isScrollIdle MyScrollView是否没有在fling或者动画
+     */
+    public boolean shouldIntercept(int touchedIndex, int direction, boolean isScrollIdle) {
+        if (!isScrollIdle || !canContainerScroll(direction))
+            return false;
+        boolean isTouchedConsume = findEngagedSection(mHost.getContainerScrollY()) == touchedIndex
+                && mHost.canSectionScroll(touchedIndex, direction);
+        return !isTouchedConsume;
+    }
+
+    /**
+     * 手指拖动时分配一次滑动距离：占满显示区域的嵌套区域还能滑就全部交给它，否则由MyScrollView滑，
+     * MyScrollView实际滑动的距离通过{@link #getLastContainerDy()}获取
+     *
+     * @return 消费这次滑动的区域，OWNER_CONTAINER代表MyScrollView，OWNER_NONE代表都滑不动
+     */
+    public int dispatchTouchScroll(int delta) {
+        int dy = adjustScrollY(delta);
+        mLastContainerDy = dy;
+        if (delta == 0)
+            return OWNER_NONE;
+        int engaged = findEngagedSection(mHost.getContainerScrollY());
+        if (engaged >= 0 && mHost.canSectionScroll(engaged, delta > 0 ? DIRECT_BOTTOM : DIRECT_TOP)) {
+            mHost.scrollSection(engaged, delta);
+            return engaged;
+        } else if (dy != 0) {//dy==0代表是滑动到顶部或者底部，或者已经到了下一个嵌套区域的边界
+            mHost.scrollContainerBy(dy);
+            return OWNER_CONTAINER;
+        }
+        return OWNER_NONE;
+    }
+
+    /**
+     * @return 上一次{@link #dispatchTouchScroll(int)}中经过调整后MyScrollView可以滑的距离
+     */
+    public int getLastContainerDy() {
+        return mLastContainerDy;
+    }
+
+    /**
+     * fling的每一帧调用，把这一帧的距离依次分配给占满显示区域的嵌套区域和MyScrollView，
+     * 一个区域滑到边界后剩下的距离马上交给下一个区域，所以交接不会丢帧
+     *
+     * @return 实际消费的距离，小于delta代表已经到了整个文档的边界
+     */
+    public int dispatchScrollDelta(int delta) {
+        int remaining = delta;
+        for (int guard = mSectionIndex.size() * 2 + 2; remaining != 0 && guard > 0; guard--) {
+            int direction = remaining > 0 ? DIRECT_BOTTOM : DIRECT_TOP;
+            int engaged = findEngagedSection(mHost.getContainerScrollY());
+            if (engaged >= 0 && mHost.canSectionScroll(engaged, direction)) {
+                mHost.onScrollOwnerChanged(engaged);
+                remaining -= mHost.scrollSection(engaged, remaining);
+            } else {
+                int dy = adjustScrollY(remaining);
+                if (dy == 0)//前方没有能滑的区域了
+                    break;
+                mHost.onScrollOwnerChanged(OWNER_CONTAINER);
+                mHost.scrollContainerBy(dy);
+                remaining -= dy;
+            }
+        }
+        return delta - remaining;
+    }
+}
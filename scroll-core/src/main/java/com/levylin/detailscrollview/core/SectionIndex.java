@@ -0,0 +1,87 @@
+package com.levylin.detailscrollview.core;
+
+/**
+ * 区域高度的前缀和索引(Fenwick树)
+ * 修改某个区域的高度、求某个区域的起始偏移、求某个偏移落在哪个区域都是O(log n)
+ */
+public final class SectionIndex {
+
+    private int[] tree = new int[1];//下标从1开始
+    private int[] values = new int[0];
+    private int size;
+
+    /**
+     * 重新设置区域个数，所有高度清零
+     */
+    public void reset(int size) {
+        if (values.length < size) {
+            values = new int[size];
+            tree = new int[size + 1];
+        } else {
+            for (int i = 0; i < values.length; i++) {
+                values[i] = 0;
+            }
+            for (int i = 0; i < tree.length; i++) {
+                tree[i] = 0;
+            }
+        }
+        this.size = size;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @param value 小于0的按0算，否则offsetOf不再单调，indexAt的二分查找会出错
+     * @return 是否真的发生了变化
+     */
+    public boolean set(int index, int value) {
+        value = Math.max(0, value);
+        int delta = value - values[index];
+        if (delta == 0)
+            return false;
+        values[index] = value;
+        for (int i = index + 1; i <= size; i += i & -i) {
+            tree[i] += delta;
+        }
+        return true;
+    }
+
+    public int get(int index) {
+        return values[index];
+    }
+
+    /**
+     * @return [0, index)区域的高度之和，即第index个区域的起始偏移
+     */
+    public int offsetOf(int index) {
+        int sum = 0;
+        for (int i = index; i > 0; i -= i & -i) {
+            sum += tree[i];
+        }
+        return sum;
+    }
+
+    public int total() {
+        return offsetOf(size);
+    }
+
+    /**
+     * @return 偏移offset所在的区域，offset小于0返回-1，超过总高度返回size
+     */
+    public int indexAt(int offset) {
+        if (offset < 0)
+            return -1;
+        int pos = 0;
+        int remaining = offset;
+        for (int step = Integer.highestOneBit(Math.max(size, 1)); step > 0; step >>= 1) {
+            int next = pos + step;
+            if (next <= size && tree[next] <= remaining) {
+                pos = next;
+                remaining -= tree[next];
+            }
+        }
+        return pos;//pos个区域的高度之和<=offset，所以offset落在第pos个区域
+    }
+}
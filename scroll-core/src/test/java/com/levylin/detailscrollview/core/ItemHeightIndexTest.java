@@ -0,0 +1,188 @@
+package com.levylin.detailscrollview.core;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class ItemHeightIndexTest {
+
+    @Test
+    public void estimateChanges_offsetsStayConsistent() {
+        ItemHeightIndex index = new ItemHeightIndex();
+        index.setDefaultEstimate(100);
+        index.reset(10);
+        assertEquals(1000, index.total());
+        assertEquals(3, index.indexAt(350));
+
+        //平均高度变成200，未测量的item都按200算
+        index.setHeight(0, 200);
+        assertEquals(200, index.getEstimatedHeight());
+        assertEquals(2000, index.total());
+        assertEquals(600, index.offsetOf(3));
+        assertEquals(1, index.indexAt(350));
+        assertEquals(3, index.indexAt(600));
+
+        //平均高度变成(200+50)/2=125
+        index.setHeight(5, 50);
+        assertEquals(125, index.getEstimatedHeight());
+        assertEquals(200 + 4 * 125, index.offsetOf(5));
+        assertEquals(200 + 4 * 125 + 50, index.offsetOf(6));
+        assertEquals(5, index.indexAt(200 + 4 * 125));
+        assertEquals(6, index.indexAt(200 + 4 * 125 + 50));
+        assertConsistent(index);
+
+        index.setFixedEstimate(10);
+        assertEquals(200 + 4 * 10, index.offsetOf(5));
+        assertConsistent(index);
+    }
+
+    @Test
+    public void insertAndRemove_keepMeasuredHeights() {
+        ItemHeightIndex index = new ItemHeightIndex();
+        index.setFixedEstimate(100);
+        index.reset(4);
+        index.setHeight(0, 10);
+        index.setHeight(1, 20);
+        index.setHeight(2, 30);
+        index.setHeight(3, 40);
+
+        index.insert(2, 3);
+        assertEquals(7, index.size());
+        assertEquals(20, index.getHeight(1));
+        assertFalse(index.isMeasured(2));
+        assertFalse(index.isMeasured(4));
+        assertEquals(30, index.getHeight(5));
+        assertEquals(40, index.getHeight(6));
+        assertEquals(10 + 20 + 300, index.offsetOf(5));
+        assertEquals(4, index.getMeasuredCount());
+
+        index.remove(0, 3);
+        assertEquals(4, index.size());
+        assertFalse(index.isMeasured(0));
+        assertEquals(30, index.getHeight(2));
+        assertEquals(40, index.getHeight(3));
+        assertEquals(200 + 30 + 40, index.total());
+        assertEquals(2, index.getMeasuredCount());
+        assertConsistent(index);
+    }
+
+    @Test
+    public void resetToSmallerCount_thenSetHeight() {
+        ItemHeightIndex index = new ItemHeightIndex();
+        index.setDefaultEstimate(50);
+        index.reset(100);
+        for (int i = 0; i < 100; i++) {
+            index.setHeight(i, 80);
+        }
+        index.reset(3);
+        assertEquals(0, index.getMeasuredCount());
+        assertEquals(150, index.total());
+        assertTrue(index.setHeight(2, 30));
+        assertEquals(30, index.getEstimatedHeight());
+        assertEquals(90, index.total());
+        assertEquals(2, index.indexAt(60));
+        assertConsistent(index);
+
+        index.setItemCount(5);
+        assertEquals(30, index.getHeight(2));
+        assertEquals(150, index.total());
+        assertConsistent(index);
+    }
+
+    @Test
+    public void indexAtTotal_returnsSize() {
+        ItemHeightIndex index = new ItemHeightIndex();
+        assertEquals(0, index.indexAt(index.total()));
+        index.setDefaultEstimate(40);
+        index.reset(7);
+        index.setHeight(6, 0);
+        assertEquals(7, index.indexAt(index.total()));
+        assertEquals(-1, index.indexAt(-1));
+        index.setHeight(3, 100);
+        assertEquals(7, index.indexAt(index.total()));
+        assertEquals(5, index.indexAt(index.total() - 1));//最后一个高度为0
+    }
+
+    @Test
+    public void randomOperations_matchBruteForce() {
+        Random random = new Random(11);
+        ItemHeightIndex index = new ItemHeightIndex();
+        index.setDefaultEstimate(60);
+        List<Integer> model = new ArrayList<>();//-1表示未测量
+        for (int op = 0; op < 2000; op++) {
+            int size = model.size();
+            int type = random.nextInt(10);
+            if (type < 5 && size > 0) {
+                int position = random.nextInt(size);
+                int height = random.nextInt(300);
+                index.setHeight(position, height);
+                model.set(position, height);
+            } else if (type < 7) {
+                int position = random.nextInt(size + 1);
+                int count = 1 + random.nextInt(5);
+                index.insert(position, count);
+                for (int i = 0; i < count; i++) {
+                    model.add(position, -1);
+                }
+            } else if (type < 9 && size > 0) {
+                int position = random.nextInt(size);
+                int count = Math.min(1 + random.nextInt(5), size - position);
+                index.remove(position, count);
+                for (int i = 0; i < count; i++) {
+                    model.remove(position);
+                }
+            } else {
+                int count = random.nextInt(30);
+                index.reset(count);
+                model.clear();
+                for (int i = 0; i < count; i++) {
+                    model.add(-1);
+                }
+            }
+            assertMatches(model, index);
+        }
+    }
+
+    private static void assertMatches(List<Integer> model, ItemHeightIndex index) {
+        assertEquals(model.size(), index.size());
+        long measuredTotal = 0;
+        int measuredCount = 0;
+        for (int height : model) {
+            if (height >= 0) {
+                measuredTotal += height;
+                measuredCount++;
+            }
+        }
+        int estimate = measuredCount == 0 ? 60 : (int) (measuredTotal / measuredCount);
+        assertEquals(estimate, index.getEstimatedHeight());
+        int offset = 0;
+        for (int i = 0; i < model.size(); i++) {
+            assertEquals(offset, index.offsetOf(i));
+            offset += model.get(i) >= 0 ? model.get(i) : estimate;
+        }
+        assertEquals(offset, index.total());
+        assertConsistent(index);
+    }
+
+    /**
+     * 每个有高度的item的起止偏移都落在它自己身上，总高度落在size
+     */
+    private static void assertConsistent(ItemHeightIndex index) {
+        for (int i = 0; i < index.size(); i++) {
+            int height = index.getHeight(i);
+            if (height == 0)
+                continue;
+            int top = index.offsetOf(i);
+            assertEquals(top + height, index.offsetOf(i + 1));
+            assertEquals(i, index.indexAt(top));
+            assertEquals(i, index.indexAt(top + height - 1));
+        }
+        assertEquals(index.size(), index.indexAt(index.total()));
+    }
+}
@@ -0,0 +1,231 @@
+package com.levylin.detailscrollview.core;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * WebView(占满一屏) + 静态区域 + 列表(占满一屏)，检查区域交界处的拦截和滑动分配
+ */
+public class ScrollCoordinatorTest {
+
+    private static final int VIEWPORT = 1000;
+    private static final int STATIC_HEIGHT = 300;
+    private static final int WEB = 0;
+    private static final int STATIC = 1;
+    private static final int LIST = 2;
+    private static final int WEB_RANGE = 600;
+    private static final int LIST_RANGE = 2000;
+    private static final int LIST_TOP = VIEWPORT + STATIC_HEIGHT;
+
+    /**
+     * 每个区域自己的scrollY和最大scrollY，MyScrollView的scrollY
+     */
+    private static final class FakeHost implements ScrollCoordinator.Host {
+        final int[] sectionScrollY = new int[3];
+        final int[] sectionRange = {WEB_RANGE, 0, LIST_RANGE};
+        final List<Integer> owners = new ArrayList<>();
+        int containerScrollY;
+
+        @Override
+        public int getContainerScrollY() {
+            return containerScrollY;
+        }
+
+        @Override
+        public void scrollContainerBy(int dy) {
+            containerScrollY += dy;
+        }
+
+        @Override
+        public boolean canSectionScroll(int index, int direction) {
+            return direction == ScrollCoordinator.DIRECT_BOTTOM
+                    ? sectionScrollY[index] < sectionRange[index] : sectionScrollY[index] > 0;
+        }
+
+        @Override
+        public int scrollSection(int index, int dy) {
+            int target = Math.max(0, Math.min(sectionRange[index], sectionScrollY[index] + dy));
+            int consumed = target - sectionScrollY[index];
+            sectionScrollY[index] = target;
+            return consumed;
+        }
+
+        @Override
+        public void onScrollOwnerChanged(int owner) {
+            if (owners.isEmpty() || owners.get(owners.size() - 1) != owner) {
+                owners.add(owner);
+            }
+        }
+    }
+
+    private FakeHost host;
+    private ScrollCoordinator coordinator;
+
+    @Before
+    public void setUp() {
+        host = new FakeHost();
+        coordinator = new ScrollCoordinator(host);
+        coordinator.reset(3);
+        coordinator.setSectionNested(WEB, true);
+        coordinator.setSectionNested(LIST, true);
+        coordinator.setSectionLayout(WEB, false, 0, VIEWPORT, 0);
+        coordinator.setSectionLayout(STATIC, false, 0, STATIC_HEIGHT, 0);
+        coordinator.setSectionLayout(LIST, false, 0, VIEWPORT, 0);
+        coordinator.updateLayout(0, 0, VIEWPORT);
+    }
+
+    @Test
+    public void layout_maxScrollYAndSectionTops() {
+        assertEquals(LIST_TOP, coordinator.getMaxScrollY());
+        assertEquals(0, coordinator.getSectionTop(WEB));
+        assertEquals(VIEWPORT, coordinator.getSectionTop(STATIC));
+        assertEquals(LIST_TOP, coordinator.getSectionTop(LIST));
+    }
+
+    @Test
+    public void findSectionAt_boundaries() {
+        assertEquals(WEB, coordinator.findSectionAt(0));
+        assertEquals(WEB, coordinator.findSectionAt(VIEWPORT - 1));
+        assertEquals(-1, coordinator.findSectionAt(-1));
+
+        host.containerScrollY = 500;
+        assertEquals(WEB, coordinator.findSectionAt(VIEWPORT - 501));
+        assertEquals(STATIC, coordinator.findSectionAt(VIEWPORT - 500));
+        assertEquals(STATIC, coordinator.findSectionAt(LIST_TOP - 501));
+        assertEquals(LIST, coordinator.findSectionAt(LIST_TOP - 500));
+
+        host.containerScrollY = LIST_TOP;
+        assertEquals(LIST, coordinator.findSectionAt(0));
+        assertEquals(LIST, coordinator.findSectionAt(VIEWPORT - 1));
+        assertEquals(-1, coordinator.findSectionAt(VIEWPORT));
+    }
+
+    @Test
+    public void findSectionAt_skipsMarginsAndGoneSections() {
+        coordinator.setSectionLayout(STATIC, false, 20, STATIC_HEIGHT - 40, 20);
+        coordinator.updateLayout(0, 0, VIEWPORT);
+        assertEquals(-1, coordinator.findSectionAt(VIEWPORT + 10));
+        assertEquals(STATIC, coordinator.findSectionAt(VIEWPORT + 20));
+        assertEquals(-1, coordinator.findSectionAt(LIST_TOP - 10));
+
+        coordinator.setSectionLayout(STATIC, true, 0, 0, 0);
+        coordinator.updateLayout(0, 0, VIEWPORT);
+        assertEquals(VIEWPORT, coordinator.getSectionTop(LIST));
+        assertEquals(LIST, coordinator.findSectionAt(VIEWPORT));
+    }
+
+    @Test
+    public void adjustScrollY_stopsAtNextScrollableSection() {
+        //往下滑最多到列表占满显示区域的位置
+        assertEquals(LIST_TOP, coordinator.adjustScrollY(5000));
+        host.containerScrollY = 500;
+        assertEquals(LIST_TOP - 500, coordinator.adjustScrollY(5000));
+        assertEquals(100, coordinator.adjustScrollY(100));
+
+        //WebView没有滑过时往上可以一直滑到顶
+        assertEquals(-500, coordinator.adjustScrollY(-5000));
+        host.sectionScrollY[WEB] = 100;
+        assertEquals(-500, coordinator.adjustScrollY(-5000));
+
+        //到了列表的位置不能再往下
+        host.containerScrollY = LIST_TOP;
+        assertEquals(0, coordinator.adjustScrollY(100));
+        assertEquals(0, coordinator.adjustScrollY(0));
+    }
+
+    @Test
+    public void adjustScrollY_skipsSectionThatCannotScroll() {
+        host.sectionScrollY[LIST] = LIST_RANGE;
+        host.containerScrollY = LIST_TOP;
+        //列表已经在底部，往下滑不到任何地方；往上在WebView能滑时停在WebView底部
+        assertEquals(0, coordinator.adjustScrollY(100));
+        host.sectionScrollY[WEB] = WEB_RANGE;
+        assertEquals(-LIST_TOP, coordinator.adjustScrollY(-5000));
+        host.sectionScrollY[LIST] = 0;
+        host.containerScrollY = 0;
+        host.sectionRange[LIST] = 0;
+        assertEquals(LIST_TOP, coordinator.adjustScrollY(5000));
+    }
+
+    @Test
+    public void shouldIntercept_webBoundary() {
+        //WebView占满显示区域并且还能往下滑，交给WebView
+        assertFalse(coordinator.shouldIntercept(WEB, ScrollCoordinator.DIRECT_BOTTOM, true));
+        //WebView到底了，由MyScrollView接着滑
+        host.sectionScrollY[WEB] = WEB_RANGE;
+        assertTrue(coordinator.shouldIntercept(WEB, ScrollCoordinator.DIRECT_BOTTOM, true));
+        //MyScrollView已经在顶部，不能往上拦截
+        assertFalse(coordinator.shouldIntercept(WEB, ScrollCoordinator.DIRECT_TOP, true));
+        //fling中不拦截
+        assertFalse(coordinator.shouldIntercept(WEB, ScrollCoordinator.DIRECT_BOTTOM, false));
+    }
+
+    @Test
+    public void shouldIntercept_containerAndListBoundary() {
+        host.containerScrollY = 500;
+        assertTrue(coordinator.shouldIntercept(STATIC, ScrollCoordinator.DIRECT_BOTTOM, true));
+        assertTrue(coordinator.shouldIntercept(STATIC, ScrollCoordinator.DIRECT_TOP, true));
+        //列表只露出一半，不是占满显示区域的区域，拖动列表也由MyScrollView滑
+        assertTrue(coordinator.shouldIntercept(LIST, ScrollCoordinator.DIRECT_BOTTOM, true));
+
+        host.containerScrollY = LIST_TOP;
+        assertFalse(coordinator.canContainerScroll(ScrollCoordinator.DIRECT_BOTTOM));
+        assertFalse(coordinator.shouldIntercept(LIST, ScrollCoordinator.DIRECT_BOTTOM, true));
+        //列表在顶部时往上拖交给MyScrollView，列表滑过之后交给列表
+        assertTrue(coordinator.shouldIntercept(LIST, ScrollCoordinator.DIRECT_TOP, true));
+        host.sectionScrollY[LIST] = 100;
+        assertFalse(coordinator.shouldIntercept(LIST, ScrollCoordinator.DIRECT_TOP, true));
+    }
+
+    @Test
+    public void dispatchScrollDelta_handsOffAcrossSections() {
+        assertEquals(WEB_RANGE + 100, coordinator.dispatchScrollDelta(WEB_RANGE + 100));
+        assertEquals(WEB_RANGE, host.sectionScrollY[WEB]);
+        assertEquals(100, host.containerScrollY);
+
+        assertEquals(LIST_TOP - 100 + 50, coordinator.dispatchScrollDelta(LIST_TOP - 100 + 50));
+        assertEquals(LIST_TOP, host.containerScrollY);
+        assertEquals(50, host.sectionScrollY[LIST]);
+        assertEquals(Arrays.asList(WEB, ScrollCoordinator.OWNER_CONTAINER, LIST), host.owners);
+    }
+
+    @Test
+    public void dispatchScrollDelta_stopsAtDocumentEdges() {
+        int total = WEB_RANGE + LIST_TOP + LIST_RANGE;
+        assertEquals(total, coordinator.dispatchScrollDelta(total + 5000));
+        assertEquals(LIST_RANGE, host.sectionScrollY[LIST]);
+        assertEquals(0, coordinator.dispatchScrollDelta(100));
+
+        host.owners.clear();
+        assertEquals(-total, coordinator.dispatchScrollDelta(-total - 5000));
+        assertEquals(0, host.sectionScrollY[WEB]);
+        assertEquals(0, host.containerScrollY);
+        assertEquals(0, host.sectionScrollY[LIST]);
+        assertEquals(Arrays.asList(LIST, ScrollCoordinator.OWNER_CONTAINER, WEB), host.owners);
+        assertEquals(0, coordinator.dispatchScrollDelta(-100));
+    }
+
+    @Test
+    public void dispatchTouchScroll_engagedSectionFirst() {
+        assertEquals(WEB, coordinator.dispatchTouchScroll(200));
+        assertEquals(200, host.sectionScrollY[WEB]);
+        assertEquals(0, host.containerScrollY);
+
+        host.sectionScrollY[WEB] = WEB_RANGE;
+        assertEquals(ScrollCoordinator.OWNER_CONTAINER, coordinator.dispatchTouchScroll(200));
+        assertEquals(200, host.containerScrollY);
+        assertEquals(200, coordinator.getLastContainerDy());
+
+        host.containerScrollY = LIST_TOP;
+        host.sectionScrollY[LIST] = LIST_RANGE;
+        assertEquals(ScrollCoordinator.OWNER_NONE, coordinator.dispatchTouchScroll(200));
+    }
+}
@@ -0,0 +1,119 @@
+package com.levylin.detailscrollview.core;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class SectionIndexTest {
+
+    @Test
+    public void offsetOfAndIndexAt_afterResize() {
+        SectionIndex index = new SectionIndex();
+        index.reset(3);
+        index.set(0, 100);
+        index.set(1, 50);
+        index.set(2, 200);
+        assertEquals(0, index.offsetOf(0));
+        assertEquals(150, index.offsetOf(2));
+        assertEquals(350, index.total());
+        assertEquals(1, index.indexAt(100));
+        assertEquals(1, index.indexAt(149));
+        assertEquals(2, index.indexAt(150));
+
+        assertTrue(index.set(1, 80));
+        assertFalse(index.set(1, 80));
+        assertEquals(180, index.offsetOf(2));
+        assertEquals(1, index.indexAt(179));
+        assertEquals(2, index.indexAt(180));
+
+        //变少之后之前的高度不能留在树里
+        index.reset(2);
+        assertEquals(0, index.total());
+        index.set(0, 10);
+        index.set(1, 5);
+        assertEquals(15, index.total());
+        assertEquals(1, index.indexAt(10));
+        assertEquals(2, index.indexAt(15));
+        index.reset(5);
+        assertEquals(0, index.total());
+        assertEquals(0, index.get(0));
+    }
+
+    @Test
+    public void zeroHeightSections_areSkipped() {
+        SectionIndex index = new SectionIndex();
+        index.reset(4);
+        index.set(0, 100);
+        index.set(2, 50);
+        assertEquals(100, index.offsetOf(1));
+        assertEquals(100, index.offsetOf(2));
+        assertEquals(0, index.indexAt(99));
+        assertEquals(2, index.indexAt(100));
+        assertEquals(2, index.indexAt(149));
+        //最后一个区域高度为0，超过总高度返回size
+        assertEquals(4, index.indexAt(150));
+    }
+
+    @Test
+    public void negativeValue_clampedToZero() {
+        SectionIndex index = new SectionIndex();
+        index.reset(3);
+        index.set(0, 100);
+        index.set(1, -30);
+        index.set(2, 100);
+        assertEquals(0, index.get(1));
+        assertEquals(200, index.total());
+        assertEquals(100, index.offsetOf(2));
+        assertEquals(2, index.indexAt(100));
+        assertFalse(index.set(1, -1));
+    }
+
+    @Test
+    public void lastSectionEdge() {
+        SectionIndex index = new SectionIndex();
+        index.reset(3);
+        for (int i = 0; i < 3; i++) {
+            index.set(i, 100);
+        }
+        assertEquals(-1, index.indexAt(-1));
+        assertEquals(2, index.indexAt(299));
+        assertEquals(3, index.indexAt(300));
+        assertEquals(3, index.indexAt(Integer.MAX_VALUE));
+
+        index.reset(0);
+        assertEquals(0, index.total());
+        assertEquals(0, index.indexAt(0));
+    }
+
+    @Test
+    public void randomUpdates_matchPrefixSums() {
+        Random random = new Random(7);
+        SectionIndex index = new SectionIndex();
+        for (int round = 0; round < 50; round++) {
+            int size = random.nextInt(20);
+            index.reset(size);
+            int[] values = new int[size];
+            for (int op = 0; op < 100 && size > 0; op++) {
+                int i = random.nextInt(size);
+                int value = random.nextInt(4) == 0 ? 0 : random.nextInt(500) - 50;
+                index.set(i, value);
+                values[i] = Math.max(0, value);
+                int offset = 0;
+                for (int j = 0; j < size; j++) {
+                    assertEquals(offset, index.offsetOf(j));
+                    if (values[j] > 0) {
+                        assertEquals(j, index.indexAt(offset));
+                        assertEquals(j, index.indexAt(offset + values[j] - 1));
+                    }
+                    offset += values[j];
+                }
+                assertEquals(offset, index.total());
+                assertEquals(size, index.indexAt(offset));
+            }
+        }
+    }
+}
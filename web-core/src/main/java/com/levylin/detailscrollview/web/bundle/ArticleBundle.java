@@ -0,0 +1,120 @@
+package com.levylin.detailscrollview.web.bundle;
+
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.HashMap;
+
+/**
+ * 单文件的文章包，整个文件只读映射到内存，读取时直接返回映射内存的切片
+ * 文件格式：
+ * 文件头：magic(int) version(int) entryCount(int) dataOffset(int) baseUrl(UTF)
+ * 索引：每个文件 path(UTF) mimeType(UTF) encoding(UTF，空表示没有) offset(int) length(int)
+ * 数据：从dataOffset开始，每个文件按{@link #ALIGNMENT}字节对齐
+ * 由{@link ArticleBundleWriter}生成
+ */
+public final class ArticleBundle {
+
+    static final int MAGIC = 0x44534142;//'D' 'S' 'A' 'B'
+    static final int VERSION = 1;
+    static final int ALIGNMENT = 8;
+
+    private static final class Entry {
+        final String mimeType;
+        final String encoding;
+        final int offset;
+        final int length;
+
+        Entry(String mimeType, String encoding, int offset, int length) {
+            this.mimeType = mimeType;
+            this.encoding = encoding;
+            this.offset = offset;
+            this.length = length;
+        }
+    }
+
+    private final File mFile;
+    private final String mBaseUrl;
+    private final MappedByteBuffer mBuffer;
+    private final HashMap<String, Entry> mEntries;
+
+    private ArticleBundle(File file, String baseUrl, MappedByteBuffer buffer, HashMap<String, Entry> entries) {
+        mFile = file;
+        mBaseUrl = baseUrl;
+        mBuffer = buffer;
+        mEntries = entries;
+    }
+
+    /**
+     * 只解析文件头和索引，数据部分用到的时候才由系统读进来
+     *
+     * @throws IOException 文件不存在或者格式不对
+     */
+    public static ArticleBundle open(File file) throws IOException {
+        RandomAccessFile raf = new RandomAccessFile(file, "r");
+        MappedByteBuffer buffer;
+        try {
+            buffer = raf.getChannel().map(FileChannel.MapMode.READ_ONLY, 0, raf.length());
+        } finally {
+            raf.close();//映射在文件关闭之后仍然有效
+        }
+        ByteBuffer header = buffer.duplicate();
+        DataInputStream in = new DataInputStream(new ByteBufferInputStream(header));
+        if (header.remaining() < 16 || in.readInt() != MAGIC || in.readInt() != VERSION)
+            throw new IOException("not an article bundle: " + file);
+        int count = in.readInt();
+        int dataOffset = in.readInt();
+        String baseUrl = in.readUTF();
+        HashMap<String, Entry> entries = new HashMap<>(count * 2);
+        for (int i = 0; i < count; i++) {
+            String path = in.readUTF();
+            String mimeType = in.readUTF();
+            String encoding = in.readUTF();
+            int offset = in.readInt();
+            int length = in.readInt();
+            if (offset < dataOffset || (long) offset + length > buffer.capacity())
+                throw new IOException("corrupted entry " + path + " in " + file);
+            entries.put(path, new Entry(mimeType, encoding.length() == 0 ? null : encoding, offset, length));
+        }
+        return new ArticleBundle(file, baseUrl, buffer, entries);
+    }
+
+    public File getFile() {
+        return mFile;
+    }
+
+    /**
+     * @return 文章的地址前缀，比如https://example.com/article/123/
+     */
+    public String getBaseUrl() {
+        return mBaseUrl;
+    }
+
+    public int getEntryCount() {
+        return mEntries.size();
+    }
+
+    public boolean contains(String path) {
+        return mEntries.containsKey(path);
+    }
+
+    /**
+     * 可以在多个线程同时调用，每次返回独立的流
+     *
+     * @param path 相对baseUrl的路径
+     * @return 没有这个文件返回null
+     */
+    public BundleResource get(String path) {
+        Entry entry = mEntries.get(path);
+        if (entry == null)
+            return null;
+        ByteBuffer slice = mBuffer.duplicate();
+        slice.limit(entry.offset + entry.length);
+        slice.position(entry.offset);
+        return new BundleResource(path, entry.mimeType, entry.encoding, entry.length, new ByteBufferInputStream(slice));
+    }
+}
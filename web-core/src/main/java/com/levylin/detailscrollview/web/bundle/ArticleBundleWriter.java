@@ -0,0 +1,173 @@
+package com.levylin.detailscrollview.web.bundle;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Locale;
+
+/**
+ * 生成{@link ArticleBundle}，先写临时文件再重命名，读的一方不会看到写了一半的文件
+ */
+public final class ArticleBundleWriter {
+
+    private static final class Item {
+        final String path;
+        final String mimeType;
+        final String encoding;
+        final byte[] data;
+
+        Item(String path, String mimeType, String encoding, byte[] data) {
+            this.path = path;
+            this.mimeType = mimeType;
+            this.encoding = encoding;
+            this.data = data;
+        }
+    }
+
+    private final String mBaseUrl;
+    private final ArrayList<Item> mItems = new ArrayList<>();
+
+    /**
+     * @param baseUrl 文章的地址前缀，以/结尾，包里的路径都相对这个地址
+     */
+    public ArticleBundleWriter(String baseUrl) {
+        mBaseUrl = baseUrl.endsWith("/") ? baseUrl : baseUrl + "/";
+    }
+
+    /**
+     * @param path     相对baseUrl的路径，比如index.html、css/main.css
+     * @param mimeType null时按扩展名猜
+     * @param encoding 文本的编码，二进制文件传null
+     */
+    public ArticleBundleWriter add(String path, String mimeType, String encoding, byte[] data) {
+        String type = mimeType != null ? mimeType : guessMimeType(path);
+        for (int i = 0; i < mItems.size(); i++) {
+            if (mItems.get(i).path.equals(path)) {
+                mItems.set(i, new Item(path, type, encoding, data));
+                return this;
+            }
+        }
+        mItems.add(new Item(path, type, encoding, data));
+        return this;
+    }
+
+    public ArticleBundleWriter add(String path, String mimeType, String encoding, File file) throws IOException {
+        InputStream in = new FileInputStream(file);
+        try {
+            ByteArrayOutputStream out = new ByteArrayOutputStream((int) file.length());
+            byte[] buffer = new byte[8192];
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                out.write(buffer, 0, read);
+            }
+            return add(path, mimeType, encoding, out.toByteArray());
+        } finally {
+            in.close();
+        }
+    }
+
+    public void write(File file) throws IOException {
+        ByteArrayOutputStream indexBytes = new ByteArrayOutputStream();
+        DataOutputStream index = new DataOutputStream(indexBytes);
+        index.writeUTF(mBaseUrl);
+        for (Item item : mItems) {
+            index.writeUTF(item.path);
+            index.writeUTF(item.mimeType);
+            index.writeUTF(item.encoding == null ? "" : item.encoding);
+            index.writeInt(0);
+            index.writeInt(0);
+        }
+        //索引的长度和内容无关，先算出数据的起点，再填入每个文件的偏移
+        int dataOffset = align(16 + index.size());
+        indexBytes.reset();
+        index = new DataOutputStream(indexBytes);
+        index.writeUTF(mBaseUrl);
+        int offset = dataOffset;
+        for (Item item : mItems) {
+            index.writeUTF(item.path);
+            index.writeUTF(item.mimeType);
+            index.writeUTF(item.encoding == null ? "" : item.encoding);
+            index.writeInt(offset);
+            index.writeInt(item.data.length);
+            offset = align(offset + item.data.length);
+        }
+
+        File tmp = new File(file.getPath() + ".tmp");
+        DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tmp)));
+        try {
+            out.writeInt(ArticleBundle.MAGIC);
+            out.writeInt(ArticleBundle.VERSION);
+            out.writeInt(mItems.size());
+            out.writeInt(dataOffset);
+            indexBytes.writeTo(out);
+            pad(out, dataOffset);
+            for (Item item : mItems) {
+                out.write(item.data);
+                pad(out, align(out.size()));
+            }
+        } finally {
+            out.close();
+        }
+        if (file.exists() && !file.delete() || !tmp.renameTo(file)) {
+            tmp.delete();
+            throw new IOException("rename failed: " + file);
+        }
+    }
+
+    /**
+     * 按扩展名猜文章里常见的类型，猜不出来返回application/octet-stream
+     */
+    public static String guessMimeType(String path) {
+        int query = path.indexOf('?');
+        String name = (query < 0 ? path : path.substring(0, query)).toLowerCase(Locale.US);
+        int dot = name.lastIndexOf('.');
+        String ext = dot < 0 ? "" : name.substring(dot + 1);
+        switch (ext) {
+            case "html":
+            case "htm":
+                return "text/html";
+            case "css":
+                return "text/css";
+            case "js":
+                return "application/javascript";
+            case "json":
+                return "application/json";
+            case "png":
+                return "image/png";
+            case "jpg":
+            case "jpeg":
+                return "image/jpeg";
+            case "gif":
+                return "image/gif";
+            case "webp":
+                return "image/webp";
+            case "svg":
+                return "image/svg+xml";
+            case "woff":
+                return "font/woff";
+            case "woff2":
+                return "font/woff2";
+            case "ttf":
+                return "font/ttf";
+            default:
+                return "application/octet-stream";
+        }
+    }
+
+    private static int align(int offset) {
+        int mask = ArticleBundle.ALIGNMENT - 1;
+        return (offset + mask) & ~mask;
+    }
+
+    private static void pad(DataOutputStream out, int target) throws IOException {
+        while (out.size() < target) {
+            out.write(0);
+        }
+    }
+}
@@ -0,0 +1,117 @@
+package com.levylin.detailscrollview.web.bundle;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * 把WebView请求的地址对应到已注册的文章包里的文件
+ * 1.地址以文章包的baseUrl开头，去掉#后面的部分，剩下的就是包里的路径；以/结尾的补上index.html
+ * 2.找不到时再去掉?后面的部分找一次，css/js常用查询参数区分版本
+ * 可以在任意线程调用，目录要到第一次{@link #resolve}时才扫描，所以构造和{@link #addDirectory}可以放在主线程
+ */
+public class BundleResolver {
+
+    public static final String BUNDLE_SUFFIX = ".bundle";
+    private static final String INDEX_FILE = "index.html";
+
+    private final CopyOnWriteArrayList<ArticleBundle> mBundles = new CopyOnWriteArrayList<>();
+    private final CopyOnWriteArrayList<File> mPendingDirs = new CopyOnWriteArrayList<>();
+
+    /**
+     * 之后的请求优先使用这个包，同一个baseUrl的旧包会被替换
+     */
+    public void register(ArticleBundle bundle) {
+        for (ArticleBundle old : mBundles) {
+            if (old.getBaseUrl().equals(bundle.getBaseUrl())) {
+                mBundles.remove(old);
+            }
+        }
+        mBundles.add(0, bundle);
+    }
+
+    /**
+     * @return 打开失败返回null
+     */
+    public ArticleBundle register(File file) {
+        try {
+            ArticleBundle bundle = ArticleBundle.open(file);
+            register(bundle);
+            return bundle;
+        } catch (IOException e) {
+            e.printStackTrace();
+            return null;
+        }
+    }
+
+    public void unregister(String baseUrl) {
+        for (ArticleBundle bundle : mBundles) {
+            if (bundle.getBaseUrl().equals(baseUrl)) {
+                mBundles.remove(bundle);
+            }
+        }
+    }
+
+    /**
+     * 目录里所有{@link #BUNDLE_SUFFIX}结尾的文件，第一次{@link #resolve}时才打开
+     */
+    public void addDirectory(File dir) {
+        mPendingDirs.add(dir);
+    }
+
+    public int getBundleCount() {
+        loadPendingDirs();
+        return mBundles.size();
+    }
+
+    /**
+     * @return 有对应的文章包返回里面的文件，没有返回null
+     */
+    public BundleResource resolve(String url) {
+        if (url == null)
+            return null;
+        loadPendingDirs();
+        if (mBundles.isEmpty())
+            return null;
+        int hash = url.indexOf('#');
+        String target = hash < 0 ? url : url.substring(0, hash);
+        for (ArticleBundle bundle : mBundles) {
+            String baseUrl = bundle.getBaseUrl();
+            if (!target.startsWith(baseUrl))
+                continue;
+            String path = target.substring(baseUrl.length());
+            BundleResource resource = bundle.get(indexIfDirectory(path));
+            if (resource != null)
+                return resource;
+            int query = path.indexOf('?');
+            if (query >= 0) {
+                resource = bundle.get(indexIfDirectory(path.substring(0, query)));
+                if (resource != null)
+                    return resource;
+            }
+        }
+        return null;
+    }
+
+    private static String indexIfDirectory(String path) {
+        return path.length() == 0 || path.endsWith("/") ? path + INDEX_FILE : path;
+    }
+
+    private void loadPendingDirs() {
+        if (mPendingDirs.isEmpty())
+            return;
+        synchronized (mPendingDirs) {
+            for (File dir : mPendingDirs) {
+                File[] files = dir.listFiles();
+                if (files != null) {
+                    for (File file : files) {
+                        if (file.getName().endsWith(BUNDLE_SUFFIX)) {
+                            register(file);
+                        }
+                    }
+                }
+                mPendingDirs.remove(dir);
+            }
+        }
+    }
+}
@@ -0,0 +1,66 @@
+package com.levylin.detailscrollview.web.bundle;
+
+import java.io.InputStream;
+import java.util.Collections;
+import java.util.Map;
+
+/**
+ * 文章包里的一个文件，交给WebView的shouldInterceptRequest
+ */
+public final class BundleResource {
+
+    private final String mPath;
+    private final String mMimeType;
+    private final String mEncoding;
+    private final int mLength;
+    private final InputStream mBody;
+
+    BundleResource(String path, String mimeType, String encoding, int length, InputStream body) {
+        mPath = path;
+        mMimeType = mimeType;
+        mEncoding = encoding;
+        mLength = length;
+        mBody = body;
+    }
+
+    /**
+     * @return 相对文章包baseUrl的路径
+     */
+    public String getPath() {
+        return mPath;
+    }
+
+    public String getMimeType() {
+        return mMimeType;
+    }
+
+    /**
+     * @return 文本的编码，二进制文件为null
+     */
+    public String getEncoding() {
+        return mEncoding;
+    }
+
+    public int getLength() {
+        return mLength;
+    }
+
+    public int getStatusCode() {
+        return 200;
+    }
+
+    public String getReasonPhrase() {
+        return "OK";
+    }
+
+    public Map<String, String> getHeaders() {
+        return Collections.singletonMap("Content-Length", String.valueOf(mLength));
+    }
+
+    /**
+     * @return 直接读映射的内存，不需要关闭
+     */
+    public InputStream getBody() {
+        return mBody;
+    }
+}
@@ -0,0 +1,65 @@
+package com.levylin.detailscrollview.web.bundle;
+
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+
+/**
+ * 直接从映射的内存读，不会先拷贝到堆里
+ */
+final class ByteBufferInputStream extends InputStream {
+
+    private final ByteBuffer mBuffer;
+
+    /**
+     * @param buffer 读取position到limit之间的内容，调用方不能再修改它的position
+     */
+    ByteBufferInputStream(ByteBuffer buffer) {
+        mBuffer = buffer;
+    }
+
+    @Override
+    public int read() {
+        if (!mBuffer.hasRemaining())
+            return -1;
+        return mBuffer.get() & 0xff;
+    }
+
+    @Override
+    public int read(byte[] buffer, int offset, int count) {
+        if (count == 0)
+            return 0;
+        int remaining = mBuffer.remaining();
+        if (remaining == 0)
+            return -1;
+        int read = Math.min(count, remaining);
+        mBuffer.get(buffer, offset, read);
+        return read;
+    }
+
+    @Override
+    public long skip(long count) {
+        int skipped = (int) Math.max(0, Math.min(count, mBuffer.remaining()));
+        mBuffer.position(mBuffer.position() + skipped);
+        return skipped;
+    }
+
+    @Override
+    public int available() {
+        return mBuffer.remaining();
+    }
+
+    @Override
+    public boolean markSupported() {
+        return true;
+    }
+
+    @Override
+    public synchronized void mark(int readLimit) {
+        mBuffer.mark();
+    }
+
+    @Override
+    public synchronized void reset() {
+        mBuffer.reset();
+    }
+}
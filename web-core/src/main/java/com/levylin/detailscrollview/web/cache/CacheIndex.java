@@ -0,0 +1,222 @@
+package com.levylin.detailscrollview.web.cache;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * 缓存索引，整个文件映射到内存，固定大小的开放寻址哈希表
+ * 文件头：magic(int) version(int) capacity(int) reserved(int)
+ * 每个槽位{@link #SLOT_BYTES}字节：hash(long) size(int) state(int) lastAccess(long) expiresAt(long) storedAt(long)
+ * 读写都直接操作映射的内存，由系统负责落盘，关闭时force一次
+ * 不是线程安全的，由{@link ResponseCache}加锁
+ */
+final class CacheIndex {
+
+    static final int MAGIC = 0x44534349;//'D' 'S' 'C' 'I'
+    static final int VERSION = 1;
+    static final int HEADER_BYTES = 16;
+    static final int SLOT_BYTES = 40;
+
+    private static final int STATE_EMPTY = 0;
+    private static final int STATE_LIVE = 1;
+    private static final int STATE_REMOVED = 2;//删除后留下的墓碑，查找时要跳过去
+
+    private static final int OFFSET_HASH = 0;
+    private static final int OFFSET_SIZE = 8;
+    private static final int OFFSET_STATE = 12;
+    private static final int OFFSET_LAST_ACCESS = 16;
+    private static final int OFFSET_EXPIRES_AT = 24;
+    private static final int OFFSET_STORED_AT = 32;
+
+    private final RandomAccessFile mFile;
+    private final MappedByteBuffer mBuffer;
+    private final int mCapacity;
+    private int mLiveCount;
+    private int mUsedCount;//包括墓碑
+
+    /**
+     * 文件不存在或者格式、容量不对时重新创建
+     */
+    CacheIndex(File file, int capacity) throws IOException {
+        mCapacity = capacity;
+        long length = HEADER_BYTES + (long) capacity * SLOT_BYTES;
+        boolean isValid = file.length() == length;
+        mFile = new RandomAccessFile(file, "rw");
+        if (!isValid) {
+            mFile.setLength(0);
+            mFile.setLength(length);
+        }
+        mBuffer = mFile.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, length);
+        if (isValid && (mBuffer.getInt(0) != MAGIC || mBuffer.getInt(4) != VERSION || mBuffer.getInt(8) != capacity)) {
+            isValid = false;
+            for (int i = 0; i < length; i++) {
+                mBuffer.put(i, (byte) 0);
+            }
+        }
+        if (!isValid) {
+            mBuffer.putInt(0, MAGIC);
+            mBuffer.putInt(4, VERSION);
+            mBuffer.putInt(8, capacity);
+        }
+        for (int slot = 0; slot < capacity; slot++) {
+            int state = getState(slot);
+            if (state != STATE_EMPTY) {
+                mUsedCount++;
+                if (state == STATE_LIVE) {
+                    mLiveCount++;
+                }
+            }
+        }
+    }
+
+    int capacity() {
+        return mCapacity;
+    }
+
+    int liveCount() {
+        return mLiveCount;
+    }
+
+    /**
+     * @return hash所在的槽位，没有返回-1
+     */
+    int find(long hash) {
+        int slot = firstSlot(hash);
+        for (int i = 0; i < mCapacity; i++) {
+            int state = getState(slot);
+            if (state == STATE_EMPTY)
+                return -1;
+            if (state == STATE_LIVE && getHash(slot) == hash)
+                return slot;
+            slot = slot + 1 == mCapacity ? 0 : slot + 1;
+        }
+        return -1;
+    }
+
+    /**
+     * 插入或者覆盖，调用前需要保证{@link #isFull()}为false
+     *
+     * @return 写入的槽位
+     */
+    int put(long hash, int size, long now, long expiresAt) {
+        int slot = find(hash);
+        if (slot < 0) {
+            slot = firstSlot(hash);
+            while (getState(slot) == STATE_LIVE) {
+                slot = slot + 1 == mCapacity ? 0 : slot + 1;
+            }
+            if (getState(slot) == STATE_EMPTY) {
+                mUsedCount++;
+            }
+            mLiveCount++;
+        }
+        int base = base(slot);
+        mBuffer.putLong(base + OFFSET_HASH, hash);
+        mBuffer.putInt(base + OFFSET_SIZE, size);
+        mBuffer.putLong(base + OFFSET_LAST_ACCESS, now);
+        mBuffer.putLong(base + OFFSET_EXPIRES_AT, expiresAt);
+        mBuffer.putLong(base + OFFSET_STORED_AT, now);
+        mBuffer.putInt(base + OFFSET_STATE, STATE_LIVE);//最后写状态，中途崩溃的话这个槽位不会被当成有效的
+        return slot;
+    }
+
+    void remove(int slot) {
+        if (getState(slot) != STATE_LIVE)
+            return;
+        mBuffer.putInt(base(slot) + OFFSET_STATE, STATE_REMOVED);
+        mLiveCount--;
+    }
+
+    /**
+     * 有效槽位加墓碑超过3/4时，查找会变慢，插入前需要{@link #compact()}；有效槽位本身满了需要先淘汰
+     */
+    boolean isFull() {
+        return mUsedCount * 4 >= mCapacity * 3;
+    }
+
+    /**
+     * 清掉墓碑，把有效的槽位重新插入
+     */
+    void compact() {
+        int count = mLiveCount;
+        long[] hashes = new long[count];
+        int[] sizes = new int[count];
+        long[] times = new long[count * 3];
+        int n = 0;
+        for (int slot = 0; slot < mCapacity; slot++) {
+            if (getState(slot) == STATE_LIVE) {
+                int base = base(slot);
+                hashes[n] = getHash(slot);
+                sizes[n] = mBuffer.getInt(base + OFFSET_SIZE);
+                times[n * 3] = mBuffer.getLong(base + OFFSET_LAST_ACCESS);
+                times[n * 3 + 1] = mBuffer.getLong(base + OFFSET_EXPIRES_AT);
+                times[n * 3 + 2] = mBuffer.getLong(base + OFFSET_STORED_AT);
+                n++;
+            }
+            mBuffer.putInt(base(slot) + OFFSET_STATE, STATE_EMPTY);
+        }
+        mLiveCount = 0;
+        mUsedCount = 0;
+        for (int i = 0; i < n; i++) {
+            int slot = put(hashes[i], sizes[i], times[i * 3], times[i * 3 + 1]);
+            mBuffer.putLong(base(slot) + OFFSET_STORED_AT, times[i * 3 + 2]);
+        }
+    }
+
+    boolean isLive(int slot) {
+        return getState(slot) == STATE_LIVE;
+    }
+
+    long getHash(int slot) {
+        return mBuffer.getLong(base(slot) + OFFSET_HASH);
+    }
+
+    int getSize(int slot) {
+        return mBuffer.getInt(base(slot) + OFFSET_SIZE);
+    }
+
+    long getLastAccess(int slot) {
+        return mBuffer.getLong(base(slot) + OFFSET_LAST_ACCESS);
+    }
+
+    void setLastAccess(int slot, long time) {
+        mBuffer.putLong(base(slot) + OFFSET_LAST_ACCESS, time);
+    }
+
+    long getExpiresAt(int slot) {
+        return mBuffer.getLong(base(slot) + OFFSET_EXPIRES_AT);
+    }
+
+    void setExpiresAt(int slot, long time) {
+        mBuffer.putLong(base(slot) + OFFSET_EXPIRES_AT, time);
+    }
+
+    long getStoredAt(int slot) {
+        return mBuffer.getLong(base(slot) + OFFSET_STORED_AT);
+    }
+
+    void force() {
+        mBuffer.force();
+    }
+
+    void close() throws IOException {
+        mBuffer.force();
+        mFile.close();
+    }
+
+    private int getState(int slot) {
+        return mBuffer.getInt(base(slot) + OFFSET_STATE);
+    }
+
+    private int firstSlot(long hash) {
+        int h = (int) (hash ^ (hash >>> 32));
+        return (h & 0x7fffffff) % mCapacity;
+    }
+
+    private static int base(int slot) {
+        return HEADER_BYTES + slot * SLOT_BYTES;
+    }
+}
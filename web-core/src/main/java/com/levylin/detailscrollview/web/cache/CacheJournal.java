@@ -0,0 +1,108 @@
+package com.levylin.detailscrollview.web.cache;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * 缓存的操作日志，映射到内存的定长文件，用来在崩溃之后找出写了一半的缓存
+ * 文件头：magic(int) version(int)，之后每条记录：op(byte) hash(long) time(long)
+ * 写满之后先把索引落盘，再从头开始写，所以日志里只需要保留最近一段时间的记录
+ * 不是线程安全的，由{@link ResponseCache}加锁
+ */
+final class CacheJournal {
+
+    static final int MAGIC = 0x4453434a;//'D' 'S' 'C' 'J'
+    static final int VERSION = 1;
+    static final int HEADER_BYTES = 8;
+    static final int RECORD_BYTES = 17;
+
+    static final byte OP_DIRTY = 1;//开始写入
+    static final byte OP_CLEAN = 2;//写入完成
+    static final byte OP_REMOVE = 3;
+
+    /**
+     * 回放日志时的回调
+     */
+    interface Visitor {
+        /**
+         * @param hash 开始写入之后没有完成也没有删除的缓存
+         */
+        void onUnfinished(long hash);
+    }
+
+    private final RandomAccessFile mFile;
+    private final MappedByteBuffer mBuffer;
+    private final int mLength;
+
+    CacheJournal(File file, int capacityRecords) throws IOException {
+        mLength = HEADER_BYTES + capacityRecords * RECORD_BYTES;
+        boolean isValid = file.length() == mLength;
+        mFile = new RandomAccessFile(file, "rw");
+        if (!isValid) {
+            mFile.setLength(0);
+            mFile.setLength(mLength);
+        }
+        mBuffer = mFile.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, mLength);
+        if (!isValid || mBuffer.getInt(0) != MAGIC || mBuffer.getInt(4) != VERSION) {
+            reset();
+        }
+    }
+
+    /**
+     * 找出没有完成的写入，然后清空日志
+     */
+    void replay(Visitor visitor) {
+        int end = HEADER_BYTES;
+        while (end + RECORD_BYTES <= mLength && mBuffer.get(end) != 0) {
+            end += RECORD_BYTES;
+        }
+        for (int pos = HEADER_BYTES; pos < end; pos += RECORD_BYTES) {
+            if (mBuffer.get(pos) != OP_DIRTY)
+                continue;
+            long hash = mBuffer.getLong(pos + 1);
+            boolean isFinished = false;
+            for (int next = pos + RECORD_BYTES; next < end; next += RECORD_BYTES) {
+                byte op = mBuffer.get(next);
+                if (op != OP_DIRTY && mBuffer.getLong(next + 1) == hash) {
+                    isFinished = true;
+                    break;
+                }
+            }
+            if (!isFinished) {
+                visitor.onUnfinished(hash);
+            }
+        }
+        reset();
+    }
+
+    /**
+     * @return 日志写满了返回false，需要先把索引落盘再{@link #reset()}
+     */
+    boolean append(byte op, long hash, long time) {
+        int pos = mBuffer.position();
+        if (pos + RECORD_BYTES > mLength)
+            return false;
+        mBuffer.putLong(pos + 1, hash);
+        mBuffer.putLong(pos + 9, time);
+        mBuffer.put(pos, op);//最后写op，op为0代表日志结束
+        mBuffer.position(pos + RECORD_BYTES);
+        return true;
+    }
+
+    void reset() {
+        for (int i = 0; i < mLength; i++) {
+            mBuffer.put(i, (byte) 0);
+        }
+        mBuffer.putInt(0, MAGIC);
+        mBuffer.putInt(4, VERSION);
+        mBuffer.position(HEADER_BYTES);
+    }
+
+    void close() throws IOException {
+        mBuffer.force();
+        mFile.close();
+    }
+}
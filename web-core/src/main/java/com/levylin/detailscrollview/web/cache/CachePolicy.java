@@ -0,0 +1,91 @@
+package com.levylin.detailscrollview.web.cache;
+
+import java.util.ArrayList;
+
+/**
+ * 按Content-Type配置的缓存策略，按前缀匹配，最长的前缀优先
+ * 服务器给了Cache-Control: max-age或者Expires的话以服务器为准，没给的时候使用这里的默认新鲜时间；
+ * no-store不缓存，no-cache每次都重新验证
+ */
+public final class CachePolicy {
+
+    public static final long SECOND = 1000L;
+    public static final long MINUTE = 60 * SECOND;
+    public static final long HOUR = 60 * MINUTE;
+    public static final long DAY = 24 * HOUR;
+
+    private static final class Rule {
+        final String prefix;
+        final boolean isCacheable;
+        final long defaultFreshMillis;
+
+        Rule(String prefix, boolean isCacheable, long defaultFreshMillis) {
+            this.prefix = prefix;
+            this.isCacheable = isCacheable;
+            this.defaultFreshMillis = defaultFreshMillis;
+        }
+    }
+
+    private final ArrayList<Rule> mRules = new ArrayList<>();
+    private Rule mFallback = new Rule("", false, 0);
+
+    /**
+     * 文章页的默认策略：html每次都验证，css/js一天，图片和字体一周，其他类型不缓存
+     */
+    public static CachePolicy createDefault() {
+        CachePolicy policy = new CachePolicy();
+        policy.setRule("text/html", true, 0);
+        policy.setRule("text/css", true, DAY);
+        policy.setRule("application/javascript", true, DAY);
+        policy.setRule("application/x-javascript", true, DAY);
+        policy.setRule("text/javascript", true, DAY);
+        policy.setRule("image/", true, 7 * DAY);
+        policy.setRule("font/", true, 7 * DAY);
+        policy.setRule("application/font-woff", true, 7 * DAY);
+        policy.setRule("application/x-font-ttf", true, 7 * DAY);
+        return policy;
+    }
+
+    /**
+     * @param prefix             Content-Type的前缀，比如"image/"，""匹配所有类型
+     * @param isCacheable        是否缓存
+     * @param defaultFreshMillis 服务器没有给出新鲜时间时，缓存多久之内不用验证，0表示每次都验证
+     */
+    public synchronized CachePolicy setRule(String prefix, boolean isCacheable, long defaultFreshMillis) {
+        Rule rule = new Rule(prefix.toLowerCase(), isCacheable, defaultFreshMillis);
+        if (rule.prefix.length() == 0) {
+            mFallback = rule;
+            return this;
+        }
+        for (int i = 0; i < mRules.size(); i++) {
+            if (mRules.get(i).prefix.equals(rule.prefix)) {
+                mRules.set(i, rule);
+                return this;
+            }
+        }
+        mRules.add(rule);
+        return this;
+    }
+
+    public synchronized boolean isCacheable(String mimeType) {
+        return find(mimeType).isCacheable;
+    }
+
+    public synchronized long getDefaultFreshMillis(String mimeType) {
+        return find(mimeType).defaultFreshMillis;
+    }
+
+    private Rule find(String mimeType) {
+        if (mimeType == null)
+            return mFallback;
+        String type = mimeType.toLowerCase();
+        Rule best = mFallback;
+        for (int i = 0; i < mRules.size(); i++) {
+            Rule rule = mRules.get(i);
+            if (type.startsWith(rule.prefix) && rule.prefix.length() > best.prefix.length()) {
+                best = rule;
+            }
+        }
+        return best;
+    }
+}
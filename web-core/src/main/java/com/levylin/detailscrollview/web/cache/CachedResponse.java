@@ -0,0 +1,76 @@
+package com.levylin.detailscrollview.web.cache;
+
+import java.io.InputStream;
+import java.util.Collections;
+import java.util.Map;
+
+/**
+ * {@link ResponseCache#get}的结果，交给WebView的shouldInterceptRequest，body由WebView读完后关闭
+ */
+public final class CachedResponse {
+
+    public static final int SOURCE_CACHE = 0;//缓存还新鲜，直接用
+    public static final int SOURCE_REVALIDATED = 1;//服务器返回304，用缓存
+    public static final int SOURCE_NETWORK = 2;//从网络获取
+    public static final int SOURCE_STALE = 3;//网络出错，用过期的缓存
+
+    private final int mSource;
+    private final int mStatusCode;
+    private final String mReasonPhrase;
+    private final String mMimeType;
+    private final String mEncoding;
+    private final Map<String, String> mHeaders;
+    private final InputStream mBody;
+
+    CachedResponse(int source, int statusCode, String reasonPhrase, Map<String, String> headers, InputStream body) {
+        mSource = source;
+        mStatusCode = statusCode;
+        mReasonPhrase = reasonPhrase == null || reasonPhrase.length() == 0 ? "OK" : reasonPhrase;
+        mHeaders = Collections.unmodifiableMap(headers);
+        mBody = body;
+        String contentType = HttpHeaders.get(headers, "Content-Type");
+        mMimeType = HttpHeaders.mimeType(contentType);
+        mEncoding = HttpHeaders.charset(contentType);
+    }
+
+    public int getSource() {
+        return mSource;
+    }
+
+    /**
+     * @return 是否没有下载body
+     */
+    public boolean isFromCache() {
+        return mSource != SOURCE_NETWORK;
+    }
+
+    public int getStatusCode() {
+        return mStatusCode;
+    }
+
+    public String getReasonPhrase() {
+        return mReasonPhrase;
+    }
+
+    /**
+     * @return 比如text/html，没有Content-Type时为null
+     */
+    public String getMimeType() {
+        return mMimeType;
+    }
+
+    /**
+     * @return Content-Type里的charset，没有时为null
+     */
+    public String getEncoding() {
+        return mEncoding;
+    }
+
+    public Map<String, String> getHeaders() {
+        return mHeaders;
+    }
+
+    public InputStream getBody() {
+        return mBody;
+    }
+}
@@ -0,0 +1,127 @@
+package com.levylin.detailscrollview.web.cache;
+
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TimeZone;
+
+/**
+ * 缓存用到的HTTP头解析
+ */
+final class HttpHeaders {
+
+    static final long NO_MAX_AGE = -1;
+
+    private HttpHeaders() {
+    }
+
+    /**
+     * 不区分大小写
+     */
+    static String get(Map<String, String> headers, String name) {
+        String value = headers.get(name);
+        if (value != null)
+            return value;
+        for (Map.Entry<String, String> entry : headers.entrySet()) {
+            if (name.equalsIgnoreCase(entry.getKey()))
+                return entry.getValue();
+        }
+        return null;
+    }
+
+    static String mimeType(String contentType) {
+        if (contentType == null)
+            return null;
+        int semicolon = contentType.indexOf(';');
+        String mime = semicolon < 0 ? contentType : contentType.substring(0, semicolon);
+        return mime.trim().toLowerCase(Locale.US);
+    }
+
+    static String charset(String contentType) {
+        if (contentType == null)
+            return null;
+        String[] parts = contentType.split(";");
+        for (int i = 1; i < parts.length; i++) {
+            String part = parts[i].trim();
+            if (part.regionMatches(true, 0, "charset=", 0, 8)) {
+                String charset = part.substring(8).trim();
+                if (charset.length() > 1 && charset.charAt(0) == '"') {
+                    charset = charset.substring(1, charset.length() - 1);
+                }
+                return charset;
+            }
+        }
+        return null;
+    }
+
+    static boolean hasDirective(String cacheControl, String directive) {
+        if (cacheControl == null)
+            return false;
+        String[] parts = cacheControl.split(",");
+        for (String part : parts) {
+            String token = part.trim();
+            int equals = token.indexOf('=');
+            if (equals >= 0) {
+                token = token.substring(0, equals).trim();
+            }
+            if (token.equalsIgnoreCase(directive))
+                return true;
+        }
+        return false;
+    }
+
+    /**
+     * @return max-age的毫秒数，没有时返回{@link #NO_MAX_AGE}
+     */
+    static long maxAgeMillis(String cacheControl) {
+        if (cacheControl == null)
+            return NO_MAX_AGE;
+        String[] parts = cacheControl.split(",");
+        for (String part : parts) {
+            String token = part.trim();
+            if (token.regionMatches(true, 0, "max-age=", 0, 8)) {
+                try {
+                    return Math.max(0, Long.parseLong(token.substring(8).trim())) * 1000;
+                } catch (NumberFormatException e) {
+                    return 0;
+                }
+            }
+        }
+        return NO_MAX_AGE;
+    }
+
+    /**
+     * @return 解析失败返回-1
+     */
+    static long parseDate(String value) {
+        if (value == null)
+            return -1;
+        SimpleDateFormat format = new SimpleDateFormat("EEE, dd MMM yyyy HH:mm:ss zzz", Locale.US);
+        format.setTimeZone(TimeZone.getTimeZone("GMT"));
+        try {
+            return format.parse(value.trim()).getTime();
+        } catch (ParseException e) {
+            return -1;
+        }
+    }
+
+    static String formatDate(long time) {
+        SimpleDateFormat format = new SimpleDateFormat("EEE, dd MMM yyyy HH:mm:ss 'GMT'", Locale.US);
+        format.setTimeZone(TimeZone.getTimeZone("GMT"));
+        return format.format(new Date(time));
+    }
+
+    /**
+     * 64位FNV-1a，用作缓存的key和文件名
+     */
+    static long hash(String url) {
+        long hash = 0xcbf29ce484222325L;
+        for (int i = 0; i < url.length(); i++) {
+            hash ^= url.charAt(i);
+            hash *= 0x100000001b3L;
+        }
+        return hash;
+    }
+}
@@ -0,0 +1,696 @@
+package com.levylin.detailscrollview.web.cache;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * 文章WebView用的磁盘LRU缓存，在shouldInterceptRequest里调用{@link #get}
+ * 每个响应一个文件：magic version url status reason headerCount (name value)... body
+ * 索引{@link CacheIndex}和日志{@link CacheJournal}都是映射到内存的文件，启动时不需要解析整个目录
+ * 过期的缓存有ETag或者Last-Modified时发条件请求，304直接用本地的body；网络出错时退回过期的缓存
+ * 缓存是所有登录状态共用的，不转发Cookie也不写回Set-Cookie：带Cookie或者Authorization的请求、返回Set-Cookie的响应都不处理，
+ * 交给WebView用自己的Cookie加载
+ * 第一次调用{@link #get}时才打开，所以构造可以放在主线程
+ */
+public class ResponseCache {
+
+    private static final int ENTRY_MAGIC = 0x44534345;//'D' 'S' 'C' 'E'
+    private static final int ENTRY_VERSION = 1;
+    private static final String ENTRY_SUFFIX = ".e";
+    private static final String TMP_SUFFIX = ".tmp";
+    private static final int JOURNAL_RECORDS = 1024;
+    private static final int MAX_URL_LENGTH = 4096;
+    private static final int CONNECT_TIMEOUT = 15 * 1000;
+    private static final int READ_TIMEOUT = 20 * 1000;
+
+    /**
+     * 不保存的响应头：逐跳的头、Cookie，body解压之后Content-Encoding和Content-Length也不对了
+     */
+    private static final String[] SKIPPED_HEADERS = {"Connection", "Keep-Alive", "Transfer-Encoding", "Set-Cookie",
+            "Set-Cookie2", "Content-Encoding", "Content-Length", "Proxy-Authenticate", "Upgrade"};
+
+    private final File mDir;
+    private final long mMaxSize;
+    private final long mMaxEntryBytes;
+    private final int mMaxEntries;
+    private final CachePolicy mPolicy;
+
+    private final Object mLock = new Object();
+    private CacheIndex mIndex;
+    private CacheJournal mJournal;
+    private final LinkedHashMap<Long, Long> mLru = new LinkedHashMap<>(16, 0.75f, true);//hash->size，按访问顺序
+    private long mTotalSize;
+    private boolean mIsOpened;
+    private boolean mIsClosed;
+    private final AtomicInteger mTmpSequence = new AtomicInteger();
+
+    private final AtomicLong mHits = new AtomicLong();
+    private final AtomicLong mRevalidatedHits = new AtomicLong();
+    private final AtomicLong mMisses = new AtomicLong();
+    private final AtomicLong mStaleServed = new AtomicLong();
+    private final AtomicLong mBytesSaved = new AtomicLong();
+    private final AtomicLong mBytesWritten = new AtomicLong();
+    private final AtomicLong mEvictions = new AtomicLong();
+
+    /**
+     * @param dir        缓存目录，只给这个缓存使用
+     * @param maxSize    所有缓存文件的总大小上限
+     * @param maxEntries 缓存条数上限，决定索引文件的大小
+     * @param policy     哪些类型缓存，以及默认缓存多久
+     */
+    public ResponseCache(File dir, long maxSize, int maxEntries, CachePolicy policy) {
+        mDir = dir;
+        mMaxSize = maxSize;
+        mMaxEntryBytes = maxSize / 8;
+        mMaxEntries = maxEntries;
+        mPolicy = policy;
+    }
+
+    /**
+     * 只处理http(s)的GET请求，需要在后台线程调用
+     *
+     * @param url            请求地址
+     * @param requestHeaders WebView带的请求头，可以为null；WebView给的请求头里没有Cookie，调用方需要从CookieManager取出来放进去
+     * @return 不处理或者出错时返回null，由WebView自己加载
+     */
+    public CachedResponse get(String url, Map<String, String> requestHeaders) {
+        if (url == null || url.length() > MAX_URL_LENGTH)
+            return null;
+        String lowerUrl = url.toLowerCase(Locale.US);
+        if (!lowerUrl.startsWith("http://") && !lowerUrl.startsWith("https://"))
+            return null;
+        if (requestHeaders != null && (HttpHeaders.get(requestHeaders, "Range") != null
+                || HttpHeaders.get(requestHeaders, "Cookie") != null || HttpHeaders.get(requestHeaders, "Authorization") != null))
+            return null;
+        if (!ensureOpen())
+            return null;
+
+        long hash = HttpHeaders.hash(url);
+        long now = System.currentTimeMillis();
+        long expiresAt = -1;
+        long size = 0;
+        synchronized (mLock) {
+            int slot = mIndex.find(hash);
+            if (slot >= 0) {
+                expiresAt = mIndex.getExpiresAt(slot);
+                mIndex.setLastAccess(slot, now);
+                Long lruSize = mLru.get(hash);
+                size = lruSize == null ? mIndex.getSize(slot) : lruSize;
+            }
+        }
+        Entry entry = null;
+        if (expiresAt >= 0) {
+            entry = readEntry(hash, url);
+        }
+        if (entry != null && now < expiresAt) {
+            mHits.incrementAndGet();
+            mBytesSaved.addAndGet(size);
+            return entry.toResponse(CachedResponse.SOURCE_CACHE);
+        }
+
+        HttpURLConnection connection = null;
+        try {
+            connection = open(url, requestHeaders, entry);
+            int code = connection.getResponseCode();
+            if (connection.getHeaderField("Set-Cookie") != null || connection.getHeaderField("Set-Cookie2") != null) {
+                //WebResourceResponse里的Set-Cookie不会写进WebView的Cookie，只能让WebView自己再请求一次
+                connection.disconnect();
+                if (entry != null) {
+                    entry.close();
+                }
+                return null;
+            }
+            if (code == HttpURLConnection.HTTP_NOT_MODIFIED && entry != null) {
+                Map<String, String> merged = new LinkedHashMap<>(entry.headers);
+                merged.putAll(readHeaders(connection));
+                connection.disconnect();
+                long newExpiresAt = computeExpiresAt(merged, HttpHeaders.mimeType(HttpHeaders.get(merged, "Content-Type")), now);
+                synchronized (mLock) {
+                    int slot = mIndex.find(hash);
+                    if (slot >= 0) {
+                        mIndex.setExpiresAt(slot, newExpiresAt);
+                    }
+                }
+                mRevalidatedHits.incrementAndGet();
+                mBytesSaved.addAndGet(size);
+                return entry.toResponse(CachedResponse.SOURCE_REVALIDATED);
+            }
+            if (entry != null) {
+                entry.close();
+                entry = null;
+            }
+            if (code != HttpURLConnection.HTTP_OK) {
+                //重定向和错误码交给WebView自己处理，低版本的WebResourceResponse也设置不了状态码
+                connection.disconnect();
+                return null;
+            }
+            mMisses.incrementAndGet();
+            Map<String, String> headers = readHeaders(connection);
+            InputStream body = connection.getInputStream();
+            String encoding = connection.getContentEncoding();
+            if (encoding != null && encoding.equalsIgnoreCase("gzip")) {
+                body = new GZIPInputStream(body);
+            }
+            String mimeType = HttpHeaders.mimeType(HttpHeaders.get(headers, "Content-Type"));
+            String cacheControl = HttpHeaders.get(headers, "Cache-Control");
+            if (mPolicy.isCacheable(mimeType) && !HttpHeaders.hasDirective(cacheControl, "no-store")
+                    && !HttpHeaders.hasDirective(cacheControl, "private")) {
+                long contentLength = connection.getContentLength();
+                if (contentLength < 0 || contentLength <= mMaxEntryBytes) {
+                    body = new CacheWriter(body, hash, url, code, connection.getResponseMessage(), headers,
+                            computeExpiresAt(headers, mimeType, now));
+                }
+            }
+            return new CachedResponse(CachedResponse.SOURCE_NETWORK, code, connection.getResponseMessage(), headers, body);
+        } catch (IOException e) {
+            e.printStackTrace();
+            if (connection != null) {
+                connection.disconnect();
+            }
+            if (entry != null) {
+                mStaleServed.incrementAndGet();
+                mBytesSaved.addAndGet(size);
+                return entry.toResponse(CachedResponse.SOURCE_STALE);
+            }
+            return null;
+        }
+    }
+
+    public long getHitCount() {
+        return mHits.get();
+    }
+
+    public long getRevalidatedHitCount() {
+        return mRevalidatedHits.get();
+    }
+
+    public long getMissCount() {
+        return mMisses.get();
+    }
+
+    public long getStaleServedCount() {
+        return mStaleServed.get();
+    }
+
+    /**
+     * @return 从本地读取、没有走网络下载的body字节数
+     */
+    public long getBytesSaved() {
+        return mBytesSaved.get();
+    }
+
+    public long getBytesWritten() {
+        return mBytesWritten.get();
+    }
+
+    public long getEvictionCount() {
+        return mEvictions.get();
+    }
+
+    public void resetStats() {
+        mHits.set(0);
+        mRevalidatedHits.set(0);
+        mMisses.set(0);
+        mStaleServed.set(0);
+        mBytesSaved.set(0);
+        mBytesWritten.set(0);
+        mEvictions.set(0);
+    }
+
+    /**
+     * @return 当前缓存文件的总大小
+     */
+    public long size() {
+        synchronized (mLock) {
+            return mTotalSize;
+        }
+    }
+
+    /**
+     * @return 当前缓存条数
+     */
+    public int entryCount() {
+        synchronized (mLock) {
+            return mLru.size();
+        }
+    }
+
+    public void close() {
+        synchronized (mLock) {
+            if (mIsClosed)
+                return;
+            mIsClosed = true;
+            try {
+                if (mIndex != null) {
+                    mIndex.close();
+                }
+                if (mJournal != null) {
+                    mJournal.close();
+                }
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        }
+    }
+
+    private boolean ensureOpen() {
+        synchronized (mLock) {
+            if (mIsClosed)
+                return false;
+            if (mIsOpened)
+                return true;
+            try {
+                if (!mDir.isDirectory() && !mDir.mkdirs())
+                    return false;
+                mIndex = new CacheIndex(new File(mDir, "index"), mMaxEntries * 2);
+                mJournal = new CacheJournal(new File(mDir, "journal"), JOURNAL_RECORDS);
+                mJournal.replay(new CacheJournal.Visitor() {
+                    @Override
+                    public void onUnfinished(long hash) {
+                        int slot = mIndex.find(hash);
+                        if (slot >= 0) {
+                            mIndex.remove(slot);
+                        }
+                        entryFile(hash).delete();
+                    }
+                });
+                loadEntries();
+                mIsOpened = true;
+                return true;
+            } catch (IOException e) {
+                e.printStackTrace();
+                mIsClosed = true;
+                return false;
+            }
+        }
+    }
+
+    /**
+     * 对齐索引和目录里的文件，再按最后访问时间建立LRU顺序
+     */
+    private void loadEntries() {
+        File[] files = mDir.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                String name = file.getName();
+                if (name.endsWith(TMP_SUFFIX)) {
+                    file.delete();
+                } else if (name.endsWith(ENTRY_SUFFIX)) {
+                    long hash = parseHash(name.substring(0, name.length() - ENTRY_SUFFIX.length()));
+                    if (hash == 0 || mIndex.find(hash) < 0) {
+                        file.delete();
+                    }
+                }
+            }
+        }
+        List<long[]> live = new ArrayList<>();
+        for (int slot = 0; slot < mIndex.capacity(); slot++) {
+            if (!mIndex.isLive(slot))
+                continue;
+            long hash = mIndex.getHash(slot);
+            File file = entryFile(hash);
+            if (!file.isFile()) {
+                mIndex.remove(slot);
+                continue;
+            }
+            live.add(new long[]{hash, mIndex.getLastAccess(slot), file.length()});
+        }
+        Collections.sort(live, new Comparator<long[]>() {
+            @Override
+            public int compare(long[] lhs, long[] rhs) {
+                return lhs[1] < rhs[1] ? -1 : (lhs[1] == rhs[1] ? 0 : 1);
+            }
+        });
+        mLru.clear();
+        mTotalSize = 0;
+        for (long[] item : live) {
+            mLru.put(item[0], item[2]);
+            mTotalSize += item[2];
+        }
+        if (mIndex.isFull()) {
+            mIndex.compact();
+        }
+        trimToSize();
+    }
+
+    private HttpURLConnection open(String url, Map<String, String> requestHeaders, Entry entry) throws IOException {
+        HttpURLConnection connection = (HttpURLConnection) new URL(url).openConnection();
+        connection.setUseCaches(false);
+        connection.setInstanceFollowRedirects(false);
+        connection.setConnectTimeout(CONNECT_TIMEOUT);
+        connection.setReadTimeout(READ_TIMEOUT);
+        if (requestHeaders != null) {
+            for (Map.Entry<String, String> header : requestHeaders.entrySet()) {
+                connection.setRequestProperty(header.getKey(), header.getValue());
+            }
+        }
+        connection.setRequestProperty("Accept-Encoding", "gzip");
+        if (entry != null) {
+            String etag = HttpHeaders.get(entry.headers, "ETag");
+            String lastModified = HttpHeaders.get(entry.headers, "Last-Modified");
+            if (etag != null) {
+                connection.setRequestProperty("If-None-Match", etag);
+            }
+            if (lastModified != null) {
+                connection.setRequestProperty("If-Modified-Since", lastModified);
+            }
+        }
+        return connection;
+    }
+
+    private static Map<String, String> readHeaders(HttpURLConnection connection) {
+        Map<String, String> headers = new LinkedHashMap<>();
+        for (Map.Entry<String, List<String>> field : connection.getHeaderFields().entrySet()) {
+            String name = field.getKey();
+            if (name == null || isSkipped(name) || field.getValue() == null)
+                continue;
+            StringBuilder value = new StringBuilder();
+            for (String item : field.getValue()) {
+                if (value.length() > 0) {
+                    value.append(", ");
+                }
+                value.append(item);
+            }
+            headers.put(name, value.toString());
+        }
+        return headers;
+    }
+
+    private static boolean isSkipped(String name) {
+        for (String skipped : SKIPPED_HEADERS) {
+            if (skipped.equalsIgnoreCase(name))
+                return true;
+        }
+        return false;
+    }
+
+    /**
+     * 服务器给的max-age和Expires优先，no-cache每次都验证，都没有时用{@link CachePolicy}的默认值
+     */
+    private long computeExpiresAt(Map<String, String> headers, String mimeType, long now) {
+        String cacheControl = HttpHeaders.get(headers, "Cache-Control");
+        if (HttpHeaders.hasDirective(cacheControl, "no-cache") || HttpHeaders.hasDirective(HttpHeaders.get(headers, "Pragma"), "no-cache"))
+            return now;
+        long maxAge = HttpHeaders.maxAgeMillis(cacheControl);
+        if (maxAge != HttpHeaders.NO_MAX_AGE)
+            return now + maxAge;
+        long expires = HttpHeaders.parseDate(HttpHeaders.get(headers, "Expires"));
+        if (expires >= 0) {
+            long date = HttpHeaders.parseDate(HttpHeaders.get(headers, "Date"));
+            return now + Math.max(0, expires - (date >= 0 ? date : now));
+        }
+        return now + mPolicy.getDefaultFreshMillis(mimeType);
+    }
+
+    /**
+     * 文件名是16位十六进制，最高位是1时超出Long.parseLong的范围，分成两半解析
+     *
+     * @return 格式不对时返回0
+     */
+    private static long parseHash(String hex) {
+        if (hex.length() != 16)
+            return 0;
+        try {
+            return Long.parseLong(hex.substring(0, 8), 16) << 32 | Long.parseLong(hex.substring(8), 16);
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+
+    private File entryFile(long hash) {
+        return new File(mDir, String.format(Locale.US, "%016x", hash) + ENTRY_SUFFIX);
+    }
+
+    /**
+     * @return 文件不存在、格式不对或者url不一致（hash冲突）时返回null
+     */
+    private Entry readEntry(long hash, String url) {
+        DataInputStream in = null;
+        try {
+            in = new DataInputStream(new BufferedInputStream(new FileInputStream(entryFile(hash))));
+            if (in.readInt() != ENTRY_MAGIC || in.readInt() != ENTRY_VERSION || !url.equals(in.readUTF())) {
+                in.close();
+                return null;
+            }
+            int status = in.readInt();
+            String reason = in.readUTF();
+            int count = in.readInt();
+            Map<String, String> headers = new LinkedHashMap<>();
+            for (int i = 0; i < count; i++) {
+                headers.put(in.readUTF(), in.readUTF());
+            }
+            return new Entry(status, reason, headers, in);
+        } catch (IOException e) {
+            e.printStackTrace();
+            if (in != null) {
+                try {
+                    in.close();
+                } catch (IOException ignored) {
+                }
+            }
+            return null;
+        }
+    }
+
+    /**
+     * 写入完成，替换旧文件并更新索引，需要持有锁
+     */
+    private void commit(long hash, File tmp, long expiresAt) {
+        File file = entryFile(hash);
+        long size = tmp.length();
+        if (file.exists()) {
+            removeEntry(hash, false);
+        }
+        if (!tmp.renameTo(file)) {
+            tmp.delete();
+            appendJournal(CacheJournal.OP_REMOVE, hash);
+            return;
+        }
+        if (mIndex.isFull()) {
+            mIndex.compact();
+        }
+        if (mLru.size() >= mMaxEntries || mIndex.isFull()) {
+            evictEldest();
+        }
+        mIndex.put(hash, (int) size, System.currentTimeMillis(), expiresAt);
+        mLru.put(hash, size);
+        mTotalSize += size;
+        appendJournal(CacheJournal.OP_CLEAN, hash);
+        mBytesWritten.addAndGet(size);
+        trimToSize();
+    }
+
+    private void trimToSize() {
+        while (mTotalSize > mMaxSize && !mLru.isEmpty()) {
+            evictEldest();
+        }
+    }
+
+    private void evictEldest() {
+        Iterator<Long> iterator = mLru.keySet().iterator();
+        if (!iterator.hasNext())
+            return;
+        removeEntry(iterator.next(), true);
+        mEvictions.incrementAndGet();
+    }
+
+    private void removeEntry(long hash, boolean deleteFile) {
+        Long size = mLru.remove(hash);
+        if (size != null) {
+            mTotalSize -= size;
+        }
+        int slot = mIndex.find(hash);
+        if (slot >= 0) {
+            mIndex.remove(slot);
+        }
+        if (deleteFile) {
+            entryFile(hash).delete();
+            appendJournal(CacheJournal.OP_REMOVE, hash);
+        }
+    }
+
+    private void appendJournal(byte op, long hash) {
+        long now = System.currentTimeMillis();
+        if (!mJournal.append(op, hash, now)) {
+            //日志满了，先让索引落盘，之前的记录就不再需要了
+            mIndex.force();
+            mJournal.reset();
+            mJournal.append(op, hash, now);
+        }
+    }
+
+    /**
+     * 本地缓存文件，流已经读到body的开头
+     */
+    private static final class Entry {
+        final int status;
+        final String reason;
+        final Map<String, String> headers;
+        final InputStream body;
+
+        Entry(int status, String reason, Map<String, String> headers, InputStream body) {
+            this.status = status;
+            this.reason = reason;
+            this.headers = headers;
+            this.body = body;
+        }
+
+        CachedResponse toResponse(int source) {
+            return new CachedResponse(source, status, reason, headers, body);
+        }
+
+        void close() {
+            try {
+                body.close();
+            } catch (IOException ignored) {
+            }
+        }
+    }
+
+    /**
+     * WebView读网络body的同时写到临时文件，读到结尾才提交；中途关闭、出错或者超过单条上限都放弃写入，不影响WebView读取
+     */
+    private final class CacheWriter extends FilterInputStream {
+
+        private final long mHash;
+        private final long mExpiresAt;
+        private final File mTmp;
+        private DataOutputStream mOut;
+        private long mWritten;
+        private boolean mIsDone;
+
+        CacheWriter(InputStream in, long hash, String url, int status, String reason, Map<String, String> headers, long expiresAt) {
+            super(in);
+            mHash = hash;
+            mExpiresAt = expiresAt;
+            mTmp = new File(mDir, String.format(Locale.US, "%016x.%d", hash, mTmpSequence.incrementAndGet()) + TMP_SUFFIX);
+            try {
+                mOut = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(mTmp)));
+                mOut.writeInt(ENTRY_MAGIC);
+                mOut.writeInt(ENTRY_VERSION);
+                mOut.writeUTF(url);
+                mOut.writeInt(status);
+                mOut.writeUTF(reason == null ? "" : reason);
+                mOut.writeInt(headers.size());
+                for (Map.Entry<String, String> header : headers.entrySet()) {
+                    mOut.writeUTF(header.getKey());
+                    mOut.writeUTF(header.getValue());
+                }
+                synchronized (mLock) {
+                    if (mIsClosed) {
+                        abort();
+                    } else {
+                        appendJournal(CacheJournal.OP_DIRTY, mHash);
+                    }
+                }
+            } catch (IOException e) {
+                e.printStackTrace();
+                abort();
+            }
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b < 0) {
+                finish();
+            } else if (mOut != null) {
+                write(new byte[]{(byte) b}, 0, 1);
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int count) throws IOException {
+            int read = super.read(buffer, offset, count);
+            if (read < 0) {
+                finish();
+            } else if (read > 0 && mOut != null) {
+                write(buffer, offset, read);
+            }
+            return read;
+        }
+
+        @Override
+        public void close() throws IOException {
+            abort();
+            super.close();
+        }
+
+        private void write(byte[] buffer, int offset, int count) {
+            mWritten += count;
+            if (mWritten > mMaxEntryBytes) {
+                abort();
+                return;
+            }
+            try {
+                mOut.write(buffer, offset, count);
+            } catch (IOException e) {
+                e.printStackTrace();
+                abort();
+            }
+        }
+
+        private void finish() {
+            if (mIsDone || mOut == null)
+                return;
+            mIsDone = true;
+            try {
+                mOut.close();
+            } catch (IOException e) {
+                e.printStackTrace();
+                mOut = null;
+                abort();
+                return;
+            }
+            mOut = null;
+            synchronized (mLock) {
+                if (mIsClosed) {
+                    mTmp.delete();
+                    return;
+                }
+                commit(mHash, mTmp, mExpiresAt);
+            }
+        }
+
+        private void abort() {
+            if (mIsDone)
+                return;
+            mIsDone = true;
+            if (mOut != null) {
+                try {
+                    mOut.close();
+                } catch (IOException ignored) {
+                }
+                mOut = null;
+            }
+            mTmp.delete();
+            synchronized (mLock) {
+                if (!mIsClosed && mJournal != null) {
+                    appendJournal(CacheJournal.OP_REMOVE, mHash);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,97 @@
+package com.levylin.detailscrollview.web.bundle;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.Charset;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+public class ArticleBundleTest {
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+    private static final String BASE_URL = "https://example.com/article/123/";
+
+    private File mDir;
+    private File mFile;
+
+    @Before
+    public void setUp() throws IOException {
+        mDir = new File(System.getProperty("java.io.tmpdir"), "article-bundle-" + System.nanoTime());
+        mDir.mkdirs();
+        mFile = new File(mDir, "123" + BundleResolver.BUNDLE_SUFFIX);
+        byte[] image = new byte[1001];
+        for (int i = 0; i < image.length; i++) {
+            image[i] = (byte) i;
+        }
+        new ArticleBundleWriter(BASE_URL)
+                .add("index.html", null, "utf-8", "<html>文章</html>".getBytes(UTF_8))
+                .add("css/main.css", null, "utf-8", "body{}".getBytes(UTF_8))
+                .add("img/1.png", null, null, image)
+                .write(mFile);
+    }
+
+    @After
+    public void tearDown() {
+        mFile.delete();
+        mDir.delete();
+    }
+
+    @Test
+    public void open_roundTrip() throws IOException {
+        ArticleBundle bundle = ArticleBundle.open(mFile);
+        assertEquals(BASE_URL, bundle.getBaseUrl());
+        assertEquals(3, bundle.getEntryCount());
+
+        BundleResource html = bundle.get("index.html");
+        assertEquals("text/html", html.getMimeType());
+        assertEquals("utf-8", html.getEncoding());
+        assertEquals("<html>文章</html>", new String(read(html.getBody()), UTF_8));
+
+        BundleResource image = bundle.get("img/1.png");
+        assertEquals("image/png", image.getMimeType());
+        assertNull(image.getEncoding());
+        byte[] bytes = read(image.getBody());
+        assertEquals(1001, bytes.length);
+        assertEquals((byte) 1000, bytes[1000]);
+    }
+
+    @Test
+    public void resolve_mapsUrlsToEntries() {
+        BundleResolver resolver = new BundleResolver();
+        resolver.addDirectory(mDir);
+        assertEquals("index.html", resolver.resolve(BASE_URL).getPath());
+        assertEquals("index.html", resolver.resolve(BASE_URL + "index.html#comments").getPath());
+        assertEquals("css/main.css", resolver.resolve(BASE_URL + "css/main.css?v=3").getPath());
+        assertNull(resolver.resolve(BASE_URL + "img/2.png"));
+        assertNull(resolver.resolve("https://example.com/article/124/index.html"));
+    }
+
+    @Test
+    public void resolve_sameBodyReadConcurrently() throws IOException {
+        BundleResolver resolver = new BundleResolver();
+        assertNotNull(resolver.register(mFile));
+        InputStream first = resolver.resolve(BASE_URL + "css/main.css").getBody();
+        InputStream second = resolver.resolve(BASE_URL + "css/main.css").getBody();
+        assertEquals('b', first.read());
+        assertEquals("body{}", new String(read(second), UTF_8));
+        assertEquals("ody{}", new String(read(first), UTF_8));
+    }
+
+    private static byte[] read(InputStream in) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buffer = new byte[256];
+        int read;
+        while ((read = in.read(buffer)) != -1) {
+            out.write(buffer, 0, read);
+        }
+        return out.toByteArray();
+    }
+}
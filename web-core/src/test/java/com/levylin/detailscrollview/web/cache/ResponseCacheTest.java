@@ -0,0 +1,249 @@
+package com.levylin.detailscrollview.web.cache;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.Charset;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * 用本地的HttpServer代替文章服务器
+ */
+public class ResponseCacheTest {
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    private HttpServer mServer;
+    private String mBaseUrl;
+    private File mDir;
+    private ResponseCache mCache;
+    private final AtomicInteger mRequests = new AtomicInteger();
+    private final AtomicInteger mNotModified = new AtomicInteger();
+
+    @Before
+    public void setUp() throws IOException {
+        mServer = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        mServer.createContext("/", new HttpHandler() {
+            @Override
+            public void handle(HttpExchange exchange) throws IOException {
+                mRequests.incrementAndGet();
+                String path = exchange.getRequestURI().getPath();
+                if (path.startsWith("/fresh/")) {
+                    send(exchange, 200, "text/css", "max-age=3600", null, "body{}" + path);
+                } else if (path.startsWith("/etag/")) {
+                    if ("\"v1\"".equals(exchange.getRequestHeaders().getFirst("If-None-Match"))) {
+                        mNotModified.incrementAndGet();
+                        send(exchange, 304, null, "no-cache", "\"v1\"", null);
+                    } else {
+                        send(exchange, 200, "text/html; charset=utf-8", "no-cache", "\"v1\"", "<html>" + path + "</html>");
+                    }
+                } else if (path.startsWith("/cookie/")) {
+                    exchange.getResponseHeaders().set("Set-Cookie", "session=1; Path=/");
+                    send(exchange, 200, "text/css", "max-age=3600", null, "cookie");
+                } else if (path.startsWith("/nostore/")) {
+                    send(exchange, 200, "text/css", "no-store", null, "nostore");
+                } else if (path.startsWith("/big/")) {
+                    StringBuilder body = new StringBuilder();
+                    for (int i = 0; i < 100; i++) {
+                        body.append("0123456789");
+                    }
+                    send(exchange, 200, "image/png", "max-age=3600", null, body.toString());
+                } else {
+                    send(exchange, 404, "text/plain", null, null, "not found");
+                }
+            }
+        });
+        mServer.start();
+        mBaseUrl = "http://127.0.0.1:" + mServer.getAddress().getPort();
+        mDir = new File(System.getProperty("java.io.tmpdir"), "response-cache-" + System.nanoTime());
+        mCache = new ResponseCache(mDir, 64 * 1024, 64, CachePolicy.createDefault());
+    }
+
+    @After
+    public void tearDown() {
+        mCache.close();
+        mServer.stop(0);
+        File[] files = mDir.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                file.delete();
+            }
+        }
+        mDir.delete();
+    }
+
+    @Test
+    public void get_freshEntry_servedWithoutNetwork() throws IOException {
+        String url = mBaseUrl + "/fresh/a.css";
+        CachedResponse first = mCache.get(url, null);
+        assertNotNull(first);
+        assertEquals(CachedResponse.SOURCE_NETWORK, first.getSource());
+        assertEquals("body{}/fresh/a.css", read(first));
+
+        CachedResponse second = mCache.get(url, null);
+        assertNotNull(second);
+        assertEquals(CachedResponse.SOURCE_CACHE, second.getSource());
+        assertEquals("text/css", second.getMimeType());
+        assertEquals("body{}/fresh/a.css", read(second));
+        assertEquals(1, mRequests.get());
+        assertEquals(1, mCache.getHitCount());
+        assertEquals(1, mCache.getMissCount());
+        assertTrue(mCache.getBytesSaved() > 0);
+    }
+
+    @Test
+    public void get_staleEntryWithEtag_revalidatedWith304() throws IOException {
+        String url = mBaseUrl + "/etag/article.html";
+        assertEquals("<html>/etag/article.html</html>", read(mCache.get(url, null)));
+
+        CachedResponse second = mCache.get(url, null);
+        assertNotNull(second);
+        assertEquals(CachedResponse.SOURCE_REVALIDATED, second.getSource());
+        assertEquals("utf-8", second.getEncoding());
+        assertEquals("<html>/etag/article.html</html>", read(second));
+        assertEquals(1, mNotModified.get());
+        assertEquals(1, mCache.getRevalidatedHitCount());
+    }
+
+    @Test
+    public void get_noStore_notCached() throws IOException {
+        String url = mBaseUrl + "/nostore/a.css";
+        read(mCache.get(url, null));
+        CachedResponse second = mCache.get(url, null);
+        assertEquals(CachedResponse.SOURCE_NETWORK, second.getSource());
+        read(second);
+        assertEquals(2, mRequests.get());
+        assertEquals(0, mCache.entryCount());
+    }
+
+    @Test
+    public void get_notFound_leftToWebView() {
+        assertEquals(null, mCache.get(mBaseUrl + "/missing", null));
+    }
+
+    @Test
+    public void get_requestWithCookie_leftToWebView() {
+        Map<String, String> headers = new HashMap<>();
+        headers.put("cookie", "session=1");
+        assertEquals(null, mCache.get(mBaseUrl + "/fresh/user.css", headers));
+        assertEquals(0, mRequests.get());
+    }
+
+    @Test
+    public void get_responseSetsCookie_leftToWebView() {
+        String url = mBaseUrl + "/cookie/a.css";
+        assertEquals(null, mCache.get(url, null));
+        assertEquals(null, mCache.get(url, null));
+        assertEquals(0, mCache.entryCount());
+    }
+
+    @Test
+    public void get_closedBeforeEof_notCached() throws IOException {
+        String url = mBaseUrl + "/fresh/partial.css";
+        CachedResponse first = mCache.get(url, null);
+        first.getBody().read();
+        first.getBody().close();
+        assertEquals(0, mCache.entryCount());
+        assertEquals(CachedResponse.SOURCE_NETWORK, mCache.get(url, null).getSource());
+    }
+
+    @Test
+    public void get_overMaxSize_evictsLeastRecentlyUsed() throws IOException {
+        mCache.close();
+        mCache = new ResponseCache(mDir, 8 * 1024, 64, CachePolicy.createDefault());
+        for (int i = 0; i < 20; i++) {
+            read(mCache.get(mBaseUrl + "/big/" + i + ".png", null));
+        }
+        assertTrue(mCache.size() <= 8 * 1024);
+        assertTrue(mCache.getEvictionCount() > 0);
+        mRequests.set(0);
+        assertEquals(CachedResponse.SOURCE_CACHE, readSource(mBaseUrl + "/big/19.png"));
+        assertEquals(CachedResponse.SOURCE_NETWORK, readSource(mBaseUrl + "/big/0.png"));
+        assertEquals(1, mRequests.get());
+    }
+
+    @Test
+    public void get_afterReopen_entriesPersisted() throws IOException {
+        String url = mBaseUrl + "/fresh/persist.css";
+        read(mCache.get(url, null));
+        mCache.close();
+
+        mCache = new ResponseCache(mDir, 64 * 1024, 64, CachePolicy.createDefault());
+        CachedResponse response = mCache.get(url, null);
+        assertEquals(CachedResponse.SOURCE_CACHE, response.getSource());
+        assertEquals("body{}/fresh/persist.css", read(response));
+        assertEquals(1, mRequests.get());
+        assertFalse(new File(mDir, "index").length() == 0);
+    }
+
+    @Test
+    public void get_afterReopen_keepsEntriesWithNegativeHash() throws IOException {
+        String url = null;
+        for (int i = 0; url == null; i++) {
+            String candidate = mBaseUrl + "/fresh/" + i + ".css";
+            if (HttpHeaders.hash(candidate) < 0) {
+                url = candidate;
+            }
+        }
+        read(mCache.get(url, null));
+        mCache.close();
+
+        mCache = new ResponseCache(mDir, 64 * 1024, 64, CachePolicy.createDefault());
+        assertEquals(CachedResponse.SOURCE_CACHE, readSource(url));
+        assertEquals(1, mRequests.get());
+    }
+
+    private int readSource(String url) throws IOException {
+        CachedResponse response = mCache.get(url, null);
+        read(response);
+        return response.getSource();
+    }
+
+    private static String read(CachedResponse response) throws IOException {
+        InputStream in = response.getBody();
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buffer = new byte[1024];
+        int read;
+        while ((read = in.read(buffer)) != -1) {
+            out.write(buffer, 0, read);
+        }
+        in.close();
+        return new String(out.toByteArray(), UTF_8);
+    }
+
+    private static void send(HttpExchange exchange, int code, String contentType, String cacheControl, String etag,
+                             String body) throws IOException {
+        if (contentType != null) {
+            exchange.getResponseHeaders().set("Content-Type", contentType);
+        }
+        if (cacheControl != null) {
+            exchange.getResponseHeaders().set("Cache-Control", cacheControl);
+        }
+        if (etag != null) {
+            exchange.getResponseHeaders().set("ETag", etag);
+        }
+        byte[] bytes = body == null ? new byte[0] : body.getBytes(UTF_8);
+        exchange.sendResponseHeaders(code, body == null ? -1 : bytes.length);
+        OutputStream out = exchange.getResponseBody();
+        out.write(bytes);
+        out.close();
+    }
+}